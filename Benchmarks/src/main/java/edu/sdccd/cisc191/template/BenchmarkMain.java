@@ -0,0 +1,30 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH suites with the options every build should record: results
+ * written as JSON, and the GC profiler attached so each result carries the
+ * bytes allocated per operation next to its score. Any option given on the
+ * command line is passed to JMH unchanged and wins over these defaults.
+ */
+public class BenchmarkMain {
+    /** Where results are written when no -rff option is given. */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.addAll(List.of("-rf", "json"));
+        }
+        if (!options.contains("-rff")) {
+            options.addAll(List.of("-rff", DEFAULT_RESULT_FILE));
+        }
+        if (!options.contains("-prof")) {
+            options.addAll(List.of("-prof", "gc"));
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
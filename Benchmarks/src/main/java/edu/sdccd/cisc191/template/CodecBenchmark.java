@@ -0,0 +1,83 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding {@link CustomerRequest} and
+ * {@link CustomerResponse} messages in each {@link MessageFormat}, using a
+ * single unit lookup for requests and a whole unit list for responses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    @Param({"JSON", "SMILE"})
+    public MessageFormat format;
+
+    private JsonFactory requestFactory;
+    private CustomerRequest request;
+    private byte[] encodedRequest;
+    private CustomerResponse response;
+    private byte[] encodedResponse;
+
+    @Setup
+    public void setUp() throws IOException {
+        requestFactory = format == MessageFormat.SMILE ? new SmileFactory() : new JsonFactory();
+        request = CustomerRequest.unit("T-14 Armata");
+        encodedRequest = encodeRequest();
+
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        response = CustomerResponse.units(1, units);
+        encodedResponse = format.encode(response);
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (JsonGenerator gen = requestFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            CustomerRequestCodec.write(gen, request);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public CustomerRequest decodeRequest() throws IOException {
+        try (JsonParser p = requestFactory.createParser(encodedRequest)) {
+            p.nextToken();
+            return CustomerRequestCodec.read(p);
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() throws IOException {
+        return format.encode(response);
+    }
+
+    @Benchmark
+    public CustomerResponse decodeResponse() throws IOException {
+        return format.decode(encodedResponse);
+    }
+}
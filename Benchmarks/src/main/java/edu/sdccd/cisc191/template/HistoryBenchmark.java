@@ -0,0 +1,99 @@
+package edu.sdccd.cisc191.template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares queries against the current {@link UnitCatalog} snapshot with the
+ * same queries "as of" an old version of a {@link UnitHistory}. The history
+ * holds a given number of patches over 10,000 units, each patch changing
+ * the prices of 50 of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    private static final int UNITS = 10_000;
+    private static final int CHANGES_PER_PATCH = 50;
+
+    @Param({"10", "1000"})
+    public int patches;
+
+    private UnitCatalog.Snapshot snapshot;
+    private UnitHistory history;
+    private String[] names;
+    private long asOf;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = Files.createTempFile("units-", ".csv");
+        file.toFile().deleteOnExit();
+        new UnitDatasetGenerator(42, 0).write(file, UNITS);
+        List<Unit> units = UnitStatsLoader.loadUnits(file.toString());
+
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Unit> current = new HashMap<>();
+        units.forEach(unit -> current.put(unit.getUnitName(), unit));
+        history = new UnitHistory();
+        for (int patch = 1; patch <= patches; patch++) {
+            for (int i = 0; patch > 1 && i < CHANGES_PER_PATCH; i++) {
+                Unit unit = units.get(random.nextInt(units.size()));
+                current.put(unit.getUnitName(), UnitGenerator.createUnit(unit.getUnitType(), unit.getUnitName(),
+                        unit.getSpecialization(), unit.getPrice() + patch, unit.getArmor(), unit.getHealth(),
+                        unit.getSightRange(), unit.getUnseenRange(), unit.getSpeed(), unit.getWeight(),
+                        unit.getAbilities(), unit.getExtraStat()));
+            }
+            history.addVersion(patch, current.values());
+        }
+        snapshot = new UnitCatalog(units).snapshot();
+        names = units.stream().map(Unit::getUnitName).toArray(String[]::new);
+        asOf = patches / 2;
+    }
+
+    private String nextName() {
+        next = (next + 1) % names.length;
+        return names[next];
+    }
+
+    @Benchmark
+    public Unit getCurrent() {
+        return snapshot.get(nextName());
+    }
+
+    @Benchmark
+    public Unit getAsOf() {
+        return history.get(nextName(), asOf);
+    }
+
+    @Benchmark
+    public List<Unit> listCurrent() {
+        return snapshot.list("Tank");
+    }
+
+    @Benchmark
+    public List<Unit> listAsOf() {
+        return history.list("Tank", asOf);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.sdccd.cisc191.template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a catalog: {@link UnitStatsLoader#loadUnits(String)}
+ * reading and splitting a whole CSV, and {@link UnitGenerator#createUnit(String[])}
+ * turning already split rows into units, at several catalog sizes. The
+ * catalogs come from {@link UnitDatasetGenerator} with a fixed seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoaderBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private String path;
+    private String[][] rows;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = Files.createTempFile("units-" + size + "-", ".csv");
+        file.toFile().deleteOnExit();
+        new UnitDatasetGenerator(SEED, 0).write(file, size);
+        path = file.toString();
+
+        StringWriter csv = new StringWriter();
+        new UnitDatasetGenerator(SEED, 0).write(csv, size);
+        String[] lines = csv.toString().split("\n");
+        rows = new String[size][];
+        for (int i = 0; i < rows.length; i++) {
+            // The same split UnitStatsLoader uses, after the header, so createUnit sees the same fields
+            rows[i] = lines[i + 1].split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+        }
+    }
+
+    @Benchmark
+    public List<Unit> loadUnits() {
+        return UnitStatsLoader.loadUnits(path);
+    }
+
+    @Benchmark
+    public void createUnits(Blackhole blackhole) {
+        for (String[] row : rows) {
+            // createUnit strips quotes in place, so give it a copy to keep every invocation alike
+            blackhole.consume(UnitGenerator.createUnit(row.clone()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, such as the last release's and this
+ * build's, and fails when a benchmark got slower or allocates more per
+ * operation than the allowed tolerance.
+ * <p>
+ * Usage: {@code ResultComparison baseline.json current.json [maxSlowdown%] [maxAllocationIncrease%]}.
+ * Exits with status 1 if any benchmark regressed.
+ */
+public class ResultComparison {
+    static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    /**
+     * One benchmark's primary score and its bytes allocated per operation,
+     * or NaN when the run had no GC profiler.
+     */
+    record Result(String mode, double score, String unit, double bytesPerOp) {
+        /** @return whether a larger score is better, as for throughput */
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ResultComparison <baseline.json> <current.json> [maxSlowdown%] [maxAllocationIncrease%]");
+            System.exit(2);
+        }
+        double maxSlowdown = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        double maxAllocationIncrease = args.length > 3 ? Double.parseDouble(args[3]) : 5;
+
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : new TreeMap<>(current).entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-70s %12.3f %s (new)%n", entry.getKey(), after.score(), after.unit());
+                continue;
+            }
+            double slowdown = slowdown(before, after);
+            double allocationIncrease = change(before.bytesPerOp(), after.bytesPerOp());
+            boolean regressed = slowdown > maxSlowdown || allocationIncrease > maxAllocationIncrease;
+            System.out.printf("%-70s %12.3f %s %+7.1f%% time %+7.1f%% B/op%s%n", entry.getKey(), after.score(),
+                    after.unit(), slowdown, allocationIncrease, regressed ? "  REGRESSED" : "");
+            if (regressed) {
+                regressions++;
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a JMH JSON result file, keying each result by its benchmark name
+     * and parameters, e.g. {@code LoaderBenchmark.loadUnits size=100}.
+     */
+    static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode primary = run.path("primaryMetric");
+            results.put(key.toString(), new Result(run.path("mode").asText(), primary.path("score").asDouble(),
+                    primary.path("scoreUnit").asText(), bytesPerOp(run.path("secondaryMetrics"))));
+        }
+        return results;
+    }
+
+    private static double bytesPerOp(JsonNode secondaryMetrics) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = secondaryMetrics.fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            // Older JMH versions prefix profiler metrics with a middle dot
+            if (metric.getKey().replace("·", "").equals(ALLOCATION_METRIC)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /** @return how many percent slower the current result is; negative if it got faster */
+    static double slowdown(Result before, Result after) {
+        return before.higherIsBetter() ? -change(before.score(), after.score()) : change(before.score(), after.score());
+    }
+
+    /** @return the change from before to after in percent, or 0 if either is unknown or before is 0 */
+    static double change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return 0;
+        }
+        return (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.sdccd.cisc191.template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full request and response between a {@link Client} and a
+ * {@link Server} running in the same JVM over loopback, so the numbers
+ * include socket writes, framing, admission and the response cache but
+ * no real network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+    @Param({"JSON", "SMILE"})
+    public MessageFormat format;
+
+    private Server server;
+    private Client client;
+    private String unitName;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        unitName = units.get(0).getUnitName();
+        // No rate limit, or the benchmark would measure the token bucket
+        server = new Server(new UnitCatalog(units), new AdmissionController(2, 256, 0, 0));
+        int port = server.bind(0);
+        Thread.ofVirtual().start(server::serve);
+
+        client = new Client();
+        client.startConnection("127.0.0.1", port, format);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.stopConnection();
+        server.stop();
+    }
+
+    @Benchmark
+    public Unit getUnit() throws Exception {
+        return client.getUnit(unitName);
+    }
+
+    @Benchmark
+    public List<Unit> listUnits() throws Exception {
+        return client.listUnits(null);
+    }
+}
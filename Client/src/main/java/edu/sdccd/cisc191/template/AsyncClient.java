@@ -0,0 +1,429 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A client whose calls return at once with a {@link CompletableFuture}, so
+ * any number of threads can share a few connections without waiting on them.
+ *
+ * Each connection of the pool carries many calls at a time. A call only
+ * queues its request, so it never waits on the socket; a writer thread per
+ * connection sends whatever has queued up and flushes once per batch. The
+ * server answers a connection's requests in order, so a reader thread per
+ * connection completes the futures of the written requests from the front as
+ * responses arrive. A new call goes to the open connection with the fewest
+ * calls in flight.
+ *
+ * Every call has a timeout, after which its future fails with a
+ * {@link TimeoutException}. A connection that stays quiet is pinged, and one
+ * that does not answer in time, or fails, is closed: its outstanding calls
+ * fail with an IOException and it reconnects in the background, waiting
+ * longer after each failed attempt. Connecting also gives up after the
+ * default timeout, and reconnects run on threads of their own, so a server
+ * that does not answer holds up neither the health checks nor other
+ * connections. Calls are not retried, since only the
+ * caller knows whether a request is safe to send twice.
+ */
+public final class AsyncClient implements Closeable {
+    /** How long a call may take when no timeout is given. */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+    /** How often idle connections are pinged. */
+    static final long HEALTH_CHECK_MILLIS = 1000;
+    private static final long MIN_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final String host;
+    private final int port;
+    private final MessageFormat format;
+    private final Duration timeout;
+    private final Slot[] pool;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder reconnects = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Opens a pool of Smile connections with the default timeout.
+     *
+     * @param host     the server's host
+     * @param port     the server's port
+     * @param poolSize how many connections to keep open
+     * @throws IOException if no connection can be opened
+     */
+    public AsyncClient(String host, int port, int poolSize) throws IOException {
+        this(host, port, poolSize, MessageFormat.SMILE, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Opens a pool of connections. Connections that cannot be opened now are
+     * retried in the background.
+     *
+     * @param host     the server's host
+     * @param port     the server's port
+     * @param poolSize how many connections to keep open
+     * @param format   the encoding to use
+     * @param timeout  how long a call may take when no timeout is given, and how long to wait for a connection
+     * @throws IOException if no connection can be opened
+     */
+    public AsyncClient(String host, int port, int poolSize, MessageFormat format, Duration timeout) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.format = format;
+        this.timeout = timeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                task -> Thread.ofPlatform().daemon().name("async-client-health").unstarted(task));
+        this.pool = new Slot[poolSize];
+        IOException failure = null;
+        for (int i = 0; i < poolSize; i++) {
+            pool[i] = new Slot();
+            try {
+                pool[i].connect();
+            } catch (IOException e) {
+                failure = e;
+                pool[i].scheduleReconnect();
+            }
+        }
+        if (getOpenConnections() == 0) {
+            close();
+            throw failure != null ? failure : new IOException("Pool size must be positive");
+        }
+        scheduler.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_MILLIS, HEALTH_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a request with the default timeout.
+     *
+     * @param request the request to send
+     * @return the response; fails with {@link ServerBusyException} if the server
+     *         refused the request for now, {@link ServerErrorException} if it
+     *         reported an error, or IOException if the connection failed
+     */
+    public CompletableFuture<CustomerResponse> send(CustomerRequest request) {
+        return send(request, timeout);
+    }
+
+    /**
+     * Sends a request.
+     *
+     * @param request the request to send
+     * @param timeout how long to wait for the response
+     * @return the response, failing as for {@link #send(CustomerRequest)} or
+     *         with a TimeoutException
+     */
+    public CompletableFuture<CustomerResponse> send(CustomerRequest request, Duration timeout) {
+        if (request.getType() == RequestType.SUBSCRIBE || request.getType() == RequestType.COMPRESS) {
+            // Both change what a connection carries, which other calls on it would not expect
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException(request.getType() + " requests need a dedicated Client"));
+        }
+        Link link = pick();
+        if (link == null) {
+            return CompletableFuture.failedFuture(new IOException("No connection to " + host + ":" + port + " is open"));
+        }
+        return link.send(request).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Looks up a single unit.
+     *
+     * @param unitName the unit's name
+     * @return the unit; fails with IOException if it does not exist
+     */
+    public CompletableFuture<Unit> getUnit(String unitName) {
+        return send(CustomerRequest.unit(unitName)).thenApply(response -> response.getUnits().get(0));
+    }
+
+    /**
+     * Lists units sorted by name.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @return the units
+     */
+    public CompletableFuture<List<Unit>> listUnits(String unitType) {
+        return send(CustomerRequest.list(unitType)).thenApply(CustomerResponse::getUnits);
+    }
+
+    /**
+     * Reads the server's performance counters.
+     *
+     * @return the counters by name
+     */
+    public CompletableFuture<Map<String, Number>> getStats() {
+        return send(CustomerRequest.stats()).thenApply(CustomerResponse::getStats);
+    }
+
+    // The open connection with the fewest calls in flight, starting the search at the next in turn
+    private Link pick() {
+        Link best = null;
+        int start = Math.floorMod(next.getAndIncrement(), pool.length);
+        for (int i = 0; i < pool.length; i++) {
+            Link link = pool[(start + i) % pool.length].link;
+            if (link != null && link.open && (best == null || link.inFlight.get() < best.inFlight.get())) {
+                best = link;
+            }
+        }
+        return best;
+    }
+
+    // Pings every connection that has been quiet for a health check interval
+    private void checkHealth() {
+        long quietNanos = TimeUnit.MILLISECONDS.toNanos(HEALTH_CHECK_MILLIS);
+        for (Slot slot : pool) {
+            Link link = slot.link;
+            if (link == null || !link.open || System.nanoTime() - link.lastHeardNanos < quietNanos) {
+                continue;
+            }
+            link.send(CustomerRequest.ping())
+                    .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((pong, e) -> {
+                        if (e instanceof TimeoutException) {
+                            link.fail(new IOException("Health check timed out"));
+                        }
+                    });
+        }
+    }
+
+    /**
+     * @return how many connections of the pool are open
+     */
+    public int getOpenConnections() {
+        int open = 0;
+        for (Slot slot : pool) {
+            Link link = slot.link;
+            if (link != null && link.open) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * @return how many calls are waiting for a response
+     */
+    public int getInFlight() {
+        int inFlight = 0;
+        for (Slot slot : pool) {
+            Link link = slot.link;
+            if (link != null) {
+                inFlight += link.inFlight.get();
+            }
+        }
+        return inFlight;
+    }
+
+    /**
+     * @return how many times a connection was reopened after failing
+     */
+    public long getReconnects() {
+        return reconnects.sum();
+    }
+
+    /**
+     * Closes every connection. Calls still in flight fail with an IOException.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        for (Slot slot : pool) {
+            Link link = slot.link;
+            if (link != null) {
+                link.fail(new IOException("Client closed"));
+            }
+        }
+    }
+
+    // One place in the pool, which reconnects with a new link when its link fails
+    private final class Slot {
+        volatile Link link;
+        private final AtomicBoolean reconnecting = new AtomicBoolean();
+        private long backoffMillis = MIN_BACKOFF_MILLIS;
+
+        void connect() throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), (int) Math.min(timeout.toMillis(), Integer.MAX_VALUE));
+                socket.setTcpNoDelay(true);
+                link = new Link(this, socket);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void scheduleReconnect() {
+            if (closed || !reconnecting.compareAndSet(false, true)) {
+                return;
+            }
+            // Jitter keeps a pool, or many clients, from reconnecting in lockstep
+            long delay = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+            try {
+                // Connecting can block, which the scheduler thread that runs health checks must not
+                scheduler.schedule(() -> Thread.ofVirtual().name("async-client-connect").start(this::reconnect),
+                        delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // The client was closed in the meantime
+                reconnecting.set(false);
+            }
+        }
+
+        private void reconnect() {
+            reconnecting.set(false);
+            if (closed) {
+                return;
+            }
+            try {
+                connect();
+                backoffMillis = MIN_BACKOFF_MILLIS;
+                reconnects.increment();
+            } catch (IOException e) {
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+                scheduleReconnect();
+            }
+        }
+    }
+
+    // A request waiting to be written, with the future its response completes
+    private record Call(CustomerRequest request, CompletableFuture<CustomerResponse> future) {
+    }
+
+    // One socket and the calls waiting on it; replaced, never reopened, when it fails
+    private final class Link {
+        final Slot slot;
+        final Socket socket;
+        final MessageWriter out;
+        // Calls not yet written, then the futures of written requests in the order they were sent
+        final BlockingQueue<Call> outbox = new LinkedBlockingQueue<>();
+        final Queue<CompletableFuture<CustomerResponse>> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Thread writer;
+        volatile boolean open = true;
+        volatile IOException failure;
+        volatile long lastHeardNanos = System.nanoTime();
+
+        Link(Slot slot, Socket socket) throws IOException {
+            this.slot = slot;
+            this.socket = socket;
+            this.out = new MessageWriter(socket.getOutputStream(), format);
+            MessageReader in = new MessageReader(socket.getInputStream(), format);
+            // The writer first, since the reader fails the link through it
+            this.writer = Thread.ofVirtual().name("async-client-writer").start(this::write);
+            Thread.ofVirtual().name("async-client-reader").start(() -> read(in));
+        }
+
+        CompletableFuture<CustomerResponse> send(CustomerRequest request) {
+            CompletableFuture<CustomerResponse> future = new CompletableFuture<>();
+            if (!open) {
+                future.completeExceptionally(new IOException("Connection closed"));
+                return future;
+            }
+            inFlight.incrementAndGet();
+            outbox.add(new Call(request, future));
+            if (!open) {
+                // The link failed while the call was being queued, perhaps after failing the calls before it
+                failCalls();
+            }
+            return future;
+        }
+
+        // Writes queued requests as they arrive, flushing once nothing more is waiting
+        private void write() {
+            try {
+                while (open) {
+                    Call call = outbox.take();
+                    do {
+                        // Queued before writing, so the response cannot arrive before its future
+                        pending.add(call.future());
+                        out.writeUnflushed(call.request());
+                    } while (open && (call = outbox.poll()) != null);
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                // The link failed while the writer was waiting
+            } catch (IOException e) {
+                fail(e);
+            }
+            failCalls();
+        }
+
+        private void read(MessageReader in) {
+            try {
+                CustomerResponse response;
+                while ((response = in.readResponse()) != null) {
+                    lastHeardNanos = System.nanoTime();
+                    CompletableFuture<CustomerResponse> future = pending.poll();
+                    if (future == null) {
+                        throw new IOException("Received a response to no request");
+                    }
+                    inFlight.decrementAndGet();
+                    complete(future, response);
+                }
+                fail(new IOException("Server closed the connection"));
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void complete(CompletableFuture<CustomerResponse> future, CustomerResponse response) {
+            if (response.getRetryAfterMillis() != null) {
+                future.completeExceptionally(new ServerBusyException(response.getError(), response.getRetryAfterMillis()));
+            } else if (response.getError() != null) {
+                future.completeExceptionally(new ServerErrorException(response.getError()));
+            } else {
+                future.complete(response);
+            }
+        }
+
+        // Closes the socket, fails every call waiting on it and has the slot reconnect
+        void fail(IOException cause) {
+            synchronized (this) {
+                if (!open) {
+                    return;
+                }
+                failure = cause;
+                open = false;
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+            writer.interrupt();
+            failCalls();
+            slot.scheduleReconnect();
+        }
+
+        // Fails the calls of a closed link. The sender, writer and fail() each call this once they
+        // see the link closed, so a call queued in a race with fail() is failed all the same.
+        private void failCalls() {
+            Call call;
+            while ((call = outbox.poll()) != null) {
+                call.future().completeExceptionally(failure);
+            }
+            CompletableFuture<CustomerResponse> future;
+            while ((future = pending.poll()) != null) {
+                future.completeExceptionally(failure);
+            }
+            inFlight.set(0);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package edu.sdccd.cisc191.template;
 
 import java.net.*;
 import java.io.*;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * This program opens a connection to a computer specified
@@ -18,8 +21,8 @@ import java.io.*;
 
 public class Client {
     private Socket clientSocket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private MessageWriter out;
+    private MessageReader in;
 
     /**
      * Starts a connection to the specified server IP and port.
@@ -31,10 +34,23 @@ public class Client {
      */
 
     public void startConnection(String ip, int port) throws IOException {
+        startConnection(ip, port, MessageFormat.JSON);
+    }
+
+    /**
+     * Starts a connection that encodes messages in the given format.
+     * The server detects the format from the first message it receives.
+     *
+     * @param ip     Server IP address
+     * @param port   Server port number
+     * @param format JSON text or binary Smile
+     * @throws IOException if the connection fails
+     */
+    public void startConnection(String ip, int port, MessageFormat format) throws IOException {
         try {
             clientSocket = new Socket(ip, port);
-            out = new PrintWriter(clientSocket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+            out = new MessageWriter(clientSocket.getOutputStream(), format);
+            in = new MessageReader(clientSocket.getInputStream(), format);
             System.out.println("Connected to server at " + ip + ":" + port);
         } catch (IOException e) {
             // Close any partially opened resources if initialization failed
@@ -55,13 +71,160 @@ public class Client {
      * @throws Exception   if the response cannot be parsed
      */
     public CustomerResponse sendRequest() throws Exception {
+        return sendRequest(new CustomerRequest(1));
+    }
+
+    /**
+     * Looks up a single unit by name.
+     *
+     * @param unitName the unit's name
+     * @return the unit
+     * @throws IOException if the unit does not exist or communication fails
+     */
+    public Unit getUnit(String unitName) throws Exception {
+        return sendRequest(CustomerRequest.unit(unitName)).getUnits().get(0);
+    }
+
+    /**
+     * Looks up a single unit, as of at least the given catalog version.
+     *
+     * @param unitName   the unit's name
+     * @param minVersion the oldest catalog version the answer may come from
+     * @return the unit
+     * @throws ServerBusyException if the server's catalog is older than minVersion
+     * @throws IOException if the unit does not exist or communication fails
+     */
+    public Unit getUnit(String unitName, long minVersion) throws Exception {
+        CustomerRequest request = CustomerRequest.unit(unitName);
+        request.setVersion(minVersion);
+        return sendRequest(request).getUnits().get(0);
+    }
+
+    /**
+     * Lists units sorted by name.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @return the units; empty if there are none of that type
+     * @throws IOException if communication fails
+     */
+    public List<Unit> listUnits(String unitType) throws Exception {
+        return sendRequest(CustomerRequest.list(unitType)).getUnits();
+    }
+
+    /**
+     * Lists units sorted by name, as of at least the given catalog version.
+     *
+     * @param unitType   the unit type to list, or null for every unit
+     * @param minVersion the oldest catalog version the answer may come from
+     * @return the units; empty if there are none of that type
+     * @throws ServerBusyException if the server's catalog is older than minVersion
+     * @throws IOException if communication fails
+     */
+    public List<Unit> listUnits(String unitType, long minVersion) throws Exception {
+        CustomerRequest request = CustomerRequest.list(unitType);
+        request.setVersion(minVersion);
+        return sendRequest(request).getUnits();
+    }
+
+    /**
+     * Walks through a list of units sorted by name one page at a time, so only
+     * one page is held in memory however long the list is. All pages come
+     * from the same catalog version unless the server's cursor expires while
+     * the list is being read, in which case the walk carries on from the last
+     * unit seen in the current catalog.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @param pageSize the most units to fetch per request
+     * @param action   called with each unit, in order
+     * @return the number of units visited
+     * @throws IOException if communication fails
+     */
+    public long forEachUnit(String unitType, int pageSize, Consumer<Unit> action) throws Exception {
+        long count = 0;
+        String cursor = null;
+        do {
+            CustomerResponse page = sendRequest(CustomerRequest.page(unitType, cursor, pageSize));
+            for (Unit unit : page.getUnits()) {
+                action.accept(unit);
+            }
+            count += page.getUnits().size();
+            cursor = page.getCursor();
+        } while (cursor != null);
+        return count;
+    }
+
+    /**
+     * Reads the server's performance counters: request counts, throughput and
+     * latency percentiles per request type, bytes transferred and connections.
+     *
+     * @return the counters by name, in the order the server reports them
+     * @throws IOException if communication fails
+     */
+    public Map<String, Number> getStats() throws Exception {
+        return sendRequest(CustomerRequest.stats()).getStats();
+    }
+
+    /**
+     * Asks the server to compress large responses, such as unit lists, on this
+     * connection from now on. Small responses still arrive uncompressed.
+     *
+     * @throws IOException if communication fails
+     */
+    public void enableCompression() throws Exception {
+        in.enableCompression(sendRequest(CustomerRequest.compress()).getDictionary());
+    }
+
+    /**
+     * Subscribes to catalog changes. From then on the connection only carries
+     * updates pushed by the server; read them with {@link #readUpdate()} and
+     * apply them to a {@link CatalogMirror}. After reconnecting, pass the
+     * mirror's version to resume without fetching the whole catalog again.
+     *
+     * @param fromVersion the last catalog version applied, or 0 for none
+     * @throws IOException if communication fails
+     */
+    public void subscribe(long fromVersion) throws IOException {
+        out.write(CustomerRequest.subscribe(fromVersion));
+    }
+
+    /**
+     * Waits for the next update on a subscribed connection.
+     *
+     * @return the update
+     * @throws IOException if the connection closed or communication fails
+     */
+    public CustomerResponse readUpdate() throws IOException {
+        CustomerResponse update = in.readResponse();
+        if (update == null) {
+            throw new IOException("Server closed the connection unexpectedly.");
+        }
+        return update;
+    }
+
+    /**
+     * Sends any request and reads its response, turning error responses into exceptions.
+     *
+     * @param request the request to send
+     * @return The response from the server
+     * @throws ServerBusyException if the server refused the request for now; it can be retried
+     * @throws ServerErrorException if the server reports an error
+     * @throws IOException if there is a problem with communication
+     * @throws Exception   if the response cannot be parsed
+     */
+    public CustomerResponse sendRequest(CustomerRequest request) throws Exception {
         try {
-            out.println(CustomerRequest.toJSON(new CustomerRequest(1)));
-            String responseLine = in.readLine();
-            if (responseLine == null) {
+            out.write(request);
+            CustomerResponse response = in.readResponse();
+            if (response == null) {
                 throw new IOException("Server closed the connection unexpectedly.");
             }
-            return CustomerResponse.fromJSON(responseLine);
+            if (response.getRetryAfterMillis() != null) {
+                throw new ServerBusyException(response.getError(), response.getRetryAfterMillis());
+            }
+            if (response.getError() != null) {
+                throw new ServerErrorException(response.getError());
+            }
+            return response;
         } catch (IOException e) {
             System.err.println("Error communicating with server: " + e.getMessage());
             throw e;
@@ -96,17 +259,49 @@ public class Client {
     }
 
     /**
-     * Main entry point. Starts the client, sends a request, prints the response, and closes the connection.
+     * Main entry point. Starts the client, sends a request, prints the response and every unit in the
+     * catalog, and closes the connection. When {@code cluster.nodes} lists several servers, the catalog
+     * partitioned over them is printed instead.
      * Handles all exceptions and prints stack traces for debugging.
      *
-     * @param args Command line arguments (not used)
+     * @param args Command line arguments; "stats" prints the server's performance counters instead, and
+     *             "load" runs a load test with {@link LoadGenerator#main}, configured by its {@code load.*}
+     *             system properties and reporting latency percentiles and throughput
      */
 
     public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("load")) {
+            try {
+                LoadGenerator.main(args);
+            } catch (Exception e) {
+                System.err.println("Load test failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return;
+        }
+        String cluster = System.getProperty("cluster.nodes");
+        if (cluster != null) {
+            // The catalog is partitioned over several servers; list it from all of them
+            try (PartitionedClient partitioned = PartitionedClient.connect(List.of(cluster.split(",")))) {
+                for (Unit unit : partitioned.listUnits(null)) {
+                    System.out.println(unit);
+                }
+            } catch (Exception e) {
+                System.err.println("Cluster error: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return;
+        }
         Client client = new Client();
         try {
             client.startConnection("127.0.0.1", 4444);
+            if (args.length > 0 && args[0].equals("stats")) {
+                client.getStats().forEach((name, value) -> System.out.println(name + " = " + value));
+                return;
+            }
             System.out.println(client.sendRequest().toString());
+            client.enableCompression();
+            client.forEachUnit(null, 100, System.out::println);
         } catch (IOException e) {
             System.err.println("Network error: " + e.getMessage());
             e.printStackTrace();
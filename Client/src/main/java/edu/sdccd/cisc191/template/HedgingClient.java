@@ -0,0 +1,275 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A client for several servers holding the same catalog, such as a primary
+ * and its replicas, that keeps one slow server from slowing every read.
+ *
+ * Each read goes to the next server in turn. If it has not been answered by
+ * the time 95% of recent reads were, a duplicate, the hedge, goes to the
+ * next server, and whichever answer comes first is kept. The losing call is
+ * not cancelled on its server, which has no way to withdraw a request: the
+ * server still executes it and the answer is read and dropped. Only the
+ * local future of a losing hedge or retry is cancelled. The first call of
+ * each read is always left to finish, so its latency is timed whether it
+ * wins or loses; timing only the winners would leave out exactly the slow
+ * answers hedging cuts short, and the hedge delay would drift lower and
+ * lower. A read that fails because a server is busy, unreachable or too slow
+ * is retried on the next server. Reads are safe to send twice; writes should
+ * not go through this client.
+ *
+ * Hedges and retries add load, which is the last thing a struggling cluster
+ * needs, so both draw on a retry budget: every read earns a tenth of an
+ * extra call, up to a small reserve. Under normal conditions hedges add
+ * about 5% more reads; if every server is slow the budget runs dry and the
+ * client goes back to sending each read once.
+ */
+public final class HedgingClient implements Closeable {
+    /** The hedge delay used until enough reads have been timed. */
+    static final long INITIAL_HEDGE_DELAY_MILLIS = 10;
+    /** The percentile of recent read latency after which a read is hedged. */
+    private static final double HEDGE_PERCENTILE = 95;
+    /** How many reads are timed before the hedge delay is recomputed. */
+    private static final int WINDOW = 128;
+    /** How many extra calls each read earns. */
+    private static final double BUDGET_PER_READ = 0.1;
+    /** The most extra calls the budget can save up. */
+    private static final double MAX_BUDGET = 10;
+    /** How many retries one read may make. */
+    private static final int MAX_RETRIES = 2;
+
+    private final List<AsyncClient> endpoints = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile LatencyHistogram window = new LatencyHistogram();
+    private final AtomicInteger windowSamples = new AtomicInteger();
+    private volatile long hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(INITIAL_HEDGE_DELAY_MILLIS);
+
+    private double budget = MAX_BUDGET;
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * Connects to every server.
+     *
+     * @param endpoints the servers' addresses
+     * @throws IOException if a server cannot be reached; connections already made are closed
+     */
+    public HedgingClient(List<InetSocketAddress> endpoints) throws IOException {
+        try {
+            for (InetSocketAddress endpoint : endpoints) {
+                this.endpoints.add(new AsyncClient(endpoint.getHostString(), endpoint.getPort(), 2));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a single unit.
+     *
+     * @param unitName the unit's name
+     * @return the unit; fails with {@link ServerErrorException} if it does not exist
+     */
+    public CompletableFuture<Unit> getUnit(String unitName) {
+        return read(CustomerRequest.unit(unitName)).thenApply(response -> response.getUnits().get(0));
+    }
+
+    /**
+     * Lists units sorted by name.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @return the units
+     */
+    public CompletableFuture<List<Unit>> listUnits(String unitType) {
+        return read(CustomerRequest.list(unitType)).thenApply(CustomerResponse::getUnits);
+    }
+
+    /**
+     * Sends a read, hedging and retrying it as needed.
+     *
+     * @param request a request that is safe to send more than once
+     * @return the first successful response, or the last failure once no
+     *         server is left to try
+     */
+    public CompletableFuture<CustomerResponse> read(CustomerRequest request) {
+        deposit();
+        Read read = new Read(request, Math.floorMod(next.getAndIncrement(), endpoints.size()));
+        read.launch();
+        if (endpoints.size() > 1) {
+            CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS).execute(read::hedge);
+        }
+        return read.result;
+    }
+
+    // One read and every call made for it
+    private final class Read {
+        final CustomerRequest request;
+        final CompletableFuture<CustomerResponse> result = new CompletableFuture<>();
+        final Queue<CompletableFuture<CustomerResponse>> calls = new ConcurrentLinkedQueue<>();
+        // The first call made, which is timed and never cancelled
+        volatile CompletableFuture<CustomerResponse> first;
+        final AtomicInteger nextEndpoint;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger retriesLeft = new AtomicInteger(MAX_RETRIES);
+
+        Read(CustomerRequest request, int firstEndpoint) {
+            this.request = request;
+            this.nextEndpoint = new AtomicInteger(firstEndpoint);
+        }
+
+        // Sends the request to the first server
+        void launch() {
+            launch(false, true);
+        }
+
+        private void launch(boolean isHedge, boolean isFirst) {
+            outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            CompletableFuture<CustomerResponse> call =
+                    endpoints.get(nextEndpoint.getAndIncrement() % endpoints.size()).send(request);
+            if (isFirst) {
+                first = call;
+            }
+            calls.add(call);
+            call.whenComplete((response, failure) -> {
+                outstanding.decrementAndGet();
+                if (failure == null) {
+                    if (isFirst) {
+                        recordLatency(System.nanoTime() - start);
+                    }
+                    if (result.complete(response)) {
+                        if (isHedge) {
+                            hedgeWins.increment();
+                        }
+                        cancelOthers();
+                    }
+                } else {
+                    failed(failure instanceof CompletionException ? failure.getCause() : failure);
+                }
+            });
+        }
+
+        void hedge() {
+            if (!result.isDone() && withdraw()) {
+                hedges.increment();
+                launch(true, false);
+            }
+        }
+
+        private void failed(Throwable failure) {
+            if (result.isDone() || failure instanceof CancellationException) {
+                return;
+            }
+            if (isRetryable(failure) && endpoints.size() > 1 && retriesLeft.getAndDecrement() > 0 && withdraw()) {
+                retries.increment();
+                launch(false, false);
+            } else if (outstanding.get() == 0) {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        // Stops waiting on the losing calls; their requests still run on the server
+        private void cancelOthers() {
+            for (CompletableFuture<CustomerResponse> call : calls) {
+                if (call != first) {
+                    call.cancel(false);
+                }
+            }
+        }
+    }
+
+    // A server error would be the same everywhere; anything else may be one server's trouble
+    private static boolean isRetryable(Throwable failure) {
+        return failure instanceof TimeoutException
+                || (failure instanceof IOException && !(failure instanceof ServerErrorException));
+    }
+
+    // Times a read's first call; every window of calls sets the hedge delay to the window's 95th percentile
+    private void recordLatency(long nanos) {
+        LatencyHistogram current = window;
+        current.recordNanos(nanos);
+        if (windowSamples.incrementAndGet() % WINDOW == 0) {
+            window = new LatencyHistogram();
+            hedgeDelayNanos = Math.max(1, current.snapshot().getValueAtPercentile(HEDGE_PERCENTILE));
+        }
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(MAX_BUDGET, budget + BUDGET_PER_READ);
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 1) {
+            budgetExhausted.increment();
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    /**
+     * @return how long a read waits for an answer before it is hedged
+     */
+    public long getHedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    /**
+     * @return how many duplicate reads were sent
+     */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return how many reads were answered first by their hedge
+     */
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return how many hedges and retries were skipped for lack of budget
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.sum();
+    }
+
+    /**
+     * Closes the connections to every server.
+     */
+    @Override
+    public void close() {
+        for (AsyncClient endpoint : endpoints) {
+            endpoint.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HedgingClient[endpoints=%d, hedgeDelayMicros=%.1f, hedges=%d, hedgeWins=%d, retries=%d, budgetExhausted=%d]",
+                endpoints.size(), hedgeDelayNanos / 1e3, getHedges(), getHedgeWins(), getRetries(), getBudgetExhausted());
+    }
+}
@@ -0,0 +1,441 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a server with a mix of requests over several connections and
+ * measures throughput and latency percentiles.
+ *
+ * In closed-loop mode ({@code rate} of 0) each connection sends its next
+ * request as soon as the last one is answered, which finds the most the
+ * server can do. In open-loop mode requests are due at a fixed total rate,
+ * spread evenly over the connections. A request's latency is then measured
+ * from when it was due, not from when it was actually sent: if the server
+ * stalls, the requests that should have gone out meanwhile are charged the
+ * time they spent waiting. Measuring from the send would record one slow
+ * request and hide all the ones the stall held back, which is the error
+ * known as coordinated omission. The time from send to response is
+ * reported separately as service time.
+ *
+ * Run it with {@code Client load}; see {@link #main(String[])} for the settings.
+ */
+public class LoadGenerator {
+    /** The kinds of request the generator sends. */
+    public enum Operation {
+        /** Looks up a random unit by name. */
+        UNIT,
+        /** Lists every unit. */
+        LIST,
+        /** Reads the first page of units. */
+        PAGE,
+        /** The original customer request. */
+        CUSTOMER,
+        /** A health check, which measures the server's fixed overhead. */
+        PING;
+
+        CustomerRequest request(List<String> unitNames, SplittableRandom random) {
+            switch (this) {
+                case UNIT:
+                    return CustomerRequest.unit(unitNames.get(random.nextInt(unitNames.size())));
+                case LIST:
+                    return CustomerRequest.list(null);
+                case PAGE:
+                    return CustomerRequest.page(null, null, 100);
+                case PING:
+                    return CustomerRequest.ping();
+                default:
+                    return new CustomerRequest(1);
+            }
+        }
+    }
+
+    // How long a closed-loop connection waits before reconnecting, doubled after each failure in a row
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final double ratePerSecond;
+    private final Map<Operation, Integer> mix;
+    private final MessageFormat format;
+    private final boolean compress;
+
+    /**
+     * @param host          the server's host
+     * @param port          the server's port
+     * @param connections   how many connections to open
+     * @param ratePerSecond the total request rate, or 0 for closed-loop
+     * @param mix           each operation's relative weight
+     * @param format        the encoding to use
+     * @param compress      whether to ask the server to compress large responses
+     */
+    public LoadGenerator(String host, int port, int connections, double ratePerSecond,
+                         Map<Operation, Integer> mix, MessageFormat format, boolean compress) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.ratePerSecond = ratePerSecond;
+        this.mix = new EnumMap<>(mix);
+        this.format = format;
+        this.compress = compress;
+    }
+
+    /**
+     * Parses a request mix such as {@code unit:90,list:10}.
+     *
+     * @param mix comma-separated operation names and weights
+     * @return each operation's weight
+     * @throws IllegalArgumentException if an operation is unknown or a weight is not a number
+     */
+    public static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)),
+                    pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1);
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the load. Nothing is recorded during the warm-up, which lets the
+     * server's caches fill and its code compile before measuring.
+     *
+     * @param warmup   how long to run before recording
+     * @param duration how long to record
+     * @return the measurements
+     * @throws IOException if the server cannot be reached
+     */
+    public Report run(Duration warmup, Duration duration) throws Exception {
+        List<String> unitNames = new ArrayList<>();
+        Client probe = new Client();
+        probe.startConnection(host, port, format);
+        try {
+            for (Unit unit : probe.listUnits(null)) {
+                unitNames.add(unit.getUnitName());
+            }
+        } finally {
+            probe.stopConnection();
+        }
+        if (unitNames.isEmpty() && mix.containsKey(Operation.UNIT)) {
+            throw new IOException("The server has no units to look up");
+        }
+
+        Report report = new Report(this);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> workers = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                long seed = i;
+                workers.add(executor.submit(() -> drive(unitNames, new SplittableRandom(seed), report, start, measureFrom, end)));
+            }
+            // Requests due before the end may be answered after it, and are counted, so the
+            // measured period runs until the last of them was answered
+            long lastDone = Math.min(System.nanoTime(), end);
+            for (Future<Long> worker : workers) {
+                lastDone = Math.max(lastDone, worker.get());
+            }
+            report.elapsedNanos = lastDone - measureFrom;
+        }
+        return report;
+    }
+
+    // One connection's share of the load; returns when its last measured request was answered
+    private long drive(List<String> unitNames, SplittableRandom random, Report report,
+                       long start, long measureFrom, long end) throws IOException {
+        Operation[] deck = deck();
+        long interval = ratePerSecond > 0 ? (long) (1e9 * connections / ratePerSecond) : 0;
+        // Connections start out of step, so the total rate is even rather than in bursts
+        long due = start + (interval > 0 ? random.nextLong(interval) : 0);
+        long lastDone = Long.MIN_VALUE;
+        long backoff = MIN_BACKOFF_NANOS;
+        Connection connection = null;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                if (interval > 0) {
+                    while (now < due) {
+                        LockSupport.parkNanos(due - now);
+                        now = System.nanoTime();
+                    }
+                } else {
+                    due = now;
+                }
+                if (due >= end) {
+                    return lastDone;
+                }
+                Operation operation = deck[random.nextInt(deck.length)];
+                CustomerRequest request = operation.request(unitNames, random);
+                boolean measured = due >= measureFrom;
+                try {
+                    if (connection == null) {
+                        connection = new Connection();
+                    }
+                    long sent = System.nanoTime();
+                    CustomerResponse response = connection.call(request);
+                    long done = System.nanoTime();
+                    if (measured) {
+                        report.record(operation, response, done - due, done - sent);
+                        lastDone = done;
+                    }
+                    backoff = MIN_BACKOFF_NANOS;
+                } catch (IOException e) {
+                    if (measured) {
+                        report.errors.get(operation).increment();
+                    }
+                    if (connection != null) {
+                        connection.close();
+                        connection = null;
+                    }
+                    if (interval == 0) {
+                        // Nothing else paces a closed loop, which would otherwise retry a refused connection in a spin
+                        LockSupport.parkNanos(Math.min(backoff, end - System.nanoTime()));
+                        backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+                    }
+                }
+                due += interval;
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    // The operations repeated by weight, so drawing one is a single random index
+    private Operation[] deck() {
+        List<Operation> deck = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            for (int i = 0; i < weight.getValue(); i++) {
+                deck.add(weight.getKey());
+            }
+        }
+        if (deck.isEmpty()) {
+            throw new IllegalArgumentException("The request mix has no weights");
+        }
+        return deck.toArray(new Operation[0]);
+    }
+
+    // A bare connection, so the measurements include no logging or error reporting
+    private final class Connection {
+        final Socket socket;
+        final MessageWriter out;
+        final MessageReader in;
+
+        Connection() throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            out = new MessageWriter(socket.getOutputStream(), format);
+            in = new MessageReader(socket.getInputStream(), format);
+            if (compress) {
+                in.enableCompression(call(CustomerRequest.compress()).getDictionary());
+            }
+        }
+
+        CustomerResponse call(CustomerRequest request) throws IOException {
+            out.write(request);
+            CustomerResponse response = in.readResponse();
+            if (response == null) {
+                throw new IOException("Server closed the connection");
+            }
+            return response;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("Error closing load connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * What one run measured: per operation, the response time from when each
+     * request was due, the count of busy and error responses, and overall
+     * service time from when each request was sent.
+     */
+    public static final class Report {
+        private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+        private final LoadGenerator generator;
+        private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, LongAdder> busy = new EnumMap<>(Operation.class);
+        private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        private final LatencyHistogram all = new LatencyHistogram();
+        private final LatencyHistogram service = new LatencyHistogram();
+        private long elapsedNanos;
+
+        private Report(LoadGenerator generator) {
+            this.generator = generator;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new LatencyHistogram());
+                busy.put(operation, new LongAdder());
+                errors.put(operation, new LongAdder());
+            }
+        }
+
+        private void record(Operation operation, CustomerResponse response, long responseNanos, long serviceNanos) {
+            if (response.getRetryAfterMillis() != null) {
+                busy.get(operation).increment();
+            } else if (response.getError() != null) {
+                errors.get(operation).increment();
+            } else {
+                latencies.get(operation).recordNanos(responseNanos);
+                all.recordNanos(responseNanos);
+                service.recordNanos(serviceNanos);
+            }
+        }
+
+        /**
+         * @return successful responses per second over the measured period
+         */
+        public double getThroughput() {
+            return all.snapshot().getCount() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return the response times of every successful request
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return all.snapshot();
+        }
+
+        public LatencyHistogram.Snapshot getLatency(Operation operation) {
+            return latencies.get(operation).snapshot();
+        }
+
+        /**
+         * @return the time from sending each successful request to its response
+         */
+        public LatencyHistogram.Snapshot getServiceTime() {
+            return service.snapshot();
+        }
+
+        public long getBusy() {
+            return busy.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        public long getErrors() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        /**
+         * @return the report as a table, one row per operation and one for them all
+         */
+        public String toText() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "%s, %d connections, %s%s, %.1f s measured%n",
+                    generator.ratePerSecond > 0 ? String.format(Locale.ROOT, "open loop at %.0f/s", generator.ratePerSecond) : "closed loop",
+                    generator.connections, generator.format, generator.compress ? " compressed" : "", elapsedNanos / 1e9));
+            text.append(String.format(Locale.ROOT, "throughput %.1f/s, busy %d, errors %d%n", getThroughput(), getBusy(), getErrors()));
+            text.append(String.format(Locale.ROOT, "%-9s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                    "op", "count", "p50 us", "p90 us", "p99 us", "p99.9 us", "p99.99 us", "max us", "mean us"));
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram.Snapshot latency = latencies.get(operation).snapshot();
+                if (latency.getCount() > 0) {
+                    appendRow(text, operation.name().toLowerCase(Locale.ROOT), latency);
+                }
+            }
+            appendRow(text, "all", all.snapshot());
+            appendRow(text, "service", service.snapshot());
+            return text.toString();
+        }
+
+        private static void appendRow(StringBuilder text, String name, LatencyHistogram.Snapshot latency) {
+            text.append(String.format(Locale.ROOT, "%-9s %9d", name, latency.getCount()));
+            for (double percentile : PERCENTILES) {
+                text.append(String.format(Locale.ROOT, " %9.1f", latency.getMicrosAtPercentile(percentile)));
+            }
+            text.append(String.format(Locale.ROOT, " %9.1f %9.1f%n", latency.getMaxNanos() / 1e3, latency.getMeanNanos() / 1e3));
+        }
+
+        /**
+         * @return the report as CSV with a header row, one row per operation
+         *         and one for them all, so runs can be compared in a spreadsheet
+         */
+        public String toCsv() {
+            StringBuilder csv = new StringBuilder(
+                    "mode,connections,format,op,count,throughputPerSecond,busy,errors,p50Micros,p90Micros,p99Micros,p999Micros,p9999Micros,maxMicros,meanMicros\n");
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram.Snapshot latency = latencies.get(operation).snapshot();
+                if (latency.getCount() > 0 || errors.get(operation).sum() > 0 || busy.get(operation).sum() > 0) {
+                    appendCsv(csv, operation.name().toLowerCase(Locale.ROOT), latency,
+                            busy.get(operation).sum(), errors.get(operation).sum());
+                }
+            }
+            appendCsv(csv, "all", all.snapshot(), getBusy(), getErrors());
+            return csv.toString();
+        }
+
+        private void appendCsv(StringBuilder csv, String name, LatencyHistogram.Snapshot latency, long busy, long errors) {
+            csv.append(generator.ratePerSecond > 0 ? "open" : "closed").append(',')
+                    .append(generator.connections).append(',')
+                    .append(generator.format).append(generator.compress ? "+deflate" : "").append(',')
+                    .append(name).append(',')
+                    .append(latency.getCount()).append(',')
+                    .append(String.format(Locale.ROOT, "%.1f", latency.getCount() / (elapsedNanos / 1e9))).append(',')
+                    .append(busy).append(',')
+                    .append(errors);
+            for (double percentile : PERCENTILES) {
+                csv.append(String.format(Locale.ROOT, ",%.1f", latency.getMicrosAtPercentile(percentile)));
+            }
+            csv.append(String.format(Locale.ROOT, ",%.1f,%.1f%n", latency.getMaxNanos() / 1e3, latency.getMeanNanos() / 1e3));
+        }
+    }
+
+    /**
+     * Runs a load from system properties and prints the report:
+     * {@code server.host} (127.0.0.1), {@code server.port} (4444),
+     * {@code load.connections} (8), {@code load.rate} in requests per second
+     * (0 for closed-loop), {@code load.mix} (unit:90,list:5,page:5),
+     * {@code load.format} (json or smile), {@code load.compress} (false),
+     * {@code load.warmupSeconds} (5), {@code load.seconds} (30) and
+     * {@code load.csv}, a file to also write the CSV report to.
+     * The server refuses a client address sending more than 1000 requests per
+     * second by default, so a load above that reports mostly busy answers
+     * unless the server is started with a higher {@code server.ratePerSecond},
+     * or with 0 to measure it without admission limits ({@code server.workers},
+     * {@code server.queueCapacity} and {@code server.burst} work the same way).
+     */
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator(
+                System.getProperty("server.host", "127.0.0.1"),
+                Integer.getInteger("server.port", 4444),
+                Integer.getInteger("load.connections", 8),
+                Double.parseDouble(System.getProperty("load.rate", "0")),
+                parseMix(System.getProperty("load.mix", "unit:90,list:5,page:5")),
+                MessageFormat.valueOf(System.getProperty("load.format", "json").toUpperCase(Locale.ROOT)),
+                Boolean.getBoolean("load.compress"));
+        Report report = generator.run(Duration.ofSeconds(Integer.getInteger("load.warmupSeconds", 5)),
+                Duration.ofSeconds(Integer.getInteger("load.seconds", 30)));
+        System.out.print(report.toText());
+        String csv = System.getProperty("load.csv");
+        if (csv != null) {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(csv), StandardCharsets.UTF_8))) {
+                writer.print(report.toCsv());
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-process cache of units in front of a server, for clients that read
+ * the same units over and over. A hit is a hash lookup with no IO at all.
+ *
+ * The cache subscribes to the server's catalog changes and drops each
+ * changed unit as its change arrives, so it never serves a unit the server
+ * has replaced except in the moment before the change reaches it. If the
+ * change feed goes quiet for longer than the staleness bound (the server
+ * sends a heartbeat every second when idle), the cache can no longer vouch
+ * for its entries and every lookup goes to the server until the feed
+ * resumes. When the feed has to start over from a whole snapshot, which
+ * says nothing about what changed, the cache is emptied.
+ *
+ * A unit loaded from the server is only kept if no change arrived while it
+ * was loading, so a change cannot be overtaken by the older unit it replaced.
+ * The number of entries is bounded; beyond it an entry not read since the
+ * eviction hand last passed it is dropped (the CLOCK algorithm), which
+ * approximates least-recently-used without any locking on reads.
+ */
+public class NearCache implements Closeable {
+    /** How long to wait before resubscribing after the change feed fails. */
+    private static final long RESUBSCRIBE_MILLIS = 500;
+
+    private final String host;
+    private final int port;
+    private final int maxEntries;
+    private final long maxStalenessNanos;
+    private final SharedClient loader;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictLock = new ReentrantLock();
+    private Iterator<Map.Entry<String, Entry>> hand;
+    private final Thread feed;
+    private volatile Client subscriber;
+    private volatile boolean closed;
+
+    // The last catalog version the feed reported, and when anything was last heard from it
+    private volatile long version;
+    private volatile long lastHeardNanos;
+    private volatile boolean heard;
+    // Bumped before any entry is dropped for a change, so a load can tell a change overlapped it
+    private volatile long changes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleMisses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Connects to a server and starts following its changes.
+     *
+     * @param host         the server's host
+     * @param port         the server's port
+     * @param maxEntries   the most units to keep
+     * @param maxStaleness how long the cache may go without hearing from the
+     *                     server before it stops answering from memory
+     * @throws IOException if the server cannot be reached
+     */
+    public NearCache(String host, int port, int maxEntries, Duration maxStaleness) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.maxEntries = maxEntries;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.loader = SharedClient.connect(host, port);
+        this.feed = Thread.ofVirtual().name("near-cache-feed").start(this::follow);
+    }
+
+    /**
+     * Looks up a unit, from memory if the cache holds it and has heard from
+     * the server within the staleness bound, otherwise from the server.
+     *
+     * @param unitName the unit's name
+     * @return the unit
+     * @throws IOException if the unit does not exist or communication fails
+     */
+    public Unit getUnit(String unitName) throws Exception {
+        boolean fresh = isFresh();
+        if (fresh) {
+            Entry entry = entries.get(unitName);
+            if (entry != null) {
+                entry.referenced = true;
+                hits.increment();
+                return entry.unit;
+            }
+            misses.increment();
+        } else {
+            staleMisses.increment();
+        }
+
+        long changesSeen = changes;
+        long seen = version;
+        CustomerRequest request = CustomerRequest.unit(unitName);
+        // The answer must be at least as new as the changes already applied
+        request.setVersion(seen);
+        CustomerResponse response = loader.call(client -> client.sendRequest(request));
+        Unit unit = response.getUnits().get(0);
+        if (fresh && changes == changesSeen && response.getVersion() >= seen) {
+            put(unitName, unit);
+            // A change that began dropping entries before or during the put may have missed the new entry
+            if (changes != changesSeen) {
+                entries.remove(unitName);
+            }
+        }
+        return unit;
+    }
+
+    private boolean isFresh() {
+        return heard && System.nanoTime() - lastHeardNanos <= maxStalenessNanos;
+    }
+
+    private void put(String unitName, Unit unit) {
+        if (entries.put(unitName, new Entry(unit)) == null && entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    // Advances the clock hand, giving each referenced entry a second chance, until enough are gone
+    private void evict() {
+        evictLock.lock();
+        try {
+            while (entries.size() > maxEntries) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = entries.entrySet().iterator();
+                }
+                Map.Entry<String, Entry> next = hand.next();
+                if (next.getValue().referenced) {
+                    next.getValue().referenced = false;
+                } else if (entries.remove(next.getKey(), next.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    // Follows the change feed until closed, resubscribing from the last version seen
+    private void follow() {
+        while (!closed) {
+            Client client = new Client();
+            try {
+                client.startConnection(host, port);
+                subscriber = client;
+                client.subscribe(version);
+                while (!closed) {
+                    apply(client.readUpdate());
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Near cache lost its change feed: " + e.getMessage());
+                }
+            } finally {
+                try {
+                    client.stopConnection();
+                } catch (IOException e) {
+                    System.err.println("Error closing change feed: " + e.getMessage());
+                }
+            }
+            try {
+                if (!closed) {
+                    TimeUnit.MILLISECONDS.sleep(RESUBSCRIBE_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(CustomerResponse update) throws IOException {
+        if (update.getError() != null) {
+            throw new IOException("Server refused the subscription: " + update.getError());
+        }
+        if (update.getUnits() != null || !update.getDeltas().isEmpty()) {
+            changes++;
+        }
+        if (update.getUnits() != null) {
+            // A snapshot does not say what changed, so nothing cached can be trusted
+            invalidations.add(entries.size());
+            entries.clear();
+        } else {
+            for (UnitDelta delta : update.getDeltas()) {
+                if (entries.remove(delta.getUnitName()) != null) {
+                    invalidations.increment();
+                }
+            }
+        }
+        version = update.getVersion();
+        lastHeardNanos = System.nanoTime();
+        heard = true;
+    }
+
+    /**
+     * @return the catalog version of the last change the cache applied
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return lookups that went to the server because the unit was not cached
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return lookups that went to the server because the change feed was too far behind
+     */
+    public long getStaleMisses() {
+        return staleMisses.sum();
+    }
+
+    /**
+     * @return entries dropped because the server changed their unit
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return entries dropped to keep the cache within its size
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return hits divided by all lookups, or 0 before the first lookup
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum() + staleMisses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Stops following changes and closes the connections to the server.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Client client = subscriber;
+        if (client != null) {
+            client.stopConnection();
+        }
+        feed.interrupt();
+        loader.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NearCache[size=%d, hits=%d, misses=%d, staleMisses=%d, hitRatio=%.3f, invalidations=%d, evictions=%d]",
+                size(), getHits(), getMisses(), getStaleMisses(), getHitRatio(), getInvalidations(), getEvictions());
+    }
+
+    // A cached unit and whether it was read since the clock hand last passed
+    private static final class Entry {
+        final Unit unit;
+        volatile boolean referenced;
+
+        Entry(Unit unit) {
+            this.unit = unit;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A client for a catalog split across several servers, each serving the units
+ * that a {@link ConsistentHashRing} of the node names assigns to it.
+ *
+ * A lookup by name goes straight to the one server that owns the unit. List
+ * and range queries go to every server at once, and their sorted answers are
+ * merged into a single sorted list. One connection is kept open to each
+ * server; calls on the same server from different threads take turns.
+ */
+public final class PartitionedClient implements Closeable {
+    private final ConsistentHashRing ring;
+    private final Map<String, SharedClient> clients = new LinkedHashMap<>();
+
+    /**
+     * Connects to every node of the cluster.
+     *
+     * @param nodes each node's name, as the servers partition by, and address
+     * @throws IOException if a node cannot be reached; connections already made are closed
+     */
+    public PartitionedClient(Map<String, InetSocketAddress> nodes) throws IOException {
+        this.ring = new ConsistentHashRing(nodes.keySet());
+        try {
+            for (Map.Entry<String, InetSocketAddress> node : nodes.entrySet()) {
+                clients.put(node.getKey(),
+                        SharedClient.connect(node.getValue().getHostString(), node.getValue().getPort()));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Connects to a cluster whose nodes are named by their addresses, as the
+     * servers are when started with the same {@code cluster.nodes} list.
+     *
+     * @param addresses the nodes' {@code host:port} addresses
+     * @return the connected client
+     * @throws IOException if a node cannot be reached
+     */
+    public static PartitionedClient connect(List<String> addresses) throws IOException {
+        Map<String, InetSocketAddress> nodes = new LinkedHashMap<>();
+        for (String node : addresses) {
+            // Named exactly as the servers trim the cluster.nodes entries
+            String address = node.trim();
+            int colon = address.lastIndexOf(':');
+            nodes.put(address, InetSocketAddress.createUnresolved(
+                    address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))));
+        }
+        return new PartitionedClient(nodes);
+    }
+
+    /**
+     * @param unitName a unit name
+     * @return the node that owns the unit
+     */
+    public String nodeFor(String unitName) {
+        return ring.nodeFor(unitName);
+    }
+
+    /**
+     * Looks up a single unit on the node that owns it.
+     *
+     * @param unitName the unit's name
+     * @return the unit
+     * @throws IOException if the unit does not exist or communication fails
+     */
+    public Unit getUnit(String unitName) throws Exception {
+        return clients.get(ring.nodeFor(unitName)).call(client -> client.getUnit(unitName));
+    }
+
+    /**
+     * Lists units from every node, sorted by name.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @return the units
+     * @throws IOException if any node fails
+     */
+    public List<Unit> listUnits(String unitType) throws Exception {
+        return scatter(CustomerRequest.list(unitType));
+    }
+
+    /**
+     * Lists the units from every node whose names fall in a range, sorted by name.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @param fromName the first name to include, or null to start at the beginning
+     * @param toName   the first name to exclude, or null to run to the end
+     * @return the units
+     * @throws IOException if any node fails
+     */
+    public List<Unit> listRange(String unitType, String fromName, String toName) throws Exception {
+        return scatter(CustomerRequest.range(unitType, fromName, toName));
+    }
+
+    // Sends the request to every node in parallel and merges the sorted answers
+    private List<Unit> scatter(CustomerRequest request) throws Exception {
+        List<List<Unit>> parts = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Unit>>> futures = new ArrayList<>();
+            for (SharedClient node : clients.values()) {
+                futures.add(executor.submit(() -> node.call(client -> client.sendRequest(request).getUnits())));
+            }
+            for (Future<List<Unit>> future : futures) {
+                parts.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        return merge(parts);
+    }
+
+    /**
+     * Merges lists that are each sorted by unit name into one sorted list.
+     *
+     * @param parts the sorted lists
+     * @return every unit, sorted by name
+     */
+    static List<Unit> merge(List<List<Unit>> parts) {
+        // Each cursor is {part, index}; the queue holds the next unit of every part
+        PriorityQueue<int[]> next = new PriorityQueue<>(Comparator.comparing(
+                (int[] cursor) -> parts.get(cursor[0]).get(cursor[1]).getUnitName()));
+        int total = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            total += parts.get(i).size();
+            if (!parts.get(i).isEmpty()) {
+                next.add(new int[]{i, 0});
+            }
+        }
+        List<Unit> merged = new ArrayList<>(total);
+        while (!next.isEmpty()) {
+            int[] cursor = next.poll();
+            List<Unit> part = parts.get(cursor[0]);
+            merged.add(part.get(cursor[1]));
+            if (++cursor[1] < part.size()) {
+                next.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Closes the connections to every node.
+     */
+    @Override
+    public void close() throws IOException {
+        for (SharedClient node : clients.values()) {
+            node.close();
+        }
+    }
+}
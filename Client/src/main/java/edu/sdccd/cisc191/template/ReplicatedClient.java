@@ -0,0 +1,90 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A client for a primary server and its read replicas.
+ *
+ * Reads are spread over the replicas in turn, so read capacity grows with
+ * the number of replicas. Each read can name the oldest catalog version it
+ * will accept, such as the version a client last saw or wrote; a replica
+ * that has not caught up that far refuses the read, and it is tried on the
+ * next replica and finally on the primary, which is always current.
+ */
+public final class ReplicatedClient implements Closeable {
+    private final SharedClient primary;
+    private final List<SharedClient> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Connects to the primary and every replica.
+     *
+     * @param primary  the primary server's address
+     * @param replicas the replicas' addresses
+     * @throws IOException if a server cannot be reached; connections already made are closed
+     */
+    public ReplicatedClient(InetSocketAddress primary, List<InetSocketAddress> replicas) throws IOException {
+        this.primary = SharedClient.connect(primary.getHostString(), primary.getPort());
+        try {
+            for (InetSocketAddress replica : replicas) {
+                this.replicas.add(SharedClient.connect(replica.getHostString(), replica.getPort()));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a single unit on a replica at least as new as minVersion.
+     *
+     * @param unitName   the unit's name
+     * @param minVersion the oldest catalog version the answer may come from, or 0 for any
+     * @return the unit
+     * @throws IOException if the unit does not exist or communication fails
+     */
+    public Unit getUnit(String unitName, long minVersion) throws Exception {
+        return read(client -> client.getUnit(unitName, minVersion));
+    }
+
+    /**
+     * Lists units sorted by name from a replica at least as new as minVersion.
+     *
+     * @param unitType   the unit type to list, or null for every unit
+     * @param minVersion the oldest catalog version the answer may come from, or 0 for any
+     * @return the units
+     * @throws IOException if communication fails
+     */
+    public List<Unit> listUnits(String unitType, long minVersion) throws Exception {
+        return read(client -> client.listUnits(unitType, minVersion));
+    }
+
+    // Tries each replica once, starting with the next in turn, then the primary
+    private <T> T read(SharedClient.Call<T> call) throws Exception {
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            try {
+                return replicas.get((start + i) % replicas.size()).call(call);
+            } catch (ServerBusyException e) {
+                // That replica is behind or overloaded; another may not be
+            }
+        }
+        return primary.call(call);
+    }
+
+    /**
+     * Closes the connections to every server.
+     */
+    @Override
+    public void close() throws IOException {
+        primary.close();
+        for (SharedClient replica : replicas) {
+            replica.close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Client} connection that several threads take turns on. A lock is
+ * used rather than synchronized, since a blocking socket read inside
+ * synchronized pins a virtual thread to its carrier.
+ */
+final class SharedClient {
+    /** A call made on the connection while holding it. */
+    interface Call<T> {
+        T apply(Client client) throws Exception;
+    }
+
+    private final Client client;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    SharedClient(Client client) {
+        this.client = client;
+    }
+
+    /**
+     * Connects to a server.
+     *
+     * @param host the server's host
+     * @param port the server's port
+     * @return the shared connection
+     * @throws IOException if the server cannot be reached
+     */
+    static SharedClient connect(String host, int port) throws IOException {
+        Client client = new Client();
+        client.startConnection(host, port);
+        return new SharedClient(client);
+    }
+
+    /**
+     * Waits for the connection to be free and makes a call on it.
+     *
+     * @param call the call to make
+     * @return what the call returns
+     * @throws Exception whatever the call throws
+     */
+    <T> T call(Call<T> call) throws Exception {
+        lock.lock();
+        try {
+            return call.apply(client);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() throws IOException {
+        client.stopConnection();
+    }
+}
@@ -0,0 +1,120 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncClientTest
+{
+    private Server server;
+    private AsyncClient client;
+
+    private int startServer(int port) throws Exception
+    {
+        // No rate limit, so one test client may send as fast as it likes
+        server = new Server(new UnitCatalog(UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE)),
+                new AdmissionController(2, 256, 0, 0));
+        int bound = server.bind(port);
+        Thread.ofVirtual().start(server::serve);
+        return bound;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        if (client != null)
+        {
+            client.close();
+        }
+        if (server != null)
+        {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testManyCallsShareFewConnections() throws Exception
+    {
+        int port = startServer(0);
+        client = new AsyncClient("127.0.0.1", port, 2);
+        List<Unit> units = client.listUnits(null).get();
+
+        List<CompletableFuture<Unit>> calls = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            calls.add(client.getUnit(units.get(i % units.size()).getUnitName()));
+        }
+        for (int i = 0; i < calls.size(); i++)
+        {
+            assertEquals(units.get(i % units.size()).getUnitName(), calls.get(i).get().getUnitName());
+        }
+        assertEquals(2, client.getOpenConnections());
+        assertEquals(2, server.getActiveConnections());
+        assertEquals(0, client.getInFlight());
+
+        ExecutionException missing = assertThrows(ExecutionException.class, () -> client.getUnit("Missing").get());
+        assertInstanceOf(IOException.class, missing.getCause());
+    }
+
+    @Test
+    void testReconnectsAfterServerRestart() throws Exception
+    {
+        int port = startServer(0);
+        client = new AsyncClient("127.0.0.1", port, 2);
+        assertNotNull(client.listUnits(null).get());
+
+        server.stop();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.getOpenConnections() > 0)
+        {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for the connections to fail");
+            Thread.sleep(5);
+        }
+        startServer(port);
+        while (client.getOpenConnections() < 2)
+        {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting to reconnect");
+            Thread.sleep(5);
+        }
+        assertNotNull(client.listUnits(null).get());
+        assertTrue(client.getReconnects() >= 2);
+    }
+
+    @Test
+    void testCallTimesOut() throws Exception
+    {
+        // Accepts connections but never answers
+        try (ServerSocket silent = new ServerSocket(0))
+        {
+            Thread.ofVirtual().start(() -> {
+                List<Socket> accepted = new ArrayList<>();
+                try
+                {
+                    while (true)
+                    {
+                        accepted.add(silent.accept());
+                    }
+                }
+                catch (IOException e)
+                {
+                    // The test is over
+                }
+            });
+            client = new AsyncClient("127.0.0.1", silent.getLocalPort(), 1);
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> client.send(CustomerRequest.ping(), Duration.ofMillis(50)).get());
+            assertInstanceOf(TimeoutException.class, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgingClientTest
+{
+    private final List<Server> servers = new ArrayList<>();
+    private final List<InetSocketAddress> addresses = new ArrayList<>();
+    private HedgingClient client;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            Server server = new Server(new UnitCatalog(UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE)),
+                    new AdmissionController(4, 256, 0, 0));
+            int port = server.bind(0);
+            Thread.ofVirtual().start(server::serve);
+            servers.add(server);
+            addresses.add(new InetSocketAddress("127.0.0.1", port));
+        }
+        client = new HedgingClient(addresses);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        client.close();
+        for (Server server : servers)
+        {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testHedgingHidesASlowServer() throws Exception
+    {
+        String name = client.listUnits(null).get().get(0).getUnitName();
+        servers.get(0).setInjectedDelay(500, 1.0);
+
+        for (int i = 0; i < 6; i++)
+        {
+            long start = System.nanoTime();
+            assertEquals(name, client.getUnit(name).get().getUnitName());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(millis < 250, "read " + i + " took " + millis + " ms");
+        }
+        assertTrue(client.getHedgeWins() >= 2, client.toString());
+    }
+
+    @Test
+    void testHedgeDelayCountsTheReadsHedgesWin() throws Exception
+    {
+        String name = client.listUnits(null).get().get(0).getUnitName();
+        servers.get(0).setInjectedDelay(40, 0.25);
+
+        for (int i = 0; i < 300; i++)
+        {
+            client.getUnit(name).get();
+        }
+        // Slow first calls are still timed once their hedge has won
+        Thread.sleep(100);
+        assertTrue(client.getHedgeDelayNanos() >= 20_000_000, client.toString());
+    }
+
+    @Test
+    void testReadsAreRetriedOnAnotherServer() throws Exception
+    {
+        servers.get(1).stop();
+        String name = client.listUnits(null).get().get(0).getUnitName();
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(name, client.getUnit(name).get().getUnitName());
+        }
+        assertTrue(client.getRetries() + client.getHedgeWins() >= 1, client.toString());
+    }
+
+    @Test
+    void testServerErrorsAreNotRetried()
+    {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> client.getUnit("Missing").get());
+        assertInstanceOf(ServerErrorException.class, e.getCause());
+        assertEquals(0, client.getRetries());
+    }
+}
@@ -0,0 +1,91 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest
+{
+    private Server server;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        server = new Server(new UnitCatalog(UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE)),
+                new AdmissionController(2, 256, 0, 0));
+        port = server.bind(0);
+        Thread.ofVirtual().start(server::serve);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        server.stop();
+    }
+
+    @Test
+    void testParseMix()
+    {
+        assertEquals(Map.of(LoadGenerator.Operation.UNIT, 90, LoadGenerator.Operation.LIST, 10),
+                LoadGenerator.parseMix("unit:90, list:10"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseMix("bogus:1"));
+    }
+
+    @Test
+    void testClosedLoopReportsEveryOperation() throws Exception
+    {
+        LoadGenerator generator = new LoadGenerator("127.0.0.1", port, 2, 0,
+                LoadGenerator.parseMix("unit:8,list:1,page:1"), MessageFormat.SMILE, true);
+        LoadGenerator.Report report = generator.run(Duration.ofMillis(100), Duration.ofMillis(300));
+
+        assertTrue(report.getLatency().getCount() > 0);
+        assertEquals(0, report.getErrors());
+        assertTrue(report.getLatency(LoadGenerator.Operation.UNIT).getCount() > report.getLatency(LoadGenerator.Operation.LIST).getCount());
+        String[] csv = report.toCsv().split("\n");
+        assertTrue(csv[0].startsWith("mode,connections,format,op,count"));
+        assertTrue(csv[csv.length - 1].startsWith("closed,2,SMILE+deflate,all,"));
+        assertTrue(report.toText().contains("closed loop"));
+    }
+
+    @Test
+    void testOpenLoopHoldsItsRate() throws Exception
+    {
+        LoadGenerator generator = new LoadGenerator("127.0.0.1", port, 2, 400,
+                LoadGenerator.parseMix("ping"), MessageFormat.JSON, false);
+        LoadGenerator.Report report = generator.run(Duration.ZERO, Duration.ofMillis(500));
+
+        long count = report.getLatency().getCount();
+        assertTrue(count >= 150 && count <= 250, "expected about 200 requests but sent " + count);
+        // Response time runs from when a request was due, so it is never less than service time
+        assertTrue(report.getLatency().getMaxNanos() >= report.getServiceTime().getMaxNanos());
+    }
+
+    @Test
+    void testClosedLoopBacksOffWhileTheServerIsDown() throws Exception
+    {
+        LoadGenerator generator = new LoadGenerator("127.0.0.1", port, 2, 0,
+                LoadGenerator.parseMix("ping"), MessageFormat.JSON, false);
+        Thread.ofVirtual().start(() -> {
+            try
+            {
+                Thread.sleep(150);
+                server.stop();
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+        LoadGenerator.Report report = generator.run(Duration.ZERO, Duration.ofMillis(600));
+
+        assertTrue(report.getLatency().getCount() > 0);
+        // Each connection waits 10, 20, 40... ms between attempts instead of retrying at once
+        assertTrue(report.getErrors() > 0 && report.getErrors() < 40, "errors: " + report.getErrors());
+    }
+}
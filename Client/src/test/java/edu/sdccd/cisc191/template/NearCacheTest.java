@@ -0,0 +1,97 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NearCacheTest
+{
+    private UnitCatalog catalog;
+    private Server server;
+    private int port;
+    private NearCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        catalog = new UnitCatalog(List.of(
+                tankCosting(400),
+                new Fighter("Su-57", "Fighter", "VDV", 345, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240),
+                new Fighter("MiG-29", "Fighter", "VDV", 200, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240)));
+        server = new Server(catalog);
+        port = server.bind(0);
+        Thread.ofVirtual().start(server::serve);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        cache.close();
+        server.stop();
+    }
+
+    private static Tank tankCosting(int price)
+    {
+        return new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", price, 850, 18, 1700, 1, 80, 550000, "Smoke", 100);
+    }
+
+    private void awaitVersion(long version) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getVersion() < version)
+        {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for the change feed");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testChangesInvalidateCachedUnits() throws Exception
+    {
+        cache = new NearCache("127.0.0.1", port, 10, Duration.ofSeconds(5));
+        awaitVersion(catalog.getVersion());
+
+        assertEquals(400, cache.getUnit("T-14 Armata").getPrice());
+        assertEquals(400, cache.getUnit("T-14 Armata").getPrice());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        catalog.put(tankCosting(123));
+        awaitVersion(catalog.getVersion());
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(123, cache.getUnit("T-14 Armata").getPrice());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    void testStaleCacheGoesToServer() throws Exception
+    {
+        cache = new NearCache("127.0.0.1", port, 10, Duration.ofMillis(1));
+        awaitVersion(catalog.getVersion());
+        cache.getUnit("Su-57");
+        Thread.sleep(20);
+
+        // The server's idle heartbeat is a second away, so the cache cannot vouch for its entry
+        cache.getUnit("Su-57");
+        assertEquals(0, cache.getHits());
+        assertTrue(cache.getStaleMisses() >= 1);
+    }
+
+    @Test
+    void testSizeIsBounded() throws Exception
+    {
+        cache = new NearCache("127.0.0.1", port, 2, Duration.ofSeconds(5));
+        awaitVersion(catalog.getVersion());
+        cache.getUnit("T-14 Armata");
+        cache.getUnit("Su-57");
+        cache.getUnit("MiG-29");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+}
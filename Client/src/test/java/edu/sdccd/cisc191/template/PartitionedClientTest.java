@@ -0,0 +1,86 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedClientTest
+{
+    private final List<Server> servers = new ArrayList<>();
+    private UnitCatalog.Snapshot everything;
+    private PartitionedClient client;
+
+    // Starts three servers on free ports, each holding its partition of the bundled units
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        everything = new UnitCatalog(units).snapshot();
+        List<String> names = List.of("node-0", "node-1", "node-2");
+        ConsistentHashRing ring = new ConsistentHashRing(names);
+        Map<String, InetSocketAddress> nodes = new LinkedHashMap<>();
+        for (String name : names)
+        {
+            Server server = new Server(new UnitCatalog(ring.partition(units, Unit::getUnitName, name)));
+            int port = server.bind(0);
+            Thread.ofVirtual().start(server::serve);
+            servers.add(server);
+            nodes.put(name, new InetSocketAddress("127.0.0.1", port));
+        }
+        client = new PartitionedClient(nodes);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        client.close();
+        for (Server server : servers)
+        {
+            server.stop();
+        }
+    }
+
+    private static List<String> namesOf(List<Unit> units)
+    {
+        return units.stream().map(Unit::getUnitName).toList();
+    }
+
+    @Test
+    void testEachUnitIsServedByOneNode()
+    {
+        int total = 0;
+        for (Server server : servers)
+        {
+            int size = server.getCatalog().snapshot().size();
+            assertTrue(size < everything.size());
+            total += size;
+        }
+        assertEquals(everything.size(), total);
+    }
+
+    @Test
+    void testLookupsAreRoutedToOwner() throws Exception
+    {
+        for (Unit unit : everything.getUnits())
+        {
+            assertEquals(unit.toString(), client.getUnit(unit.getUnitName()).toString());
+        }
+    }
+
+    @Test
+    void testListsAreMergedInNameOrder() throws Exception
+    {
+        assertEquals(namesOf(everything.getUnits()), namesOf(client.listUnits(null)));
+        String type = everything.getUnits().get(0).getUnitType();
+        assertEquals(namesOf(everything.list(type)), namesOf(client.listUnits(type)));
+        assertEquals(namesOf(everything.range(null, "B", "M")), namesOf(client.listRange(null, "B", "M")));
+    }
+}
@@ -0,0 +1,70 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicatedClientTest
+{
+    private final List<Server> servers = new ArrayList<>();
+    private ReplicatedClient client;
+
+    private InetSocketAddress start(Server server) throws Exception
+    {
+        int port = server.bind(0);
+        Thread.ofVirtual().start(server::serve);
+        servers.add(server);
+        return new InetSocketAddress("127.0.0.1", port);
+    }
+
+    // A primary with one replica that follows it and one that never syncs
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        Server primary = new Server(new UnitCatalog(UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE)));
+        InetSocketAddress primaryAddress = start(primary);
+
+        Server following = new Server(UnitCatalog.replica());
+        Replicator replicator = new Replicator(following.getCatalog(), "127.0.0.1", primaryAddress.getPort());
+        following.setReplicator(replicator);
+        Thread.ofVirtual().start(replicator);
+        Server stale = new Server(UnitCatalog.replica());
+
+        client = new ReplicatedClient(primaryAddress, List.of(start(following), start(stale)));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!replicator.isSynced())
+        {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for replication");
+            Thread.sleep(5);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        client.close();
+        for (Server server : servers)
+        {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testReadsMeetFreshnessBound() throws Exception
+    {
+        UnitCatalog catalog = servers.get(0).getCatalog();
+        Unit first = catalog.snapshot().getUnits().get(0);
+        // Each read starts at a different replica; the stale one always passes it on
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(first.toString(), client.getUnit(first.getUnitName(), catalog.getVersion()).toString());
+            assertEquals(catalog.snapshot().size(), client.listUnits(null, catalog.getVersion()).size());
+        }
+    }
+}
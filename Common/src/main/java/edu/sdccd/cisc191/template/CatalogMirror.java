@@ -0,0 +1,72 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A local copy of the server's unit catalog, kept current by applying the
+ * updates a subscription pushes. The version is the last catalog version
+ * applied, which is what to resume from after reconnecting.
+ *
+ * Not thread-safe; apply updates from the thread that reads them.
+ */
+public class CatalogMirror {
+    private final Map<String, Unit> units = new TreeMap<>();
+    private long version;
+
+    /**
+     * Applies one pushed update: either the whole catalog, which replaces
+     * everything held so far, or a batch of changes.
+     *
+     * @param update a response read from a subscribed connection
+     */
+    public void apply(CustomerResponse update) {
+        if (update.getUnits() != null) {
+            units.clear();
+            for (Unit unit : update.getUnits()) {
+                units.put(unit.getUnitName(), unit);
+            }
+        }
+        if (update.getDeltas() != null) {
+            for (UnitDelta delta : update.getDeltas()) {
+                Unit unit = delta.applyTo(units.get(delta.getUnitName()));
+                if (unit == null) {
+                    units.remove(delta.getUnitName());
+                } else {
+                    units.put(delta.getUnitName(), unit);
+                }
+            }
+        }
+        if (update.getVersion() != null) {
+            version = update.getVersion();
+        }
+    }
+
+    /**
+     * @return the last catalog version applied, or 0 before the first update
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param unitName the name to look up
+     * @return the unit, or null if there is none with that name
+     */
+    public Unit get(String unitName) {
+        return units.get(unitName);
+    }
+
+    /**
+     * @return every unit, sorted by name
+     */
+    public List<Unit> getUnits() {
+        return new ArrayList<>(units.values());
+    }
+
+    public int size() {
+        return units.size();
+    }
+}
@@ -0,0 +1,136 @@
+package edu.sdccd.cisc191.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Assigns keys, such as unit names, to the nodes of a cluster.
+ *
+ * Each node is placed on a ring of 64-bit hashes at many points (virtual
+ * nodes), and a key belongs to the first node point at or after the key's own
+ * hash. Adding a node only takes over the keys just before its points, so
+ * about 1/N of the keys move and the rest stay where they were. Many points
+ * per node keep the partitions close to equal in size.
+ *
+ * Rings are immutable; {@link #withNode(String)} and {@link #withoutNode(String)}
+ * return new ones, so a ring can be shared between threads freely. Servers and
+ * clients agree on ownership as long as they are given the same node names.
+ */
+public final class ConsistentHashRing {
+    /** Points per node; enough to keep partition sizes within a few percent of each other. */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int virtualNodes;
+    private final Set<String> nodes;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param nodes the names of the cluster's nodes
+     */
+    public ConsistentHashRing(Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param nodes        the names of the cluster's nodes
+     * @param virtualNodes how many points each node gets on the ring
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        this.virtualNodes = virtualNodes;
+        this.nodes = Collections.unmodifiableSet(new LinkedHashSet<>(nodes));
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * @param node the node to add
+     * @return a ring that also contains the node
+     */
+    public ConsistentHashRing withNode(String node) {
+        List<String> more = new ArrayList<>(nodes);
+        more.add(node);
+        return new ConsistentHashRing(more, virtualNodes);
+    }
+
+    /**
+     * @param node the node to remove
+     * @return a ring without the node; its keys go to the remaining nodes
+     */
+    public ConsistentHashRing withoutNode(String node) {
+        List<String> fewer = new ArrayList<>(nodes);
+        fewer.remove(node);
+        return new ConsistentHashRing(fewer, virtualNodes);
+    }
+
+    /**
+     * @return the nodes, in the order they were given
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @param key the key to place
+     * @return the node that owns the key
+     * @throws IllegalStateException if the ring has no nodes
+     */
+    public String nodeFor(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("The ring has no nodes");
+        }
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Selects the items one node owns.
+     *
+     * @param items the items to choose from
+     * @param key   gives each item's key
+     * @param node  the node whose partition to return
+     * @return the items whose keys belong to the node, in their original order
+     */
+    public <T> List<T> partition(Collection<T> items, Function<T, String> key, String node) {
+        List<T> owned = new ArrayList<>();
+        for (T item : items) {
+            if (node.equals(nodeFor(key.apply(item)))) {
+                owned.add(item);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * 64-bit FNV-1a of the key's UTF-8 bytes, followed by the MurmurHash3
+     * finalizer. FNV alone leaves keys that differ only in their last
+     * characters, like the virtual node names, close together on the ring.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
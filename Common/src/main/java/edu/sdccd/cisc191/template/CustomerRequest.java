@@ -1,18 +1,33 @@
 package edu.sdccd.cisc191.template;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.StringWriter;
 
 public class CustomerRequest {
     private Integer id;
+    private RequestType type;
+    private String unitName;
+    private String unitType;
+    private Long version;
+    private String fromName;
+    private String toName;
+    private Integer limit;
+    private String cursor;
 
-    @JsonIgnore
-    private static final ObjectMapper objectMapper = new ObjectMapper();
     public static String toJSON(CustomerRequest customer) throws Exception {
-        return objectMapper.writeValueAsString(customer);
+        StringWriter json = new StringWriter();
+        try (JsonGenerator gen = MessageFormat.JSON.createGenerator(json)) {
+            CustomerRequestCodec.write(gen, customer);
+        }
+        return json.toString();
     }
     public static CustomerRequest fromJSON(String input) throws Exception{
-        return objectMapper.readValue(input, CustomerRequest.class);
+        try (JsonParser p = MessageFormat.JSON.createParser(input)) {
+            p.nextToken();
+            return CustomerRequestCodec.read(p);
+        }
     }
     protected CustomerRequest() {}
 
@@ -20,6 +35,112 @@ public class CustomerRequest {
         this.id = id;
     }
 
+    /**
+     * Creates a request for a single unit.
+     *
+     * @param unitName the name of the unit
+     * @return the request
+     */
+    public static CustomerRequest unit(String unitName) {
+        CustomerRequest request = new CustomerRequest();
+        request.setType(RequestType.UNIT);
+        request.setUnitName(unitName);
+        return request;
+    }
+
+    /**
+     * Creates a request for a list of units sorted by name.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @return the request
+     */
+    public static CustomerRequest list(String unitType) {
+        CustomerRequest request = new CustomerRequest();
+        request.setType(RequestType.LIST);
+        request.setUnitType(unitType);
+        return request;
+    }
+
+    /**
+     * Creates a request for the units whose names fall in a range, sorted by name.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @param fromName the first name to include, or null to start at the beginning
+     * @param toName   the first name to exclude, or null to run to the end
+     * @return the request
+     */
+    public static CustomerRequest range(String unitType, String fromName, String toName) {
+        CustomerRequest request = list(unitType);
+        request.setFromName(fromName);
+        request.setToName(toName);
+        return request;
+    }
+
+    /**
+     * Creates a request for one page of a list of units sorted by name. The
+     * first page is requested without a cursor; each page's response carries
+     * the cursor for the next one, or none after the last page.
+     *
+     * @param unitType the unit type to list, or null for every unit
+     * @param cursor   the cursor from the previous page, or null for the first page
+     * @param limit    the most units to return; the server may return fewer
+     * @return the request
+     */
+    public static CustomerRequest page(String unitType, String cursor, int limit) {
+        CustomerRequest request = list(unitType);
+        request.setCursor(cursor);
+        request.setLimit(limit);
+        return request;
+    }
+
+    /**
+     * Creates a request for the server's performance statistics.
+     *
+     * @return the request
+     */
+    public static CustomerRequest stats() {
+        CustomerRequest request = new CustomerRequest();
+        request.setType(RequestType.STATS);
+        return request;
+    }
+
+    /**
+     * Creates a request to be sent every change to the catalog after the given
+     * version. If the server still remembers the changes since then it sends
+     * only those; otherwise it starts with the whole catalog.
+     *
+     * @param fromVersion the last catalog version the client has applied, or 0 for none
+     * @return the request
+     */
+    public static CustomerRequest subscribe(long fromVersion) {
+        CustomerRequest request = new CustomerRequest();
+        request.setType(RequestType.SUBSCRIBE);
+        request.setVersion(fromVersion);
+        return request;
+    }
+
+    /**
+     * Creates a request to have large responses compressed from now on.
+     *
+     * @return the request
+     */
+    public static CustomerRequest compress() {
+        CustomerRequest request = new CustomerRequest();
+        request.setType(RequestType.COMPRESS);
+        return request;
+    }
+
+    /**
+     * Creates a health check request.
+     *
+     * @return the request
+     */
+    public static CustomerRequest ping() {
+        CustomerRequest request = new CustomerRequest();
+        request.setType(RequestType.PING);
+        return request;
+    }
+
     @Override
     public String toString() {
         return String.format(
@@ -34,4 +155,86 @@ public class CustomerRequest {
     public void setId(Integer id) {
         this.id = id;
     }
+
+    /**
+     * @return the kind of request; never null, a request without a type is a customer request
+     */
+    public RequestType getType() {
+        return type == null ? RequestType.CUSTOMER : type;
+    }
+
+    public void setType(RequestType type) {
+        this.type = type;
+    }
+
+    public String getUnitName() {
+        return unitName;
+    }
+
+    public void setUnitName(String unitName) {
+        this.unitName = unitName;
+    }
+
+    public String getUnitType() {
+        return unitType;
+    }
+
+    public void setUnitType(String unitType) {
+        this.unitType = unitType;
+    }
+
+    /**
+     * @return the catalog version the request refers to, or null if it has none
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the lowest unit name a list request includes, or null for no lower bound
+     */
+    public String getFromName() {
+        return fromName;
+    }
+
+    public void setFromName(String fromName) {
+        this.fromName = fromName;
+    }
+
+    /**
+     * @return the unit name a list request stops before, or null for no upper bound
+     */
+    public String getToName() {
+        return toName;
+    }
+
+    public void setToName(String toName) {
+        this.toName = toName;
+    }
+
+    /**
+     * @return the most units a paged list request wants, or null for an unpaged request
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return where a paged list request continues, or null to start at the beginning
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+
+/**
+ * Hand-written streaming codec for {@link CustomerRequest}.
+ *
+ * Field names are written from pre-encoded {@link SerializedString}s and read
+ * back with a string switch, which dispatches on the name's hash code. Jackson
+ * canonicalizes field names as it parses them, so the hash is computed once per
+ * parser rather than once per message and no reflection is involved.
+ */
+public final class CustomerRequestCodec {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString UNIT_NAME = new SerializedString("unitName");
+    private static final SerializedString UNIT_TYPE = new SerializedString("unitType");
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString FROM_NAME = new SerializedString("fromName");
+    private static final SerializedString TO_NAME = new SerializedString("toName");
+    private static final SerializedString LIMIT = new SerializedString("limit");
+    private static final SerializedString CURSOR = new SerializedString("cursor");
+
+    private CustomerRequestCodec() {}
+
+    /**
+     * Writes a request as a single JSON object.
+     *
+     * @param gen     the generator to write to
+     * @param request the request to write
+     * @throws IOException if the generator fails
+     */
+    public static void write(JsonGenerator gen, CustomerRequest request) throws IOException {
+        gen.writeStartObject();
+        if (request.getId() != null) {
+            gen.writeFieldName(ID);
+            gen.writeNumber(request.getId());
+        }
+        if (request.getType() != RequestType.CUSTOMER) {
+            gen.writeFieldName(TYPE);
+            gen.writeString(request.getType().wireName());
+        }
+        if (request.getUnitName() != null) {
+            gen.writeFieldName(UNIT_NAME);
+            gen.writeString(request.getUnitName());
+        }
+        if (request.getUnitType() != null) {
+            gen.writeFieldName(UNIT_TYPE);
+            gen.writeString(request.getUnitType());
+        }
+        if (request.getVersion() != null) {
+            gen.writeFieldName(VERSION);
+            gen.writeNumber(request.getVersion());
+        }
+        if (request.getFromName() != null) {
+            gen.writeFieldName(FROM_NAME);
+            gen.writeString(request.getFromName());
+        }
+        if (request.getToName() != null) {
+            gen.writeFieldName(TO_NAME);
+            gen.writeString(request.getToName());
+        }
+        if (request.getLimit() != null) {
+            gen.writeFieldName(LIMIT);
+            gen.writeNumber(request.getLimit());
+        }
+        if (request.getCursor() != null) {
+            gen.writeFieldName(CURSOR);
+            gen.writeString(request.getCursor());
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Reads a request. The parser must be positioned on the object's START_OBJECT
+     * token and is left on the matching END_OBJECT. Unknown fields are skipped.
+     *
+     * @param p the parser to read from
+     * @return the decoded request
+     * @throws ProtocolException if the request is well-formed but has an unknown type;
+     *                           the parser is still left on the END_OBJECT token
+     * @throws IOException if the input is not a well-formed request
+     */
+    public static CustomerRequest read(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected start of request object but found " + p.currentToken());
+        }
+        CustomerRequest request = new CustomerRequest();
+        String unknownType = null;
+        String name;
+        while ((name = p.nextFieldName()) != null) {
+            JsonToken value = p.nextToken();
+            boolean isNull = value == JsonToken.VALUE_NULL;
+            switch (name) {
+                case "id":
+                    request.setId(isNull ? null : p.getIntValue());
+                    break;
+                case "type":
+                    RequestType type = isNull ? RequestType.CUSTOMER : RequestType.fromWireName(p.getText());
+                    if (type == null) {
+                        unknownType = p.getText();
+                    }
+                    request.setType(type);
+                    break;
+                case "unitName":
+                    request.setUnitName(isNull ? null : p.getText());
+                    break;
+                case "unitType":
+                    request.setUnitType(isNull ? null : p.getText());
+                    break;
+                case "version":
+                    request.setVersion(isNull ? null : p.getLongValue());
+                    break;
+                case "fromName":
+                    request.setFromName(isNull ? null : p.getText());
+                    break;
+                case "toName":
+                    request.setToName(isNull ? null : p.getText());
+                    break;
+                case "limit":
+                    request.setLimit(isNull ? null : p.getIntValue());
+                    break;
+                case "cursor":
+                    request.setCursor(isNull ? null : p.getText());
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        if (unknownType != null) {
+            // The whole object has been consumed, so the stream is still usable
+            throw new ProtocolException("Unknown request type: " + unknownType);
+        }
+        return request;
+    }
+}
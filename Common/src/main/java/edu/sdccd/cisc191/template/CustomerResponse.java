@@ -1,20 +1,40 @@
 package edu.sdccd.cisc191.template;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
 
 public class CustomerResponse {
     private Integer id;
     private String firstName;
     private String lastName;
+    private String error;
+    private Long version;
+    private Long headVersion;
+    private List<Unit> units;
+    private String cursor;
+    private Long retryAfterMillis;
+    private Map<String, Number> stats;
+    private List<UnitDelta> deltas;
+    private byte[] dictionary;
+    private byte[] deflated;
+    private Integer inflatedLength;
 
-    @JsonIgnore
-    private static final ObjectMapper objectMapper = new ObjectMapper();
     public static String toJSON(CustomerResponse customer) throws Exception {
-        return objectMapper.writeValueAsString(customer);
+        StringWriter json = new StringWriter();
+        try (JsonGenerator gen = MessageFormat.JSON.createGenerator(json)) {
+            CustomerResponseCodec.write(gen, customer);
+        }
+        return json.toString();
     }
     public static CustomerResponse fromJSON(String input) throws Exception{
-        return objectMapper.readValue(input, CustomerResponse.class);
+        try (JsonParser p = MessageFormat.JSON.createParser(input)) {
+            p.nextToken();
+            return CustomerResponseCodec.read(p);
+        }
     }
     protected CustomerResponse() {}
 
@@ -24,6 +44,101 @@ public class CustomerResponse {
         this.lastName = lastName;
     }
 
+    /**
+     * Creates a response that carries units from the catalog.
+     *
+     * @param version the catalog version the units were read from
+     * @param units   the units, in the order they should be presented
+     * @return the unit response
+     */
+    public static CustomerResponse units(long version, List<Unit> units) {
+        CustomerResponse response = new CustomerResponse();
+        response.setVersion(version);
+        response.setUnits(units);
+        return response;
+    }
+
+    /**
+     * Creates one page of a paged list.
+     *
+     * @param version the catalog version the units were read from
+     * @param units   the page's units, sorted by name
+     * @param cursor  the cursor for the next page, or null if this is the last
+     * @return the page
+     */
+    public static CustomerResponse page(long version, List<Unit> units, String cursor) {
+        CustomerResponse response = units(version, units);
+        response.setCursor(cursor);
+        return response;
+    }
+
+    /**
+     * Creates a response that carries catalog changes to a subscriber.
+     *
+     * @param version the catalog version after the last change
+     * @param deltas  the changes, at most one per unit
+     * @return the delta response
+     */
+    public static CustomerResponse deltas(long version, List<UnitDelta> deltas) {
+        CustomerResponse response = new CustomerResponse();
+        response.setVersion(version);
+        response.setDeltas(deltas);
+        return response;
+    }
+
+    /**
+     * Creates the server's answer to a compression request: the preset
+     * dictionary both ends use from then on.
+     *
+     * @param dictionary the preset dictionary
+     * @return the response
+     */
+    public static CustomerResponse compression(byte[] dictionary) {
+        CustomerResponse response = new CustomerResponse();
+        response.setDictionary(dictionary);
+        return response;
+    }
+
+    /**
+     * Creates a response that wraps another, compressed.
+     *
+     * @param deflated       the other response's encoded bytes, compressed
+     * @param inflatedLength the encoded length before compression
+     * @return the wrapper
+     */
+    public static CustomerResponse deflated(byte[] deflated, int inflatedLength) {
+        CustomerResponse response = new CustomerResponse();
+        response.setDeflated(deflated);
+        response.setInflatedLength(inflatedLength);
+        return response;
+    }
+
+    /**
+     * Creates a response that reports a failed request instead of a customer.
+     *
+     * @param message a short description of what went wrong
+     * @return the error response
+     */
+    public static CustomerResponse error(String message) {
+        CustomerResponse response = new CustomerResponse();
+        response.setError(message);
+        return response;
+    }
+
+    /**
+     * Creates a response that refuses a request because the server is too busy
+     * to take it now. The request was not executed and can safely be retried.
+     *
+     * @param message          why the request was refused
+     * @param retryAfterMillis how long the client should wait before retrying
+     * @return the error response
+     */
+    public static CustomerResponse busy(String message, long retryAfterMillis) {
+        CustomerResponse response = error(message);
+        response.setRetryAfterMillis(retryAfterMillis);
+        return response;
+    }
+
     @Override
     public String toString() {
         return String.format(
@@ -43,6 +158,29 @@ public class CustomerResponse {
         return lastName;
     }
 
+    public String getError() {
+        return error;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public List<Unit> getUnits() {
+        return units;
+    }
+
+    public Long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * @return named counters and measurements, in the order the server reported them
+     */
+    public Map<String, Number> getStats() {
+        return stats;
+    }
+
     public void setId(Integer id) {
         this.id = id;
     }
@@ -54,4 +192,88 @@ public class CustomerResponse {
     public void setLastName(String lastName) {
         this.lastName = lastName;
     }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the cursor for a paged list's next page, or null after the last page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public void setUnits(List<Unit> units) {
+        this.units = units;
+    }
+
+    public void setRetryAfterMillis(Long retryAfterMillis) {
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public void setStats(Map<String, Number> stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * @return catalog changes pushed to a subscriber, or null if this is not a delta response
+     */
+    public List<UnitDelta> getDeltas() {
+        return deltas;
+    }
+
+    public void setDeltas(List<UnitDelta> deltas) {
+        this.deltas = deltas;
+    }
+
+    /**
+     * @return the compression dictionary the server sent, or null
+     */
+    public byte[] getDictionary() {
+        return dictionary;
+    }
+
+    public void setDictionary(byte[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return a compressed response this one wraps, or null if it is not a wrapper
+     */
+    public byte[] getDeflated() {
+        return deflated;
+    }
+
+    public void setDeflated(byte[] deflated) {
+        this.deflated = deflated;
+    }
+
+    public Integer getInflatedLength() {
+        return inflatedLength;
+    }
+
+    public void setInflatedLength(Integer inflatedLength) {
+        this.inflatedLength = inflatedLength;
+    }
+
+    /**
+     * @return the newest version of the sender's catalog when a subscription update was
+     *         sent, which may be ahead of the update's own version; null on other responses
+     */
+    public Long getHeadVersion() {
+        return headVersion;
+    }
+
+    public void setHeadVersion(Long headVersion) {
+        this.headVersion = headVersion;
+    }
 }
\ No newline at end of file
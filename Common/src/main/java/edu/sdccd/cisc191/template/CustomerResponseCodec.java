@@ -0,0 +1,224 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written streaming codec for {@link CustomerResponse}.
+ * See {@link CustomerRequestCodec} for how field names are matched.
+ * Null fields are left out when writing and read back as null.
+ */
+public final class CustomerResponseCodec {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializedString LAST_NAME = new SerializedString("lastName");
+    private static final SerializedString ERROR = new SerializedString("error");
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString HEAD_VERSION = new SerializedString("headVersion");
+    private static final SerializedString UNITS = new SerializedString("units");
+    private static final SerializedString CURSOR = new SerializedString("cursor");
+    private static final SerializedString RETRY_AFTER_MILLIS = new SerializedString("retryAfterMillis");
+    private static final SerializedString STATS = new SerializedString("stats");
+    private static final SerializedString DELTAS = new SerializedString("deltas");
+    private static final SerializedString DICTIONARY = new SerializedString("dictionary");
+    private static final SerializedString DEFLATED = new SerializedString("deflated");
+    private static final SerializedString INFLATED_LENGTH = new SerializedString("inflatedLength");
+
+    private CustomerResponseCodec() {}
+
+    /**
+     * Writes a response as a single JSON object.
+     *
+     * @param gen      the generator to write to
+     * @param response the response to write
+     * @throws IOException if the generator fails
+     */
+    public static void write(JsonGenerator gen, CustomerResponse response) throws IOException {
+        gen.writeStartObject();
+        if (response.getId() != null) {
+            gen.writeFieldName(ID);
+            gen.writeNumber(response.getId());
+        }
+        if (response.getFirstName() != null) {
+            gen.writeFieldName(FIRST_NAME);
+            gen.writeString(response.getFirstName());
+        }
+        if (response.getLastName() != null) {
+            gen.writeFieldName(LAST_NAME);
+            gen.writeString(response.getLastName());
+        }
+        if (response.getError() != null) {
+            gen.writeFieldName(ERROR);
+            gen.writeString(response.getError());
+        }
+        if (response.getRetryAfterMillis() != null) {
+            gen.writeFieldName(RETRY_AFTER_MILLIS);
+            gen.writeNumber(response.getRetryAfterMillis());
+        }
+        if (response.getVersion() != null) {
+            gen.writeFieldName(VERSION);
+            gen.writeNumber(response.getVersion());
+        }
+        if (response.getHeadVersion() != null) {
+            gen.writeFieldName(HEAD_VERSION);
+            gen.writeNumber(response.getHeadVersion());
+        }
+        if (response.getUnits() != null) {
+            gen.writeFieldName(UNITS);
+            gen.writeStartArray();
+            for (Unit unit : response.getUnits()) {
+                UnitCodec.write(gen, unit);
+            }
+            gen.writeEndArray();
+        }
+        if (response.getCursor() != null) {
+            gen.writeFieldName(CURSOR);
+            gen.writeString(response.getCursor());
+        }
+        if (response.getDeltas() != null) {
+            gen.writeFieldName(DELTAS);
+            gen.writeStartArray();
+            for (UnitDelta delta : response.getDeltas()) {
+                UnitDeltaCodec.write(gen, delta);
+            }
+            gen.writeEndArray();
+        }
+        if (response.getDictionary() != null) {
+            gen.writeFieldName(DICTIONARY);
+            gen.writeBinary(response.getDictionary());
+        }
+        if (response.getInflatedLength() != null) {
+            gen.writeFieldName(INFLATED_LENGTH);
+            gen.writeNumber(response.getInflatedLength());
+        }
+        if (response.getDeflated() != null) {
+            gen.writeFieldName(DEFLATED);
+            gen.writeBinary(response.getDeflated());
+        }
+        if (response.getStats() != null) {
+            gen.writeFieldName(STATS);
+            gen.writeStartObject();
+            for (Map.Entry<String, Number> stat : response.getStats().entrySet()) {
+                gen.writeFieldName(stat.getKey());
+                Number value = stat.getValue();
+                if (value instanceof Double || value instanceof Float) {
+                    gen.writeNumber(value.doubleValue());
+                } else {
+                    gen.writeNumber(value.longValue());
+                }
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Reads a response. The parser must be positioned on the object's START_OBJECT
+     * token and is left on the matching END_OBJECT. Unknown fields are skipped.
+     *
+     * @param p the parser to read from
+     * @return the decoded response
+     * @throws IOException if the input is not a well-formed response
+     */
+    public static CustomerResponse read(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected start of response object but found " + p.currentToken());
+        }
+        CustomerResponse response = new CustomerResponse();
+        String name;
+        while ((name = p.nextFieldName()) != null) {
+            JsonToken value = p.nextToken();
+            boolean isNull = value == JsonToken.VALUE_NULL;
+            switch (name) {
+                case "id":
+                    response.setId(isNull ? null : p.getIntValue());
+                    break;
+                case "firstName":
+                    response.setFirstName(isNull ? null : p.getText());
+                    break;
+                case "lastName":
+                    response.setLastName(isNull ? null : p.getText());
+                    break;
+                case "error":
+                    response.setError(isNull ? null : p.getText());
+                    break;
+                case "retryAfterMillis":
+                    response.setRetryAfterMillis(isNull ? null : p.getLongValue());
+                    break;
+                case "version":
+                    response.setVersion(isNull ? null : p.getLongValue());
+                    break;
+                case "headVersion":
+                    response.setHeadVersion(isNull ? null : p.getLongValue());
+                    break;
+                case "cursor":
+                    response.setCursor(isNull ? null : p.getText());
+                    break;
+                case "units":
+                    response.setUnits(isNull ? null : readUnits(p));
+                    break;
+                case "stats":
+                    response.setStats(isNull ? null : readStats(p));
+                    break;
+                case "deltas":
+                    response.setDeltas(isNull ? null : readDeltas(p));
+                    break;
+                case "dictionary":
+                    response.setDictionary(isNull ? null : p.getBinaryValue());
+                    break;
+                case "deflated":
+                    response.setDeflated(isNull ? null : p.getBinaryValue());
+                    break;
+                case "inflatedLength":
+                    response.setInflatedLength(isNull ? null : p.getIntValue());
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return response;
+    }
+
+    private static Map<String, Number> readStats(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected object of stats but found " + p.currentToken());
+        }
+        Map<String, Number> stats = new LinkedHashMap<>();
+        String name;
+        while ((name = p.nextFieldName()) != null) {
+            p.nextToken();
+            stats.put(name, p.getNumberValue());
+        }
+        return stats;
+    }
+
+    private static List<UnitDelta> readDeltas(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected array of deltas but found " + p.currentToken());
+        }
+        List<UnitDelta> deltas = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            deltas.add(UnitDeltaCodec.read(p));
+        }
+        return deltas;
+    }
+
+    private static List<Unit> readUnits(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected array of units but found " + p.currentToken());
+        }
+        List<Unit> units = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            units.add(UnitCodec.read(p));
+        }
+        return units;
+    }
+}
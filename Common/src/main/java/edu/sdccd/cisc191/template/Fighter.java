@@ -27,6 +27,12 @@ public class Fighter extends Unit
 
         // Returns the value that is in the CSV file as extra stat.
         public int getFuel()
+        {
+            return fuel;
+        }
+
+        @Override
+        public int getExtraStat()
         {
             return fuel;
         }
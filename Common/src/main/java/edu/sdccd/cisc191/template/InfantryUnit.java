@@ -30,6 +30,12 @@ public class InfantryUnit extends Unit
             return manpower;
         }
 
+    @Override
+    public int getExtraStat()
+        {
+            return manpower;
+        }
+
             // Method created to change ExtraStat title in CSV to manpower and return that corresponding value
             @Override
             public String toString()
@@ -0,0 +1,150 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds.
+ *
+ * Buckets are log-linear: values below 64 ns get a bucket each, and every
+ * power of two above that is split into 32 equal buckets, so any recorded
+ * value is reported within about 3% of its true value. Values above roughly
+ * 68 seconds are clamped into the last bucket.
+ *
+ * Recording is a single atomic increment. To keep threads from fighting over
+ * the same counters, the buckets are striped: each thread records into one of
+ * several copies picked by its thread id, and the copies are only summed when
+ * a {@link Snapshot} is taken.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int MAX_VALUE_BITS = 36;
+    private static final long HIGHEST_TRACKABLE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = indexOf(HIGHEST_TRACKABLE) + 1;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Creates a histogram with one stripe per processor, rounded up to a power of two.
+     */
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as 0
+     */
+    public void recordNanos(long nanos) {
+        long value = Math.min(Math.max(0, nanos), HIGHEST_TRACKABLE);
+        stripes[(int) Thread.currentThread().threadId() & stripeMask].getAndIncrement(indexOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    // Values below 64 map to themselves; above that, the top six bits pick the bucket within each power of two
+    private static int indexOf(long value) {
+        int msb = 63 - Long.numberOfLeadingZeros(value | 1);
+        int shift = Math.max(0, msb - (SUB_BUCKET_BITS - 1));
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    // The largest value that falls into the bucket
+    private static long highestValueIn(int index) {
+        if (index < 2 * SUB_BUCKET_HALF) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long top = index - (long) shift * SUB_BUCKET_HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Sums the stripes into a consistent-enough copy. Values recorded while the
+     * snapshot is taken may or may not be included.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = stripe.get(i);
+                counts[i] += c;
+                total += c;
+            }
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    /**
+     * An immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the largest value recorded, exactly, in nanoseconds
+         */
+        public long getMaxNanos() {
+            return max;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile a percentile between 0 and 100, such as 99.9
+         * @return the upper bound of the bucket holding that percentile, in nanoseconds; 0 if empty
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @return the value at the given percentile, converted to microseconds
+         */
+        public double getMicrosAtPercentile(double percentile) {
+            return getValueAtPercentile(percentile) / (double) TimeUnit.MICROSECONDS.toNanos(1);
+        }
+    }
+}
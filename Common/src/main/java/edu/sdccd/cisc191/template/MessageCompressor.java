@@ -0,0 +1,105 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses single messages with raw DEFLATE and a preset dictionary.
+ *
+ * Every message is compressed on its own, so compressed and plain messages
+ * can be mixed freely on a connection, but each one starts from the preset
+ * dictionary rather than from nothing. The dictionary holds the strings the
+ * catalog repeats most (types, specializations, abilities, field names), so
+ * even the first occurrences in a message become short back-references.
+ *
+ * One compressor belongs to one connection; its Deflater, Inflater and
+ * buffer are reset and reused for every message. It is not thread-safe.
+ */
+public final class MessageCompressor {
+    /** The most of a dictionary DEFLATE can use: its 32 KiB window. */
+    public static final int MAX_DICTIONARY_LENGTH = 32 * 1024;
+    /** The longest message this compressor will inflate, far above a whole catalog's worth of units. */
+    public static final int MAX_INFLATED_LENGTH = 64 * 1024 * 1024;
+
+    private final byte[] dictionary;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final Inflater inflater = new Inflater(true);
+    private byte[] buffer = new byte[8192];
+
+    /**
+     * @param dictionary the preset dictionary both ends of the connection agreed on
+     */
+    public MessageCompressor(byte[] dictionary) {
+        this.dictionary = dictionary.length <= MAX_DICTIONARY_LENGTH ? dictionary
+                : Arrays.copyOfRange(dictionary, dictionary.length - MAX_DICTIONARY_LENGTH, dictionary.length);
+    }
+
+    /**
+     * @param message an encoded message
+     * @return the message compressed
+     */
+    public byte[] deflate(byte[] message) {
+        deflater.reset();
+        if (dictionary.length > 0) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(message);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * @param compressed     a message compressed by {@link #deflate(byte[])} with the same dictionary
+     * @param inflatedLength the message's length before compression
+     * @return the original message
+     * @throws IOException if the length is negative or above {@link #MAX_INFLATED_LENGTH}, or the data is
+     *                     corrupt or does not inflate to the given length
+     */
+    public byte[] inflate(byte[] compressed, int inflatedLength) throws IOException {
+        // The length comes from the peer, so it is checked before anything that size is allocated
+        if (inflatedLength < 0 || inflatedLength > MAX_INFLATED_LENGTH) {
+            throw new IOException("Compressed message claims an inflated length of " + inflatedLength
+                    + " bytes, outside 0 to " + MAX_INFLATED_LENGTH);
+        }
+        inflater.reset();
+        if (dictionary.length > 0) {
+            inflater.setDictionary(dictionary);
+        }
+        inflater.setInput(compressed);
+        byte[] message = new byte[inflatedLength];
+        try {
+            int length = 0;
+            while (length < inflatedLength && !inflater.finished()) {
+                int n = inflater.inflate(message, length, inflatedLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != inflatedLength) {
+                throw new IOException("Compressed message inflated to " + length + " bytes, expected " + inflatedLength);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed message: " + e.getMessage(), e);
+        }
+        return message;
+    }
+
+    /**
+     * Frees the native compression state. The compressor cannot be used afterwards.
+     */
+    public void end() {
+        deflater.end();
+        inflater.end();
+    }
+}
@@ -0,0 +1,155 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+
+/**
+ * The wire encodings a connection can use. Both formats are driven through
+ * the same streaming codecs; only the Jackson factory differs.
+ *
+ * A client picks the format when it connects and the server detects it from
+ * the first byte it receives: Smile streams always start with a ':' header,
+ * which can never start a JSON message.
+ */
+public enum MessageFormat {
+    /** Newline-terminated JSON text. */
+    JSON(jsonFactory(), jsonFactory()),
+    /** Jackson's binary Smile encoding, smaller and cheaper to parse than text. */
+    SMILE(smileFactory(true), smileFactory(false));
+
+    private static final int SMILE_HEADER_BYTE = ':';
+    private static final byte[] DETECTION_PADDING = {' ', ' ', ' ', ' '};
+
+    private final JsonFactory streamFactory;
+    private final JsonFactory messageFactory;
+
+    MessageFormat(JsonFactory streamFactory, JsonFactory messageFactory) {
+        this.streamFactory = streamFactory;
+        this.messageFactory = messageFactory;
+    }
+
+    JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator gen = streamFactory.createGenerator(out, JsonEncoding.UTF8);
+        if (this == JSON) {
+            // Messages are separated by the terminator written in endMessage(), not by Jackson
+            gen.setRootValueSeparator(null);
+        }
+        return gen;
+    }
+
+    JsonParser createParser(InputStream in) throws IOException {
+        if (this == JSON) {
+            // Encoding detection reads four bytes as soon as the parser is created, which blocks on
+            // a message shorter than that, such as a bare "{}"; leading spaces let it finish at once
+            in = new SequenceInputStream(new ByteArrayInputStream(DETECTION_PADDING), in);
+        }
+        return streamFactory.createParser(in);
+    }
+
+    JsonGenerator createGenerator(Writer out) throws IOException {
+        return messageFactory.createGenerator(out);
+    }
+
+    JsonParser createParser(String json) throws IOException {
+        return messageFactory.createParser(json);
+    }
+
+    /**
+     * Encodes a response into the exact bytes {@link MessageWriter#write(CustomerResponse)}
+     * would put on the wire, so they can be cached and later sent with
+     * {@link MessageWriter#writeEncoded(byte[])}.
+     *
+     * @param response the response to encode
+     * @return the encoded message
+     * @throws IOException if encoding fails
+     */
+    public byte[] encode(CustomerResponse response) throws IOException {
+        RequestPhaseEvent event = new RequestPhaseEvent(RequestPhaseEvent.ENCODE);
+        event.begin();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (JsonGenerator gen = messageFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            CustomerResponseCodec.write(gen, response);
+            endMessage(gen);
+        }
+        event.finish(null, bytes.size());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a response from the bytes {@link #encode(CustomerResponse)} produced.
+     *
+     * @param message the encoded message
+     * @return the response
+     * @throws IOException if the bytes are not a well-formed response
+     */
+    public CustomerResponse decode(byte[] message) throws IOException {
+        try (JsonParser p = messageFactory.createParser(message)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected start of message but found " + p.currentToken());
+            }
+            return CustomerResponseCodec.read(p);
+        }
+    }
+
+    void endMessage(JsonGenerator gen) throws IOException {
+        if (this == JSON) {
+            gen.writeRaw('\n');
+        }
+    }
+
+    /**
+     * Detects the format of an incoming stream without consuming any of it.
+     * Blocks until the peer has sent its first byte.
+     *
+     * @param in the stream to inspect; must support mark/reset
+     * @return the detected format
+     * @throws IOException if the stream cannot be read
+     */
+    public static MessageFormat detect(InputStream in) throws IOException {
+        in.mark(1);
+        int first = in.read();
+        in.reset();
+        return first == SMILE_HEADER_BYTE ? SMILE : JSON;
+    }
+
+    /**
+     * Smile back-references point into the generator's own earlier output, so
+     * they are turned off: cached messages encoded elsewhere must be safe to
+     * splice into any connection's stream. Only a connection's stream factory
+     * writes the format header, once, when its generator is created; standalone
+     * messages are decoded without one. Binary values, such as compressed
+     * messages, are written raw on a connection, whose header declares that;
+     * standalone messages must spread them out over 7-bit bytes.
+     */
+    private static SmileFactory smileFactory(boolean writeHeader) {
+        return SmileFactory.builder()
+                .configure(SmileGenerator.Feature.WRITE_HEADER, writeHeader)
+                .configure(SmileParser.Feature.REQUIRE_HEADER, writeHeader)
+                .disable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .disable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !writeHeader)
+                .build();
+    }
+
+    /**
+     * Text is always UTF-8. Stream parsers still detect the encoding, which
+     * spaces, like any ASCII text, detect as UTF-8.
+     */
+    private static JsonFactory jsonFactory() {
+        return JsonFactory.builder().build();
+    }
+}
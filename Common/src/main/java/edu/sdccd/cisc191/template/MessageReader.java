@@ -0,0 +1,137 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads protocol messages from a connection's input stream.
+ *
+ * One reader should be created per connection and kept for its lifetime so
+ * the parser's buffers and field-name table are reused for every message.
+ * The parser is created on the first read, because some formats read a
+ * header as soon as their parser exists.
+ * Because the parser works directly on the byte stream, a malformed message
+ * leaves the stream in an unknown position; callers should treat an
+ * IOException from a read as fatal for the connection.
+ * A reader is not thread-safe.
+ */
+public class MessageReader implements Closeable {
+    private final InputStream in;
+    private final MessageFormat format;
+    private JsonParser parser;
+    private MessageCompressor compressor;
+
+    /**
+     * Creates a JSON reader on top of the given stream.
+     *
+     * @param in the connection's input stream
+     */
+    public MessageReader(InputStream in) {
+        this(in, MessageFormat.JSON);
+    }
+
+    /**
+     * Creates a reader on top of the given stream.
+     *
+     * @param in     the connection's input stream
+     * @param format the encoding to read
+     */
+    public MessageReader(InputStream in, MessageFormat format) {
+        this.in = in;
+        this.format = format;
+    }
+
+    public MessageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Lets later responses arrive compressed, as a writer sends them after
+     * {@link MessageWriter#enableCompression} with the same dictionary.
+     *
+     * @param dictionary the preset dictionary
+     */
+    public void enableCompression(byte[] dictionary) {
+        if (compressor != null) {
+            compressor.end();
+        }
+        compressor = new MessageCompressor(dictionary);
+    }
+
+    /**
+     * Reads the next request.
+     *
+     * @return the next request, or null if the stream has ended
+     * @throws IOException if the stream cannot be read or the message is malformed
+     */
+    public CustomerRequest readRequest() throws IOException {
+        if (!next()) {
+            return null;
+        }
+        // Timed from the request's first token, so waiting for the client is not counted
+        RequestPhaseEvent event = new RequestPhaseEvent(RequestPhaseEvent.DECODE);
+        event.begin();
+        long start = event.isEnabled() ? parser.currentTokenLocation().getByteOffset() : 0;
+        CustomerRequest request = CustomerRequestCodec.read(parser);
+        if (event.isEnabled()) {
+            event.finish(request.getType().name(), parser.currentLocation().getByteOffset() - start);
+        }
+        return request;
+    }
+
+    /**
+     * Reads the next response.
+     *
+     * @return the next response, or null if the stream has ended
+     * @throws IOException if the stream cannot be read or the message is malformed
+     */
+    public CustomerResponse readResponse() throws IOException {
+        if (!next()) {
+            return null;
+        }
+        CustomerResponse response = CustomerResponseCodec.read(parser);
+        if (response.getDeflated() == null) {
+            return response;
+        }
+        if (compressor == null) {
+            throw new IOException("Received a compressed message without a dictionary");
+        }
+        if (response.getInflatedLength() == null) {
+            throw new IOException("Received a compressed message without its inflated length");
+        }
+        return format.decode(compressor.inflate(response.getDeflated(), response.getInflatedLength()));
+    }
+
+    private boolean next() throws IOException {
+        if (parser == null) {
+            parser = format.createParser(in);
+        }
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected start of message but found " + token);
+        }
+        return true;
+    }
+
+    /**
+     * Closes the parser and the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (compressor != null) {
+            compressor.end();
+        }
+        if (parser != null) {
+            parser.close();
+        } else {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes protocol messages to a connection's output stream.
+ *
+ * One writer should be created per connection and kept for its lifetime:
+ * the underlying JsonGenerator and its encoding buffers are reused for every
+ * message, so writing a message does not build an intermediate String.
+ * JSON messages are terminated by a newline; every message is flushed to the
+ * stream as soon as it is written. Once compression is enabled, responses
+ * whose encoding reaches a threshold are sent compressed inside a wrapper
+ * message instead. A writer is not thread-safe.
+ */
+public class MessageWriter implements Closeable {
+    private final OutputStream out;
+    private final MessageFormat format;
+    private final JsonGenerator generator;
+    private MessageCompressor compressor;
+    private int compressionThreshold;
+
+    /**
+     * Creates a JSON writer on top of the given stream.
+     *
+     * @param out the connection's output stream
+     * @throws IOException if the generator cannot be created
+     */
+    public MessageWriter(OutputStream out) throws IOException {
+        this(out, MessageFormat.JSON);
+    }
+
+    /**
+     * Creates a writer on top of the given stream.
+     *
+     * @param out    the connection's output stream
+     * @param format the encoding to write
+     * @throws IOException if the generator cannot be created
+     */
+    public MessageWriter(OutputStream out, MessageFormat format) throws IOException {
+        this.out = out;
+        this.format = format;
+        generator = format.createGenerator(out);
+    }
+
+    public MessageFormat getFormat() {
+        return format;
+    }
+
+    public void write(CustomerRequest request) throws IOException {
+        CustomerRequestCodec.write(generator, request);
+        end();
+    }
+
+    /**
+     * Writes a request without flushing it, so that several requests can be
+     * sent together by one {@link #flush()}.
+     *
+     * @param request the request to write
+     * @throws IOException if the generator's buffer fills and cannot be written out
+     */
+    public void writeUnflushed(CustomerRequest request) throws IOException {
+        CustomerRequestCodec.write(generator, request);
+        format.endMessage(generator);
+    }
+
+    /**
+     * Sends everything written so far.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    /**
+     * Compresses every later response whose encoding is at least threshold
+     * bytes long. The reader at the other end must be given the same dictionary.
+     *
+     * @param dictionary the preset dictionary
+     * @param threshold  the smallest encoded response worth compressing
+     */
+    public void enableCompression(byte[] dictionary, int threshold) {
+        if (compressor != null) {
+            compressor.end();
+        }
+        compressor = new MessageCompressor(dictionary);
+        compressionThreshold = threshold;
+    }
+
+    public void write(CustomerResponse response) throws IOException {
+        if (compressor != null) {
+            writeEncoded(format.encode(response));
+            return;
+        }
+        // The generator buffers what it encodes, so encoding and writing can be timed apart
+        // unless the response outgrows the buffer
+        RequestPhaseEvent encode = new RequestPhaseEvent(RequestPhaseEvent.ENCODE);
+        encode.begin();
+        CustomerResponseCodec.write(generator, response);
+        format.endMessage(generator);
+        int size = generator.getOutputBuffered();
+        encode.finish(null, size);
+
+        RequestPhaseEvent write = new RequestPhaseEvent(RequestPhaseEvent.WRITE);
+        write.begin();
+        generator.flush();
+        write.finish(null, size);
+    }
+
+    /**
+     * Writes a message that was encoded ahead of time with
+     * {@link MessageFormat#encode(CustomerResponse)} for this writer's format.
+     *
+     * @param message the complete encoded message
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeEncoded(byte[] message) throws IOException {
+        if (compressor != null && message.length >= compressionThreshold) {
+            CustomerResponseCodec.write(generator,
+                    CustomerResponse.deflated(compressor.deflate(message), message.length));
+            end();
+            return;
+        }
+        RequestPhaseEvent write = new RequestPhaseEvent(RequestPhaseEvent.WRITE);
+        write.begin();
+        // Anything the generator still buffers (such as the Smile header) must go first
+        generator.flush();
+        out.write(message);
+        out.flush();
+        write.finish(null, message.length);
+    }
+
+    private void end() throws IOException {
+        format.endMessage(generator);
+        generator.flush();
+    }
+
+    /**
+     * Closes the generator and the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (compressor != null) {
+            compressor.end();
+        }
+        generator.close();
+    }
+}
@@ -0,0 +1,73 @@
+package edu.sdccd.cisc191.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for one phase of answering a request on the
+ * server: decoding the request, executing it, encoding the response and
+ * writing the response to the socket. Encoding and writing happen while
+ * the request executes, so their events are nested inside its execute
+ * event on the same thread. Decoding is done earlier, by the connection's
+ * thread before the request is admitted.
+ *
+ * Callers construct one for every phase, whether or not it is being
+ * recorded, and use {@code begin()} and then {@link #finish(String, long)}.
+ * Its fields are only filled in and the event committed when Flight
+ * Recorder has it enabled and the phase took at least the threshold, so
+ * otherwise a phase costs one small allocation, which escape analysis
+ * usually removes once the caller is compiled.
+ */
+@Name(RequestPhaseEvent.NAME)
+@Label("Request Phase")
+@Category({"Broken Arrow", "Server"})
+@Description("One phase of answering a request: decode, execute, encode or write")
+@StackTrace(false)
+@Threshold("1 ms")
+public class RequestPhaseEvent extends Event {
+    public static final String NAME = "edu.sdccd.cisc191.template.RequestPhase";
+
+    public static final String DECODE = "decode";
+    public static final String EXECUTE = "execute";
+    public static final String ENCODE = "encode";
+    public static final String WRITE = "write";
+
+    @Label("Phase")
+    private final String phase;
+
+    @Label("Request Type")
+    private String requestType;
+
+    @Label("Size")
+    @Description("Bytes decoded, encoded or written, if the phase has a size")
+    @DataAmount
+    private long size;
+
+    /**
+     * @param phase one of {@link #DECODE}, {@link #EXECUTE}, {@link #ENCODE} or {@link #WRITE}
+     */
+    public RequestPhaseEvent(String phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Ends the phase and commits the event if it is enabled and took at
+     * least its threshold.
+     *
+     * @param requestType the request's type, or null where it is not known
+     * @param size        the bytes the phase handled, or 0
+     */
+    public void finish(String requestType, long size) {
+        if (shouldCommit()) {
+            this.requestType = requestType;
+            this.size = size;
+            commit();
+        }
+    }
+}
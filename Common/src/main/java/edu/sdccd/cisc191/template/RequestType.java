@@ -0,0 +1,57 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.util.Locale;
+
+/**
+ * The kinds of request the server understands. On the wire a type is sent as
+ * its lower-case name; a request without a type is a {@link #CUSTOMER} request,
+ * which keeps the original one-field request format valid.
+ */
+public enum RequestType {
+    /** The original customer lookup by id. */
+    CUSTOMER,
+    /** Looks up a single unit by name. */
+    UNIT,
+    /** Lists all units, or all units of one type. */
+    LIST,
+    /** Reads the server's performance counters and latency percentiles. */
+    STATS,
+    /**
+     * Turns the connection into a feed of catalog changes, starting after a
+     * given version. The server pushes responses until the connection closes.
+     */
+    SUBSCRIBE,
+    /**
+     * Asks the server to compress large responses on this connection. The
+     * reply carries the preset dictionary to decompress them with.
+     */
+    COMPRESS,
+    /**
+     * Checks that the server is alive and answering. The reply is an empty
+     * response carrying the request's id.
+     */
+    PING;
+
+    private final SerializedString wireName = new SerializedString(name().toLowerCase(Locale.ROOT));
+
+    SerializedString wireName() {
+        return wireName;
+    }
+
+    /**
+     * Finds the type with the given wire name.
+     *
+     * @param wireName the lower-case name read from a message
+     * @return the matching type, or null if the name is unknown
+     */
+    static RequestType fromWireName(String wireName) {
+        for (RequestType type : values()) {
+            if (type.wireName.getValue().equals(wireName)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
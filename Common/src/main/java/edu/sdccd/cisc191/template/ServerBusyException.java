@@ -0,0 +1,23 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server refused a request because it is overloaded or the
+ * client exceeded its rate limit. The request was never executed, so it is
+ * always safe to send it again after {@link #getRetryAfterMillis()}.
+ */
+public class ServerBusyException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    public ServerBusyException(String message, long retryAfterMillis) {
+        super(message + " (retry after " + retryAfterMillis + " ms)");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,16 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server answered a request with an error, such as an unknown
+ * unit. The server is working; sending the same request again, to it or to
+ * another server with the same catalog, would get the same answer.
+ */
+public class ServerErrorException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ServerErrorException(String error) {
+        super("Server rejected the request: " + error);
+    }
+}
@@ -26,6 +26,12 @@ public class Tank extends Unit
 
         // Returns the value that is in the CSV file as extra stat.
         public int getRearArmor()
+        {
+            return RearArmor;
+        }
+
+        @Override
+        public int getExtraStat()
         {
             return RearArmor;
         }
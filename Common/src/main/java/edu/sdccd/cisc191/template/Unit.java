@@ -147,6 +147,12 @@ public class Unit
             this.abilities = abilities;
         }
 
+        // Value of the ExtraStat column in the CSV. A basic Unit has none, the unit type classes override it.
+        public int getExtraStat()
+        {
+            return 0;
+        }
+
 
         // Takes the previous get Methods and translates the data into the specific unit stat.
             @Override
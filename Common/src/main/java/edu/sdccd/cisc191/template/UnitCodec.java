@@ -0,0 +1,171 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hand-written streaming codec for {@link Unit} and its subclasses.
+ * The unit type decides which subclass is created on read, the same way
+ * {@link UnitGenerator} does for CSV rows; the subclass stat travels as
+ * {@code extraStat}. See {@link CustomerRequestCodec} for how field names are matched.
+ */
+public final class UnitCodec {
+    private static final SerializedString UNIT_TYPE = new SerializedString("unitType");
+    private static final SerializedString UNIT_NAME = new SerializedString("unitName");
+    private static final SerializedString SPECIALIZATION = new SerializedString("specialization");
+    private static final SerializedString PRICE = new SerializedString("price");
+    private static final SerializedString ARMOR = new SerializedString("armor");
+    private static final SerializedString HEALTH = new SerializedString("health");
+    private static final SerializedString SIGHT_RANGE = new SerializedString("sightRange");
+    private static final SerializedString UNSEEN_RANGE = new SerializedString("unseenRange");
+    private static final SerializedString SPEED = new SerializedString("speed");
+    private static final SerializedString WEIGHT = new SerializedString("weight");
+    private static final SerializedString ABILITIES = new SerializedString("abilities");
+    private static final SerializedString EXTRA_STAT = new SerializedString("extraStat");
+
+    private UnitCodec() {}
+
+    /**
+     * Writes a unit as a single object.
+     *
+     * @param gen  the generator to write to
+     * @param unit the unit to write
+     * @throws IOException if the generator fails
+     */
+    public static void write(JsonGenerator gen, Unit unit) throws IOException {
+        gen.writeStartObject();
+        writeString(gen, UNIT_TYPE, unit.getUnitType());
+        writeString(gen, UNIT_NAME, unit.getUnitName());
+        writeString(gen, SPECIALIZATION, unit.getSpecialization());
+        gen.writeFieldName(PRICE);
+        gen.writeNumber(unit.getPrice());
+        gen.writeFieldName(ARMOR);
+        gen.writeNumber(unit.getArmor());
+        gen.writeFieldName(HEALTH);
+        gen.writeNumber(unit.getHealth());
+        gen.writeFieldName(SIGHT_RANGE);
+        gen.writeNumber(unit.getSightRange());
+        gen.writeFieldName(UNSEEN_RANGE);
+        gen.writeNumber(unit.getUnseenRange());
+        gen.writeFieldName(SPEED);
+        gen.writeNumber(unit.getSpeed());
+        gen.writeFieldName(WEIGHT);
+        gen.writeNumber(unit.getWeight());
+        writeString(gen, ABILITIES, unit.getAbilities());
+        gen.writeFieldName(EXTRA_STAT);
+        gen.writeNumber(unit.getExtraStat());
+        gen.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator gen, SerializedString name, String value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        }
+    }
+
+    /**
+     * Reads a unit. The parser must be positioned on the object's START_OBJECT
+     * token and is left on the matching END_OBJECT. Unknown fields are skipped.
+     *
+     * @param p the parser to read from
+     * @return the decoded unit
+     * @throws IOException if the input is not a well-formed unit
+     */
+    public static Unit read(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected start of unit object but found " + p.currentToken());
+        }
+        String unitType = "";
+        String unitName = "";
+        String specialization = "";
+        String abilities = "";
+        int price = 0, armor = 0, health = 0, sightRange = 0, speed = 0, weight = 0, extra = 0;
+        double unseenRange = 0.0;
+
+        String name;
+        while ((name = p.nextFieldName()) != null) {
+            JsonToken value = p.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (name) {
+                case "unitType": unitType = p.getText(); break;
+                case "unitName": unitName = p.getText(); break;
+                case "specialization": specialization = p.getText(); break;
+                case "price": price = p.getIntValue(); break;
+                case "armor": armor = p.getIntValue(); break;
+                case "health": health = p.getIntValue(); break;
+                case "sightRange": sightRange = p.getIntValue(); break;
+                case "unseenRange": unseenRange = p.getDoubleValue(); break;
+                case "speed": speed = p.getIntValue(); break;
+                case "weight": weight = p.getIntValue(); break;
+                case "abilities": abilities = p.getText(); break;
+                case "extraStat": extra = p.getIntValue(); break;
+                default: p.skipChildren();
+            }
+        }
+        return UnitGenerator.createUnit(unitType, unitName, specialization, price, armor, health,
+                sightRange, unseenRange, speed, weight, abilities, extra);
+    }
+
+    /**
+     * Lists a unit's fields by their wire names, in the order {@link #write} writes them.
+     * Values are Strings, Integers, or a Double for {@code unseenRange}.
+     *
+     * @param unit the unit, or null for no fields
+     * @return the fields by name
+     */
+    public static Map<String, Object> fields(Unit unit) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (unit == null) {
+            return fields;
+        }
+        fields.put("unitType", unit.getUnitType());
+        fields.put("unitName", unit.getUnitName());
+        fields.put("specialization", unit.getSpecialization());
+        fields.put("price", unit.getPrice());
+        fields.put("armor", unit.getArmor());
+        fields.put("health", unit.getHealth());
+        fields.put("sightRange", unit.getSightRange());
+        fields.put("unseenRange", unit.getUnseenRange());
+        fields.put("speed", unit.getSpeed());
+        fields.put("weight", unit.getWeight());
+        fields.put("abilities", unit.getAbilities());
+        fields.put("extraStat", unit.getExtraStat());
+        return fields;
+    }
+
+    /**
+     * Creates a unit from fields named as in {@link #fields(Unit)}. Missing fields
+     * take the same defaults as in {@link #read(JsonParser)}; numbers of any type
+     * are accepted, as a parser may return them.
+     *
+     * @param fields the unit's fields by name
+     * @return the new unit
+     */
+    public static Unit fromFields(Map<String, Object> fields) {
+        return UnitGenerator.createUnit(text(fields, "unitType"), text(fields, "unitName"),
+                text(fields, "specialization"), number(fields, "price").intValue(),
+                number(fields, "armor").intValue(), number(fields, "health").intValue(),
+                number(fields, "sightRange").intValue(), number(fields, "unseenRange").doubleValue(),
+                number(fields, "speed").intValue(), number(fields, "weight").intValue(),
+                text(fields, "abilities"), number(fields, "extraStat").intValue());
+    }
+
+    private static String text(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        return value == null ? "" : value.toString();
+    }
+
+    private static Number number(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        return value instanceof Number ? (Number) value : 0;
+    }
+}
@@ -0,0 +1,112 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One change to a unit in the catalog: the unit was added, some of its
+ * fields changed, or it was removed.
+ *
+ * A change carries only the fields whose values differ, named as in
+ * {@link UnitCodec#fields(Unit)}; an added unit carries all of them. The
+ * version is the catalog version the change produced, so a subscriber that
+ * has applied it can later resume from that version.
+ */
+public final class UnitDelta {
+    private final long version;
+    private final String unitName;
+    private final Map<String, Object> changes;
+
+    /**
+     * @param version  the catalog version after the change
+     * @param unitName the unit that changed
+     * @param changes  the new values of the changed fields, or null if the unit was removed
+     */
+    public UnitDelta(long version, String unitName, Map<String, Object> changes) {
+        this.version = version;
+        this.unitName = unitName;
+        this.changes = changes == null ? null : Collections.unmodifiableMap(changes);
+    }
+
+    /**
+     * Describes the change from one state of a unit to the next.
+     *
+     * @param version the catalog version after the change
+     * @param before  the unit before the change, or null if it is being added
+     * @param after   the unit after the change, or null if it is being removed
+     * @return the delta, or null if nothing changed
+     */
+    public static UnitDelta between(long version, Unit before, Unit after) {
+        if (after == null) {
+            return before == null ? null : new UnitDelta(version, before.getUnitName(), null);
+        }
+        Map<String, Object> old = UnitCodec.fields(before);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : UnitCodec.fields(after).entrySet()) {
+            if (!old.containsKey(field.getKey()) || !Objects.equals(old.get(field.getKey()), field.getValue())) {
+                // An added unit has no old fields, so every field is included
+                changes.put(field.getKey(), field.getValue());
+            }
+        }
+        return changes.isEmpty() ? null : new UnitDelta(version, after.getUnitName(), changes);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getUnitName() {
+        return unitName;
+    }
+
+    /**
+     * @return the changed fields by name; null if the unit was removed
+     */
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+
+    public boolean isRemoved() {
+        return changes == null;
+    }
+
+    /**
+     * Applies this change to the unit it was computed against.
+     *
+     * @param base the unit before the change, or null if the subscriber does not have it
+     * @return the unit after the change, or null if it was removed
+     */
+    public Unit applyTo(Unit base) {
+        if (isRemoved()) {
+            return null;
+        }
+        Map<String, Object> fields = UnitCodec.fields(base);
+        fields.putAll(changes);
+        return UnitCodec.fromFields(fields);
+    }
+
+    /**
+     * Merges this change with a later change to the same unit, so that applying
+     * the result has the same effect as applying both in order.
+     *
+     * @param later the next change to the same unit
+     * @return the combined change, at the later version
+     */
+    public UnitDelta coalesce(UnitDelta later) {
+        if (isRemoved() || later.isRemoved()) {
+            // After a removal the unit is re-added with all of its fields
+            return later;
+        }
+        Map<String, Object> merged = new LinkedHashMap<>(changes);
+        merged.putAll(later.changes);
+        return new UnitDelta(later.version, unitName, merged);
+    }
+
+    @Override
+    public String toString() {
+        return "UnitDelta[version=" + version + ", unitName='" + unitName + "', "
+                + (isRemoved() ? "removed" : "changes=" + changes) + "]";
+    }
+}
@@ -0,0 +1,113 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hand-written streaming codec for {@link UnitDelta}. A removal is written as
+ * {@code "removed":true}; a change as a {@code changes} object holding only the
+ * changed fields. See {@link CustomerRequestCodec} for how field names are matched.
+ */
+public final class UnitDeltaCodec {
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString UNIT_NAME = new SerializedString("unitName");
+    private static final SerializedString REMOVED = new SerializedString("removed");
+    private static final SerializedString CHANGES = new SerializedString("changes");
+
+    private UnitDeltaCodec() {}
+
+    /**
+     * Writes a delta as a single object.
+     *
+     * @param gen   the generator to write to
+     * @param delta the delta to write
+     * @throws IOException if the generator fails
+     */
+    public static void write(JsonGenerator gen, UnitDelta delta) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(VERSION);
+        gen.writeNumber(delta.getVersion());
+        gen.writeFieldName(UNIT_NAME);
+        gen.writeString(delta.getUnitName());
+        if (delta.isRemoved()) {
+            gen.writeFieldName(REMOVED);
+            gen.writeBoolean(true);
+        } else {
+            gen.writeFieldName(CHANGES);
+            gen.writeStartObject();
+            for (Map.Entry<String, Object> field : delta.getChanges().entrySet()) {
+                gen.writeFieldName(field.getKey());
+                Object value = field.getValue();
+                if (value instanceof Double || value instanceof Float) {
+                    gen.writeNumber(((Number) value).doubleValue());
+                } else if (value instanceof Number) {
+                    gen.writeNumber(((Number) value).longValue());
+                } else if (value == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeString(value.toString());
+                }
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Reads a delta. The parser must be positioned on the object's START_OBJECT
+     * token and is left on the matching END_OBJECT. Unknown fields are skipped.
+     *
+     * @param p the parser to read from
+     * @return the decoded delta
+     * @throws IOException if the input is not a well-formed delta
+     */
+    public static UnitDelta read(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected start of delta object but found " + p.currentToken());
+        }
+        long version = 0;
+        String unitName = null;
+        Map<String, Object> changes = null;
+        String name;
+        while ((name = p.nextFieldName()) != null) {
+            JsonToken value = p.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (name) {
+                case "version": version = p.getLongValue(); break;
+                case "unitName": unitName = p.getText(); break;
+                case "changes": changes = readChanges(p); break;
+                default: p.skipChildren();
+            }
+        }
+        return new UnitDelta(version, unitName, changes);
+    }
+
+    private static Map<String, Object> readChanges(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected object of changes but found " + p.currentToken());
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        String name;
+        while ((name = p.nextFieldName()) != null) {
+            JsonToken value = p.nextToken();
+            if (value == JsonToken.VALUE_STRING) {
+                changes.put(name, p.getText());
+            } else if (value.isNumeric()) {
+                changes.put(name, p.getNumberValue());
+            } else if (value == JsonToken.VALUE_NULL) {
+                changes.put(name, null);
+            } else {
+                p.skipChildren();
+            }
+        }
+        return changes;
+    }
+}
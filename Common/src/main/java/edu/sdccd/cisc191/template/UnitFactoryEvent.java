@@ -0,0 +1,28 @@
+package edu.sdccd.cisc191.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for {@link UnitGenerator} picking and building
+ * the Unit subclass for one row. There is one per unit loaded, so it is off
+ * unless a recording's settings turn it on.
+ */
+@Name("edu.sdccd.cisc191.template.UnitFactory")
+@Label("Unit Factory")
+@Category({"Broken Arrow", "Loader"})
+@Description("Creating the Unit subclass for one unit type")
+@StackTrace(false)
+@Enabled(false)
+class UnitFactoryEvent extends Event {
+    @Label("Unit Type")
+    String unitType;
+
+    @Label("Unit Class")
+    Class<?> unitClass;
+}
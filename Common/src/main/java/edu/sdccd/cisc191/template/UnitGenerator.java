@@ -35,27 +35,48 @@ public class UnitGenerator {
         String abilities = stats.length > 10 ? stats[10] : ""; //Lists its abilities
         int extra = parseIntSafe(stats, 11, 0); //List the Extra stats that are associated  with its unit type
 
+        return createUnit(unitType, unitName, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities, extra);
+    }
+
+    // Creates the unit subclass that matches the unit type from values that are already parsed, e.g. when decoded from a message.
+    public static Unit createUnit(String unitType, String unitName, String specialization, int price, int armor,
+                                  int health, int sightRange, double unseenRange, int speed,
+                                  int weight, String abilities, int extra)
+    {
+            // Flight Recorder event for the dispatch below; free unless a recording enables it
+            UnitFactoryEvent event = new UnitFactoryEvent();
+            event.begin();
+            Unit unit;
+
             // Based on the unit type (category), create the appropriate unit object.
             if (unitType.equalsIgnoreCase("Tank"))
             {
-                return new Tank(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities, extra);
+                unit = new Tank(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities, extra);
             }
 
             else if (unitType.equalsIgnoreCase("Fighter"))
             {
-                return new Fighter(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities, extra);
+                unit = new Fighter(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities, extra);
             }
 
             else if (unitType.equalsIgnoreCase("Infantry"))
             {
-                return new InfantryUnit(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities, extra);
+                unit = new InfantryUnit(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities, extra);
             }
 
             else
             {
                 // Default to a basic Unit if category not recognized
-                return new Unit(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities);
+                unit = new Unit(unitName, unitType, specialization, price, armor, health, sightRange, unseenRange, speed, weight, abilities);
+            }
+
+            if (event.shouldCommit())
+            {
+                event.unitType = unitType;
+                event.unitClass = unit.getClass();
+                event.commit();
             }
+            return unit;
     }
 
             // Helper method to space an integer safely
@@ -0,0 +1,53 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+    private static final int KEYS = 20_000;
+
+    @org.junit.jupiter.api.Test
+    void partitionsAreBalanced() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-0", "node-1", "node-2", "node-3"));
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.nodeFor("unit-" + i), 1, Integer::sum);
+        }
+        assertEquals(counts.size(), 4);
+        for (int count : counts.values()) {
+            assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2, "unbalanced partitions: " + counts);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void addingNodeMovesAboutOneNthOfKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("node-0", "node-1", "node-2", "node-3"));
+        ConsistentHashRing after = before.withNode("node-4");
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "unit-" + i;
+            if (!before.nodeFor(key).equals(after.nodeFor(key))) {
+                // Keys only ever move to the new node
+                assertEquals(after.nodeFor(key), "node-4");
+                moved++;
+            }
+        }
+        double fraction = (double) moved / KEYS;
+        assertTrue(fraction > 0.15 && fraction < 0.25, "moved " + fraction);
+    }
+
+    @org.junit.jupiter.api.Test
+    void partitionSelectsOwnedItems() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b"));
+        List<String> keys = List.of("T-14 Armata", "Su-57", "BMP-3", "Abrams", "Leopard 2");
+        List<String> a = ring.partition(keys, key -> key, "a");
+        List<String> b = ring.partition(keys, key -> key, "b");
+        assertEquals(a.size() + b.size(), keys.size());
+        for (String key : a) {
+            assertEquals(ring.nodeFor(key), "a");
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package edu.sdccd.cisc191.template;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class CustomerRequestTest {
     private CustomerRequest customerRequest;
@@ -19,4 +23,27 @@ class CustomerRequestTest {
     void setCustomer() {
         assertEquals(customerRequest.toString(), "Customer[id=1]");
     }
+
+    @org.junit.jupiter.api.Test
+    void jsonRoundTrip() throws Exception {
+        String json = CustomerRequest.toJSON(customerRequest);
+        assertEquals(json, "{\"id\":1}");
+        assertEquals(CustomerRequest.fromJSON(json).toString(), "Customer[id=1]");
+        // Unknown fields are skipped rather than rejected
+        assertEquals(CustomerRequest.fromJSON("{\"extra\":[1,{\"a\":2}],\"id\":7}").getId(), 7);
+    }
+
+    @org.junit.jupiter.api.Test
+    void streamRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(bytes);
+        writer.write(customerRequest);
+        writer.write(new CustomerRequest(2));
+        writer.close();
+
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(reader.readRequest().getId(), 1);
+        assertEquals(reader.readRequest().getId(), 2);
+        assertNull(reader.readRequest());
+    }
 }
\ No newline at end of file
@@ -1,5 +1,14 @@
 package edu.sdccd.cisc191.template;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CustomerResponseTest {
@@ -21,4 +30,120 @@ class CustomerResponseTest {
         customerResponse.setLastName("Test");
         assertEquals(customerResponse.toString(), "Customer[id=1, firstName='User', lastName='Test']");
     }
+
+    @org.junit.jupiter.api.Test
+    void jsonRoundTrip() throws Exception {
+        String json = CustomerResponse.toJSON(customerResponse);
+        assertEquals(json, "{\"id\":1,\"firstName\":\"Test\",\"lastName\":\"User\"}");
+        assertEquals(CustomerResponse.fromJSON(json).toString(), customerResponse.toString());
+    }
+
+    @org.junit.jupiter.api.Test
+    void streamRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(bytes);
+        writer.write(customerResponse);
+        writer.write(CustomerResponse.error("Invalid request format"));
+        writer.close();
+
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(reader.readResponse().toString(), customerResponse.toString());
+        assertEquals(reader.readResponse().getError(), "Invalid request format");
+        assertNull(reader.readResponse());
+    }
+
+    @org.junit.jupiter.api.Test
+    void shortMessageOnOpenStream() throws Exception {
+        // A message shorter than Jackson's four-byte encoding check must not wait for more input
+        PipedOutputStream peer = new PipedOutputStream();
+        MessageReader reader = new MessageReader(new PipedInputStream(peer));
+        peer.write("{}\n".getBytes(StandardCharsets.UTF_8));
+        CustomerResponse response = assertTimeoutPreemptively(Duration.ofSeconds(5), reader::readResponse);
+        assertNull(response.getError());
+        peer.close();
+    }
+
+    @org.junit.jupiter.api.Test
+    void smileUnitsRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(bytes, MessageFormat.SMILE);
+        writer.write(CustomerResponse.units(3, java.util.List.of(
+                new InfantryUnit("Chernye Berety", "Infantry", "RU Coastal Troops", 110, 8, 70, 1200, 1.75, 18, 1750, "Smoke, Sprint", 14))));
+        // Pre-encoded messages can follow generated ones on the same stream
+        writer.writeEncoded(MessageFormat.SMILE.encode(customerResponse));
+        writer.close();
+
+        assertEquals(MessageFormat.detect(new java.io.BufferedInputStream(new ByteArrayInputStream(bytes.toByteArray()))), MessageFormat.SMILE);
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(bytes.toByteArray()), MessageFormat.SMILE);
+        CustomerResponse units = reader.readResponse();
+        assertEquals(units.getVersion(), 3L);
+        assertEquals(units.getUnits().get(0).toString(),
+                "Unit{unitName='Chernye Berety', unitType='Infantry', specialization='RU Coastal Troops', price=110, armor=8, health=70, "
+                        + "sightRange=1200, unseenRange=1.75, speed=18, weight=1750, abilities='Smoke, Sprint'}manpower= 14");
+        assertEquals(reader.readResponse().toString(), customerResponse.toString());
+        assertNull(reader.readResponse());
+    }
+
+    @org.junit.jupiter.api.Test
+    void statsRoundTrip() throws Exception {
+        CustomerResponse response = new CustomerResponse();
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("unit.count", 3L);
+        stats.put("unit.p99Micros", 12.5);
+        response.setStats(stats);
+        String json = CustomerResponse.toJSON(response);
+        assertEquals(json, "{\"stats\":{\"unit.count\":3,\"unit.p99Micros\":12.5}}");
+        Map<String, Number> read = CustomerResponse.fromJSON(json).getStats();
+        assertEquals(read.get("unit.count").longValue(), 3L);
+        assertEquals(read.get("unit.p99Micros").doubleValue(), 12.5);
+    }
+
+    @org.junit.jupiter.api.Test
+    void compressedRoundTrip() throws Exception {
+        java.util.List<Unit> units = new java.util.ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            units.add(new InfantryUnit("Chernye Berety " + i, "Infantry", "RU Coastal Troops", 110 + i, 8, 70, 1200, 1.75, 18, 1750, "Smoke, Sprint", 14));
+        }
+        CustomerResponse list = CustomerResponse.units(7, units);
+        byte[] dictionary = "\"unitType\":\"Infantry\",\"specialization\":\"RU Coastal Troops\"".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        for (MessageFormat format : MessageFormat.values()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            MessageWriter writer = new MessageWriter(bytes, format);
+            writer.enableCompression(dictionary, 1024);
+            writer.write(list);
+            // Below the threshold, so sent as is
+            writer.write(customerResponse);
+            writer.close();
+            assertTrue(bytes.size() < format.encode(list).length / 4, format + " compressed to " + bytes.size());
+
+            MessageReader reader = new MessageReader(new ByteArrayInputStream(bytes.toByteArray()), format);
+            reader.enableCompression(dictionary);
+            CustomerResponse read = reader.readResponse();
+            assertEquals(read.getVersion(), 7L);
+            assertEquals(read.getUnits().toString(), units.toString());
+            assertEquals(reader.readResponse().toString(), customerResponse.toString());
+            assertNull(reader.readResponse());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void compressedLengthIsChecked() throws Exception {
+        byte[] dictionary = "\"unitType\":\"Infantry\"".getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = new MessageCompressor(dictionary).deflate(MessageFormat.JSON.encode(customerResponse));
+        CustomerResponse missing = CustomerResponse.deflated(compressed, 0);
+        missing.setInflatedLength(null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(bytes);
+        writer.write(missing);
+        writer.write(CustomerResponse.deflated(compressed, -1));
+        // Must be refused before a buffer that size is allocated
+        writer.write(CustomerResponse.deflated(compressed, Integer.MAX_VALUE));
+        writer.close();
+
+        MessageReader reader = new MessageReader(new ByteArrayInputStream(bytes.toByteArray()));
+        reader.enableCompression(dictionary);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(java.io.IOException.class, reader::readResponse);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package edu.sdccd.cisc191.template;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @org.junit.jupiter.api.Test
+    void percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.recordNanos(micros * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(snapshot.getCount(), 1000L);
+        assertEquals(snapshot.getMaxNanos(), 1_000_000L);
+        // Buckets are at most 1/32 wide, so each percentile is within about 3%
+        assertEquals(snapshot.getMicrosAtPercentile(50), 500.0, 500 * 0.04);
+        assertEquals(snapshot.getMicrosAtPercentile(99), 990.0, 990 * 0.04);
+        assertEquals(snapshot.getMicrosAtPercentile(100), 1000.0);
+    }
+
+    @org.junit.jupiter.api.Test
+    void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int n = 0; n < 10_000; n++) {
+                    histogram.recordNanos(n);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(histogram.snapshot().getCount(), 80_000L);
+        assertEquals(histogram.snapshot().getMaxNanos(), 9_999L);
+    }
+}
@@ -0,0 +1,62 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitDeltaTest {
+    private final Unit tank = new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 400, 850, 18, 1700, 1, 80, 550000, "Smoke", 100);
+    private final Unit cheaperTank = new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 350, 850, 18, 1700, 1, 80, 550000, "Smoke", 100);
+
+    @org.junit.jupiter.api.Test
+    void changeCarriesOnlyChangedFields() {
+        UnitDelta delta = UnitDelta.between(2, tank, cheaperTank);
+        assertEquals(delta.getChanges().keySet().toString(), "[price]");
+        assertEquals(delta.applyTo(tank).toString(), cheaperTank.toString());
+        assertNull(UnitDelta.between(3, tank, tank));
+    }
+
+    @org.junit.jupiter.api.Test
+    void coalescedChangesApplyLikeBoth() {
+        Unit faster = new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 350, 850, 18, 1700, 1, 90, 550000, "Smoke", 120);
+        UnitDelta first = UnitDelta.between(2, tank, cheaperTank);
+        UnitDelta second = UnitDelta.between(3, cheaperTank, faster);
+        UnitDelta both = first.coalesce(second);
+        assertEquals(both.getVersion(), 3L);
+        assertEquals(both.applyTo(tank).toString(), faster.toString());
+
+        UnitDelta removed = new UnitDelta(4, "T-14 Armata", null);
+        assertTrue(both.coalesce(removed).isRemoved());
+        UnitDelta readded = removed.coalesce(UnitDelta.between(5, null, tank));
+        assertEquals(readded.applyTo(null).toString(), tank.toString());
+    }
+
+    @org.junit.jupiter.api.Test
+    void mirrorAppliesStreamedUpdates() throws Exception {
+        CatalogMirror mirror = new CatalogMirror();
+        CustomerResponse snapshot = CustomerResponse.units(1, List.of(tank));
+        CustomerResponse changes = CustomerResponse.deltas(3, List.of(
+                UnitDelta.between(2, tank, cheaperTank),
+                UnitDelta.between(3, null, new Fighter("Su-57", "Fighter", "VDV", 345, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240))));
+        for (MessageFormat format : MessageFormat.values()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            MessageWriter writer = new MessageWriter(bytes, format);
+            writer.write(snapshot);
+            writer.write(changes);
+            writer.write(CustomerResponse.deltas(4, List.of(new UnitDelta(4, "T-14 Armata", null))));
+            writer.close();
+            MessageReader reader = new MessageReader(new ByteArrayInputStream(bytes.toByteArray()), format);
+
+            mirror.apply(reader.readResponse());
+            assertEquals(mirror.getVersion(), 1L);
+            mirror.apply(reader.readResponse());
+            assertEquals(mirror.getVersion(), 3L);
+            assertEquals(mirror.get("T-14 Armata").getPrice(), 350);
+            assertEquals(mirror.get("Su-57").getUnseenRange(), 1.25);
+            mirror.apply(reader.readResponse());
+            assertEquals(mirror.size(), 1);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether the server takes on a request, and runs the ones it takes.
+ *
+ * Requests run on a fixed pool of workers fed by a bounded queue, so the
+ * amount of work in flight is capped at {@code workers + queueCapacity}.
+ * When the queue is full a request is refused at once with a "retry after"
+ * hint instead of waiting, which keeps latency bounded under a burst. Each
+ * client address also has a {@link TokenBucket}, so one busy client cannot
+ * fill the queue for everyone else. Any of the limits can be turned off by
+ * setting it to 0.
+ */
+public class AdmissionController {
+    /** How many admitted requests may wait for a worker unless configured otherwise. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    /** Requests per second allowed per client address unless configured otherwise. */
+    public static final double DEFAULT_PERMITS_PER_SECOND = 1000;
+    /** How many requests a client may send back to back unless configured otherwise. */
+    public static final int DEFAULT_BURST = 200;
+    /** Used when there is no recent service time to estimate a drain time from. */
+    private static final long DEFAULT_RETRY_MILLIS = 10;
+    private static final long MAX_RETRY_MILLIS = 1000;
+
+    private final ThreadPoolExecutor workers;
+    private final int queueCapacity;
+    private final double permitsPerSecond;
+    private final int burst;
+    private final ConcurrentHashMap<InetAddress, ClientLimit> clients = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejectedOverloaded = new LongAdder();
+    private final LongAdder rejectedRateLimited = new LongAdder();
+    private final LongAdder queueDelayNanos = new LongAdder();
+    private final LongAccumulator maxQueueDelayNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder serviceNanos = new LongAdder();
+
+    /**
+     * Creates a controller with one worker per processor, a queue of 256
+     * requests and a limit of 1000 requests per second per client.
+     */
+    public AdmissionController() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, DEFAULT_PERMITS_PER_SECOND,
+                DEFAULT_BURST);
+    }
+
+    /**
+     * @param workers          how many requests may execute at the same time; 0 starts a worker for every
+     *                         request that finds none idle
+     * @param queueCapacity    how many admitted requests may wait for a worker; 0 lets any number wait
+     * @param permitsPerSecond sustained requests per second allowed per client address; 0 disables rate limiting
+     * @param burst            how many requests a client may send back to back; 0 allows one second's worth
+     * @throws IllegalArgumentException if any limit is negative
+     */
+    public AdmissionController(int workers, int queueCapacity, double permitsPerSecond, int burst) {
+        if (workers < 0 || queueCapacity < 0 || permitsPerSecond < 0 || burst < 0) {
+            throw new IllegalArgumentException("Admission limits must not be negative: workers=" + workers
+                    + ", queueCapacity=" + queueCapacity + ", permitsPerSecond=" + permitsPerSecond
+                    + ", burst=" + burst);
+        }
+        this.queueCapacity = queueCapacity;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst > 0 ? burst : (int) Math.max(1, Math.ceil(permitsPerSecond));
+        if (workers == 0) {
+            // Nothing ever waits, so there is no queue to bound either
+            this.workers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), AdmissionController::newWorker);
+        } else {
+            this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                    queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new LinkedBlockingQueue<>(),
+                    AdmissionController::newWorker);
+        }
+        // Creating workers on demand would add thread start-up to the first requests' queueing delay
+        this.workers.prestartAllCoreThreads();
+    }
+
+    private static Thread newWorker(Runnable runnable) {
+        Thread thread = new Thread(runnable, "server-worker");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Work to run for one request, typically writing its response.
+     */
+    @FunctionalInterface
+    public interface RequestTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * Registers a connection from the given address; its rate limit is shared
+     * with any other connection from the same address.
+     */
+    public void connect(InetAddress client) {
+        if (permitsPerSecond > 0) {
+            clients.compute(client, (address, limit) -> {
+                ClientLimit result = limit == null ? new ClientLimit(new TokenBucket(permitsPerSecond, burst)) : limit;
+                result.connections++;
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Releases a connection registered with {@link #connect(InetAddress)}.
+     */
+    public void disconnect(InetAddress client) {
+        if (permitsPerSecond > 0) {
+            clients.computeIfPresent(client, (address, limit) -> --limit.connections == 0 ? null : limit);
+        }
+    }
+
+    /**
+     * Runs a request on a worker and waits for it to finish, unless the client
+     * is over its rate limit or the queue is full.
+     *
+     * @param client the address the request came from
+     * @param task   the work to do
+     * @return null if the task ran, otherwise the busy response to send instead
+     * @throws IOException if the task failed
+     */
+    public CustomerResponse execute(InetAddress client, RequestTask task) throws IOException {
+        ClientLimit limit = permitsPerSecond > 0 ? clients.get(client) : null;
+        if (limit != null && !limit.bucket.tryAcquire()) {
+            rejectedRateLimited.increment();
+            return CustomerResponse.busy("rate limited", limit.bucket.millisUntilNextToken());
+        }
+
+        long enqueued = System.nanoTime();
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            long started = System.nanoTime();
+            long delay = started - enqueued;
+            queueDelayNanos.add(delay);
+            maxQueueDelayNanos.accumulate(delay);
+            try {
+                task.run();
+            } finally {
+                serviceNanos.add(System.nanoTime() - started);
+                completed.increment();
+            }
+            return null;
+        });
+        try {
+            workers.execute(future);
+        } catch (RejectedExecutionException e) {
+            rejectedOverloaded.increment();
+            return CustomerResponse.busy("overloaded", estimateDrainMillis());
+        }
+        admitted.increment();
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IOException("Interrupted while waiting for request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Request failed", e.getCause());
+        }
+        return null;
+    }
+
+    // Time for the workers to work through the current queue at the average service time so far
+    private long estimateDrainMillis() {
+        long done = completed.sum();
+        if (done == 0) {
+            return DEFAULT_RETRY_MILLIS;
+        }
+        double averageNanos = (double) serviceNanos.sum() / done;
+        double drainNanos = averageNanos * getQueueDepth() / workers.getMaximumPoolSize();
+        long millis = (long) Math.ceil(drainNanos / TimeUnit.MILLISECONDS.toNanos(1));
+        return Math.min(MAX_RETRY_MILLIS, Math.max(1, millis));
+    }
+
+    /**
+     * Stops the workers; requests still queued are dropped.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return how many admitted requests may wait for a worker, or 0 if any number may
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejectedOverloaded() {
+        return rejectedOverloaded.sum();
+    }
+
+    public long getRejectedRateLimited() {
+        return rejectedRateLimited.sum();
+    }
+
+    /**
+     * @return the average time admitted requests waited for a worker, in microseconds
+     */
+    public double getAverageQueueDelayMicros() {
+        long count = completed.sum();
+        return count == 0 ? 0.0 : queueDelayNanos.sum() / 1000.0 / count;
+    }
+
+    /**
+     * @return the longest time any admitted request waited for a worker, in microseconds
+     */
+    public double getMaxQueueDelayMicros() {
+        return maxQueueDelayNanos.get() / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdmissionController[admitted=%d, rejectedOverloaded=%d, rejectedRateLimited=%d, "
+                        + "queueDepth=%d/%d, avgQueueDelay=%.1fus, maxQueueDelay=%.1fus]",
+                getAdmitted(), getRejectedOverloaded(), getRejectedRateLimited(),
+                getQueueDepth(), queueCapacity, getAverageQueueDelayMicros(), getMaxQueueDelayMicros());
+    }
+
+    // A client's rate limit and the number of its connections still open
+    private static final class ClientLimit {
+        final TokenBucket bucket;
+        int connections;
+
+        ClientLimit(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
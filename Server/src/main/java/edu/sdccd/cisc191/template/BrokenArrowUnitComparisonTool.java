@@ -1,27 +1,48 @@
 
 package edu.sdccd.cisc191.template;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
-import java.io.InputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 
@@ -43,9 +64,59 @@ public class BrokenArrowUnitComparisonTool extends Application
     private VBox leftPanel;
     private VBox rightPanel;
 
-    // List of units loaded from CSV
-    private List<Unit> unitList;
-    private Map<String, Image> unitImageMap;
+    // Lets the user narrow both ComboBoxes to one unit type
+    private ChoiceBox<String> typeSearch;
+
+    // Every loaded unit, seen by the ComboBoxes and card list through a filter for the type and a sort.
+    // Changing the type or sort adjusts these views in place instead of copying the catalog into each control.
+    private final ObservableList<Unit> units = FXCollections.observableArrayList();
+    private final FilteredList<Unit> filteredUnits = new FilteredList<>(units);
+    private final SortedList<Unit> sortedUnits = new SortedList<>(filteredUnits);
+
+    // Scrolling list of unit cards; it only builds cards for the rows on screen and reuses them as it scrolls
+    private ListView<Unit> unitListView;
+    private static final double CARD_CELL_HEIGHT = 230;
+
+    // Typeahead search over unit names and specializations; the index is built with the units, off the UI thread
+    private TextField searchField;
+    private final ContextMenu searchResults = new ContextMenu();
+    private volatile UnitSearchIndex searchIndex;
+    private UnitSearchIndex.Session searchSession;
+    private static final int MAX_SEARCH_RESULTS = 10;
+
+    // Chart of many units' stats at once, drawn on one canvas
+    private UnitChart chart;
+    private static final int MAX_CHART_UNITS = 500;
+
+    // Orders the ComboBoxes and card list can be sorted in
+    private static final Map<String, Comparator<Unit>> SORT_ORDERS = new LinkedHashMap<>();
+    static
+    {
+        SORT_ORDERS.put("Name", Comparator.comparing(Unit::getUnitName));
+        SORT_ORDERS.put("Price", Comparator.comparingInt(Unit::getPrice).thenComparing(Unit::getUnitName));
+        SORT_ORDERS.put("Armor", Comparator.comparingInt(Unit::getArmor).thenComparing(Unit::getUnitName));
+        SORT_ORDERS.put("Health", Comparator.comparingInt(Unit::getHealth).thenComparing(Unit::getUnitName));
+    }
+
+    // List of units loaded from CSV, empty until the background load finishes
+    private volatile List<Unit> unitList = List.of();
+    private Map<String, List<Unit>> unitsByType = Map.of();
+    private final Set<String> failedImages = new HashSet<>();
+
+    // Unit images are sprites on the pages of an atlas, packed on first run; null until it has been opened
+    private volatile UnitAtlas atlas;
+
+    // Atlas pages are decoded on first use, holding at most IMAGE_CACHE_BYTES of pixels strongly
+    private static final long IMAGE_CACHE_BYTES = Long.getLong("gui.imageCacheBytes", 32L << 20);
+    private static final int PANEL_IMAGE_WIDTH = UnitAtlas.MAX_SPRITE_WIDTH;
+    private static final int PANEL_IMAGE_HEIGHT = UnitAtlas.MAX_SPRITE_HEIGHT;
+    private final ImageCache imageCache = new ImageCache(UnitAtlas.DEFAULT_DIRECTORY, IMAGE_CACHE_BYTES);
+
+    // Background threads that parse the CSV and decode images so the window never waits on them
+    private ExecutorService loader;
+
+    // Shown in a panel while its unit's image is still decoding
+    private static final Image PLACEHOLDER = placeholder(PANEL_IMAGE_WIDTH, PANEL_IMAGE_HEIGHT);
 
     /**
      * Displays an error message to the user using a JavaFX alert dialog,
@@ -72,79 +143,25 @@ public class BrokenArrowUnitComparisonTool extends Application
     @Override
     public void start(Stage primaryStage)
     {
-        //Loads units from CSV Change the unit arrow to List<Unit>
-
-        /**
-         * Loads the unit list from a CSV file.
-         * Exception handling is included to gracefully handle missing files or parsing errors.
-         * If loading fails, the user is shown an error dialog and the unit list is set to empty.
-         */
-        try {
-            unitList = UnitStatsLoader.loadUnits("C:\\Users\\Nicko\\IdeaProjects\\CISC191-FinalProjectTemplate\\Server\\src\\main\\resources\\Broken Arrow Unit Stats.csv");
-            System.out.println("Units loaded: " + unitList.size());
-        } catch (Exception e) {
-            showError("Error loading unit data: " + e.getMessage());
-            unitList = List.of(); // fallback to empty list
-        }
-
-
-        Map<String, List<Unit>> unitsByType = unitList.stream()
-                .collect(Collectors.groupingBy(Unit::getUnitType));
-
-        //Crates a UI to allow search by Unit type
-        ChoiceBox<String> typeSearch = new ChoiceBox<>(
-                FXCollections.observableArrayList(unitsByType.keySet()));
+        long startNanos = System.nanoTime();
 
+        //Crates a UI to allow search by Unit type, filled in once the units have loaded
+        typeSearch = new ChoiceBox<>();
         typeSearch.getSelectionModel().selectedItemProperty()
         .addListener((observable, oldValue, newValue) ->
-        {
-            List<Unit> filtered = unitsByType.getOrDefault(newValue, unitList);
-            leftComboBox.getItems().setAll(filtered);
-            rightComboBox.getItems().setAll(filtered);
-        });
-
-
-
-        //Module 7 Used Hashmap for quick lookups between my Units and the images they are associated too.
-        Map<String, String> imageFileName = Map.of(
-                "Marine Raiders CQC",    "marine_raiders_cqc.png",
-                "Chernye Berety",        "chernye_berety.png",
-                "M1A2 SEP v2 Abrams",    "m1a2_sep_v2_abrams.png",
-                "T-14 Armata",           "t14_armata.png",
-                "F-35B",                 "f35b.png",
-                "Su-57",                 "su57.png"
-        );
-
-        //Loads images into javaFX memory
-        unitImageMap = new HashMap<>();
-
-        /**
-         * Loads images for each unit. Handles missing image files and I/O exceptions.
-         * If an image cannot be loaded, the user is notified via an error dialog.
-         * Continues loading remaining images even if one fails.
-         */
-        for (Map.Entry<String, String> entry : imageFileName.entrySet()) {
-            String displayName = entry.getKey();
-            String fileName = entry.getValue();
-            try (InputStream is = getClass().getResourceAsStream("/images/" + fileName)) {
-                if (is == null) {
-                    showError("Missing image resource: " + fileName);
-                    continue;
-                }
-                Image img = new Image(is);
-                unitImageMap.put(displayName, img);
-            } catch (Exception ex) {
-                showError("Failed to load image " + fileName + ": " + ex.getMessage());
-            }
-        }
+                filteredUnits.setPredicate(newValue == null ? null : unit -> newValue.equals(unit.getUnitType())));
 
+        //Sorts the units shown in the ComboBoxes and card list
+        ChoiceBox<String> sortBy = new ChoiceBox<>(FXCollections.observableArrayList(SORT_ORDERS.keySet()));
+        sortBy.getSelectionModel().selectedItemProperty()
+        .addListener((observable, oldValue, newValue) -> sortedUnits.setComparator(SORT_ORDERS.get(newValue)));
+        sortBy.setValue("Name");
 
-
-        // Create ComboBoxes and populate them with units by Switching to List<Unit> now it can feed easier into the ComboBoxes
-        leftComboBox = new ComboBox<>();
-        rightComboBox = new ComboBox<>();
-        leftComboBox.getItems().addAll(unitList);
-        rightComboBox.getItems().addAll(unitList);
+        // Create the ComboBoxes now so the window can show right away; the units arrive from a background task
+        leftComboBox = new ComboBox<>(sortedUnits);
+        rightComboBox = new ComboBox<>(sortedUnits);
+        leftComboBox.setPromptText("Loading units...");
+        rightComboBox.setPromptText("Loading units...");
 
 
         // Use a StringConverter so that only the unit's name appears in the drop-down
@@ -172,12 +189,43 @@ public class BrokenArrowUnitComparisonTool extends Application
         leftComboBox.setOnAction(e -> showUnit(leftComboBox.getValue(), leftPanel));
         rightComboBox.setOnAction(e -> showUnit(rightComboBox.getValue(), rightPanel));
 
+        //Search box: each key typed narrows the matches, shown in a drop-down under the box
+        searchField = new TextField();
+        searchField.setPromptText("Loading units...");
+        searchField.setDisable(true);
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> showSearchResults(newValue));
+        searchField.setOnAction(e ->
+        {
+            // Enter picks the best match
+            if (!searchResults.getItems().isEmpty())
+            {
+                searchResults.getItems().get(0).fire();
+            }
+        });
+
+        // Card list mode: picking a card shows it in the left panel
+        unitListView = new ListView<>(sortedUnits);
+        unitListView.setFixedCellSize(CARD_CELL_HEIGHT);
+        unitListView.setPrefWidth(260);
+        unitListView.setCellFactory(list -> new UnitCardCell(imageCache, () -> atlas, task -> loader.execute(task)));
+        unitListView.getSelectionModel().selectedItemProperty()
+        .addListener((observable, oldValue, newValue) ->
+        {
+            if (newValue != null)
+            {
+                leftComboBox.setValue(newValue);
+            }
+        });
+        ToggleButton cardsToggle = new ToggleButton("Cards");
 
         // Top controls: display the ComboBoxes in an HBox added Type UI feature to use search tool in Module 9
         HBox topControls = new HBox(10,
+                new Label("Search:"), searchField,
                 new Label("Type:"), typeSearch,
+                new Label("Sort:"), sortBy,
                 new Label("Left Unit:"), leftComboBox,
-                new Label("Right Unit:"), rightComboBox);
+                new Label("Right Unit:"), rightComboBox,
+                cardsToggle);
         topControls.setPadding(new Insets(10));
 
         // Container for the two detail panels side by side
@@ -187,7 +235,15 @@ public class BrokenArrowUnitComparisonTool extends Application
         // Main UI using a BorderPane
         BorderPane root = new BorderPane();
         root.setTop(topControls);
-        root.setCenter(panelsContainer);
+        TabPane tabs = new TabPane(new Tab("Compare", panelsContainer), new Tab("Chart", createChartPane()));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        root.setCenter(tabs);
+        chart.setOnUnitPicked(unit ->
+        {
+            leftComboBox.setValue(unit);
+            tabs.getSelectionModel().selectFirst();
+        });
+        cardsToggle.selectedProperty().addListener((observable, oldValue, newValue) -> root.setLeft(newValue ? unitListView : null));
 
 
 
@@ -195,12 +251,109 @@ public class BrokenArrowUnitComparisonTool extends Application
         primaryStage.setTitle("Unit Comparison");
         primaryStage.setScene(new Scene(root, 800, 600));
         primaryStage.show();
+
+        // The first animation pulse after show() is the first frame drawn, so log how long it took to get there
+        new AnimationTimer()
+        {
+            @Override
+            public void handle(long now)
+            {
+                System.out.printf("Time to first frame: %.1f ms%n", (System.nanoTime() - startNanos) / 1e6);
+                stop();
+            }
+        }.start();
+
+        loadInBackground(startNanos);
+    }
+
+    /**
+     * Starts parsing the unit CSV on a background thread and creates the pool that
+     * later decodes unit images. The units are handed to the JavaFX Application
+     * Thread once ready, so the window shows while loading carries on.
+     * A failed CSV is shown to the user and leaves the unit list empty.
+     *
+     * @param startNanos when start() began, for logging how long loading took
+     */
+    private void loadInBackground(long startNanos)
+    {
+        loader = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable ->
+        {
+            Thread thread = new Thread(runnable, "unit-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        //Loads units from the CSV bundled with the server, grouping them by type while still off the UI thread
+        Task<Map<String, List<Unit>>> unitTask = new Task<>()
+        {
+            @Override
+            protected Map<String, List<Unit>> call()
+            {
+                unitList = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+                searchIndex = new UnitSearchIndex(unitList);
+                return unitList.stream().collect(Collectors.groupingBy(Unit::getUnitType));
+            }
+        };
+        unitTask.setOnSucceeded(e ->
+        {
+            unitsByType = unitTask.getValue();
+            System.out.printf("Units loaded: %d after %.1f ms%n", unitList.size(), (System.nanoTime() - startNanos) / 1e6);
+            typeSearch.getItems().setAll(unitsByType.keySet());
+            leftComboBox.setPromptText(null);
+            rightComboBox.setPromptText(null);
+            units.setAll(unitList);
+            searchSession = searchIndex.session();
+            searchField.setPromptText("Name or specialization");
+            searchField.setDisable(false);
+            openAtlas(startNanos);
+        });
+        unitTask.setOnFailed(e ->
+        {
+            showError("Error loading unit data: " + unitTask.getException().getMessage());
+            unitList = List.of(); // fallback to empty list
+        });
+        loader.submit(unitTask);
     }
 
+    // Opens the image atlas for the loaded units, packing it first if this is the first run, then shows the images
+    private void openAtlas(long startNanos)
+    {
+        List<Unit> loaded = unitList;
+        Task<UnitAtlas> atlasTask = new Task<>()
+        {
+            @Override
+            protected UnitAtlas call() throws Exception
+            {
+                return UnitAtlas.open(UnitAtlas.DEFAULT_DIRECTORY, loaded);
+            }
+        };
+        atlasTask.setOnSucceeded(e ->
+        {
+            atlas = atlasTask.getValue();
+            System.out.printf("%s image atlas: %d sprites on %d pages after %.1f ms%n",
+                    atlas.wasPacked() ? "Packed" : "Opened", atlas.size(), atlas.getPageCount(), (System.nanoTime() - startNanos) / 1e6);
+            showUnit(leftComboBox.getValue(), leftPanel);
+            showUnit(rightComboBox.getValue(), rightPanel);
+            unitListView.refresh();
+        });
+        atlasTask.setOnFailed(e -> showError("Error loading unit images: " + atlasTask.getException().getMessage()));
+        loader.submit(atlasTask);
+    }
+
+    @Override
+    public void stop()
+    {
+        if (loader != null)
+        {
+            loader.shutdownNow();
+        }
+    }
 
     /**
-     * Sets the image for the unit in the specified panel.
-     * If the image is missing, displays an error dialog and clears the image view.
+     * Sets the image for the unit in the specified panel, cut out of its atlas page.
+     * A page not yet in the cache is decoded on a background thread while a placeholder
+     * is shown, as it is while the atlas itself is opening; if the unit has no image,
+     * displays an error dialog and clears the image view.
      *
      * @param unit the selected unit
      * @param panel the panel containing the ImageView
@@ -208,15 +361,28 @@ public class BrokenArrowUnitComparisonTool extends Application
     private void showUnit(Unit unit, VBox panel)
     {
         if (unit == null) return;
+        PanelComponents comps = (PanelComponents) panel.getUserData();
+        comps.shownUnit = unit;
 
         // 1) Update the images
         ImageView iv = (ImageView) panel.lookup("#unitImageView");
-        Image image = unitImageMap.get(unit.getUnitName());
-        if (image == null) {
+        UnitAtlas current = atlas;
+        UnitAtlas.Sprite sprite = current == null ? null : current.sprite(unit.getUnitName());
+        String page = sprite == null ? null : current.pageFile(sprite.page());
+        Image image = page == null ? null : imageCache.getIfPresent(page);
+        if (image != null) {
+            iv.setImage(image);
+            iv.setViewport(sprite.viewport());
+        } else if (current == null || (page != null && !failedImages.contains(page))) {
+            iv.setViewport(null);
+            iv.setImage(PLACEHOLDER);
+            if (page != null) {
+                loadPage(unit, page, sprite, panel, comps);
+            }
+        } else {
             showError("Image not found for unit: " + unit.getUnitName());
+            iv.setViewport(null);
             iv.setImage(null);
-        } else {
-            iv.setImage(image);
         }
 
 
@@ -224,6 +390,97 @@ public class BrokenArrowUnitComparisonTool extends Application
         updatePanel(panel, unit);
     }
 
+    // Decodes an atlas page off the UI thread, showing the unit's sprite if the panel still shows that unit
+    private void loadPage(Unit unit, String page, UnitAtlas.Sprite sprite, VBox panel, PanelComponents comps)
+    {
+        Task<Image> pageTask = new Task<>()
+        {
+            @Override
+            protected Image call() throws Exception
+            {
+                return imageCache.get(page);
+            }
+        };
+        pageTask.setOnSucceeded(e ->
+        {
+            if (comps.shownUnit == unit)
+            {
+                ImageView iv = (ImageView) panel.lookup("#unitImageView");
+                iv.setImage(pageTask.getValue());
+                iv.setViewport(sprite.viewport());
+            }
+        });
+        pageTask.setOnFailed(e ->
+        {
+            failedImages.add(page);
+            showError("Failed to load image " + page + ": " + pageTask.getException().getMessage());
+        });
+        loader.submit(pageTask);
+    }
+
+    // Lists the best matches for the search text under the search box; picking one shows it in the left panel
+    private void showSearchResults(String query)
+    {
+        if (searchSession == null)
+        {
+            return;
+        }
+        List<MenuItem> items = new ArrayList<>();
+        for (Unit unit : searchSession.search(query, MAX_SEARCH_RESULTS))
+        {
+            MenuItem item = new MenuItem(unit.getUnitName() + " (" + unit.getSpecialization() + ")");
+            item.setOnAction(e ->
+            {
+                leftComboBox.setValue(unit);
+                searchResults.hide();
+            });
+            items.add(item);
+        }
+        searchResults.getItems().setAll(items);
+        if (items.isEmpty())
+        {
+            searchResults.hide();
+        }
+        else if (!searchResults.isShowing())
+        {
+            searchResults.show(searchField, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    // Creates the chart tab: the chart of the filtered, sorted units and choices of how to chart them
+    private VBox createChartPane()
+    {
+        chart = new UnitChart();
+        sortedUnits.addListener((ListChangeListener<Unit>) change ->
+                chart.setUnits(sortedUnits.subList(0, Math.min(MAX_CHART_UNITS, sortedUnits.size()))));
+
+        ChoiceBox<UnitChart.Kind> kind = new ChoiceBox<>(FXCollections.observableArrayList(UnitChart.Kind.values()));
+        ChoiceBox<UnitChart.Stat> xStat = new ChoiceBox<>(FXCollections.observableArrayList(UnitChart.Stat.values()));
+        ChoiceBox<UnitChart.Stat> yStat = new ChoiceBox<>(FXCollections.observableArrayList(UnitChart.Stat.values()));
+        kind.setValue(UnitChart.Kind.SCATTER);
+        xStat.setValue(UnitChart.Stat.PRICE);
+        yStat.setValue(UnitChart.Stat.ARMOR);
+        kind.setOnAction(e ->
+        {
+            chart.setKind(kind.getValue());
+            // Only a scatter chart has axes to choose
+            xStat.setDisable(kind.getValue() != UnitChart.Kind.SCATTER);
+            yStat.setDisable(kind.getValue() != UnitChart.Kind.SCATTER);
+        });
+        xStat.setOnAction(e -> chart.setAxes(xStat.getValue(), yStat.getValue()));
+        yStat.setOnAction(e -> chart.setAxes(xStat.getValue(), yStat.getValue()));
+
+        HBox chartControls = new HBox(10,
+                new Label("Chart:"), kind,
+                new Label("X:"), xStat,
+                new Label("Y:"), yStat,
+                new Label("Showing up to " + MAX_CHART_UNITS + " units"));
+        VBox.setVgrow(chart, Priority.ALWAYS);
+        VBox chartPane = new VBox(10, chartControls, chart);
+        chartPane.setPadding(new Insets(10));
+        return chartPane;
+    }
+
     // Creates a panel (VBox) containing labels for unit details
     private VBox createUnitDetailPanel()
     {
@@ -233,8 +490,8 @@ public class BrokenArrowUnitComparisonTool extends Application
 
         ImageView iv = new ImageView();
         iv.setId("unitImageView");
-        iv.setFitWidth(300);
-        iv.setFitHeight(260);
+        iv.setFitWidth(PANEL_IMAGE_WIDTH);
+        iv.setFitHeight(PANEL_IMAGE_HEIGHT);
         iv.setPreserveRatio(true);
 
         
@@ -276,6 +533,8 @@ public class BrokenArrowUnitComparisonTool extends Application
         Label specializationLabel;
         Label statsLabel;
         Label abilitiesLabel;
+        // The unit the panel shows, so a page that finishes loading late is not shown over a newer pick
+        Unit shownUnit;
 
         PanelComponents(Label nameLabel, Label typeLabel, Label specializationLabel, Label statsLabel, Label abilitiesLabel)
         {
@@ -287,6 +546,21 @@ public class BrokenArrowUnitComparisonTool extends Application
         }
     }
 
+    // A plain light gray image the size of a detail panel's picture
+    private static Image placeholder(int width, int height)
+    {
+        WritableImage image = new WritableImage(width, height);
+        PixelWriter pixels = image.getPixelWriter();
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                pixels.setArgb(x, y, 0xFFE0E0E0);
+            }
+        }
+        return image;
+    }
+
     public static void main(String[] args)
     {
         launch(args);
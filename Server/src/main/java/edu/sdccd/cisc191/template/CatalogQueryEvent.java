@@ -0,0 +1,40 @@
+package edu.sdccd.cisc191.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for a query on a {@link UnitCatalog.Snapshot}.
+ */
+@Name("edu.sdccd.cisc191.template.CatalogQuery")
+@Label("Catalog Query")
+@Category({"Broken Arrow", "Catalog"})
+@Description("Looking up, listing or ranging over the units of a catalog snapshot")
+@StackTrace(false)
+@Threshold("1 ms")
+class CatalogQueryEvent extends Event {
+    static final String GET = "get";
+    static final String LIST = "list";
+    static final String RANGE = "range";
+
+    @Label("Operation")
+    final String operation;
+
+    @Label("Unit Type")
+    String unitType;
+
+    @Label("Catalog Version")
+    long version;
+
+    @Label("Results")
+    int results;
+
+    CatalogQueryEvent(String operation) {
+        this.operation = operation;
+    }
+}
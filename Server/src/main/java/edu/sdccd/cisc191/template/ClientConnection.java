@@ -0,0 +1,171 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+
+/**
+ * Serves one client socket on its own thread.
+ *
+ * Requests on a connection are answered strictly in the order they arrive,
+ * which is what lets clients pipeline requests without tagging them. Each
+ * request is handed to the server's {@link AdmissionController}; the
+ * connection waits for it to finish before reading the next one, so a
+ * connection never has more than one request in flight. The time from
+ * reading a request to writing its response is recorded in the server's
+ * {@link ServerStats}, and as a {@link RequestEvent} for Flight Recorder.
+ */
+class ClientConnection implements Runnable {
+    /** Units with unsent changes a subscriber may have before it is sent a full snapshot instead. */
+    private static final int SUBSCRIPTION_CAPACITY = 256;
+    /** How often an idle subscriber is sent an empty update. */
+    private static final long HEARTBEAT_MILLIS = 1000;
+
+    private final Server server;
+    private final Socket socket;
+    private final InetAddress address;
+    private MessageWriter out;
+    private MessageReader in;
+
+    ClientConnection(Server server, Socket socket) {
+        this.server = server;
+        this.socket = socket;
+        this.address = socket.getInetAddress();
+    }
+
+    @Override
+    public void run() {
+        AdmissionController admission = server.getAdmissionController();
+        ServerStats stats = server.getStats();
+        admission.connect(address);
+        stats.connectionOpened();
+        try {
+            // The client picks the encoding; its first byte tells us which one
+            InputStream input = new BufferedInputStream(stats.countIn(socket.getInputStream()));
+            MessageFormat format = MessageFormat.detect(input);
+            out = new MessageWriter(stats.countOut(socket.getOutputStream()), format);
+            in = new MessageReader(input, format);
+
+            CustomerRequest request;
+            while ((request = readRequest()) != null) {
+                if (request.getType() == RequestType.SUBSCRIBE) {
+                    serveSubscription(request);
+                    return;
+                }
+                long start = System.nanoTime();
+                RequestEvent event = new RequestEvent();
+                event.begin();
+                if (request.getType() == RequestType.STATS || request.getType() == RequestType.PING) {
+                    // Monitoring and health checks must still answer when the server is saturated
+                    server.handle(request, out);
+                } else {
+                    CustomerRequest admitted = request;
+                    CustomerResponse rejected = admission.execute(address, () -> server.handle(admitted, out));
+                    if (rejected != null) {
+                        out.write(rejected);
+                        commit(event, request, true);
+                        continue;
+                    }
+                }
+                stats.recordLatency(request.getType(), System.nanoTime() - start);
+                commit(event, request, false);
+            }
+        } catch (IOException e) {
+            // Handles IO errors in client communication; other clients are unaffected
+            if (!socket.isClosed()) {
+                System.err.println("Connection error from " + address + ": " + e.getMessage());
+            }
+        } finally {
+            admission.disconnect(address);
+            stats.connectionClosed();
+            close();
+            server.connectionClosed(this);
+        }
+    }
+
+    private void commit(RequestEvent event, CustomerRequest request, boolean rejected) {
+        if (event.shouldCommit()) {
+            event.requestType = request.getType().name();
+            event.client = address.getHostAddress();
+            event.rejected = rejected;
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads the next request from the client. A request with an unknown type is
+     * answered with an error and skipped. Otherwise the reader parses straight
+     * off the socket, so after a malformed message the stream cannot be
+     * resynchronized: the client is told the request was invalid and the
+     * connection is ended.
+     *
+     * @return the next request, or null if the connection should be closed
+     * @throws IOException if the error reply cannot be written
+     */
+    private CustomerRequest readRequest() throws IOException {
+        while (true) {
+            try {
+                return in.readRequest();
+            } catch (ProtocolException reqEx) {
+                out.write(CustomerResponse.error(reqEx.getMessage()));
+            } catch (IOException reqEx) {
+                if (socket.isClosed()) {
+                    return null;
+                }
+                // Handles invalid JSON in the request stream
+                System.err.println("Failed to process request: " + reqEx.getMessage());
+                out.write(CustomerResponse.error("Invalid request format"));
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Pushes catalog changes to the client until the connection closes. A
+     * subscription is long-lived, so it bypasses admission control and runs
+     * on this connection's own thread. The connection carries nothing else
+     * from then on; a second thread keeps reading only to notice the client
+     * going away.
+     *
+     * @param request the subscribe request
+     * @throws IOException if an update cannot be written
+     */
+    private void serveSubscription(CustomerRequest request) throws IOException {
+        Subscription subscription = new Subscription(server.getCatalog(), SUBSCRIPTION_CAPACITY, HEARTBEAT_MILLIS);
+        subscription.start(request.getVersion() == null ? 0 : request.getVersion());
+        Thread.ofVirtual().name("subscriber-" + socket.getPort()).start(() -> {
+            try {
+                while (in.readRequest() != null) {
+                    // Requests on a subscribed connection are ignored
+                }
+            } catch (IOException e) {
+                // The connection is gone either way
+            }
+            subscription.close();
+        });
+        try {
+            CustomerResponse update;
+            while ((update = subscription.take()) != null) {
+                out.write(update);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Closes the socket, which also ends a blocked read in {@link #run()}.
+     */
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing client socket: " + e.getMessage());
+        }
+    }
+}
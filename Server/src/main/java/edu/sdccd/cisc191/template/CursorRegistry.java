@@ -0,0 +1,265 @@
+package edu.sdccd.cisc191.template;
+
+import java.net.ProtocolException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves paged list requests, so a list of any size is sent as a series of
+ * bounded responses instead of one message that both ends must hold whole.
+ *
+ * A list that does not fit in one page gets a server-side cursor, which pins
+ * the catalog snapshot the first page came from so every page sees the same
+ * version. Cursors opened at the same version share its snapshot, and at
+ * most {@code maxPinnedVersions} versions are pinned at once: a cursor
+ * opened while that many others are pinned pins nothing, and its later pages
+ * come from the current catalog as if it had expired. Open cursors therefore
+ * hold at most that many snapshots, each an index of the catalog with units
+ * an older version shares with the current one, plus a few dozen bytes per
+ * cursor, however many cursors are open. The cursor token handed to the
+ * client is the cursor's id and the name of the last unit sent. Units are
+ * sorted by name, so the next page is found by a binary search for that name
+ * rather than by a stored position, and repeating a request returns the same
+ * page.
+ *
+ * A cursor expires when it has not been used for a while, and the oldest are
+ * dropped when too many are open. Neither is an error for the client: a
+ * token whose cursor is gone resumes after the same name in the current
+ * catalog. Units added or removed since then may then be seen or missed,
+ * but none are sent twice.
+ */
+public class CursorRegistry {
+    /** How long an unused cursor keeps its snapshot. */
+    public static final long DEFAULT_TTL_MILLIS = 30_000;
+    /** How many cursors may be open at once. */
+    public static final int DEFAULT_MAX_CURSORS = 1024;
+    /** How many catalog versions open cursors may pin at once. */
+    public static final int DEFAULT_MAX_PINNED_VERSIONS = 4;
+    /** The most units one page may hold, whatever the client asks for. */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final UnitCatalog catalog;
+    private final long ttlNanos;
+    private final int maxCursors;
+    private final int maxPinnedVersions;
+    private final ConcurrentHashMap<Long, Cursor> cursors = new ConcurrentHashMap<>();
+    // How many open cursors pin each catalog version; guarded by itself
+    private final Map<Long, Integer> pins = new HashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder unpinned = new LongAdder();
+
+    public CursorRegistry(UnitCatalog catalog) {
+        this(catalog, DEFAULT_TTL_MILLIS, DEFAULT_MAX_CURSORS);
+    }
+
+    /**
+     * @param catalog    the catalog to page through
+     * @param ttlMillis  how long an unused cursor is kept
+     * @param maxCursors how many cursors may be open at once
+     */
+    public CursorRegistry(UnitCatalog catalog, long ttlMillis, int maxCursors) {
+        this(catalog, ttlMillis, maxCursors, DEFAULT_MAX_PINNED_VERSIONS);
+    }
+
+    /**
+     * @param catalog           the catalog to page through
+     * @param ttlMillis         how long an unused cursor is kept
+     * @param maxCursors        how many cursors may be open at once
+     * @param maxPinnedVersions how many catalog versions open cursors may pin at once
+     */
+    public CursorRegistry(UnitCatalog catalog, long ttlMillis, int maxCursors, int maxPinnedVersions) {
+        this.catalog = catalog;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxCursors = maxCursors;
+        this.maxPinnedVersions = maxPinnedVersions;
+    }
+
+    /**
+     * Answers a paged {@link RequestType#LIST} request.
+     *
+     * @param request the request, with a limit and possibly a cursor
+     * @return the page, with the cursor for the next one if there are more units
+     * @throws ProtocolException if the request's limit or cursor is invalid
+     */
+    public CustomerResponse page(CustomerRequest request) throws ProtocolException {
+        int limit = request.getLimit();
+        if (limit <= 0) {
+            throw new ProtocolException("Page limit must be positive: " + limit);
+        }
+        limit = Math.min(limit, MAX_PAGE_SIZE);
+
+        long now = System.nanoTime();
+        long id;
+        String after;
+        Cursor cursor;
+        if (request.getCursor() == null) {
+            id = 0;
+            after = null;
+            cursor = null;
+        } else {
+            String token = request.getCursor();
+            int colon = token.indexOf(':');
+            try {
+                id = Long.parseLong(token.substring(0, Math.max(0, colon)));
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid cursor: " + token);
+            }
+            after = token.substring(colon + 1);
+            cursor = cursors.get(id);
+            if (cursor != null && now - cursor.lastUsedNanos > ttlNanos) {
+                if (close(cursor)) {
+                    expired.increment();
+                }
+                cursor = null;
+            }
+            if (cursor == null) {
+                resumed.increment();
+            }
+        }
+
+        UnitCatalog.Snapshot snapshot = cursor != null && cursor.snapshot != null ? cursor.snapshot : catalog.snapshot();
+        // The smallest name greater than the last one sent is that name plus a NUL
+        List<Unit> rest = snapshot.range(request.getUnitType(), after == null ? null : after + '\0', null);
+        List<Unit> units = rest.subList(0, Math.min(limit, rest.size()));
+        if (units.size() == rest.size()) {
+            if (cursor != null) {
+                close(cursor);
+            }
+            return CustomerResponse.page(snapshot.getVersion(), units, null);
+        }
+
+        if (cursor == null) {
+            cursor = open(snapshot, now);
+            id = cursor.id;
+        }
+        cursor.lastUsedNanos = now;
+        String next = id + ":" + units.get(units.size() - 1).getUnitName();
+        return CustomerResponse.page(snapshot.getVersion(), units, next);
+    }
+
+    private Cursor open(UnitCatalog.Snapshot snapshot, long now) {
+        if (cursors.size() >= maxCursors) {
+            evict(now);
+        }
+        Cursor cursor = new Cursor(nextId.incrementAndGet(), pin(snapshot) ? snapshot : null, now);
+        cursors.put(cursor.id, cursor);
+        opened.increment();
+        return cursor;
+    }
+
+    // Pins a snapshot for a new cursor, unless too many other versions are pinned already
+    private boolean pin(UnitCatalog.Snapshot snapshot) {
+        synchronized (pins) {
+            if (!pins.containsKey(snapshot.getVersion()) && pins.size() >= maxPinnedVersions) {
+                unpinned.increment();
+                return false;
+            }
+            pins.merge(snapshot.getVersion(), 1, Integer::sum);
+            return true;
+        }
+    }
+
+    // Removes a cursor and releases its snapshot; false if it was already gone
+    private boolean close(Cursor cursor) {
+        if (!cursors.remove(cursor.id, cursor)) {
+            return false;
+        }
+        if (cursor.snapshot != null) {
+            synchronized (pins) {
+                pins.computeIfPresent(cursor.snapshot.getVersion(), (version, count) -> count == 1 ? null : count - 1);
+            }
+        }
+        return true;
+    }
+
+    // Drops expired cursors, or the least recently used one if none have expired
+    private void evict(long now) {
+        Cursor oldest = null;
+        for (Cursor cursor : cursors.values()) {
+            if (now - cursor.lastUsedNanos > ttlNanos) {
+                if (close(cursor)) {
+                    expired.increment();
+                }
+            } else if (oldest == null || cursor.lastUsedNanos < oldest.lastUsedNanos) {
+                oldest = cursor;
+            }
+        }
+        if (cursors.size() >= maxCursors && oldest != null && close(oldest)) {
+            expired.increment();
+        }
+    }
+
+    /**
+     * @return how many cursors are open
+     */
+    public int getOpenCursors() {
+        return cursors.size();
+    }
+
+    /**
+     * @return how many cursors were dropped before their list was finished
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * @return how many pages continued from a cursor that was gone
+     */
+    public long getResumed() {
+        return resumed.sum();
+    }
+
+    /**
+     * @return how many catalog versions open cursors pin
+     */
+    public int getPinnedVersions() {
+        synchronized (pins) {
+            return pins.size();
+        }
+    }
+
+    /**
+     * @return how many cursors were opened without a snapshot because too many versions were pinned
+     */
+    public long getUnpinned() {
+        return unpinned.sum();
+    }
+
+    /**
+     * @return the cursor counters, named for the server's stats
+     */
+    public Map<String, Number> toMap() {
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("cursors.open", getOpenCursors());
+        stats.put("cursors.opened", opened.sum());
+        stats.put("cursors.expired", getExpired());
+        stats.put("cursors.resumed", getResumed());
+        stats.put("cursors.pinnedVersions", getPinnedVersions());
+        stats.put("cursors.unpinned", getUnpinned());
+        return stats;
+    }
+
+    // One paged list in progress, with the snapshot it pins or null if it follows the current catalog
+    private static final class Cursor {
+        final long id;
+        final UnitCatalog.Snapshot snapshot;
+        volatile long lastUsedNanos;
+
+        Cursor(long id, UnitCatalog.Snapshot snapshot, long now) {
+            this.id = id;
+            this.snapshot = snapshot;
+            this.lastUsedNanos = now;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package edu.sdccd.cisc191.template;
+
+import javafx.scene.image.Image;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unit artwork decoded on first use at the size it is shown, rather than
+ * every image at full resolution up front.
+ *
+ * An image is decoded straight to the requested size, rounded up to a
+ * bucket of {@value #BUCKET} pixels so that views of nearly the same size
+ * share one copy; a detail panel and a card ask for different buckets and
+ * get different copies. Decoded images are held strongly, most recently used
+ * first, up to a budget of bytes. Past the budget the least recently used
+ * images are demoted to soft references, which the garbage collector clears
+ * only when memory runs short; a demoted image that is still there when
+ * asked for again is promoted back without decoding. So memory for images
+ * stays bounded however many units there are, while the images in use stay
+ * a hash lookup away.
+ *
+ * Images can also be kept at their full size, such as the pages of a
+ * {@link UnitAtlas} that views cut sprites out of.
+ *
+ * The cache is safe to use from any thread. Decoding happens outside its
+ * lock, so callers on the JavaFX Application Thread should use
+ * {@link #getIfPresent} and decode with {@link #get} on a background thread.
+ * Threads that miss on an image already being decoded wait for that decode
+ * rather than starting their own, which matters for atlas pages that many
+ * cards ask for at once.
+ */
+public class ImageCache {
+    /** Requested sizes are rounded up to a multiple of this many pixels. */
+    static final int BUCKET = 64;
+
+    private final Opener opener;
+    private final long maxBytes;
+
+    private final LinkedHashMap<Key, Image> strong = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, SoftEntry> soft = new HashMap<>();
+    private final ReferenceQueue<Image> cleared = new ReferenceQueue<>();
+    private final Map<Key, CompletableFuture<Image>> decoding = new HashMap<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder softHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+
+    /**
+     * @param directory the classpath directory holding the images, such as "/images/"
+     * @param maxBytes  how many bytes of decoded pixels to hold strongly
+     */
+    public ImageCache(String directory, long maxBytes) {
+        this.opener = fileName -> ImageCache.class.getResourceAsStream(directory + fileName);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param directory the directory on disk holding the images
+     * @param maxBytes  how many bytes of decoded pixels to hold strongly
+     */
+    public ImageCache(Path directory, long maxBytes) {
+        this.opener = fileName -> {
+            Path file = directory.resolve(fileName);
+            return Files.exists(file) ? Files.newInputStream(file) : null;
+        };
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Looks up an image at its full size without decoding it.
+     *
+     * @param fileName the image's file name
+     * @return the image, or null if it has not been decoded or was evicted
+     */
+    public Image getIfPresent(String fileName) {
+        return lookup(new Key(fileName, 0, 0));
+    }
+
+    /**
+     * Looks up an image at its full size, decoding it if needed.
+     *
+     * @param fileName the image's file name
+     * @return the image
+     * @throws IOException if the image is missing or cannot be decoded
+     */
+    public Image get(String fileName) throws IOException {
+        return get(new Key(fileName, 0, 0));
+    }
+
+    /**
+     * Looks up an image without decoding it.
+     *
+     * @param fileName the image's file name
+     * @param width    the width it will be shown at
+     * @param height   the height it will be shown at
+     * @return the image, or null if it has not been decoded at that size or was evicted
+     */
+    public Image getIfPresent(String fileName, int width, int height) {
+        return lookup(new Key(fileName, bucket(width), bucket(height)));
+    }
+
+    /**
+     * Looks up an image, decoding it if needed.
+     *
+     * @param fileName the image's file name
+     * @param width    the width it will be shown at
+     * @param height   the height it will be shown at
+     * @return the image, scaled to fit the size's bucket with its proportions kept
+     * @throws IOException if the image is missing or cannot be decoded
+     */
+    public Image get(String fileName, int width, int height) throws IOException {
+        return get(new Key(fileName, bucket(width), bucket(height)));
+    }
+
+    private Image get(Key key) throws IOException {
+        CompletableFuture<Image> decoded;
+        CompletableFuture<Image> pending;
+        synchronized (this) {
+            Image image = lookup(key);
+            if (image != null) {
+                return image;
+            }
+            decoded = new CompletableFuture<>();
+            pending = decoding.putIfAbsent(key, decoded);
+            if (pending == null) {
+                misses.increment();
+            }
+        }
+        if (pending != null) {
+            return await(pending);
+        }
+        try {
+            Image image = decode(key);
+            synchronized (this) {
+                store(key, image);
+                decoding.remove(key);
+            }
+            decoded.complete(image);
+            return image;
+        } catch (Throwable e) {
+            // Waiting threads must be released whatever went wrong
+            synchronized (this) {
+                decoding.remove(key);
+            }
+            decoded.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Waits for another thread's decode of the same image
+    private static Image await(CompletableFuture<Image> decoded) throws IOException {
+        try {
+            return decoded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an image to decode");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private synchronized Image lookup(Key key) {
+        expunge();
+        Image image = strong.get(key);
+        if (image != null) {
+            hits.increment();
+            return image;
+        }
+        SoftEntry entry = soft.remove(key);
+        image = entry == null ? null : entry.get();
+        if (image != null) {
+            softHits.increment();
+            store(key, image);
+        }
+        return image;
+    }
+
+    private Image decode(Key key) throws IOException {
+        try (InputStream is = opener.open(key.fileName)) {
+            if (is == null) {
+                throw new FileNotFoundException("Missing image resource: " + key.fileName);
+            }
+            Image image = key.width == 0 ? new Image(is) : new Image(is, key.width, key.height, true, true);
+            if (image.isError()) {
+                throw new IOException("Cannot decode " + key.fileName, image.getException());
+            }
+            return image;
+        }
+    }
+
+    // Holds an image strongly, demoting the least recently used to soft references past the budget
+    private void store(Key key, Image image) {
+        strong.put(key, image);
+        bytes += weigh(image);
+        Iterator<Map.Entry<Key, Image>> eldest = strong.entrySet().iterator();
+        // The newest image stays even if it alone is over the budget
+        while (bytes > maxBytes && strong.size() > 1) {
+            Map.Entry<Key, Image> demoted = eldest.next();
+            eldest.remove();
+            bytes -= weigh(demoted.getValue());
+            soft.put(demoted.getKey(), new SoftEntry(demoted.getKey(), demoted.getValue(), cleared));
+            demotions.increment();
+        }
+    }
+
+    // Drops the soft entries whose images the garbage collector has cleared
+    private void expunge() {
+        SoftEntry entry;
+        while ((entry = (SoftEntry) cleared.poll()) != null) {
+            soft.remove(entry.key, entry);
+        }
+    }
+
+    static int bucket(int size) {
+        return Math.max(BUCKET, (size + BUCKET - 1) / BUCKET * BUCKET);
+    }
+
+    private static long weigh(Image image) {
+        return Math.round(image.getWidth() * image.getHeight() * 4);
+    }
+
+    /**
+     * @return how many bytes of decoded pixels are held strongly
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return how many images are held strongly
+     */
+    public synchronized int size() {
+        return strong.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return lookups answered by an image that had been demoted but not yet collected
+     */
+    public long getSoftHits() {
+        return softHits.sum();
+    }
+
+    /**
+     * @return lookups that had to decode
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return images moved to soft references to stay within the budget
+     */
+    public long getDemotions() {
+        return demotions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImageCache[size=%d, bytes=%d, hits=%d, softHits=%d, misses=%d, demotions=%d]",
+                size(), getBytes(), getHits(), getSoftHits(), getMisses(), getDemotions());
+    }
+
+    // Opens an image file, or returns null if there is none
+    private interface Opener {
+        InputStream open(String fileName) throws IOException;
+    }
+
+    // An image file at one size bucket, or 0 by 0 for its full size
+    private record Key(String fileName, int width, int height) {
+    }
+
+    // A demoted image, remembering its key so it can be removed once collected
+    private static final class SoftEntry extends SoftReference<Image> {
+        final Key key;
+
+        SoftEntry(Key key, Image image, ReferenceQueue<Image> queue) {
+            super(image, queue);
+            this.key = key;
+        }
+    }
+}
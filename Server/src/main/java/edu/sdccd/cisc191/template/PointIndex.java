@@ -0,0 +1,86 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The points a chart drew, bucketed into a grid so the point under the
+ * mouse is found by looking at a few nearby cells instead of every point.
+ * Each point belongs to an owner, such as the index of the unit it was
+ * drawn for; one owner may have several points.
+ */
+class PointIndex {
+    private final double cellSize;
+    private final Map<Long, List<Integer>> cells = new HashMap<>();
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private int[] owners = new int[64];
+    private int size;
+
+    /**
+     * @param cellSize the grid's cell width and height, at least the largest search radius
+     */
+    PointIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    void clear() {
+        cells.clear();
+        size = 0;
+    }
+
+    void add(double x, double y, int owner) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+            owners = Arrays.copyOf(owners, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        owners[size] = owner;
+        cells.computeIfAbsent(key(cell(x), cell(y)), k -> new ArrayList<>()).add(size);
+        size++;
+    }
+
+    /**
+     * @param radius how far from the point to look, at most the cell size
+     * @return the owner of the closest point within the radius, or -1 if there is none
+     */
+    int nearest(double x, double y, double radius) {
+        long cx = cell(x), cy = cell(y);
+        int best = -1;
+        double bestDistance = radius * radius;
+        for (long i = cx - 1; i <= cx + 1; i++) {
+            for (long j = cy - 1; j <= cy + 1; j++) {
+                List<Integer> cell = cells.get(key(i, j));
+                if (cell == null) {
+                    continue;
+                }
+                for (int point : cell) {
+                    double dx = xs[point] - x, dy = ys[point] - y;
+                    double distance = dx * dx + dy * dy;
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = owners[point];
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) ^ (y & 0xFFFFFFFFL);
+    }
+}
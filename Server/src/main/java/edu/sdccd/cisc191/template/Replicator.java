@@ -0,0 +1,177 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a replica's catalog in step with the primary server's.
+ *
+ * The replicator subscribes to the primary like any other client. The first
+ * update is the primary's whole catalog; after that it receives the primary's
+ * changes in order, each batch tagged with the primary's version, and applies
+ * them so the replica serves exactly the versions the primary had. If the
+ * connection drops it reconnects and resumes from the last version applied,
+ * falling back to a fresh snapshot only if the primary no longer has the
+ * changes since then.
+ *
+ * The primary sends a heartbeat when idle, so the time since the last message
+ * bounds how stale the replica can be without knowing it. Every update and
+ * heartbeat carries the primary's newest version when it was sent, so the
+ * replica knows how many versions it has still to apply.
+ */
+public class Replicator implements Runnable {
+    /** How long to wait before reconnecting after the connection to the primary fails. */
+    private static final long RECONNECT_MILLIS = 500;
+
+    private final UnitCatalog catalog;
+    private final String host;
+    private final int port;
+    private volatile boolean synced;
+    private volatile boolean connected;
+    private volatile boolean stopped;
+    private volatile Socket socket;
+    private volatile long primaryVersion;
+    private volatile long lastContactNanos = System.nanoTime();
+    private volatile long snapshots;
+    private volatile long batches;
+
+    /**
+     * @param catalog the replica's catalog; it should not be edited any other way
+     * @param host    the primary's host
+     * @param port    the primary's port
+     */
+    public Replicator(UnitCatalog catalog, String host, int port) {
+        this.catalog = catalog;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Follows the primary until {@link #stop()} is called, reconnecting as needed.
+     */
+    @Override
+    public void run() {
+        while (!stopped) {
+            try (Socket s = new Socket(host, port)) {
+                socket = s;
+                follow(s);
+            } catch (IOException e) {
+                if (!stopped) {
+                    System.err.println("Replication from " + host + ":" + port + " failed: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+            try {
+                if (!stopped) {
+                    TimeUnit.MILLISECONDS.sleep(RECONNECT_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void follow(Socket s) throws IOException {
+        MessageWriter out = new MessageWriter(s.getOutputStream(), MessageFormat.SMILE);
+        MessageReader in = new MessageReader(s.getInputStream(), MessageFormat.SMILE);
+        // Before the first snapshot the local version means nothing to the primary
+        out.write(CustomerRequest.subscribe(synced ? catalog.getVersion() : 0));
+        connected = true;
+        CustomerResponse update;
+        while ((update = in.readResponse()) != null) {
+            apply(update);
+        }
+    }
+
+    private void apply(CustomerResponse update) throws IOException {
+        lastContactNanos = System.nanoTime();
+        if (update.getError() != null) {
+            throw new IOException("Primary refused replication: " + update.getError());
+        }
+        long version = update.getVersion();
+        Long head = update.getHeadVersion();
+        // Learned before applying, so lag is visible while a large update is being applied
+        primaryVersion = Math.max(primaryVersion, head == null ? version : head);
+        if (update.getUnits() != null) {
+            catalog.reset(version, update.getUnits());
+            synced = true;
+            snapshots++;
+        } else if (!update.getDeltas().isEmpty()) {
+            catalog.apply(version, update.getDeltas());
+            batches++;
+        }
+    }
+
+    /**
+     * Stops following the primary.
+     */
+    public void stop() {
+        stopped = true;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                System.err.println("Error closing replication socket: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return true once the replica has loaded a snapshot from the primary
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return the primary's newest version as of the last message from it
+     */
+    public long getPrimaryVersion() {
+        return primaryVersion;
+    }
+
+    /**
+     * @return how many versions the replica's catalog is behind the primary's newest one it has heard of
+     */
+    public long getLagVersions() {
+        return Math.max(0, primaryVersion - catalog.getVersion());
+    }
+
+    /**
+     * @return milliseconds since the last message from the primary
+     */
+    public long getMillisSinceContact() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastContactNanos);
+    }
+
+    /**
+     * @return the replication counters, named for the server's stats
+     */
+    public Map<String, Number> toMap() {
+        Map<String, Number> stats = new LinkedHashMap<>();
+        stats.put("replication.connected", connected ? 1 : 0);
+        stats.put("replication.version", catalog.getVersion());
+        stats.put("replication.primaryVersion", primaryVersion);
+        stats.put("replication.lagVersions", getLagVersions());
+        stats.put("replication.millisSinceContact", getMillisSinceContact());
+        stats.put("replication.snapshots", snapshots);
+        stats.put("replication.batches", batches);
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Replicator[primary=%s:%d, version=%d, lagVersions=%d, millisSinceContact=%d]",
+                host, port, catalog.getVersion(), getLagVersions(), getMillisSinceContact());
+    }
+}
@@ -0,0 +1,33 @@
+package edu.sdccd.cisc191.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for one request, from the server having read it
+ * to having written its response: the same span {@link ServerStats} records
+ * as the request's latency. Its {@link RequestPhaseEvent}s show where
+ * inside that span the time went.
+ */
+@Name("edu.sdccd.cisc191.template.Request")
+@Label("Request")
+@Category({"Broken Arrow", "Server"})
+@Description("Answering one request, including waiting for admission")
+@StackTrace(false)
+@Threshold("1 ms")
+class RequestEvent extends Event {
+    @Label("Request Type")
+    String requestType;
+
+    @Label("Client")
+    String client;
+
+    @Label("Rejected")
+    @Description("Whether admission control refused the request")
+    boolean rejected;
+}
@@ -0,0 +1,232 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps unit and list responses already encoded in every {@link MessageFormat},
+ * so a cache hit is answered by copying bytes to the socket with no
+ * serialization at all.
+ *
+ * Entries belong to one catalog snapshot. When the catalog version changes the
+ * whole cache is dropped and entries are rebuilt lazily as they are requested
+ * again. Responses that are not cached (unknown types, name ranges, and
+ * lists longer than {@link #MAX_CACHED_LIST_UNITS}) are encoded on every
+ * request and counted as misses. A list that long is better read in pages
+ * through a {@link CursorRegistry}; caching it would keep a copy of most of
+ * the catalog per format for the rare client that asks for it whole.
+ *
+ * Each generation also builds, once per format, the preset dictionary that
+ * connections asking for compression are given.
+ */
+public class ResponseCache {
+    /** How many units the compression dictionary's sample message holds. */
+    private static final int DICTIONARY_SAMPLE_UNITS = 16;
+    /** The longest list whose encoded response is kept. */
+    public static final int MAX_CACHED_LIST_UNITS = 10_000;
+
+    private final UnitCatalog catalog;
+    private volatile Generation generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    public ResponseCache(UnitCatalog catalog) {
+        this.catalog = catalog;
+        this.generation = new Generation(catalog.snapshot());
+    }
+
+    /**
+     * Returns the encoded response to a {@link RequestType#UNIT} or
+     * {@link RequestType#LIST} request.
+     *
+     * @param request the request to answer
+     * @param format  the encoding the connection uses
+     * @return the complete encoded message, or null if the requested unit does not exist
+     * @throws IOException if a response cannot be encoded
+     */
+    public byte[] lookup(CustomerRequest request, MessageFormat format) throws IOException {
+        Generation gen = current();
+        UnitCatalog.Snapshot snapshot = gen.snapshot;
+        Entry entry;
+        if (request.getType() == RequestType.UNIT) {
+            Unit unit = snapshot.get(request.getUnitName());
+            if (unit == null) {
+                return null;
+            }
+            entry = gen.units.computeIfAbsent(unit.getUnitName(), name -> new Entry(snapshot.getVersion(), List.of(unit)));
+        } else if (request.getFromName() != null || request.getToName() != null) {
+            // Ranges are too varied to be worth caching
+            misses.increment();
+            return format.encode(CustomerResponse.units(snapshot.getVersion(),
+                    snapshot.range(request.getUnitType(), request.getFromName(), request.getToName())));
+        } else if (request.getUnitType() == null) {
+            if (snapshot.size() > MAX_CACHED_LIST_UNITS) {
+                return uncached(snapshot, snapshot.getUnits(), format);
+            }
+            entry = gen.all;
+        } else if (snapshot.hasType(request.getUnitType())) {
+            entry = gen.lists.get(request.getUnitType());
+            if (entry == null) {
+                List<Unit> units = snapshot.list(request.getUnitType());
+                if (units.size() > MAX_CACHED_LIST_UNITS) {
+                    return uncached(snapshot, units, format);
+                }
+                entry = gen.lists.computeIfAbsent(request.getUnitType(), type -> new Entry(snapshot.getVersion(), units));
+            }
+        } else {
+            return uncached(snapshot, List.of(), format);
+        }
+        return entry.encoded(format);
+    }
+
+    private byte[] uncached(UnitCatalog.Snapshot snapshot, List<Unit> units, MessageFormat format) throws IOException {
+        misses.increment();
+        return format.encode(CustomerResponse.units(snapshot.getVersion(), units));
+    }
+
+    /**
+     * Returns a preset compression dictionary for the current catalog: one
+     * encoded sample message, so field names and structure are covered, then
+     * the strings the catalog repeats, least common first so the most common
+     * sit nearest the data and get the shortest back-references.
+     *
+     * @param format the encoding the connection uses
+     * @return the dictionary, at most {@link MessageCompressor#MAX_DICTIONARY_LENGTH} bytes
+     * @throws IOException if the sample cannot be encoded
+     */
+    public byte[] dictionary(MessageFormat format) throws IOException {
+        Generation gen = current();
+        byte[] dictionary = gen.dictionaries.get(format.ordinal());
+        if (dictionary == null) {
+            dictionary = buildDictionary(gen.snapshot, format);
+            gen.dictionaries.set(format.ordinal(), dictionary);
+        }
+        return dictionary;
+    }
+
+    private static byte[] buildDictionary(UnitCatalog.Snapshot snapshot, MessageFormat format) throws IOException {
+        List<Unit> units = snapshot.getUnits();
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Unit> sampleByType = new LinkedHashMap<>();
+        for (Unit unit : units) {
+            for (String s : new String[]{unit.getUnitType(), unit.getSpecialization(), unit.getAbilities()}) {
+                if (s != null && !s.isEmpty()) {
+                    counts.merge(s, 1, Integer::sum);
+                }
+            }
+            sampleByType.putIfAbsent(unit.getUnitType(), unit);
+        }
+        // One unit of every type first, then others spread across the catalog
+        List<Unit> sample = new ArrayList<>(sampleByType.values());
+        int step = Math.max(1, units.size() / DICTIONARY_SAMPLE_UNITS);
+        for (int i = 0; i < units.size() && sample.size() < DICTIONARY_SAMPLE_UNITS; i += step) {
+            if (!sample.contains(units.get(i))) {
+                sample.add(units.get(i));
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(format.encode(CustomerResponse.units(snapshot.getVersion(), sample)));
+        List<Map.Entry<String, Integer>> strings = new ArrayList<>(counts.entrySet());
+        strings.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Integer> string : strings) {
+            out.write(string.getKey().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] dictionary = out.toByteArray();
+        // DEFLATE only sees the last 32 KiB, which hold the most common strings
+        int max = MessageCompressor.MAX_DICTIONARY_LENGTH;
+        return dictionary.length <= max ? dictionary
+                : Arrays.copyOfRange(dictionary, dictionary.length - max, dictionary.length);
+    }
+
+    private Generation current() {
+        Generation gen = generation;
+        UnitCatalog.Snapshot snapshot = catalog.snapshot();
+        if (gen.snapshot != snapshot) {
+            // Racing threads may each build a generation; the loser's entries are simply dropped
+            gen = new Generation(snapshot);
+            generation = gen;
+            rebuilds.increment();
+        }
+        return gen;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return how many times the cache was dropped because the catalog changed
+     */
+    public long getRebuilds() {
+        return rebuilds.sum();
+    }
+
+    /**
+     * @return hits divided by all lookups, or 0 before the first lookup
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResponseCache[hits=%d, misses=%d, hitRatio=%.3f, rebuilds=%d]",
+                getHits(), getMisses(), getHitRatio(), getRebuilds());
+    }
+
+    // All cached entries for one catalog snapshot
+    private final class Generation {
+        final UnitCatalog.Snapshot snapshot;
+        final ConcurrentHashMap<String, Entry> units = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, Entry> lists = new ConcurrentHashMap<>();
+        final Entry all;
+        final AtomicReferenceArray<byte[]> dictionaries = new AtomicReferenceArray<>(MessageFormat.values().length);
+
+        Generation(UnitCatalog.Snapshot snapshot) {
+            this.snapshot = snapshot;
+            this.all = new Entry(snapshot.getVersion(), snapshot.getUnits());
+        }
+    }
+
+    // One response, encoded on first use in each format
+    private final class Entry {
+        final CustomerResponse response;
+        final AtomicReferenceArray<byte[]> encoded = new AtomicReferenceArray<>(MessageFormat.values().length);
+
+        Entry(long version, List<Unit> units) {
+            this.response = CustomerResponse.units(version, units);
+        }
+
+        byte[] encoded(MessageFormat format) throws IOException {
+            byte[] bytes = encoded.get(format.ordinal());
+            if (bytes != null) {
+                hits.increment();
+                return bytes;
+            }
+            misses.increment();
+            // Two threads may both encode on a miss; the arrays are identical, so either may win
+            bytes = format.encode(response);
+            encoded.set(format.ordinal(), bytes);
+            return bytes;
+        }
+    }
+}
@@ -1,68 +1,276 @@
 package edu.sdccd.cisc191.template;
 
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
 import java.net.*;
 import java.io.*;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This program is a server that takes connection requests on
- * the port specified by the constant LISTENING_PORT.  When a
- * connection is opened, the program sends the current time to
- * the connected socket.  The program will continue to receive
- * and process connections until it is killed (by a CONTROL-C,
- * for example).  Note that this server processes each connection
- * as it is received, rather than creating a separate thread
- * to process the connection.
+ * the port given to {@link #start(int)}.  Each connection is
+ * served by a {@link ClientConnection} on its own thread, and
+ * the requests from all connections are executed by the
+ * {@link AdmissionController}, which bounds how much work the
+ * server accepts at once.  The program will continue to receive
+ * and process connections until it is stopped or killed (by a
+ * CONTROL-C, for example).
  */
 public class Server {
-    private ServerSocket serverSocket;
-    private Socket clientSocket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private final UnitCatalog catalog;
+    private final ResponseCache responseCache;
+    private final CursorRegistry cursors;
+    private final AdmissionController admissionController;
+    private final ServerStats stats = new ServerStats();
+    private volatile Path statsFile;
+    private volatile Replicator replicator;
+    private volatile long injectedDelayMillis;
+    private volatile double injectedDelayProbability;
+    /** How long a client should wait before retrying a read the catalog is too old for. */
+    private static final long STALE_RETRY_MILLIS = 50;
+    /**
+     * The smallest encoded response worth compressing. Single units stay below
+     * it, so point lookups pay only a length check.
+     */
+    static final int COMPRESSION_THRESHOLD = 1024;
+    /** Classpath location of the Flight Recorder settings for the server's own events. */
+    public static final String RECORDING_SETTINGS = "/broken-arrow.jfc";
+
+    private final Set<ClientConnection> connections = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket serverSocket;
 
     /**
-     * Starts the server on the specified port.
-     * Waits for a client connection and processes input lines, responding in JSON.
-     * Handles all IO exceptions and logs errors. The server runs in a blocking
-     * manner until the client disconnects or an error occurs.
+     * Creates a server that answers unit queries from the given catalog,
+     * with the default admission limits.
+     *
+     * @param catalog the units to serve
+     */
+    public Server(UnitCatalog catalog) {
+        this(catalog, new AdmissionController());
+    }
+
+    /**
+     * Creates a server that answers unit queries from the given catalog.
+     *
+     * @param catalog             the units to serve
+     * @param admissionController limits how many requests the server accepts
+     */
+    public Server(UnitCatalog catalog, AdmissionController admissionController) {
+        this.catalog = catalog;
+        this.responseCache = new ResponseCache(catalog);
+        this.cursors = new CursorRegistry(catalog);
+        this.admissionController = admissionController;
+    }
+
+    public UnitCatalog getCatalog() {
+        return catalog;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    public ServerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Makes this server a read replica: its catalog is fed by the given
+     * replicator, whose state is added to the server's stats.
+     *
+     * @param replicator the replicator feeding the catalog
+     */
+    public void setReplicator(Replicator replicator) {
+        this.replicator = replicator;
+    }
+
+    /**
+     * @return every counter the server reports, by name
+     */
+    public Map<String, Number> statsMap() {
+        Map<String, Number> map = stats.toMap(responseCache, admissionController);
+        map.putAll(cursors.toMap());
+        Replicator r = replicator;
+        if (r != null) {
+            map.putAll(r.toMap());
+        }
+        return map;
+    }
+
+    /**
+     * Sets the file the server's stats are written to when it stops.
+     *
+     * @param statsFile the file to write, or null to not write one
+     */
+    public void setStatsFile(Path statsFile) {
+        this.statsFile = statsFile;
+    }
+
+    /**
+     * Makes some requests wait before they are answered, to imitate a server
+     * that stalls now and then, as in a garbage collection pause. For testing
+     * how clients cope with a slow server; off by default.
+     *
+     * @param millis      how long a delayed request waits
+     * @param probability the fraction of requests that are delayed, from 0 to 1
+     */
+    public void setInjectedDelay(long millis, double probability) {
+        this.injectedDelayMillis = millis;
+        this.injectedDelayProbability = probability;
+    }
+
+    /**
+     * Starts the server on the specified port and accepts connections until
+     * {@link #stop()} is called. Handles all IO exceptions and logs errors.
      *
      * @param port The port number to listen on
      */
     public void start(int port) throws Exception {
+        bind(port);
+        serve();
+    }
+
+    /**
+     * Opens the listening socket without accepting connections yet.
+     *
+     * @param port The port number to listen on, or 0 for any free port
+     * @return the port the server is listening on
+     * @throws IOException if the port cannot be opened
+     */
+    public int bind(int port) throws IOException {
+        serverSocket = new ServerSocket(port);
+        System.out.println("Server started, listening on port " + serverSocket.getLocalPort());
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections on the socket opened by {@link #bind(int)} until
+     * {@link #stop()} is called, serving each one on a new virtual thread.
+     */
+    public void serve() {
         try {
-            serverSocket = new ServerSocket(port);
-            System.out.println("Server started, listening on port " + port);
-            clientSocket = serverSocket.accept();
-            System.out.println("Client connected from " + clientSocket.getInetAddress());
-
-            out = new PrintWriter(clientSocket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                try {
-                    CustomerRequest request = CustomerRequest.fromJSON(inputLine);
-                    CustomerResponse response = new CustomerResponse(request.getId(), "Jane", "Doe");
-                    out.println(CustomerResponse.toJSON(response));
-                } catch (Exception reqEx) {
-                    // Handles invalid JSON or processing errors per request
-                    System.err.println("Failed to process request: " + reqEx.getMessage());
-                    out.println("{\"error\": \"Invalid request format\"}");
-                }
+            while (!serverSocket.isClosed()) {
+                Socket clientSocket = serverSocket.accept();
+                System.out.println("Client connected from " + clientSocket.getInetAddress());
+                ClientConnection connection = new ClientConnection(this, clientSocket);
+                connections.add(connection);
+                Thread.ofVirtual().name("client-" + clientSocket.getPort()).start(connection);
             }
         } catch (IOException e) {
-            // Handles IO errors in server setup or client communication
-            System.err.println("Server error: " + e.getMessage());
+            // Closing the server socket in stop() ends the accept loop this way
+            if (!serverSocket.isClosed()) {
+                System.err.println("Server error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answers one request. Called by a connection on an admission worker thread;
+     * unit and list queries are served from the pre-encoded response cache,
+     * except paged lists, which are served a page at a time through a cursor.
+     * A query that carries a version is refused as busy while the catalog is
+     * older than that version, which on a replica means replication has not
+     * caught up yet; the client can retry or read elsewhere.
+     *
+     * @param request the request to answer
+     * @param out     the connection to write the response to
+     * @throws IOException if the response cannot be written
+     */
+    void handle(CustomerRequest request, MessageWriter out) throws IOException {
+        RequestPhaseEvent event = new RequestPhaseEvent(RequestPhaseEvent.EXECUTE);
+        event.begin();
+        try {
+            execute(request, out);
         } finally {
-            // Ensures resources are closed even if an exception occurs
+            event.finish(request.getType().name(), 0);
+        }
+    }
+
+    private void execute(CustomerRequest request, MessageWriter out) throws IOException {
+        injectDelay();
+        switch (request.getType()) {
+            case UNIT:
+            case LIST:
+                long version = catalog.getVersion();
+                if (request.getVersion() != null && version < request.getVersion()) {
+                    out.write(CustomerResponse.busy("Catalog version " + version
+                            + " is older than requested version " + request.getVersion(), STALE_RETRY_MILLIS));
+                    break;
+                }
+                if (request.getLimit() != null) {
+                    try {
+                        out.write(cursors.page(request));
+                    } catch (ProtocolException e) {
+                        out.write(CustomerResponse.error(e.getMessage()));
+                    }
+                    break;
+                }
+                byte[] encoded = responseCache.lookup(request, out.getFormat());
+                if (encoded == null) {
+                    out.write(CustomerResponse.error("Unknown unit: " + request.getUnitName()));
+                } else {
+                    out.writeEncoded(encoded);
+                }
+                break;
+            case STATS:
+                CustomerResponse response = new CustomerResponse();
+                response.setId(request.getId());
+                response.setStats(statsMap());
+                out.write(response);
+                break;
+            case COMPRESS:
+                // The reply itself goes out plain; everything after it may be compressed
+                byte[] dictionary = responseCache.dictionary(out.getFormat());
+                out.write(CustomerResponse.compression(dictionary));
+                out.enableCompression(dictionary, COMPRESSION_THRESHOLD);
+                break;
+            case PING:
+                CustomerResponse pong = new CustomerResponse();
+                pong.setId(request.getId());
+                out.write(pong);
+                break;
+            default:
+                out.write(new CustomerResponse(request.getId(), "Jane", "Doe"));
+        }
+    }
+
+    private void injectDelay() {
+        long millis = injectedDelayMillis;
+        if (millis > 0 && ThreadLocalRandom.current().nextDouble() < injectedDelayProbability) {
             try {
-                stop();
-            } catch (IOException stopEx) {
-                System.err.println("Error closing server: " + stopEx.getMessage());
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
     }
 
+    void connectionClosed(ClientConnection connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * @return the number of client connections currently open
+     */
+    public int getActiveConnections() {
+        return connections.size();
+    }
+
     /**
      * Stops the server by closing all open resources.
      * Handles exceptions on close gracefully and logs any issues.
@@ -70,35 +278,185 @@ public class Server {
      * @throws IOException if an error occurs during closing of sockets or streams
      */
     public void stop() throws IOException {
-        if (in != null) {
-            try { in.close(); } catch (IOException e) { System.err.println("Error closing input: " + e.getMessage()); }
+        if (serverSocket != null && !serverSocket.isClosed()) {
+            try { serverSocket.close(); } catch (IOException e) { System.err.println("Error closing server socket: " + e.getMessage()); }
         }
-        if (out != null) {
-            out.close(); // PrintWriter's close does not throw checked exceptions
+        for (ClientConnection connection : connections) {
+            connection.close();
         }
-        if (clientSocket != null && !clientSocket.isClosed()) {
-            try { clientSocket.close(); } catch (IOException e) { System.err.println("Error closing client socket: " + e.getMessage()); }
+        admissionController.shutdown();
+        if (replicator != null) {
+            replicator.stop();
         }
-        if (serverSocket != null && !serverSocket.isClosed()) {
-            try { serverSocket.close(); } catch (IOException e) { System.err.println("Error closing server socket: " + e.getMessage()); }
+        System.out.println("Server stopped. " + responseCache + " " + admissionController);
+        if (statsFile != null) {
+            try {
+                ServerStats.dump(statsFile, statsMap());
+            } catch (IOException e) {
+                System.err.println("Error writing stats to " + statsFile + ": " + e.getMessage());
+            }
         }
-        System.out.println("Server stopped.");
     }
 
     /**
-     * Main entry point. Starts the server on port 4444.
+     * @return the JDK's default Flight Recorder settings with those in
+     * {@value #RECORDING_SETTINGS} on top, which turn on the server's own events
+     * @throws IOException if the settings cannot be read
+     */
+    static Map<String, String> recordingSettings() throws IOException {
+        Map<String, String> settings;
+        try {
+            settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+            try (Reader reader = new InputStreamReader(
+                    Server.class.getResourceAsStream(RECORDING_SETTINGS), StandardCharsets.UTF_8)) {
+                settings.putAll(Configuration.create(reader).getSettings());
+            }
+        } catch (ParseException e) {
+            throw new IOException("Invalid Flight Recorder settings", e);
+        }
+        return settings;
+    }
+
+    /**
+     * Starts recording with {@link #recordingSettings()}. The recording is
+     * written to the file when the JVM exits.
+     *
+     * @param file the .jfr file to write
+     * @throws IOException if the settings cannot be read or the file cannot be written
+     */
+    static void startRecording(Path file) throws IOException {
+        Recording recording = new Recording(recordingSettings());
+        recording.setName("server");
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        System.out.println("Flight Recorder is recording to " + file);
+    }
+
+    /**
+     * Selects the units one node of a cluster serves. Nodes are named by their
+     * {@code host:port} addresses, and each unit belongs to the node its name
+     * hashes to on a {@link ConsistentHashRing}, the same ring clients route by.
+     *
+     * @param units   every unit
+     * @param cluster the addresses of all nodes, comma-separated
+     * @param self    this node's address as the cluster lists it, or null to find
+     *                it by port, which only works if no other node has the same port
+     * @param port    this node's port
+     * @return the units this node owns
+     * @throws IllegalArgumentException if this node's address is not in the cluster,
+     *                                  or several nodes have its port and self is not given
+     */
+    static List<Unit> partition(List<Unit> units, String cluster, String self, int port) {
+        List<String> nodes = new ArrayList<>();
+        for (String node : cluster.split(",")) {
+            if (!node.isBlank()) {
+                nodes.add(node.trim());
+            }
+        }
+        if (self != null) {
+            self = self.trim();
+            if (!nodes.contains(self)) {
+                throw new IllegalArgumentException(self + " is not in cluster " + cluster);
+            }
+        } else {
+            List<String> matches = nodes.stream().filter(node -> node.endsWith(":" + port)).toList();
+            if (matches.size() != 1) {
+                throw new IllegalArgumentException((matches.isEmpty() ? "No node" : "More than one node")
+                        + " in cluster " + cluster + " has port " + port + "; set cluster.self to this node's address");
+            }
+            self = matches.get(0);
+        }
+        return new ConsistentHashRing(nodes).partition(units, Unit::getUnitName, self);
+    }
+
+    /**
+     * Main entry point. Loads the bundled unit stats and starts the server on the
+     * port given by the {@code server.port} system property, 4444 by default.
+     * When {@code cluster.nodes} lists the {@code host:port} addresses of several
+     * servers, this one serves only its own partition of the units; it finds
+     * its own address by its port, or from {@code cluster.self} when several
+     * nodes share a port. When
+     * {@code replica.of} gives a primary's {@code host:port}, this server is a
+     * read replica that starts empty and copies the primary's catalog.
+     * Performance stats are written on shutdown to the file named by the
+     * {@code server.statsFile} system property, server-stats.txt by default.
+     * For resilience testing, {@code server.delayMillis} and
+     * {@code server.delayProbability} make a fraction of requests stall.
+     * When {@code server.recording} names a file, a Flight Recorder recording
+     * of the JVM and the server's own events is written to it on shutdown.
+     * When {@code server.editLog} names a directory, the catalog is recovered
+     * from the {@link UnitEditLog} kept there, starting from the bundled
+     * units the first time.
+     * Admission is limited by {@code server.workers} (one per processor),
+     * {@code server.queueCapacity} (256), {@code server.ratePerSecond} per
+     * client address (1000) and {@code server.burst} (200); setting any of
+     * them to 0 lifts that limit.
      * Handles and logs any exceptions encountered during server execution.
      *
      * @param args Command line arguments (not used)
      */
 
     public static void main(String[] args) {
-        Server server = new Server();
+        int port = Integer.getInteger("server.port", 4444);
+        String recordingFile = System.getProperty("server.recording");
+        if (recordingFile != null) {
+            try {
+                startRecording(Path.of(recordingFile));
+            } catch (IOException e) {
+                System.err.println("Error starting Flight Recorder: " + e.getMessage());
+            }
+        }
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        String cluster = System.getProperty("cluster.nodes");
+        if (cluster != null) {
+            units = partition(units, cluster, System.getProperty("cluster.self"), port);
+        }
+        String primary = System.getProperty("replica.of");
+        String editLogDirectory = System.getProperty("server.editLog");
+        UnitEditLog editLog = null;
+        if (primary == null && editLogDirectory != null) {
+            try {
+                editLog = UnitEditLog.open(Path.of(editLogDirectory), units);
+            } catch (IOException e) {
+                System.err.println("Error opening edit log " + editLogDirectory + ": " + e.getMessage());
+                return;
+            }
+        }
+        AdmissionController admissionController = new AdmissionController(
+                Integer.getInteger("server.workers", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("server.queueCapacity", AdmissionController.DEFAULT_QUEUE_CAPACITY),
+                Double.parseDouble(System.getProperty("server.ratePerSecond",
+                        String.valueOf(AdmissionController.DEFAULT_PERMITS_PER_SECOND))),
+                Integer.getInteger("server.burst", AdmissionController.DEFAULT_BURST));
+        Server server = new Server(editLog != null ? editLog.getCatalog()
+                : primary == null ? new UnitCatalog(units) : UnitCatalog.replica(), admissionController);
+        if (primary != null) {
+            int colon = primary.lastIndexOf(':');
+            Replicator replicator = new Replicator(server.getCatalog(),
+                    primary.substring(0, colon), Integer.parseInt(primary.substring(colon + 1)));
+            server.setReplicator(replicator);
+            Thread.ofPlatform().daemon().name("replicator").start(replicator);
+        }
+        server.setStatsFile(Path.of(System.getProperty("server.statsFile", "server-stats.txt")));
+        server.setInjectedDelay(Long.getLong("server.delayMillis", 0),
+                Double.parseDouble(System.getProperty("server.delayProbability", "1")));
+        UnitEditLog log = editLog;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+                if (log != null) {
+                    log.close();
+                    System.out.println(log);
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing server: " + e.getMessage());
+            }
+        }));
         try {
-            server.start(4444);
-            server.stop();
+            server.start(port);
         } catch(Exception e) {
             e.printStackTrace();
         }
     }
-} //end class Server
+} //end class Server
\ No newline at end of file
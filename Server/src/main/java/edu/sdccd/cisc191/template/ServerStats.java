@@ -0,0 +1,185 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Performance counters for a running {@link Server}: a latency histogram per
+ * request type, bytes read and written, and connection counts.
+ *
+ * Everything on the request path is a striped atomic update, so recording is
+ * lock-free and costs a few tens of nanoseconds per request. The counters are
+ * read back through a {@link RequestType#STATS} request or written to a file
+ * when the server stops.
+ */
+public class ServerStats {
+    private final long startNanos = System.nanoTime();
+    private final Map<RequestType, LatencyHistogram> latencies = new EnumMap<>(RequestType.class);
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+
+    public ServerStats() {
+        for (RequestType type : RequestType.values()) {
+            latencies.put(type, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Records how long one request took, from being read off the socket to its
+     * response being written, including any time spent queued for a worker.
+     *
+     * @param type  the request's type
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordLatency(RequestType type, long nanos) {
+        latencies.get(type).recordNanos(nanos);
+    }
+
+    public void connectionOpened() {
+        connectionsOpened.increment();
+    }
+
+    public void connectionClosed() {
+        connectionsClosed.increment();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getActiveConnections() {
+        return connectionsOpened.sum() - connectionsClosed.sum();
+    }
+
+    public long getTotalConnections() {
+        return connectionsOpened.sum();
+    }
+
+    public LatencyHistogram.Snapshot getLatency(RequestType type) {
+        return latencies.get(type).snapshot();
+    }
+
+    /**
+     * Wraps a socket's input so the bytes read from it are counted.
+     *
+     * @param in the stream to count
+     * @return the counting stream
+     */
+    InputStream countIn(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesIn.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesIn.add(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Wraps a socket's output so the bytes written to it are counted.
+     *
+     * @param out the stream to count
+     * @return the counting stream
+     */
+    OutputStream countOut(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesOut.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                // FilterOutputStream would write the array one byte at a time
+                out.write(b, off, len);
+                bytesOut.add(len);
+            }
+        };
+    }
+
+    /**
+     * Collects every counter under a stable name. Latencies are in microseconds
+     * and throughput in requests per second since the server started.
+     *
+     * @param cache     the server's response cache
+     * @param admission the server's admission controller
+     * @return the counters, in reporting order
+     */
+    public Map<String, Number> toMap(ResponseCache cache, AdmissionController admission) {
+        Map<String, Number> stats = new LinkedHashMap<>();
+        double uptimeSeconds = (System.nanoTime() - startNanos) / 1e9;
+        stats.put("uptimeSeconds", uptimeSeconds);
+        for (RequestType type : RequestType.values()) {
+            LatencyHistogram.Snapshot latency = latencies.get(type).snapshot();
+            if (latency.getCount() == 0) {
+                continue;
+            }
+            String prefix = type.wireName().getValue() + ".";
+            stats.put(prefix + "count", latency.getCount());
+            stats.put(prefix + "perSecond", latency.getCount() / uptimeSeconds);
+            stats.put(prefix + "p50Micros", latency.getMicrosAtPercentile(50));
+            stats.put(prefix + "p99Micros", latency.getMicrosAtPercentile(99));
+            stats.put(prefix + "p999Micros", latency.getMicrosAtPercentile(99.9));
+            stats.put(prefix + "maxMicros", latency.getMaxNanos() / 1e3);
+        }
+        stats.put("bytesIn", getBytesIn());
+        stats.put("bytesOut", getBytesOut());
+        stats.put("connections.active", getActiveConnections());
+        stats.put("connections.total", getTotalConnections());
+        stats.put("cache.hits", cache.getHits());
+        stats.put("cache.misses", cache.getMisses());
+        stats.put("cache.rebuilds", cache.getRebuilds());
+        stats.put("admission.admitted", admission.getAdmitted());
+        stats.put("admission.rejectedOverloaded", admission.getRejectedOverloaded());
+        stats.put("admission.rejectedRateLimited", admission.getRejectedRateLimited());
+        stats.put("admission.queueDepth", admission.getQueueDepth());
+        stats.put("admission.avgQueueDelayMicros", admission.getAverageQueueDelayMicros());
+        stats.put("admission.maxQueueDelayMicros", admission.getMaxQueueDelayMicros());
+        return stats;
+    }
+
+    /**
+     * Writes counters to a file, one {@code name = value} line each.
+     *
+     * @param file  the file to write, replacing any previous contents
+     * @param stats the counters, as from {@link #toMap}
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(Path file, Map<String, Number> stats) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Number> stat : stats.entrySet()) {
+                writer.println(stat.getKey() + " = " + stat.getValue());
+            }
+        }
+    }
+}
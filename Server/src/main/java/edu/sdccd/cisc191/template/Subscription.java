@@ -0,0 +1,143 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * One client's feed of catalog changes.
+ *
+ * The catalog hands each change to {@link #accept(UnitDelta)} while it holds
+ * its lock, so this must never wait on the client. Changes are buffered per
+ * unit instead: a unit that changes again before the client has been sent
+ * the previous change gets one combined delta. The buffer therefore never
+ * holds more entries than there are units, and a subscriber that falls
+ * further behind than {@code capacity} distinct units is switched to a full
+ * snapshot rather than growing the buffer. A slow client only ever slows
+ * down its own connection.
+ *
+ * When nothing changes for a while an empty update is sent as a heartbeat,
+ * so a subscriber can tell an idle catalog from a lost connection. Every
+ * update also carries the catalog's version when it was sent, so a
+ * subscriber can tell how far behind it is.
+ */
+class Subscription implements Consumer<UnitDelta> {
+    private final UnitCatalog catalog;
+    private final int capacity;
+    private final long heartbeatNanos;
+    private final Map<String, UnitDelta> pending = new LinkedHashMap<>();
+    private long version;
+    private boolean resync;
+    private boolean acknowledged;
+    private boolean closed;
+    private long coalesced;
+
+    /**
+     * @param catalog         the catalog to follow
+     * @param capacity        the most units with changes waiting before the subscriber is resynchronized
+     * @param heartbeatMillis how long to wait for a change before sending an empty update
+     */
+    Subscription(UnitCatalog catalog, int capacity, long heartbeatMillis) {
+        this.catalog = catalog;
+        this.capacity = capacity;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+    }
+
+    /**
+     * Starts following the catalog after the given version.
+     *
+     * @param fromVersion the last version the client has applied
+     */
+    void start(long fromVersion) {
+        synchronized (this) {
+            version = fromVersion;
+        }
+        if (!catalog.subscribe(fromVersion, this)) {
+            synchronized (this) {
+                resync = true;
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void accept(UnitDelta delta) {
+        if (closed || resync || delta.getVersion() <= version) {
+            // A pending snapshot, or the update already sent, includes this change
+            return;
+        }
+        UnitDelta previous = pending.get(delta.getUnitName());
+        if (previous != null) {
+            pending.put(delta.getUnitName(), previous.coalesce(delta));
+            coalesced++;
+        } else if (pending.size() >= capacity) {
+            pending.clear();
+            resync = true;
+        } else {
+            pending.put(delta.getUnitName(), delta);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Waits for the next update to send. The first update is sent straight
+     * away, so the client learns the subscription is live and which version
+     * it starts from.
+     *
+     * @return either the whole catalog or the changes since the last update,
+     *         which are empty for a heartbeat; or null once the subscription is closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized CustomerResponse take() throws InterruptedException {
+        long deadline = System.nanoTime() + heartbeatNanos;
+        long remaining;
+        while (!closed && !resync && acknowledged && pending.isEmpty()
+                && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        if (closed) {
+            return null;
+        }
+        acknowledged = true;
+        if (resync) {
+            resync = false;
+            UnitCatalog.Snapshot snapshot = catalog.snapshot();
+            // Changes the snapshot already contains need not be sent again
+            pending.values().removeIf(delta -> delta.getVersion() <= snapshot.getVersion());
+            version = snapshot.getVersion();
+            return withHead(CustomerResponse.units(version, snapshot.getUnits()));
+        }
+        List<UnitDelta> deltas = new ArrayList<>(pending.values());
+        pending.clear();
+        for (UnitDelta delta : deltas) {
+            version = Math.max(version, delta.getVersion());
+        }
+        return withHead(CustomerResponse.deltas(version, deltas));
+    }
+
+    private CustomerResponse withHead(CustomerResponse update) {
+        update.setHeadVersion(Math.max(version, catalog.getVersion()));
+        return update;
+    }
+
+    /**
+     * Stops following the catalog and wakes a thread waiting in {@link #take()}.
+     */
+    void close() {
+        catalog.unsubscribe(this);
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return how many changes were merged into an earlier change still waiting to be sent
+     */
+    synchronized long getCoalesced() {
+        return coalesced;
+    }
+}
@@ -0,0 +1,59 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket rate limiter. The bucket holds up to {@code burst} tokens and
+ * refills at {@code permitsPerSecond}; every admitted request takes one token.
+ * Refilling is computed from the elapsed time on each call, so an idle bucket
+ * costs nothing.
+ */
+public class TokenBucket {
+    private final double permitsPerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond the sustained rate; must be positive
+     * @param burst            how many requests may arrive back to back after an idle period
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes one token if one is available.
+     *
+     * @return true if the request may proceed
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return how long until the next token is available, at least one millisecond
+     */
+    public synchronized long millisUntilNextToken() {
+        refill();
+        double missing = 1 - tokens;
+        if (missing <= 0) {
+            return 1;
+        }
+        return Math.max(1, (long) Math.ceil(missing / permitsPerNano / TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
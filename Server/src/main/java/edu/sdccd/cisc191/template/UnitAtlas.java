@@ -0,0 +1,330 @@
+package edu.sdccd.cisc191.template;
+
+import javafx.geometry.Rectangle2D;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Every unit's artwork packed into a few large pages, plus a manifest that
+ * says where on which page each unit's sprite is. The GUI decodes a page
+ * once and shows any unit on it by setting an ImageView's viewport to the
+ * unit's sprite, so showing hundreds of units reads a handful of files
+ * instead of one per unit.
+ *
+ * A unit's artwork is the file in {@value #SOURCE_DIRECTORY} named after the
+ * unit's {@link #slug(String) slug}, such as "t14_armata.png" for
+ * "T-14 Armata", so a new unit gets its image by adding a file rather than
+ * changing code. Sprites are scaled down to fit a detail panel, which is the
+ * largest size they are shown at.
+ *
+ * Packing reads and scales every source image, so it is done once: the
+ * first time the atlas is opened for a set of units, or ahead of time with
+ * {@link #main}. The pages and manifest are written to a directory that
+ * later runs read back. The manifest records a fingerprint of the unit
+ * names it was packed for, and the atlas is packed again when the units
+ * change. After changing the artwork of an existing unit, delete the
+ * directory.
+ */
+public final class UnitAtlas {
+    /** The classpath directory unit artwork is packed from. */
+    public static final String SOURCE_DIRECTORY = "/images/";
+    /** The default directory the atlas is written to and read from. */
+    public static final Path DEFAULT_DIRECTORY =
+            Path.of(System.getProperty("gui.atlasDir", System.getProperty("user.home") + "/.broken-arrow/atlas"));
+    /** The width and height of a page. */
+    static final int PAGE_SIZE = 1024;
+    /** Sprites are scaled down to fit within this size. */
+    static final int MAX_SPRITE_WIDTH = 300;
+    static final int MAX_SPRITE_HEIGHT = 260;
+    /** Empty pixels around each sprite, so smoothing at its edges never samples a neighbor. */
+    private static final int PADDING = 2;
+    private static final String MANIFEST = "manifest.properties";
+
+    /**
+     * Where one unit's image is in the atlas.
+     *
+     * @param page   the page's index
+     * @param x      the sprite's left edge on the page
+     * @param y      the sprite's top edge on the page
+     * @param width  the sprite's width
+     * @param height the sprite's height
+     */
+    public record Sprite(int page, int x, int y, int width, int height) {
+        /**
+         * @return the part of the page to show in an ImageView
+         */
+        public Rectangle2D viewport() {
+            return new Rectangle2D(x, y, width, height);
+        }
+    }
+
+    private final Path directory;
+    private final List<String> pages;
+    private final Map<String, Sprite> sprites;
+    private final boolean packed;
+
+    private UnitAtlas(Path directory, List<String> pages, Map<String, Sprite> sprites, boolean packed) {
+        this.directory = directory;
+        this.pages = pages;
+        this.sprites = sprites;
+        this.packed = packed;
+    }
+
+    /**
+     * Opens the atlas in a directory, packing it first if the directory has
+     * none or it was packed for different units.
+     *
+     * @param directory where the pages and manifest are kept
+     * @param units     the units that need images
+     * @return the atlas
+     * @throws IOException if the atlas cannot be read, or packed and written
+     */
+    public static UnitAtlas open(Path directory, Collection<Unit> units) throws IOException {
+        String fingerprint = fingerprint(units);
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(manifest)) {
+                properties.load(in);
+            }
+            if (fingerprint.equals(properties.getProperty("fingerprint"))) {
+                return read(directory, properties);
+            }
+        }
+        return pack(directory, units, fingerprint);
+    }
+
+    private static UnitAtlas read(Path directory, Properties properties) throws IOException {
+        try {
+            int pageCount = Integer.parseInt(properties.getProperty("pages"));
+            List<String> pages = new ArrayList<>(pageCount);
+            for (int i = 0; i < pageCount; i++) {
+                pages.add(properties.getProperty("page." + i));
+            }
+            Map<String, Sprite> sprites = new HashMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith("sprite.")) {
+                    String[] fields = properties.getProperty(key).split(",");
+                    sprites.put(key.substring("sprite.".length()), new Sprite(Integer.parseInt(fields[0]),
+                            Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                            Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+                }
+            }
+            return new UnitAtlas(directory, Collections.unmodifiableList(pages), sprites, false);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt atlas manifest in " + directory, e);
+        }
+    }
+
+    // Scales every unit's artwork and lays the sprites out on shelves, tallest first
+    private static UnitAtlas pack(Path directory, Collection<Unit> units, String fingerprint) throws IOException {
+        Map<String, BufferedImage> scaled = new HashMap<>();
+        for (Unit unit : units) {
+            URL source = UnitAtlas.class.getResource(SOURCE_DIRECTORY + slug(unit.getUnitName()) + ".png");
+            if (source != null && !scaled.containsKey(unit.getUnitName())) {
+                BufferedImage image = ImageIO.read(source);
+                if (image == null) {
+                    throw new IOException("Cannot decode " + source);
+                }
+                scaled.put(unit.getUnitName(), scale(image));
+            }
+        }
+
+        List<String> names = new ArrayList<>(scaled.keySet());
+        names.sort((a, b) -> scaled.get(b).getHeight() != scaled.get(a).getHeight()
+                ? scaled.get(b).getHeight() - scaled.get(a).getHeight() : a.compareTo(b));
+
+        Files.createDirectories(directory);
+        List<String> pages = new ArrayList<>();
+        Map<String, Sprite> sprites = new HashMap<>();
+        BufferedImage page = null;
+        Graphics2D graphics = null;
+        int x = 0, y = 0, shelfHeight = 0;
+        for (String name : names) {
+            BufferedImage image = scaled.get(name);
+            int width = image.getWidth() + 2 * PADDING;
+            int height = image.getHeight() + 2 * PADDING;
+            if (page != null && x + width > PAGE_SIZE) {
+                x = 0;
+                y += shelfHeight;
+                shelfHeight = 0;
+            }
+            if (page == null || y + height > PAGE_SIZE) {
+                if (page != null) {
+                    graphics.dispose();
+                    writePage(directory, pages, page);
+                }
+                page = new BufferedImage(PAGE_SIZE, PAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+                graphics = page.createGraphics();
+                x = 0;
+                y = 0;
+                shelfHeight = 0;
+            }
+            graphics.drawImage(image, x + PADDING, y + PADDING, null);
+            sprites.put(name, new Sprite(pages.size(), x + PADDING, y + PADDING, image.getWidth(), image.getHeight()));
+            x += width;
+            shelfHeight = Math.max(shelfHeight, height);
+        }
+        if (page != null) {
+            graphics.dispose();
+            writePage(directory, pages, page);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("fingerprint", fingerprint);
+        properties.setProperty("pages", Integer.toString(pages.size()));
+        for (int i = 0; i < pages.size(); i++) {
+            properties.setProperty("page." + i, pages.get(i));
+        }
+        for (Map.Entry<String, Sprite> entry : sprites.entrySet()) {
+            Sprite s = entry.getValue();
+            properties.setProperty("sprite." + entry.getKey(),
+                    s.page() + "," + s.x() + "," + s.y() + "," + s.width() + "," + s.height());
+        }
+        // The manifest goes last and all at once, so a half-written atlas is never read back
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "Unit image atlas");
+        }
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new UnitAtlas(directory, Collections.unmodifiableList(pages), sprites, true);
+    }
+
+    private static BufferedImage scale(BufferedImage image) {
+        double factor = Math.min(1.0, Math.min((double) MAX_SPRITE_WIDTH / image.getWidth(),
+                (double) MAX_SPRITE_HEIGHT / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private static void writePage(Path directory, List<String> pages, BufferedImage page) throws IOException {
+        String fileName = "atlas-" + pages.size() + ".png";
+        if (!ImageIO.write(page, "png", directory.resolve(fileName).toFile())) {
+            throw new IOException("No PNG writer available");
+        }
+        pages.add(fileName);
+    }
+
+    // A digest of the sorted unit names, so any added, removed or renamed unit repacks the atlas
+    private static String fingerprint(Collection<Unit> units) {
+        List<String> names = new ArrayList<>();
+        for (Unit unit : units) {
+            names.add(unit.getUnitName());
+        }
+        Collections.sort(names);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String name : names) {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * Turns a unit's name into the base name of its artwork file: lowercase,
+     * spaces become underscores and anything else that is not a letter or
+     * digit is dropped.
+     *
+     * @param unitName the unit's name, such as "M1A2 SEP v2 Abrams"
+     * @return its slug, such as "m1a2_sep_v2_abrams"
+     */
+    public static String slug(String unitName) {
+        StringBuilder slug = new StringBuilder(unitName.length());
+        for (char c : unitName.toLowerCase().toCharArray()) {
+            if (c == ' ') {
+                slug.append('_');
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                slug.append(c);
+            }
+        }
+        return slug.toString();
+    }
+
+    /**
+     * @param unitName the unit's name
+     * @return where its image is, or null if it has no artwork
+     */
+    public Sprite sprite(String unitName) {
+        return sprites.get(unitName);
+    }
+
+    /**
+     * @param page a page's index
+     * @return the page's file name within the atlas directory
+     */
+    public String pageFile(int page) {
+        return pages.get(page);
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * @return how many units have a sprite
+     */
+    public int size() {
+        return sprites.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return whether this atlas was packed when opened, rather than read back
+     */
+    public boolean wasPacked() {
+        return packed;
+    }
+
+    /**
+     * Packs the atlas for the units in the bundled CSV ahead of time.
+     *
+     * @param args optionally, the directory to write to instead of {@link #DEFAULT_DIRECTORY}
+     * @throws IOException if the atlas cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Path.of(args[0]) : DEFAULT_DIRECTORY;
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        if (units.isEmpty()) {
+            throw new FileNotFoundException("No units in " + UnitStatsLoader.DEFAULT_RESOURCE);
+        }
+        UnitAtlas atlas = open(directory, units);
+        System.out.printf("%s atlas of %d sprites on %d pages in %s%n",
+                atlas.wasPacked() ? "Packed" : "Reused", atlas.size(), atlas.getPageCount(), directory);
+    }
+}
@@ -1,6 +1,7 @@
 package edu.sdccd.cisc191.template;
 
 import javafx.geometry.Insets;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.Label;
@@ -18,6 +19,10 @@ import javafx.scene.layout.VBox;
 
 public class UnitCard extends VBox
 {
+    // Size the card's picture is shown at; its sprite is cut from a full-size atlas page and scaled down to fit
+    public static final int IMAGE_WIDTH = 120;
+    public static final int IMAGE_HEIGHT = 80;
+
     private ImageView unitImageView;
     private Label unitNameLabel;
     private Label unitTypeLabel;
@@ -35,8 +40,8 @@ public class UnitCard extends VBox
         //Initialize Imageview so Unit stats can have a photo.
         unitImageView = new ImageView();
         unitImageView.setId("unitImageView"); // allows lookup by id
-        unitImageView.setFitWidth(120);
-        unitImageView.setFitHeight(80);
+        unitImageView.setFitWidth(IMAGE_WIDTH);
+        unitImageView.setFitHeight(IMAGE_HEIGHT);
         unitImageView.setPreserveRatio(true);
 
         // Initialize labels so it will display on the application.
@@ -47,8 +52,8 @@ public class UnitCard extends VBox
         statsLabel = new Label();
         abilitiesLabel = new Label();
 
-        // Add labels to the VBox so it will display on application.
-        getChildren().addAll(unitNameLabel, unitTypeLabel, specializationLabel, statsLabel, abilitiesLabel);
+        // Add the picture and labels to the VBox so it will display on application.
+        getChildren().addAll(unitImageView, unitNameLabel, unitTypeLabel, specializationLabel, statsLabel, abilitiesLabel);
     }
 
         // Generates the Strings to label the data types from Unit class to display on applicaiton.
@@ -64,7 +69,14 @@ public class UnitCard extends VBox
 
         //Sets the Image on the Unit's card
     public void setImage(Image image)
+    {
+        setImage(image, null);
+    }
+
+    //Sets the Image on the Unit's card, showing only the viewport's part of it, such as one sprite of an atlas page
+    public void setImage(Image image, Rectangle2D viewport)
     {
         unitImageView.setImage(image);
+        unitImageView.setViewport(viewport);
     }
 }
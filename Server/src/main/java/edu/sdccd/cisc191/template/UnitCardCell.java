@@ -0,0 +1,86 @@
+package edu.sdccd.cisc191.template;
+
+import javafx.concurrent.Task;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.Image;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A list cell that shows its unit as a {@link UnitCard}.
+ *
+ * A ListView only creates enough cells to fill what is visible and hands
+ * them new units as the user scrolls, so the card is built once per cell
+ * and refilled in updateItem rather than rebuilt. Images are sprites cut out
+ * of {@link UnitAtlas} pages kept in the shared {@link ImageCache}, so most
+ * cards reuse a page that is already decoded; a page that is not is loaded
+ * on a background thread and only shown if the cell still shows the same
+ * unit by the time it arrives.
+ */
+public final class UnitCardCell extends ListCell<Unit>
+{
+    private final UnitCard card = new UnitCard();
+    private final ImageCache imageCache;
+    private final Supplier<UnitAtlas> atlas;
+    private final Executor loader;
+
+    /**
+     * @param imageCache where atlas pages are decoded and kept
+     * @param atlas      the atlas of unit images, or null while it is still opening
+     * @param loader     the background threads that decode missing pages
+     */
+    public UnitCardCell(ImageCache imageCache, Supplier<UnitAtlas> atlas, Executor loader)
+    {
+        this.imageCache = imageCache;
+        this.atlas = atlas;
+        this.loader = loader;
+        setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+    }
+
+    @Override
+    protected void updateItem(Unit unit, boolean empty)
+    {
+        super.updateItem(unit, empty);
+        if (empty || unit == null)
+        {
+            setGraphic(null);
+            return;
+        }
+
+        card.setUnit(unit);
+        UnitAtlas current = atlas.get();
+        UnitAtlas.Sprite sprite = current == null ? null : current.sprite(unit.getUnitName());
+        String page = sprite == null ? null : current.pageFile(sprite.page());
+        Image image = page == null ? null : imageCache.getIfPresent(page);
+        card.setImage(image, image == null ? null : sprite.viewport());
+        if (image == null && page != null)
+        {
+            loadPage(unit, page, sprite);
+        }
+        setGraphic(card);
+    }
+
+    private void loadPage(Unit unit, String page, UnitAtlas.Sprite sprite)
+    {
+        Task<Image> pageTask = new Task<>()
+        {
+            @Override
+            protected Image call() throws Exception
+            {
+                return imageCache.get(page);
+            }
+        };
+        // The cell may have been recycled for another unit while the page decoded
+        pageTask.setOnSucceeded(e ->
+        {
+            if (getItem() == unit)
+            {
+                card.setImage(pageTask.getValue(), sprite.viewport());
+            }
+        });
+        pageTask.setOnFailed(e -> System.err.println("Failed to load image " + page + ": " + pageTask.getException().getMessage()));
+        loader.execute(pageTask);
+    }
+}
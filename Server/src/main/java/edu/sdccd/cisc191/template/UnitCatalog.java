@@ -0,0 +1,450 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The set of units the server answers queries from.
+ *
+ * Readers work on immutable {@link Snapshot}s, so a query never sees a
+ * half-applied edit and never takes a lock. Every edit derives a new
+ * snapshot from the current one and publishes it with the next version
+ * number. A derived snapshot shares the bulk of the catalog with the one
+ * before, so an edit costs about the same however many units there are.
+ *
+ * Units handed out by a snapshot are shared and must be treated as
+ * read-only; to change a unit, {@link #put(Unit)} a new instance.
+ *
+ * Each edit is also recorded as a {@link UnitDelta} and handed to the
+ * catalog's subscribers. The most recent deltas are kept so a subscriber
+ * that reconnects can catch up from the version it last saw.
+ */
+public class UnitCatalog {
+    /** How many recent deltas are kept for subscribers that resume. */
+    public static final int DEFAULT_DELTA_LOG_SIZE = 1024;
+
+    private final AtomicReference<Snapshot> current;
+    private final int deltaLogSize;
+    private final ArrayDeque<UnitDelta> deltaLog = new ArrayDeque<>();
+    private final List<Consumer<UnitDelta>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a catalog at version 1. Units without a name, such as the
+     * empty rows at the end of the CSV, are skipped.
+     *
+     * @param units the initial units
+     */
+    public UnitCatalog(List<Unit> units) {
+        this(units, DEFAULT_DELTA_LOG_SIZE);
+    }
+
+    /**
+     * Creates a catalog at version 1 that remembers the given number of
+     * recent changes for subscribers that resume.
+     *
+     * @param units        the initial units
+     * @param deltaLogSize how many deltas to keep
+     */
+    public UnitCatalog(List<Unit> units, int deltaLogSize) {
+        this.deltaLogSize = deltaLogSize;
+        Map<String, Unit> byName = new HashMap<>();
+        for (Unit unit : units) {
+            if (unit.getUnitName() != null && !unit.getUnitName().isBlank()) {
+                byName.put(unit.getUnitName(), unit);
+            }
+        }
+        current = new AtomicReference<>(new Snapshot(1, byName));
+    }
+
+    /**
+     * Creates an empty catalog for a read replica to fill from its primary.
+     * It starts at version 0, which no primary catalog has, so reads that ask
+     * for a minimum version are refused until the first snapshot arrives.
+     *
+     * @return the empty catalog
+     */
+    public static UnitCatalog replica() {
+        UnitCatalog catalog = new UnitCatalog(List.of());
+        catalog.current.set(new Snapshot(0, new HashMap<>()));
+        return catalog;
+    }
+
+    /**
+     * @return the current snapshot; it never changes once returned
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public long getVersion() {
+        return current.get().getVersion();
+    }
+
+    /**
+     * Adds a unit, or replaces the unit with the same name.
+     *
+     * @param unit the unit to store
+     * @return the new catalog version, or the current one if an identical unit is already stored
+     */
+    public synchronized long put(Unit unit) {
+        Snapshot old = current.get();
+        UnitDelta delta = UnitDelta.between(old.version + 1, old.get(unit.getUnitName()), unit);
+        if (delta == null) {
+            return old.version;
+        }
+        return publish(old.with(old.version + 1, Collections.singletonMap(unit.getUnitName(), unit)), List.of(delta));
+    }
+
+    /**
+     * Removes the unit with the given name.
+     *
+     * @param unitName the unit to remove
+     * @return the new catalog version, or the current one if no such unit exists
+     */
+    public synchronized long remove(String unitName) {
+        Snapshot old = current.get();
+        if (old.lookup(unitName) == null) {
+            return old.version;
+        }
+        return publish(old.with(old.version + 1, Collections.singletonMap(unitName, null)),
+                List.of(new UnitDelta(old.version + 1, unitName, null)));
+    }
+
+    /**
+     * Replaces every unit with a snapshot of another catalog, taking on its
+     * version. Used by replicas when they first sync with the primary, or
+     * fall too far behind to catch up from deltas. Subscribers of this
+     * catalog are sent the differences.
+     *
+     * @param version the version of the catalog the units come from
+     * @param units   all of that catalog's units
+     */
+    public synchronized void reset(long version, List<Unit> units) {
+        Snapshot old = current.get();
+        Map<String, Unit> byName = new HashMap<>();
+        for (Unit unit : units) {
+            byName.put(unit.getUnitName(), unit);
+        }
+        List<UnitDelta> deltas = new ArrayList<>();
+        for (Unit unit : old.getUnits()) {
+            if (!byName.containsKey(unit.getUnitName())) {
+                deltas.add(new UnitDelta(version, unit.getUnitName(), null));
+            }
+        }
+        for (Unit unit : byName.values()) {
+            UnitDelta delta = UnitDelta.between(version, old.get(unit.getUnitName()), unit);
+            if (delta != null) {
+                deltas.add(delta);
+            }
+        }
+        // The differences are only right for subscribers that followed this
+        // catalog, not for ones resuming from the other catalog's versions
+        deltaLog.clear();
+        current.set(new Snapshot(version, byName));
+        notifySubscribers(deltas);
+    }
+
+    /**
+     * Applies a batch of changes made to another catalog, taking on its
+     * version. The whole batch becomes visible at once, so readers never see
+     * a version the other catalog did not have. Batches at or below the
+     * current version have already been applied and are ignored.
+     *
+     * @param version the other catalog's version after the changes
+     * @param deltas  the changes, at most one per unit
+     */
+    public synchronized void apply(long version, List<UnitDelta> deltas) {
+        Snapshot old = current.get();
+        if (version <= old.version) {
+            return;
+        }
+        List<UnitDelta> ordered = new ArrayList<>(deltas);
+        ordered.sort(Comparator.comparingLong(UnitDelta::getVersion));
+        Map<String, Unit> edits = new HashMap<>();
+        for (UnitDelta delta : ordered) {
+            String name = delta.getUnitName();
+            edits.put(name, delta.applyTo(edits.containsKey(name) ? edits.get(name) : old.lookup(name)));
+        }
+        publish(old.with(version, edits), ordered);
+    }
+
+    private long publish(Snapshot snapshot, List<UnitDelta> deltas) {
+        current.set(snapshot);
+        for (UnitDelta delta : deltas) {
+            deltaLog.addLast(delta);
+            if (deltaLog.size() > deltaLogSize) {
+                deltaLog.removeFirst();
+            }
+        }
+        notifySubscribers(deltas);
+        return snapshot.version;
+    }
+
+    private void notifySubscribers(List<UnitDelta> deltas) {
+        for (UnitDelta delta : deltas) {
+            for (Consumer<UnitDelta> subscriber : subscribers) {
+                subscriber.accept(delta);
+            }
+        }
+    }
+
+    /**
+     * Registers a subscriber for every change after the given version. Changes
+     * the catalog still remembers are replayed first, in order. The subscriber
+     * is called while the catalog is locked, so it must not block.
+     *
+     * @param fromVersion the last version the subscriber has seen
+     * @param subscriber  receives each change
+     * @return true if every change since fromVersion was replayed; false if the
+     *         subscriber must first resynchronize from a full snapshot
+     */
+    public synchronized boolean subscribe(long fromVersion, Consumer<UnitDelta> subscriber) {
+        subscribers.add(subscriber);
+        long version = current.get().version;
+        long oldest = deltaLog.isEmpty() ? version + 1 : deltaLog.getFirst().getVersion();
+        if (fromVersion > version || fromVersion + 1 < oldest) {
+            return false;
+        }
+        for (UnitDelta delta : deltaLog) {
+            if (delta.getVersion() > fromVersion) {
+                subscriber.accept(delta);
+            }
+        }
+        return true;
+    }
+
+    public void unsubscribe(Consumer<UnitDelta> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * An immutable view of the catalog at one version. Units are kept sorted
+     * by name, which is also the order list queries return them in.
+     *
+     * A snapshot made by an edit does not copy the catalog. It shares a full
+     * index with the snapshots before it and holds only the units changed
+     * since that index was built, so an edit takes time in proportion to
+     * those changes. Once they outnumber about the square root of the
+     * catalog's size, the edit merges them into a new index in one linear
+     * pass, which is spread over as many edits as it took to get there. The
+     * sorted lists of a snapshot with changes are merged the same way the
+     * first time it is listed.
+     */
+    public static final class Snapshot {
+        // The fewest changes a snapshot may hold before they are merged into a new index
+        private static final int MIN_CHANGES = 64;
+
+        private final long version;
+        private final Index index;
+        // Units added or changed since the index was built, by name; null for a removed unit
+        private final Map<String, Unit> changes;
+        private final int size;
+        // The index with the changes applied, built the first time the snapshot is listed
+        private volatile Index merged;
+
+        private Snapshot(long version, Map<String, Unit> byName) {
+            this(version, Index.of(byName), Map.of(), byName.size());
+        }
+
+        private Snapshot(long version, Index index, Map<String, Unit> changes, int size) {
+            this.version = version;
+            this.index = index;
+            this.changes = changes;
+            this.size = size;
+            if (changes.isEmpty()) {
+                merged = index;
+            }
+        }
+
+        // The next snapshot, with each unit of edits stored under its name, or removed if it is null
+        private Snapshot with(long version, Map<String, Unit> edits) {
+            Map<String, Unit> combined = new HashMap<>(changes);
+            int newSize = size;
+            for (Map.Entry<String, Unit> edit : edits.entrySet()) {
+                newSize += (edit.getValue() != null ? 1 : 0) - (lookup(edit.getKey()) != null ? 1 : 0);
+                combined.put(edit.getKey(), edit.getValue());
+            }
+            if (combined.size() > Math.max(MIN_CHANGES, (int) Math.sqrt(newSize))) {
+                return new Snapshot(version, index.merge(combined, true), Map.of(), newSize);
+            }
+            return new Snapshot(version, index, Collections.unmodifiableMap(combined), newSize);
+        }
+
+        // The unit with the given name, without recording a query
+        private Unit lookup(String unitName) {
+            Unit changed = changes.get(unitName);
+            return changed != null || changes.containsKey(unitName) ? changed : index.byName.get(unitName);
+        }
+
+        private Index merged() {
+            Index result = merged;
+            if (result == null) {
+                // Readers that race here merge the same lists, so either result may be kept
+                result = index.merge(changes, false);
+                merged = result;
+            }
+            return result;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return every unit, sorted by name
+         */
+        public List<Unit> getUnits() {
+            return merged().units;
+        }
+
+        /**
+         * @param unitName the name to look up
+         * @return the unit, or null if there is none with that name
+         */
+        public Unit get(String unitName) {
+            CatalogQueryEvent event = new CatalogQueryEvent(CatalogQueryEvent.GET);
+            event.begin();
+            Unit unit = unitName == null ? null : lookup(unitName);
+            commit(event, null, unit == null ? 0 : 1);
+            return unit;
+        }
+
+        /**
+         * @param unitType a unit type, or null for every unit
+         * @return the units of that type sorted by name; empty if the type is unknown
+         */
+        public List<Unit> list(String unitType) {
+            CatalogQueryEvent event = new CatalogQueryEvent(CatalogQueryEvent.LIST);
+            event.begin();
+            List<Unit> result = ofType(unitType);
+            commit(event, unitType, result.size());
+            return result;
+        }
+
+        private List<Unit> ofType(String unitType) {
+            Index all = merged();
+            if (unitType == null) {
+                return all.units;
+            }
+            return all.byType.getOrDefault(unitType, List.of());
+        }
+
+        /**
+         * @param unitType a unit type, or null for every unit
+         * @param fromName the first name to include, or null for no lower bound
+         * @param toName   the first name to exclude, or null for no upper bound
+         * @return the units of that type with names in the range, sorted by name
+         */
+        public List<Unit> range(String unitType, String fromName, String toName) {
+            CatalogQueryEvent event = new CatalogQueryEvent(CatalogQueryEvent.RANGE);
+            event.begin();
+            List<Unit> sorted = ofType(unitType);
+            int from = fromName == null ? 0 : firstAtOrAfter(sorted, fromName);
+            int to = toName == null ? sorted.size() : firstAtOrAfter(sorted, toName);
+            List<Unit> result = sorted.subList(from, Math.max(from, to));
+            commit(event, unitType, result.size());
+            return result;
+        }
+
+        // Records a query as a Flight Recorder event, if one is being recorded
+        private void commit(CatalogQueryEvent event, String unitType, int results) {
+            if (event.shouldCommit()) {
+                event.unitType = unitType;
+                event.version = version;
+                event.results = results;
+                event.commit();
+            }
+        }
+
+        // Binary search for the first unit whose name is not less than the given one
+        private static int firstAtOrAfter(List<Unit> sorted, String unitName) {
+            int low = 0;
+            int high = sorted.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted.get(mid).getUnitName().compareTo(unitName) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return true if at least one unit has the given type
+         */
+        public boolean hasType(String unitType) {
+            return merged().byType.containsKey(unitType);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    // Every unit of one version: by name, sorted by name, and sorted by name within each type
+    private static final class Index {
+        // Null in an index built only to list a snapshot, whose lookups go through the changes
+        final Map<String, Unit> byName;
+        final List<Unit> units;
+        final Map<String, List<Unit>> byType;
+
+        private Index(Map<String, Unit> byName, List<Unit> sorted) {
+            this.byName = byName == null ? null : Collections.unmodifiableMap(byName);
+            this.units = Collections.unmodifiableList(sorted);
+            Map<String, List<Unit>> types = new LinkedHashMap<>();
+            for (Unit unit : sorted) {
+                types.computeIfAbsent(unit.getUnitType(), t -> new ArrayList<>()).add(unit);
+            }
+            types.replaceAll((type, list) -> Collections.unmodifiableList(list));
+            this.byType = Collections.unmodifiableMap(types);
+        }
+
+        static Index of(Map<String, Unit> byName) {
+            List<Unit> sorted = new ArrayList<>(byName.values());
+            sorted.sort(Comparator.comparing(Unit::getUnitName));
+            return new Index(byName, sorted);
+        }
+
+        // This index with the changes applied, merged into the sorted list in one pass rather than sorted again
+        Index merge(Map<String, Unit> changes, boolean withNames) {
+            Map<String, Unit> byName = withNames ? new HashMap<>(this.byName) : null;
+            List<String> names = new ArrayList<>(changes.keySet());
+            names.sort(null);
+            List<Unit> sorted = new ArrayList<>(units.size() + names.size());
+            int i = 0;
+            for (String name : names) {
+                while (i < units.size() && units.get(i).getUnitName().compareTo(name) < 0) {
+                    sorted.add(units.get(i++));
+                }
+                if (i < units.size() && units.get(i).getUnitName().equals(name)) {
+                    // Replaced or removed
+                    i++;
+                }
+                Unit unit = changes.get(name);
+                if (unit != null) {
+                    sorted.add(unit);
+                }
+                if (byName != null) {
+                    if (unit == null) {
+                        byName.remove(name);
+                    } else {
+                        byName.put(name, unit);
+                    }
+                }
+            }
+            sorted.addAll(units.subList(i, units.size()));
+            return new Index(byName, sorted);
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package edu.sdccd.cisc191.template;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+import javafx.util.Duration;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Many units' stats overlaid on one chart: a radar, a scatter plot of two
+ * stats, or parallel coordinates across all of them.
+ *
+ * Everything is painted on a single Canvas, so hundreds of units cost a
+ * few hundred draw calls rather than thousands of scene-graph nodes that
+ * each have to be laid out, styled and picked. Three things keep it
+ * responsive:
+ * <ul>
+ *   <li>Level of detail: with more than {@value #DETAIL_LIMIT} units, or
+ *       while the user is panning or zooming, units are drawn as faint
+ *       lines and small squares without outlines; full detail comes back
+ *       once the gesture pauses.</li>
+ *   <li>Dirty regions: hovering only repaints the rectangle the old and new
+ *       highlight cover, copying the rest back from a snapshot of the last
+ *       full redraw instead of painting every unit again.</li>
+ *   <li>Coalescing: any number of changes within one frame cause at most
+ *       one full redraw.</li>
+ * </ul>
+ * Hovering is answered from a grid of the points last drawn. Scroll to
+ * zoom about the cursor, drag to pan, double-click to reset the view, and
+ * click a unit to pick it.
+ */
+public final class UnitChart extends Region {
+    /** The kinds of chart. */
+    public enum Kind {
+        RADAR("Radar"),
+        SCATTER("Scatter"),
+        PARALLEL("Parallel coordinates");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** The stats a chart can plot. */
+    public enum Stat {
+        PRICE("Price", Unit::getPrice),
+        ARMOR("Armor", Unit::getArmor),
+        HEALTH("Health", Unit::getHealth),
+        SPEED("Speed", Unit::getSpeed),
+        SIGHT("Sight", Unit::getSightRange);
+
+        private final String label;
+        private final ToIntFunction<Unit> value;
+
+        Stat(String label, ToIntFunction<Unit> value) {
+            this.label = label;
+            this.value = value;
+        }
+
+        public int of(Unit unit) {
+            return value.applyAsInt(unit);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** Above this many units the chart is always drawn in low detail. */
+    static final int DETAIL_LIMIT = 150;
+    /** How long after the last pan or zoom the chart is redrawn in full detail. */
+    private static final Duration SETTLE = Duration.millis(150);
+    private static final double HOVER_RADIUS = 6;
+    private static final double MARGIN = 40;
+    private static final Stat[] STATS = Stat.values();
+
+    private final Canvas canvas = new Canvas();
+    private final PointIndex points = new PointIndex(HOVER_RADIUS);
+    private final PauseTransition settle = new PauseTransition(SETTLE);
+
+    private List<Unit> units = List.of();
+    // Each unit's stats scaled to 0..1 between the lowest and highest of the units charted
+    private double[][] normalized = new double[0][];
+    private final int[] mins = new int[STATS.length];
+    private final int[] maxs = new int[STATS.length];
+
+    private Kind kind = Kind.SCATTER;
+    private Stat xStat = Stat.PRICE;
+    private Stat yStat = Stat.ARMOR;
+    private double zoom = 1;
+    private double panX;
+    private double panY;
+    private boolean interacting;
+    private double dragX;
+    private double dragY;
+
+    private int hovered = -1;
+    private Rectangle2D hoverBounds;
+    private WritableImage base;
+    private boolean redrawPending;
+    private Consumer<Unit> onUnitPicked = unit -> { };
+
+    private long fullRedraws;
+    private long partialRedraws;
+
+    public UnitChart() {
+        getChildren().add(canvas);
+        setMinSize(200, 200);
+        settle.setOnFinished(e -> {
+            interacting = false;
+            invalidate();
+        });
+
+        canvas.setOnMouseMoved(e -> hover(e.getX(), e.getY()));
+        canvas.setOnMouseExited(e -> hover(-HOVER_RADIUS * 10, -HOVER_RADIUS * 10));
+        canvas.setOnScroll(e -> {
+            double factor = e.getDeltaY() > 0 ? 1.1 : 1 / 1.1;
+            // Keep the point under the cursor where it is
+            double cx = canvas.getWidth() / 2 + panX, cy = canvas.getHeight() / 2 + panY;
+            panX += (e.getX() - cx) * (1 - factor);
+            panY += (e.getY() - cy) * (1 - factor);
+            zoom *= factor;
+            gesture();
+        });
+        canvas.setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+        });
+        canvas.setOnMouseDragged(e -> {
+            panX += e.getX() - dragX;
+            panY += e.getY() - dragY;
+            dragX = e.getX();
+            dragY = e.getY();
+            gesture();
+        });
+        canvas.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+                zoom = 1;
+                panX = 0;
+                panY = 0;
+                invalidate();
+            } else if (e.isStillSincePress() && hovered >= 0) {
+                onUnitPicked.accept(units.get(hovered));
+            }
+        });
+    }
+
+    /**
+     * Charts a new set of units.
+     *
+     * @param units the units to chart
+     */
+    public void setUnits(List<Unit> units) {
+        this.units = List.copyOf(units);
+        for (int s = 0; s < STATS.length; s++) {
+            mins[s] = Integer.MAX_VALUE;
+            maxs[s] = Integer.MIN_VALUE;
+            for (Unit unit : this.units) {
+                mins[s] = Math.min(mins[s], STATS[s].of(unit));
+                maxs[s] = Math.max(maxs[s], STATS[s].of(unit));
+            }
+        }
+        normalized = new double[this.units.size()][STATS.length];
+        for (int i = 0; i < this.units.size(); i++) {
+            for (int s = 0; s < STATS.length; s++) {
+                normalized[i][s] = normalize(STATS[s].of(this.units.get(i)), mins[s], maxs[s]);
+            }
+        }
+        hovered = -1;
+        invalidate();
+    }
+
+    static double normalize(int value, int min, int max) {
+        return max == min ? 0.5 : (double) (value - min) / (max - min);
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+        invalidate();
+    }
+
+    /**
+     * Chooses the stats a scatter chart plots.
+     */
+    public void setAxes(Stat xStat, Stat yStat) {
+        this.xStat = xStat;
+        this.yStat = yStat;
+        invalidate();
+    }
+
+    /**
+     * @param onUnitPicked called with a unit when it is clicked
+     */
+    public void setOnUnitPicked(Consumer<Unit> onUnitPicked) {
+        this.onUnitPicked = onUnitPicked;
+    }
+
+    /**
+     * @return how many times every unit was painted
+     */
+    public long getFullRedraws() {
+        return fullRedraws;
+    }
+
+    /**
+     * @return how many hover changes repainted only the highlight's region
+     */
+    public long getPartialRedraws() {
+        return partialRedraws;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth()), height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            invalidate();
+        }
+    }
+
+    // Drops to low detail until the pan or zoom pauses
+    private void gesture() {
+        interacting = true;
+        settle.playFromStart();
+        invalidate();
+    }
+
+    // Schedules one full redraw for however many changes happen before it runs
+    private void invalidate() {
+        if (!redrawPending) {
+            redrawPending = true;
+            Platform.runLater(this::redraw);
+        }
+    }
+
+    private void redraw() {
+        redrawPending = false;
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth(), height = canvas.getHeight();
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, width, height);
+        points.clear();
+        base = null;
+        hoverBounds = null;
+        if (width <= 2 * MARGIN || height <= 2 * MARGIN) {
+            return;
+        }
+        if (units.isEmpty()) {
+            gc.setFill(Color.GRAY);
+            gc.setTextAlign(TextAlignment.CENTER);
+            gc.fillText("No units to chart", width / 2, height / 2);
+            return;
+        }
+
+        drawAxes(gc);
+        boolean detailed = !interacting && units.size() <= DETAIL_LIMIT;
+        gc.setLineWidth(1);
+        for (int i = 0; i < units.size(); i++) {
+            double[] xy = project(i);
+            Color color = colorOf(units.get(i));
+            if (kind == Kind.SCATTER) {
+                gc.setFill(color);
+                if (detailed) {
+                    gc.fillOval(xy[0] - 4, xy[1] - 4, 8, 8);
+                    gc.setStroke(color.darker());
+                    gc.strokeOval(xy[0] - 4, xy[1] - 4, 8, 8);
+                } else {
+                    gc.fillRect(xy[0] - 1, xy[1] - 1, 2, 2);
+                }
+            } else {
+                gc.setStroke(color.deriveColor(0, 1, 1, detailed ? 0.6 : 0.15));
+                strokePath(gc, xy, kind == Kind.RADAR);
+                if (detailed) {
+                    gc.setFill(color);
+                    for (int p = 0; p < xy.length; p += 2) {
+                        gc.fillOval(xy[p] - 2, xy[p + 1] - 2, 4, 4);
+                    }
+                }
+            }
+            for (int p = 0; p < xy.length; p += 2) {
+                points.add(xy[p], xy[p + 1], i);
+            }
+        }
+        fullRedraws++;
+
+        if (hovered >= 0 && hovered < units.size()) {
+            base = canvas.snapshot(null, null);
+            hoverBounds = drawHighlight(gc, hovered);
+        } else {
+            hovered = -1;
+        }
+    }
+
+    // Repaints only where the old highlight was and where the new one goes
+    private void hover(double x, double y) {
+        int found = points.nearest(x, y, HOVER_RADIUS);
+        if (found == hovered || redrawPending) {
+            return;
+        }
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        if (base == null) {
+            // Nothing is highlighted yet, so the canvas is exactly the last full redraw
+            base = canvas.snapshot(null, null);
+        }
+        if (hoverBounds != null) {
+            gc.drawImage(base, hoverBounds.getMinX(), hoverBounds.getMinY(), hoverBounds.getWidth(), hoverBounds.getHeight(),
+                    hoverBounds.getMinX(), hoverBounds.getMinY(), hoverBounds.getWidth(), hoverBounds.getHeight());
+        }
+        hovered = found;
+        hoverBounds = found < 0 ? null : drawHighlight(gc, found);
+        partialRedraws++;
+    }
+
+    // Draws a unit in bold with its name, returning the area drawn over
+    private Rectangle2D drawHighlight(GraphicsContext gc, int unit) {
+        double[] xy = project(unit);
+        Color color = colorOf(units.get(unit));
+        gc.setLineWidth(2.5);
+        gc.setStroke(color.darker());
+        gc.setFill(color);
+        if (kind == Kind.SCATTER) {
+            gc.fillOval(xy[0] - 6, xy[1] - 6, 12, 12);
+            gc.strokeOval(xy[0] - 6, xy[1] - 6, 12, 12);
+        } else {
+            strokePath(gc, xy, kind == Kind.RADAR);
+        }
+        gc.setLineWidth(1);
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int p = 0; p < xy.length; p += 2) {
+            minX = Math.min(minX, xy[p]);
+            maxX = Math.max(maxX, xy[p]);
+            minY = Math.min(minY, xy[p + 1]);
+            maxY = Math.max(maxY, xy[p + 1]);
+        }
+        String name = units.get(unit).getUnitName();
+        double labelX = xy[0] + 8, labelY = xy[1] - 8;
+        gc.setFill(Color.BLACK);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.fillText(name, labelX, labelY);
+        // Text width is estimated generously rather than measured, to keep hover free of layout work
+        maxX = Math.max(maxX, labelX + name.length() * 9);
+        minY = Math.min(minY, labelY - 16);
+
+        minX = Math.max(0, Math.floor(minX - 8));
+        minY = Math.max(0, Math.floor(minY - 8));
+        maxX = Math.min(canvas.getWidth(), Math.ceil(maxX + 8));
+        maxY = Math.min(canvas.getHeight(), Math.ceil(maxY + 8));
+        return maxX > minX && maxY > minY ? new Rectangle2D(minX, minY, maxX - minX, maxY - minY) : null;
+    }
+
+    private static void strokePath(GraphicsContext gc, double[] xy, boolean closed) {
+        gc.beginPath();
+        gc.moveTo(xy[0], xy[1]);
+        for (int p = 2; p < xy.length; p += 2) {
+            gc.lineTo(xy[p], xy[p + 1]);
+        }
+        if (closed) {
+            gc.closePath();
+        }
+        gc.stroke();
+    }
+
+    private void drawAxes(GraphicsContext gc) {
+        gc.setStroke(Color.LIGHTGRAY);
+        gc.setFill(Color.DIMGRAY);
+        gc.setLineWidth(1);
+        double left = MARGIN, right = canvas.getWidth() - MARGIN, top = MARGIN, bottom = canvas.getHeight() - MARGIN;
+        switch (kind) {
+            case SCATTER -> {
+                double[] topLeft = view(left, top), bottomRight = view(right, bottom);
+                gc.strokeRect(topLeft[0], topLeft[1], bottomRight[0] - topLeft[0], bottomRight[1] - topLeft[1]);
+                gc.setTextAlign(TextAlignment.CENTER);
+                gc.fillText(xStat + " (" + mins[xStat.ordinal()] + " - " + maxs[xStat.ordinal()] + ")",
+                        (topLeft[0] + bottomRight[0]) / 2, bottomRight[1] + 20);
+                gc.setTextAlign(TextAlignment.LEFT);
+                gc.fillText(yStat + " (" + mins[yStat.ordinal()] + " - " + maxs[yStat.ordinal()] + ")",
+                        topLeft[0], topLeft[1] - 8);
+            }
+            case PARALLEL -> {
+                gc.setTextAlign(TextAlignment.CENTER);
+                for (int s = 0; s < STATS.length; s++) {
+                    double x = left + s * (right - left) / (STATS.length - 1);
+                    double[] a = view(x, top), b = view(x, bottom);
+                    gc.strokeLine(a[0], a[1], b[0], b[1]);
+                    gc.fillText(STATS[s] + " " + maxs[s], a[0], a[1] - 8);
+                    gc.fillText(Integer.toString(mins[s]), b[0], b[1] + 16);
+                }
+            }
+            case RADAR -> {
+                gc.setTextAlign(TextAlignment.CENTER);
+                double[] center = view(canvas.getWidth() / 2, canvas.getHeight() / 2);
+                for (int s = 0; s < STATS.length; s++) {
+                    double[] tip = radar(s, 1);
+                    gc.strokeLine(center[0], center[1], tip[0], tip[1]);
+                    double[] label = radar(s, 1.08);
+                    gc.fillText(STATS[s].toString(), label[0], label[1]);
+                }
+            }
+        }
+    }
+
+    // Where a unit's points are on screen, as x, y pairs: one for a scatter, one per stat otherwise
+    private double[] project(int unit) {
+        double[] stats = normalized[unit];
+        double left = MARGIN, right = canvas.getWidth() - MARGIN, top = MARGIN, bottom = canvas.getHeight() - MARGIN;
+        switch (kind) {
+            case SCATTER -> {
+                return view(left + stats[xStat.ordinal()] * (right - left), bottom - stats[yStat.ordinal()] * (bottom - top));
+            }
+            case PARALLEL -> {
+                double[] xy = new double[STATS.length * 2];
+                for (int s = 0; s < STATS.length; s++) {
+                    double[] p = view(left + s * (right - left) / (STATS.length - 1), bottom - stats[s] * (bottom - top));
+                    xy[2 * s] = p[0];
+                    xy[2 * s + 1] = p[1];
+                }
+                return xy;
+            }
+            default -> {
+                double[] xy = new double[STATS.length * 2];
+                for (int s = 0; s < STATS.length; s++) {
+                    double[] p = radar(s, stats[s]);
+                    xy[2 * s] = p[0];
+                    xy[2 * s + 1] = p[1];
+                }
+                return xy;
+            }
+        }
+    }
+
+    // A point on a radar spoke, the given fraction of the way out from the center
+    private double[] radar(int stat, double fraction) {
+        double radius = Math.min(canvas.getWidth(), canvas.getHeight()) / 2 - MARGIN;
+        double angle = -Math.PI / 2 + stat * 2 * Math.PI / STATS.length;
+        return view(canvas.getWidth() / 2 + Math.cos(angle) * radius * fraction,
+                canvas.getHeight() / 2 + Math.sin(angle) * radius * fraction);
+    }
+
+    // Applies the zoom, about the canvas's center, and the pan
+    private double[] view(double x, double y) {
+        double cx = canvas.getWidth() / 2, cy = canvas.getHeight() / 2;
+        return new double[] {(x - cx) * zoom + cx + panX, (y - cy) * zoom + cy + panY};
+    }
+
+    // One hue per unit type, so types can be told apart in a crowd
+    private static Color colorOf(Unit unit) {
+        return Color.hsb(Math.floorMod(unit.getUnitType().hashCode(), 360), 0.7, 0.8);
+    }
+}
@@ -0,0 +1,246 @@
+package edu.sdccd.cisc191.template;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic unit catalogs in the schema of {@link UnitStatsLoader#DEFAULT_RESOURCE},
+ * so loaders, indexes and servers can be tested with far more units than
+ * the bundled file has.
+ *
+ * Each row's stats are drawn from ranges for its unit type, taken from the
+ * real units of that type, and its abilities are written as a quoted,
+ * comma-separated cell the way the bundled file has them. Names are made
+ * unique by including the row number. The same seed always produces the
+ * same file.
+ *
+ * A given fraction of rows is malformed in one of the ways hand-edited
+ * spreadsheets are: blank rows, missing or non-numeric stats, rows cut short
+ * and unbalanced quotes. Loaders must skip or tolerate these.
+ *
+ * Rows are written one at a time, so memory use does not depend on how many
+ * are written; {@link #main} writes a file of any size from the command line.
+ */
+public class UnitDatasetGenerator {
+    // The bundled file pads every row out to the header's sixteen columns
+    private static final String PADDING = ",,,,";
+    private static final String BLANK_ROW = ",,,,,,,,,,,,,,,";
+
+    private static final String[] SPECIALIZATIONS = {
+            "USMC", "VDV", "RU Coastal Troops", "U.S. Armored Brigade", "RU Guard Tank Brigade",
+            "U.S. Airborne", "RU Motor Rifle Brigade", "U.S. Cavalry Squadron"
+    };
+
+    /**
+     * The range of each stat for one unit type. Stats are drawn from a normal
+     * distribution centred in their range and clamped to it.
+     */
+    record Profile(String unitType, double share, String[] designations, String[] words,
+                   int minPrice, int maxPrice, int minArmor, int maxArmor, int minHealth, int maxHealth,
+                   int minSight, int maxSight, double[] unseenRanges, int minSpeed, int maxSpeed,
+                   int minWeight, int maxWeight, String[] abilities, int minExtra, int maxExtra) {
+    }
+
+    static final Profile[] PROFILES = {
+            new Profile("Infantry", 0.45, new String[]{"Marine", "Airborne", "Guards", "Recon", "Spetsnaz"},
+                    new String[]{"Raiders", "Berety", "Rangers", "Sappers", "Grenadiers", "Scouts"},
+                    40, 160, 0, 12, 40, 100, 1000, 1400, new double[]{1.25, 1.5, 1.75, 2}, 14, 22,
+                    1200, 2500, new String[]{"Smoke", "Sprint", "Airdroppable", "Anti-Tank", "Rappel", "Stealth"}, 6, 20),
+            new Profile("Tank", 0.35, new String[]{"T", "M", "K", "Type", "Leopard"},
+                    new String[]{"Armata", "Abrams", "Challenger", "Merkava", "Leclerc", "Oplot"},
+                    150, 450, 400, 900, 14, 20, 1200, 1800, new double[]{1, 1.25}, 50, 85,
+                    400000, 700000, new String[]{"Smoke", "Explosive Reactive Armor", "Active Protection", "Thermal Sights"}, 60, 120),
+            new Profile("Fighter", 0.20, new String[]{"F", "Su", "MiG", "J", "EF"},
+                    new String[]{"Raptor", "Felon", "Flanker", "Hornet", "Typhoon", "Fulcrum"},
+                    180, 400, 0, 0, 14, 24, 8000, 12000, new double[]{1.25, 1.5, 1.75}, 350, 600,
+                    15000, 45000, new String[]{"Flares", "Jamming", "Laser Designation", "Afterburner", "Radar"}, 120, 260)
+    };
+
+    private final SplittableRandom random;
+    private final double malformedFraction;
+    private final StringBuilder row = new StringBuilder(160);
+    private long rowsWritten;
+    private long malformedRows;
+
+    /**
+     * @param seed              seeds every random choice, so equal seeds write equal files
+     * @param malformedFraction the fraction of rows, from 0 to 1, that are malformed
+     */
+    public UnitDatasetGenerator(long seed, double malformedFraction) {
+        if (malformedFraction < 0 || malformedFraction > 1) {
+            throw new IllegalArgumentException("malformedFraction must be between 0 and 1: " + malformedFraction);
+        }
+        this.random = new SplittableRandom(seed);
+        this.malformedFraction = malformedFraction;
+    }
+
+    /**
+     * Writes a header and the given number of rows to a file, replacing it if it exists.
+     *
+     * @param file the file to write
+     * @param rows how many rows to write after the header
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file, long rows) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(out, rows);
+        }
+    }
+
+    /**
+     * Writes a header and the given number of rows.
+     *
+     * @param out  where to write the rows; it is not closed
+     * @param rows how many rows to write after the header
+     * @throws IOException if writing fails
+     */
+    public void write(Writer out, long rows) throws IOException {
+        out.write(UnitStatsLoader.HEADER);
+        out.write('\n');
+        for (long i = 0; i < rows; i++) {
+            row.setLength(0);
+            if (random.nextDouble() < malformedFraction) {
+                appendMalformedRow(i);
+                malformedRows++;
+            } else {
+                appendRow(i, pickProfile());
+            }
+            row.append('\n');
+            out.append(row);
+            rowsWritten++;
+        }
+    }
+
+    /** @return how many rows, not counting headers, this generator has written */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /** @return how many of the rows written were malformed */
+    public long getMalformedRows() {
+        return malformedRows;
+    }
+
+    private Profile pickProfile() {
+        double pick = random.nextDouble();
+        for (Profile profile : PROFILES) {
+            pick -= profile.share();
+            if (pick < 0) {
+                return profile;
+            }
+        }
+        return PROFILES[PROFILES.length - 1];
+    }
+
+    private void appendRow(long index, Profile p) {
+        // Stray spaces around cells are common in the bundled file, and loaders trim them
+        row.append(p.unitType()).append(random.nextInt(4) == 0 ? " ," : ",");
+        row.append(pick(p.designations())).append('-').append(index).append(' ').append(pick(p.words())).append(',');
+        row.append(pick(SPECIALIZATIONS)).append(',');
+        row.append(sample(p.minPrice(), p.maxPrice())).append(',');
+        row.append(sample(p.minArmor(), p.maxArmor())).append(',');
+        row.append(sample(p.minHealth(), p.maxHealth())).append(',');
+        row.append(sample(p.minSight(), p.maxSight())).append(',');
+        row.append(p.unseenRanges()[random.nextInt(p.unseenRanges().length)]).append(',');
+        row.append(sample(p.minSpeed(), p.maxSpeed())).append(',');
+        row.append(sample(p.minWeight(), p.maxWeight())).append(',');
+        appendAbilities(p.abilities(), true);
+        row.append(',');
+        row.append(sample(p.minExtra(), p.maxExtra()));
+        row.append(PADDING);
+    }
+
+    // Writes the abilities cell as the bundled file does: """Smoke, Sprint"""
+    private void appendAbilities(String[] abilities, boolean closed) {
+        int count = 1 + random.nextInt(Math.min(3, abilities.length));
+        int first = random.nextInt(abilities.length);
+        row.append("\"\"\"");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                row.append(", ");
+            }
+            row.append(abilities[(first + i) % abilities.length]);
+        }
+        if (closed) {
+            row.append("\"\"\"");
+        }
+    }
+
+    private void appendMalformedRow(long index) {
+        switch (random.nextInt(5)) {
+            case 0 -> row.append(BLANK_ROW);
+            case 1 -> {
+                // A stat left empty, like the bundled Su-57's health
+                appendRow(index, pickProfile());
+                blankField(3 + random.nextInt(7), "");
+            }
+            case 2 -> {
+                appendRow(index, pickProfile());
+                blankField(3 + random.nextInt(7), random.nextBoolean() ? "N/A" : "?");
+            }
+            case 3 -> {
+                // Cut short before the abilities
+                appendRow(index, pickProfile());
+                row.setLength(nthComma(3 + random.nextInt(7)));
+            }
+            default -> {
+                Profile p = pickProfile();
+                appendRow(index, p);
+                row.setLength(nthComma(10) + 1);
+                appendAbilities(p.abilities(), false);
+                row.append(",0").append(PADDING);
+            }
+        }
+    }
+
+    // Replaces the field at the given column, which must come before the quoted abilities
+    private void blankField(int column, String value) {
+        int start = nthComma(column - 1) + 1;
+        int end = row.indexOf(",", start);
+        row.replace(start, end, value);
+    }
+
+    private int nthComma(int n) {
+        int at = -1;
+        for (int i = 0; i <= n; i++) {
+            at = row.indexOf(",", at + 1);
+        }
+        return at;
+    }
+
+    private int sample(int min, int max) {
+        if (min == max) {
+            return min;
+        }
+        double value = (min + max) / 2.0 + random.nextGaussian() * (max - min) / 6.0;
+        return (int) Math.round(Math.max(min, Math.min(max, value)));
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Writes a synthetic catalog.
+     * Usage: {@code UnitDatasetGenerator <output.csv> <rows> [seed] [malformedFraction]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: UnitDatasetGenerator <output.csv> <rows> [seed] [malformedFraction]");
+            System.exit(2);
+        }
+        long rows = Long.parseLong(args[1].replace("_", ""));
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        double malformedFraction = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+
+        long start = System.nanoTime();
+        UnitDatasetGenerator generator = new UnitDatasetGenerator(seed, malformedFraction);
+        generator.write(Path.of(args[0]), rows);
+        System.out.printf("Wrote %d rows (%d malformed) to %s in %.1f s%n", generator.getRowsWritten(),
+                generator.getMalformedRows(), args[0], (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,580 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * A durable log of edits to a {@link UnitCatalog}, so units changed at run
+ * time survive a restart without rewriting the CSV they were loaded from.
+ *
+ * Every edit is appended to the current log segment as a binary record: the
+ * payload's length, its CRC32C checksum and the {@link UnitDelta} encoded as
+ * Smile. A writer thread commits edits in groups. It writes every record
+ * queued since its last commit with one write and one force, then applies
+ * them to the catalog, so concurrent edits share the cost of reaching the
+ * disk. {@link #put(Unit)} and {@link #remove(String)} return once their
+ * edit is durable, and readers only ever see durable edits.
+ *
+ * The log sits on top of a snapshot of the whole catalog. When the log is
+ * opened, the snapshot is loaded and every segment after it is replayed. A
+ * record cut short by a crash, or with a wrong checksum, ends the last
+ * segment and is truncated away. Compaction writes the catalog to a new
+ * snapshot and deletes the segments it covers. Compaction runs in the
+ * background whenever the log since the last snapshot outgrows a size, so
+ * opening never replays more than about that much log. The directory is
+ * synced after a segment is created and after a snapshot is moved into
+ * place, and covered segments are deleted only once the new snapshot's name
+ * is durable, so a crash at any point leaves a snapshot and every segment
+ * after it.
+ *
+ * All edits to the catalog must go through the log; an edit made directly
+ * on the catalog would not be logged.
+ */
+public class UnitEditLog implements Closeable {
+    /** How much log may build up after a snapshot before a compaction is started. */
+    public static final long DEFAULT_COMPACTION_BYTES = 64L << 20;
+
+    static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SEGMENT_PREFIX = "edits-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int SNAPSHOT_MAGIC = 0x554E4954;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    // Deltas applied to the catalog at once when replaying, so each replay step copies the catalog once
+    private static final int REPLAY_BATCH = 10_000;
+    // Windows cannot open a directory as a channel, and NTFS journals directory entries itself
+    private static final boolean SYNC_DIRECTORY = !System.getProperty("os.name").startsWith("Windows");
+
+    private static final SmileFactory SMILE = SmileFactory.builder()
+            .disable(SmileGenerator.Feature.WRITE_HEADER)
+            .disable(SmileParser.Feature.REQUIRE_HEADER)
+            .build();
+
+    private final Path directory;
+    private final UnitCatalog catalog;
+    private final long compactionBytes;
+
+    // Guarded by this: edits that are logged but not yet applied, and the group the next edit joins
+    private final Map<String, Pending> pending = new HashMap<>();
+    private long lastVersion;
+    private Group group = new Group();
+    private CompletableFuture<Void> lastCommit = CompletableFuture.completedFuture(null);
+    private IOException failure;
+    private boolean closed;
+
+    // Guarded by channelLock, which the writer holds from writing a group until it is applied
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    private long logBytes;
+
+    private final Object compactLock = new Object();
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    private final ExecutorService compactor;
+    private final Thread writer;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder records = new LongAdder();
+
+    /** An edit's unit, or null for a removal, and the version it produces. */
+    private record Pending(long version, Unit unit) {
+    }
+
+    /** A record read back from a file, and how many bytes it took there. */
+    private record Record(UnitDelta delta, int bytes) {
+    }
+
+    /** Records queued for one commit, and the future completed once they are durable. */
+    private static final class Group {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        final List<UnitDelta> deltas = new ArrayList<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+    }
+
+    private UnitEditLog(Path directory, UnitCatalog catalog, long compactionBytes) {
+        this.directory = directory;
+        this.catalog = catalog;
+        this.compactionBytes = compactionBytes;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edit-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::writeGroups, "edit-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens the log in a directory with the default compaction size.
+     *
+     * @see #open(Path, List, long)
+     */
+    public static UnitEditLog open(Path directory, List<Unit> initialUnits) throws IOException {
+        return open(directory, initialUnits, DEFAULT_COMPACTION_BYTES);
+    }
+
+    /**
+     * Opens the log in a directory, creating it if needed, and recovers the
+     * catalog it describes. The first time, the catalog starts from the given
+     * units, which are written as the first snapshot; later the units are
+     * ignored and the catalog is the last snapshot with the log replayed on it.
+     *
+     * @param directory       where the snapshot and log segments are kept
+     * @param initialUnits    the units to start from if the directory has no snapshot
+     * @param compactionBytes how much log may follow a snapshot before a new one is written
+     * @return the open log; its catalog is {@link #getCatalog()}
+     * @throws IOException if the directory cannot be read or written, or a
+     *                     snapshot or an older segment is corrupt
+     */
+    public static UnitEditLog open(Path directory, List<Unit> initialUnits, long compactionBytes) throws IOException {
+        Files.createDirectories(directory);
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        boolean fresh = !Files.exists(snapshotFile);
+        UnitEditLog log = new UnitEditLog(directory, fresh ? new UnitCatalog(initialUnits) : readSnapshot(snapshotFile),
+                compactionBytes);
+        log.recover();
+        if (fresh) {
+            // The log is replayed onto the snapshot, never onto a CSV that may have changed since
+            log.writeSnapshot(log.catalog.snapshot());
+        }
+        log.writer.start();
+        return log;
+    }
+
+    /**
+     * @return the catalog this log keeps; read from it, but edit it only through the log
+     */
+    public UnitCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Adds a unit, or replaces the unit with the same name, and waits until the change is durable.
+     *
+     * @param unit the unit to store
+     * @return the catalog version the change produced, or the current one if an identical unit is already stored
+     * @throws IOException if the change could not be logged; it is then not applied
+     */
+    public long put(Unit unit) throws IOException {
+        CompletableFuture<Void> durable;
+        long version;
+        synchronized (this) {
+            checkOpen();
+            UnitDelta delta = UnitDelta.between(lastVersion + 1, current(unit.getUnitName()), unit);
+            if (delta == null) {
+                durable = lastCommit;
+                version = lastVersion;
+            } else {
+                durable = append(delta, unit);
+                version = delta.getVersion();
+            }
+        }
+        await(durable);
+        return version;
+    }
+
+    /**
+     * Removes the unit with the given name and waits until the change is durable.
+     *
+     * @param unitName the unit to remove
+     * @return the catalog version the change produced, or the current one if no such unit exists
+     * @throws IOException if the change could not be logged; it is then not applied
+     */
+    public long remove(String unitName) throws IOException {
+        CompletableFuture<Void> durable;
+        long version;
+        synchronized (this) {
+            checkOpen();
+            if (current(unitName) == null) {
+                durable = lastCommit;
+                version = lastVersion;
+            } else {
+                UnitDelta delta = new UnitDelta(lastVersion + 1, unitName, null);
+                durable = append(delta, null);
+                version = delta.getVersion();
+            }
+        }
+        await(durable);
+        return version;
+    }
+
+    // The unit as the latest logged edit left it, which may not be applied to the catalog yet
+    private Unit current(String unitName) {
+        Pending edit = pending.get(unitName);
+        return edit != null ? edit.unit() : catalog.snapshot().get(unitName);
+    }
+
+    private CompletableFuture<Void> append(UnitDelta delta, Unit unit) throws IOException {
+        writeRecord(new DataOutputStream(group.bytes), delta);
+        group.deltas.add(delta);
+        pending.put(delta.getUnitName(), new Pending(delta.getVersion(), unit));
+        lastVersion = delta.getVersion();
+        lastCommit = group.done;
+        notifyAll();
+        return group.done;
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("The edit log failed and no longer accepts edits", failure);
+        }
+        if (closed) {
+            throw new IOException("The edit log is closed");
+        }
+    }
+
+    private static void await(CompletableFuture<Void> durable) throws IOException {
+        try {
+            durable.get();
+        } catch (ExecutionException e) {
+            throw new IOException("The edit could not be logged", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the edit to be logged");
+        }
+    }
+
+    // Runs on the writer thread: commits each group of queued edits until the log is closed
+    private void writeGroups() {
+        while (true) {
+            Group committing;
+            synchronized (this) {
+                while (group.deltas.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (group.deltas.isEmpty()) {
+                    return;
+                }
+                committing = group;
+                group = new Group();
+            }
+
+            long version = committing.deltas.get(committing.deltas.size() - 1).getVersion();
+            boolean compact;
+            try {
+                synchronized (channelLock) {
+                    ByteBuffer buffer = ByteBuffer.wrap(committing.bytes.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                    logBytes += buffer.capacity();
+                    catalog.apply(version, committing.deltas);
+                    compact = logBytes >= compactionBytes;
+                }
+            } catch (IOException e) {
+                // Later edits were computed on top of these, so none of them can be applied either
+                synchronized (this) {
+                    failure = e;
+                    group.done.completeExceptionally(e);
+                }
+                committing.done.completeExceptionally(e);
+                return;
+            }
+            synchronized (this) {
+                pending.values().removeIf(edit -> edit.version() <= version);
+            }
+            commits.increment();
+            records.add(committing.deltas.size());
+            committing.done.complete(null);
+            if (compact) {
+                compactInBackground();
+            }
+        }
+    }
+
+    private void compactInBackground() {
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                compactionQueued.set(false);
+                try {
+                    compact();
+                } catch (IOException e) {
+                    System.err.println("Edit log compaction failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the catalog to a new snapshot and deletes the log it replaces.
+     * Edits go on being committed while the snapshot is written; they go to
+     * a new segment, which the snapshot does not replace.
+     *
+     * @throws IOException if the snapshot cannot be written; the old snapshot and log are then kept
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            UnitCatalog.Snapshot snapshot;
+            synchronized (channelLock) {
+                // Every committed edit is applied while the lock is held, so the snapshot has them all
+                snapshot = catalog.snapshot();
+                channel.close();
+                channel = openSegment(snapshot.getVersion() + 1);
+                logBytes = channel.size();
+            }
+            // Only once the new snapshot is durable may the log it replaces go
+            writeSnapshot(snapshot);
+            for (Map.Entry<Long, Path> segment : segments().entrySet()) {
+                if (segment.getKey() <= snapshot.getVersion()) {
+                    Files.delete(segment.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for queued edits to be committed and closes the log. Edits made
+     * after this throw an IOException.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (channelLock) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return how many groups of edits have been committed
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * @return how many edits have been committed
+     */
+    public long getRecords() {
+        return records.sum();
+    }
+
+    @Override
+    public String toString() {
+        long groups = getCommits();
+        return String.format("UnitEditLog[version=%d, commits=%d, records=%d, recordsPerCommit=%.1f]",
+                catalog.getVersion(), groups, getRecords(), groups == 0 ? 0.0 : (double) getRecords() / groups);
+    }
+
+    // Replays every segment onto the catalog loaded from the snapshot, and opens the last one for appending
+    private void recover() throws IOException {
+        TreeMap<Long, Path> segments = segments();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            Path file = segment.getValue();
+            long valid = replay(file);
+            long size = Files.size(file);
+            if (valid < size) {
+                if (!segment.getKey().equals(segments.lastKey())) {
+                    throw new IOException("Corrupt record in " + file + " at offset " + valid
+                            + ", which is followed by later segments");
+                }
+                // The tail of the last segment is an edit that was being written when the process stopped
+                System.err.println("Truncating " + (size - valid) + " bytes of incomplete edits from " + file);
+                try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    truncate.truncate(valid);
+                    truncate.force(true);
+                }
+            }
+            logBytes += valid;
+        }
+        lastVersion = catalog.getVersion();
+        channel = openSegment(segments.isEmpty() ? lastVersion + 1 : segments.lastKey());
+    }
+
+    // Applies a segment's edits that are newer than the catalog, returning how many bytes hold whole, valid records
+    private long replay(Path file) throws IOException {
+        long valid = 0;
+        long version = catalog.getVersion();
+        List<UnitDelta> batch = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            Record record;
+            while ((record = readRecord(in)) != null) {
+                valid += record.bytes();
+                UnitDelta delta = record.delta();
+                // Edits up to the snapshot's version are already in it
+                if (delta.getVersion() > version) {
+                    version = delta.getVersion();
+                    batch.add(delta);
+                    if (batch.size() == REPLAY_BATCH) {
+                        catalog.apply(version, batch);
+                        batch.clear();
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            catalog.apply(batch.get(batch.size() - 1).getVersion(), batch);
+        }
+        return valid;
+    }
+
+    // The segments in the directory by the first version they may hold
+    private TreeMap<Long, Path> segments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        return segments;
+    }
+
+    private FileChannel openSegment(long firstVersion) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstVersion, SEGMENT_SUFFIX));
+        FileChannel segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            // Forcing a new segment's data is not enough; its name must reach the disk too
+            syncDirectory();
+            segment.position(segment.size());
+        } catch (IOException e) {
+            segment.close();
+            throw e;
+        }
+        return segment;
+    }
+
+    // Makes the files created, renamed or deleted in the directory so far survive a crash
+    private void syncDirectory() throws IOException {
+        if (SYNC_DIRECTORY) {
+            try (FileChannel entries = FileChannel.open(directory, StandardOpenOption.READ)) {
+                entries.force(true);
+            }
+        }
+    }
+
+    // Writes the snapshot next to the current one and then moves it into place, so a crash leaves one or the other,
+    // and returns once the move is durable
+    private void writeSnapshot(UnitCatalog.Snapshot snapshot) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16));
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeLong(snapshot.getVersion());
+            data.writeInt(snapshot.size());
+            for (Unit unit : snapshot.getUnits()) {
+                writeRecord(data, UnitDelta.between(snapshot.getVersion(), null, unit));
+            }
+            data.flush();
+            out.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+
+    private static UnitCatalog readSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a unit snapshot");
+            }
+            long version = in.readLong();
+            int count = in.readInt();
+            List<Unit> units = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Record record = readRecord(in);
+                if (record == null) {
+                    throw new IOException(file + " is corrupt after " + i + " of " + count + " units");
+                }
+                units.add(record.delta().applyTo(null));
+            }
+            UnitCatalog catalog = new UnitCatalog(List.of());
+            catalog.reset(version, units);
+            return catalog;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, UnitDelta delta) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        try (JsonGenerator gen = SMILE.createGenerator(payload)) {
+            UnitDeltaCodec.write(gen, delta);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload.toByteArray());
+        out.writeInt(payload.size());
+        out.writeInt((int) crc.getValue());
+        payload.writeTo(out);
+    }
+
+    /**
+     * @return the next record, or null at the end of the stream or at a
+     * record that is incomplete or fails its checksum
+     */
+    private static Record readRecord(DataInputStream in) throws IOException {
+        byte[] payload;
+        int checksum;
+        try {
+            int length = in.readInt();
+            checksum = in.readInt();
+            if (length < 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            payload = new byte[length];
+            in.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        try (JsonParser p = SMILE.createParser(payload)) {
+            p.nextToken();
+            return new Record(UnitDeltaCodec.read(p), Integer.BYTES * 2 + payload.length);
+        }
+    }
+}
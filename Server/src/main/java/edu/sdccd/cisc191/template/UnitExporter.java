@@ -0,0 +1,296 @@
+package edu.sdccd.cisc191.template;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes units out as a CSV in the schema {@link UnitStatsLoader} reads, or
+ * as JSON Lines, one {@link UnitCodec} object per line.
+ *
+ * Units are formatted straight into one reusable buffer that is written to
+ * the channel whenever it fills, so an export allocates next to nothing per
+ * unit, uses the same memory however many units it writes, and is limited
+ * by how fast the channel takes the bytes.
+ *
+ * Loading an export gives back units equal to the ones exported. The CSV
+ * holds what a loader can read back: fields containing a comma are quoted,
+ * while double quotes, line breaks and spaces around a value, which the
+ * loader would drop or split on, are left out of the export.
+ */
+public final class UnitExporter {
+    /** The formats units can be exported in. */
+    public enum Format {
+        CSV, JSON_LINES;
+
+        /**
+         * @return JSON_LINES for a .jsonl or .ndjson file, otherwise CSV
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+        }
+    }
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    // Longest a formatted int can be: a sign and ten digits
+    private static final int MAX_INT_CHARS = 11;
+    private static final byte[] HEADER = (UnitStatsLoader.HEADER + "\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PADDING = ",,,,".getBytes(StandardCharsets.US_ASCII);
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final byte[] digits = new byte[MAX_INT_CHARS];
+    private long bytesWritten;
+
+    private UnitExporter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Exports units to a file, replacing it if it exists.
+     *
+     * @param units  the units to export, such as a catalog snapshot's
+     * @param file   the file to write
+     * @param format the format to write
+     * @return the number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public static long export(Iterable<Unit> units, Path file, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(units, channel, format);
+        }
+    }
+
+    /**
+     * Exports units to a channel, which is left open.
+     *
+     * @param units   the units to export
+     * @param channel where to write them
+     * @param format  the format to write
+     * @return the number of bytes written
+     * @throws IOException if the channel cannot be written
+     */
+    public static long export(Iterable<Unit> units, WritableByteChannel channel, Format format) throws IOException {
+        UnitExporter exporter = new UnitExporter(channel);
+        if (format == Format.CSV) {
+            exporter.writeCsv(units);
+        } else {
+            exporter.writeJsonLines(units);
+        }
+        exporter.flush();
+        return exporter.bytesWritten;
+    }
+
+    /**
+     * Exports the units of a CSV file, as the server would load them, to a
+     * CSV or JSON Lines file chosen by its extension.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: UnitExporter <input.csv> <output.csv|output.jsonl>");
+            System.exit(2);
+        }
+        UnitCatalog.Snapshot snapshot = new UnitCatalog(UnitStatsLoader.loadUnits(args[0])).snapshot();
+        Path output = Path.of(args[1]);
+
+        long start = System.nanoTime();
+        long bytes = export(snapshot.getUnits(), output, Format.of(output));
+        System.out.printf("Exported %d units (%d bytes) to %s in %.1f s%n", snapshot.size(), bytes, output,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    private void writeCsv(Iterable<Unit> units) throws IOException {
+        put(HEADER);
+        for (Unit unit : units) {
+            putField(unit.getUnitType());
+            putByte(',');
+            putField(unit.getUnitName());
+            putByte(',');
+            putField(unit.getSpecialization());
+            putByte(',');
+            putInt(unit.getPrice());
+            putByte(',');
+            putInt(unit.getArmor());
+            putByte(',');
+            putInt(unit.getHealth());
+            putByte(',');
+            putInt(unit.getSightRange());
+            putByte(',');
+            putDouble(unit.getUnseenRange());
+            putByte(',');
+            putInt(unit.getSpeed());
+            putByte(',');
+            putInt(unit.getWeight());
+            putByte(',');
+            putField(unit.getAbilities());
+            putByte(',');
+            putInt(unit.getExtraStat());
+            put(PADDING);
+            putByte('\n');
+        }
+    }
+
+    private void writeJsonLines(Iterable<Unit> units) throws IOException {
+        // Jackson formats into its own reused buffer and hands this exporter's buffer whole chunks
+        try (JsonGenerator gen = JSON.createGenerator(new BufferStream(), JsonEncoding.UTF8)) {
+            gen.setRootValueSeparator(null);
+            for (Unit unit : units) {
+                UnitCodec.write(gen, unit);
+                gen.writeRaw('\n');
+            }
+        }
+    }
+
+    // Writes a text field as the loader will read it back, quoted if it holds a comma
+    private void putField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int comma = value.indexOf(',', start);
+        boolean quoted = comma >= 0 && comma < end;
+        if (quoted) {
+            putByte('"');
+        }
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            // Room for the longest UTF-8 sequence a char can start
+            ensure(4);
+            if (c == '"') {
+                continue;
+            }
+            if (c == '\n' || c == '\r') {
+                c = ' ';
+            }
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else {
+                putUtf8(value, i);
+                if (Character.isHighSurrogate(c)) {
+                    i++;
+                }
+            }
+        }
+        if (quoted) {
+            putByte('"');
+        }
+    }
+
+    private void putUtf8(String value, int index) {
+        int codePoint = value.codePointAt(index);
+        if (codePoint < 0x800) {
+            buffer.put((byte) (0xC0 | (codePoint >> 6)));
+        } else if (codePoint < 0x10000) {
+            buffer.put((byte) (0xE0 | (codePoint >> 12)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+        } else {
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+        }
+        buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+    }
+
+    private void putInt(int value) throws IOException {
+        ensure(MAX_INT_CHARS);
+        if (value == Integer.MIN_VALUE) {
+            putAscii("-2147483648");
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, i, digits.length - i);
+    }
+
+    private void putDouble(double value) throws IOException {
+        if (value == (int) value && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO) {
+            // Whole numbers, such as most ranges, parse back the same without ".0"
+            putInt((int) value);
+        } else {
+            // The shortest form that parses back to exactly this value
+            putAscii(Double.toString(value));
+        }
+    }
+
+    private void putByte(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+    }
+
+    private void putAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        put(bytes, 0, bytes.length);
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensure(1);
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    // Makes room for the given number of bytes, writing the buffer out if it is too full
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Lets a JSON generator write into the exporter's buffer. */
+    private final class BufferStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            put(bytes, offset, length);
+        }
+    }
+}
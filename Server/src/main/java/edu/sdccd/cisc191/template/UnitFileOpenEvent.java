@@ -0,0 +1,30 @@
+package edu.sdccd.cisc191.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for {@link UnitStatsLoader} opening a unit stats
+ * CSV, from looking the file up to having a reader on it.
+ */
+@Name("edu.sdccd.cisc191.template.UnitFileOpen")
+@Label("Unit File Open")
+@Category({"Broken Arrow", "Loader"})
+@Description("Opening a unit stats CSV file or classpath resource")
+class UnitFileOpenEvent extends Event {
+    @Label("Source")
+    @Description("The file path or classpath resource name")
+    String source;
+
+    @Label("File Size")
+    @Description("The file's size, or -1 for a classpath resource")
+    @DataAmount
+    long size;
+
+    @Label("Found")
+    boolean found;
+}
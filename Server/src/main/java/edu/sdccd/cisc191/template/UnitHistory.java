@@ -0,0 +1,309 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Every version of the catalog, such as one per game patch, for queries
+ * "as of" a version and for how a unit changed across versions.
+ *
+ * Versions are not stored as copies of the catalog. Each unit has a chain
+ * of its revisions, one per version in which it was added, changed or
+ * removed, and a version shares every unit it did not change with the one
+ * before. Memory grows with the number of changes rather than versions
+ * times units. Looking a unit up as of a version is a hash lookup and a
+ * binary search of its chain, which is rarely more than a few entries long.
+ *
+ * Units have setters, so the history stores its own copy of every unit it
+ * is given rather than the caller's instance; a caller that edits a unit and
+ * adds it again records a new revision without changing the earlier one.
+ * Units handed out by the history are shared by its readers and must be
+ * treated as read-only.
+ *
+ * Versions are added in increasing order by a single writer at a time,
+ * while any number of readers query without locking. A reader sees a
+ * version added with {@link #addVersion} only once all of its changes have
+ * been recorded.
+ */
+public class UnitHistory {
+    /**
+     * A unit as of one version.
+     *
+     * @param version the version in which the unit took this state
+     * @param unit    the unit, or null if it was removed in that version
+     */
+    public record Revision(long version, Unit unit) {
+    }
+
+    /**
+     * The revisions of one unit, oldest first. A chain is never changed once
+     * published; recording a revision publishes a longer copy, and the
+     * chains of unchanged units are shared by every later version.
+     */
+    private static final class Chain {
+        private static final Chain EMPTY = new Chain(new long[0], new Unit[0]);
+
+        private final long[] versions;
+        private final Unit[] units;
+
+        private Chain(long[] versions, Unit[] units) {
+            this.versions = versions;
+            this.units = units;
+        }
+
+        Unit latest() {
+            return units.length == 0 ? null : units[units.length - 1];
+        }
+
+        // The revision in effect at the given version, or -1 if the unit did not exist yet
+        int indexAt(long version) {
+            int index = Arrays.binarySearch(versions, version);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        Unit at(long version) {
+            int index = indexAt(version);
+            return index < 0 ? null : units[index];
+        }
+
+        Chain with(long version, Unit unit) {
+            int last = versions.length - 1;
+            if (last >= 0 && versions[last] == version) {
+                // A second change in the same version replaces the first
+                Unit[] replaced = units.clone();
+                replaced[last] = unit;
+                return new Chain(versions, replaced);
+            }
+            long[] longerVersions = Arrays.copyOf(versions, versions.length + 1);
+            Unit[] longerUnits = Arrays.copyOf(units, units.length + 1);
+            longerVersions[versions.length] = version;
+            longerUnits[units.length] = unit;
+            return new Chain(longerVersions, longerUnits);
+        }
+    }
+
+    private final Map<String, Chain> byName = new ConcurrentHashMap<>();
+    // The same chains sorted by name, for list and range queries, and by every type a unit has ever had
+    private final NavigableMap<String, Chain> sorted = new ConcurrentSkipListMap<>();
+    private final Map<String, NavigableMap<String, Chain>> sortedByType = new ConcurrentHashMap<>();
+    private volatile long latestVersion;
+    private long revisions;
+
+    /**
+     * Creates a history with no versions. Its latest version is 0.
+     */
+    public UnitHistory() {
+    }
+
+    /**
+     * Creates a history that starts with a catalog's current snapshot and
+     * records every later change to it. The catalog must still remember the
+     * changes made since the snapshot, which it does unless more than
+     * {@link UnitCatalog#DEFAULT_DELTA_LOG_SIZE} are made in between.
+     *
+     * @param catalog the catalog to follow
+     * @return the history
+     */
+    public static UnitHistory follow(UnitCatalog catalog) {
+        UnitHistory history = new UnitHistory();
+        UnitCatalog.Snapshot snapshot = catalog.snapshot();
+        if (snapshot.getVersion() > 0) {
+            history.addVersion(snapshot.getVersion(), snapshot.getUnits());
+        }
+        Consumer<UnitDelta> subscriber = history::record;
+        if (!catalog.subscribe(snapshot.getVersion(), subscriber)) {
+            catalog.unsubscribe(subscriber);
+            throw new IllegalStateException("The catalog no longer has the changes since version " + snapshot.getVersion());
+        }
+        return history;
+    }
+
+    /**
+     * Records a whole version, such as a patch's full unit list. Only units
+     * that differ from the previous version are stored; units of the
+     * previous version that are missing are recorded as removed.
+     *
+     * @param version the version, greater than {@link #getLatestVersion()}
+     * @param units   every unit in that version; units without a name are skipped
+     * @return the number of units added, changed or removed
+     */
+    public synchronized int addVersion(long version, Collection<Unit> units) {
+        if (version <= latestVersion) {
+            throw new IllegalArgumentException("Version " + version + " is not after " + latestVersion);
+        }
+        Map<String, Unit> present = new HashMap<>();
+        for (Unit unit : units) {
+            if (unit.getUnitName() != null && !unit.getUnitName().isBlank()) {
+                present.put(unit.getUnitName(), unit);
+            }
+        }
+        int changes = 0;
+        for (Unit unit : present.values()) {
+            Chain chain = byName.getOrDefault(unit.getUnitName(), Chain.EMPTY);
+            // Compared with the history's own copy, which the caller cannot have changed since
+            UnitDelta delta = UnitDelta.between(version, chain.latest(), unit);
+            if (delta != null) {
+                Unit copy = delta.applyTo(chain.latest());
+                store(unit.getUnitName(), chain.with(version, copy), copy);
+                changes++;
+            }
+        }
+        for (Map.Entry<String, Chain> entry : byName.entrySet()) {
+            if (entry.getValue().latest() != null && !present.containsKey(entry.getKey())) {
+                store(entry.getKey(), entry.getValue().with(version, null), null);
+                changes++;
+            }
+        }
+        latestVersion = version;
+        return changes;
+    }
+
+    /**
+     * Records one change, such as one a {@link UnitCatalog} hands its
+     * subscribers. Several changes may share a version, as when a catalog is
+     * reset; readers can see such a version before all of its changes are
+     * recorded.
+     *
+     * @param delta the change, at or after {@link #getLatestVersion()}
+     */
+    public synchronized void record(UnitDelta delta) {
+        if (delta.getVersion() < latestVersion) {
+            throw new IllegalArgumentException("Version " + delta.getVersion() + " is before " + latestVersion);
+        }
+        Chain chain = byName.getOrDefault(delta.getUnitName(), Chain.EMPTY);
+        Unit unit = delta.applyTo(chain.latest());
+        store(delta.getUnitName(), chain.with(delta.getVersion(), unit), unit);
+        latestVersion = delta.getVersion();
+    }
+
+    private void store(String unitName, Chain chain, Unit unit) {
+        Chain old = byName.put(unitName, chain);
+        if (old == null || old.versions.length < chain.versions.length) {
+            revisions++;
+        }
+        sorted.put(unitName, chain);
+        if (unit != null) {
+            sortedByType.computeIfAbsent(unit.getUnitType(), type -> new ConcurrentSkipListMap<>()).put(unitName, chain);
+        }
+        // A unit that changed type is still listed under its old types, for versions it had them in
+        for (NavigableMap<String, Chain> ofType : sortedByType.values()) {
+            ofType.replace(unitName, chain);
+        }
+    }
+
+    /**
+     * @return the latest version readers can see, or 0 if there is none
+     */
+    public long getLatestVersion() {
+        return latestVersion;
+    }
+
+    /**
+     * @return how many revisions are stored across every unit and version
+     */
+    public synchronized long getRevisions() {
+        return revisions;
+    }
+
+    /**
+     * @param unitName the unit to look up
+     * @param version  the version to look it up as of
+     * @return the unit as it was in that version, or null if it did not exist then
+     */
+    public Unit get(String unitName, long version) {
+        Chain chain = unitName == null ? null : byName.get(unitName);
+        return chain == null ? null : chain.at(Math.min(version, latestVersion));
+    }
+
+    /**
+     * Lists the units of a type as they were in a version, sorted by name.
+     *
+     * @param unitType a unit type, or null for every unit
+     * @param version  the version to list as of
+     * @return the units of that type in that version
+     */
+    public List<Unit> list(String unitType, long version) {
+        return range(unitType, null, null, version);
+    }
+
+    /**
+     * Lists the units of a type with names in a range, as they were in a
+     * version, sorted by name.
+     *
+     * @param unitType a unit type, or null for every unit
+     * @param fromName the first name to include, or null for no lower bound
+     * @param toName   the first name to exclude, or null for no upper bound
+     * @param version  the version to list as of
+     * @return the matching units in that version
+     */
+    public List<Unit> range(String unitType, String fromName, String toName, long version) {
+        long asOf = Math.min(version, latestVersion);
+        NavigableMap<String, Chain> candidates = unitType == null ? sorted : sortedByType.get(unitType);
+        if (candidates == null || (fromName != null && toName != null && fromName.compareTo(toName) >= 0)) {
+            return List.of();
+        }
+        if (fromName != null && toName != null) {
+            candidates = candidates.subMap(fromName, true, toName, false);
+        } else if (fromName != null) {
+            candidates = candidates.tailMap(fromName, true);
+        } else if (toName != null) {
+            candidates = candidates.headMap(toName, false);
+        }
+        List<Unit> result = new ArrayList<>();
+        for (Chain chain : candidates.values()) {
+            Unit unit = chain.at(asOf);
+            if (unit != null && (unitType == null || unitType.equals(unit.getUnitType()))) {
+                result.add(unit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists how a unit changed over a span of versions: the revision in
+     * effect at the first version, if the unit existed then, followed by
+     * every revision up to and including the last.
+     *
+     * @param unitName    the unit
+     * @param fromVersion the first version
+     * @param toVersion   the last version
+     * @return the revisions, oldest first; empty if the unit never existed in the span
+     */
+    public List<Revision> history(String unitName, long fromVersion, long toVersion) {
+        Chain chain = unitName == null ? null : byName.get(unitName);
+        if (chain == null) {
+            return List.of();
+        }
+        int first = Math.max(chain.indexAt(fromVersion), 0);
+        int last = chain.indexAt(Math.min(toVersion, latestVersion));
+        List<Revision> result = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            if (chain.units[i] != null || !result.isEmpty()) {
+                result.add(new Revision(chain.versions[i], chain.units[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param unitName the unit
+     * @return every revision of the unit, oldest first
+     */
+    public List<Revision> history(String unitName) {
+        return history(unitName, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return "UnitHistory[latestVersion=" + latestVersion + ", units=" + byName.size()
+                + ", revisions=" + getRevisions() + "]";
+    }
+}
@@ -0,0 +1,40 @@
+package edu.sdccd.cisc191.template;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for {@link UnitStatsLoader} reading and parsing
+ * one chunk of {@link UnitStatsLoader#CHUNK_ROWS} rows of a unit stats CSV,
+ * so a slow load shows whether the time went to a few bad rows or was
+ * spread over the whole file.
+ */
+@Name("edu.sdccd.cisc191.template.UnitParse")
+@Label("Unit Parse")
+@Category({"Broken Arrow", "Loader"})
+@Description("Reading and parsing one chunk of rows of a unit stats CSV")
+@StackTrace(false)
+class UnitParseEvent extends Event {
+    @Label("Source")
+    String source;
+
+    @Label("First Row")
+    @Description("The number of the chunk's first data row, counting from 0")
+    long firstRow;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Incomplete Rows")
+    @Description("Rows with no type or name, or with a stat that was missing or malformed and read as 0")
+    int incompleteRows;
+
+    @Label("Characters")
+    @DataAmount
+    long characters;
+}
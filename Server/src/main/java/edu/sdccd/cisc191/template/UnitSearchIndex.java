@@ -0,0 +1,468 @@
+package edu.sdccd.cisc191.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * A typeahead index over unit names and specializations.
+ *
+ * Both fields are split into lowercase words. A short name word, of up to
+ * three letters, is also kept joined to the word after it, so "t14" finds
+ * "T-14 Armata". A query is
+ * split the same way, and a unit matches when every query word is the start
+ * of one of its words. A word of up to three letters must match exactly.
+ * Longer words may be off by one typo, and words of eight or more letters by
+ * two, so "Armatta" still finds the Armata. A typo is a missing, extra,
+ * wrong or swapped letter.
+ *
+ * Matching is done on the vocabulary, each distinct word once, rather than
+ * on units, since thousands of units share words like "Tank" or "Brigade".
+ * Exact prefixes are a binary search in the sorted vocabulary. Words that
+ * may hold typos are found through an index of the three-letter sequences
+ * each word contains, and only words sharing enough of the query word's
+ * sequences are compared letter by letter. The longest query word picks the
+ * words to start from: exact matches before typos, and names before
+ * specializations. Their units are walked in that order, checking the other
+ * query words against each unit's few words, until there are enough
+ * results. So a search costs about as much as the results it returns, not
+ * the size of the catalog.
+ *
+ * Typing one more letter can only remove matching words. A {@link Session}
+ * remembers the words the last query's longest word matched with typos and
+ * checks only those against the next one, rather than the whole
+ * vocabulary. The index is immutable once built and safe to share; each
+ * session is for one thread.
+ */
+public final class UnitSearchIndex {
+    private static final byte NAME = 0;
+    private static final byte SPECIALIZATION = 1;
+
+    private final Unit[] units;
+    // Each distinct word of each field, and the units using it in name order
+    private final String[] vocabulary;
+    private final byte[] vocabularyField;
+    private final int[][] vocabularyUnits;
+    // Each unit's words, as vocabulary ids
+    private final int[][] unitWords;
+    // Vocabulary ids sorted by word, one array per field so names can be scanned first
+    private final int[][] sorted = new int[2][];
+    // For each three-letter sequence, the vocabulary ids of the words containing it
+    private final Map<String, int[]> trigrams;
+
+    /**
+     * Indexes the units. With many units this takes a while, so build it off
+     * the JavaFX Application Thread.
+     *
+     * @param units the units to search
+     */
+    public UnitSearchIndex(List<Unit> units) {
+        this.units = units.toArray(new Unit[0]);
+        // Ties in ranking go to the unit whose name sorts first
+        Arrays.sort(this.units, Comparator.comparing(Unit::getUnitName));
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        List<Byte> fields = new ArrayList<>();
+        List<List<Integer>> postings = new ArrayList<>();
+        unitWords = new int[this.units.length][];
+        for (int u = 0; u < this.units.length; u++) {
+            List<String> nameTokens = tokenize(this.units[u].getUnitName());
+            Set<String> nameWords = new LinkedHashSet<>(nameTokens);
+            for (int i = 0; i + 1 < nameTokens.size(); i++) {
+                if (nameTokens.get(i).length() <= 3) {
+                    nameWords.add(nameTokens.get(i) + nameTokens.get(i + 1));
+                }
+            }
+            String specialization = this.units[u].getSpecialization();
+            Set<String> specializationWords = new LinkedHashSet<>(tokenize(specialization == null ? "" : specialization));
+
+            List<Integer> mine = new ArrayList<>();
+            for (byte field = NAME; field <= SPECIALIZATION; field++) {
+                for (String word : field == NAME ? nameWords : specializationWords) {
+                    if (word.isEmpty()) {
+                        continue;
+                    }
+                    final byte f = field;
+                    int id = ids.computeIfAbsent(f + word, k -> {
+                        words.add(word);
+                        fields.add(f);
+                        postings.add(new ArrayList<>());
+                        return words.size() - 1;
+                    });
+                    postings.get(id).add(u);
+                    mine.add(id);
+                }
+            }
+            unitWords[u] = mine.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        vocabulary = words.toArray(new String[0]);
+        vocabularyField = new byte[vocabulary.length];
+        vocabularyUnits = new int[vocabulary.length][];
+        for (int w = 0; w < vocabulary.length; w++) {
+            vocabularyField[w] = fields.get(w);
+            vocabularyUnits[w] = postings.get(w).stream().mapToInt(Integer::intValue).toArray();
+        }
+        for (byte field = NAME; field <= SPECIALIZATION; field++) {
+            final byte f = field;
+            sorted[field] = IntStream.range(0, vocabulary.length)
+                    .filter(w -> vocabularyField[w] == f)
+                    .boxed()
+                    .sorted(Comparator.comparing((Integer w) -> vocabulary[w]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        Map<String, List<Integer>> grams = new HashMap<>();
+        for (int w = 0; w < vocabulary.length; w++) {
+            for (String trigram : new LinkedHashSet<>(trigramsOf(vocabulary[w]))) {
+                grams.computeIfAbsent(trigram, k -> new ArrayList<>()).add(w);
+            }
+        }
+        trigrams = new HashMap<>(grams.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : grams.entrySet()) {
+            trigrams.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Searches without remembering anything for the next query.
+     *
+     * @param query what the user typed
+     * @param limit the most units to return
+     * @return the best matching units, best first
+     */
+    public List<Unit> search(String query, int limit) {
+        return session().search(query, limit);
+    }
+
+    /**
+     * @return a new session, for one search box
+     */
+    public Session session() {
+        return new Session();
+    }
+
+    public int size() {
+        return units.length;
+    }
+
+    /**
+     * The search state behind one search box. When the longest word of a
+     * query extends the previous one's and is allowed as many typos, only the
+     * words it matched before are checked again.
+     */
+    public final class Session {
+        private final int[] counts = new int[vocabulary.length];
+        private String lastToken;
+        private int[] lastFuzzy;
+        private long narrowed;
+        private long full;
+
+        private Session() {
+        }
+
+        /**
+         * @param query what the user typed
+         * @param limit the most units to return
+         * @return the best matching units, best first
+         */
+        public List<Unit> search(String query, int limit) {
+            List<String> tokens = tokenize(query);
+            if (tokens.isEmpty() || limit <= 0) {
+                lastToken = null;
+                return List.of();
+            }
+            String driver = longest(tokens);
+            List<BitSet> others = new ArrayList<>();
+            for (String token : tokens) {
+                if (token != driver) {
+                    others.add(matchingWords(token));
+                }
+            }
+
+            // Words the driver starts exactly, in word order, names first
+            List<int[]> starts = new ArrayList<>();
+            for (byte field = NAME; field <= SPECIALIZATION; field++) {
+                starts.add(startingWith(field, driver));
+            }
+            Set<Integer> found = new LinkedHashSet<>();
+            for (int[] range : starts) {
+                for (int i = range[1]; i < range[2] && found.size() < limit; i++) {
+                    collect(sorted[range[0]][i], others, found, limit);
+                }
+            }
+
+            // Typos are only looked for when exact matches do not fill the results
+            if (found.size() >= limit || tolerance(driver) == 0) {
+                lastToken = null;
+            } else {
+                int[] fuzzy = fuzzyWords(driver);
+                lastToken = driver;
+                lastFuzzy = fuzzy;
+                // Fewest typos first, then names, then in word order
+                List<long[]> ranked = new ArrayList<>();
+                for (int w : fuzzy) {
+                    int edits = prefixDistance(driver, vocabulary[w], tolerance(driver));
+                    if (edits > 0) {
+                        ranked.add(new long[] {edits, vocabularyField[w], w});
+                    }
+                }
+                ranked.sort(Comparator.<long[]>comparingLong(r -> r[0]).thenComparingLong(r -> r[1])
+                        .thenComparing(r -> vocabulary[(int) r[2]]));
+                for (int i = 0; i < ranked.size() && found.size() < limit; i++) {
+                    collect((int) ranked.get(i)[2], others, found, limit);
+                }
+            }
+
+            List<Unit> result = new ArrayList<>(found.size());
+            for (int unit : found) {
+                result.add(units[unit]);
+            }
+            return result;
+        }
+
+        /**
+         * @return searches that only rechecked the previous query's words
+         */
+        public long getNarrowed() {
+            return narrowed;
+        }
+
+        /**
+         * @return searches that looked through the whole vocabulary for typos
+         */
+        public long getFull() {
+            return full;
+        }
+
+        // The vocabulary words a token other than the longest matches, exactly or within its typos
+        private BitSet matchingWords(String token) {
+            BitSet words = new BitSet(vocabulary.length);
+            for (byte field = NAME; field <= SPECIALIZATION; field++) {
+                int[] range = startingWith(field, token);
+                for (int i = range[1]; i < range[2]; i++) {
+                    words.set(sorted[field][i]);
+                }
+            }
+            if (tolerance(token) > 0) {
+                for (int w : within(token, trigramCandidates(token))) {
+                    words.set(w);
+                }
+            }
+            return words;
+        }
+
+        // Words within the token's typos, found from the previous query's if it could only have had more
+        private int[] fuzzyWords(String token) {
+            if (lastToken != null && token.startsWith(lastToken) && tolerance(lastToken) == tolerance(token)) {
+                narrowed++;
+                return within(token, lastFuzzy);
+            }
+            full++;
+            return within(token, trigramCandidates(token));
+        }
+
+        private int[] within(String token, int[] candidates) {
+            int tolerance = tolerance(token);
+            int[] matches = new int[candidates.length];
+            int count = 0;
+            for (int w : candidates) {
+                if (prefixDistance(token, vocabulary[w], tolerance) <= tolerance) {
+                    matches[count++] = w;
+                }
+            }
+            return Arrays.copyOf(matches, count);
+        }
+
+        // Words sharing enough three-letter sequences with the token to be within its typos
+        private int[] trigramCandidates(String token) {
+            // Each typo changes at most four of the sequences, so a match keeps all but that many
+            Set<String> grams = new LinkedHashSet<>(trigramsOf(token));
+            int needed = Math.max(1, grams.size() - 4 * tolerance(token));
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (String gram : grams) {
+                int[] posting = trigrams.get(gram);
+                if (posting == null) {
+                    continue;
+                }
+                for (int w : posting) {
+                    if (counts[w]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = w;
+                    }
+                }
+            }
+            int[] candidates = new int[touchedCount];
+            int count = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int w = touched[i];
+                if (counts[w] >= needed) {
+                    candidates[count++] = w;
+                }
+                counts[w] = 0;
+            }
+            return Arrays.copyOf(candidates, count);
+        }
+    }
+
+    // The range of the field's sorted words that start with the prefix, as field, from and to
+    private int[] startingWith(byte field, String prefix) {
+        int[] order = sorted[field];
+        int from = lowerBound(order, prefix);
+        int to = from;
+        while (to < order.length && vocabulary[order[to]].startsWith(prefix)) {
+            to++;
+        }
+        return new int[] {field, from, to};
+    }
+
+    // Adds the word's units that every other token also matches, up to the limit
+    private void collect(int word, List<BitSet> others, Set<Integer> found, int limit) {
+        for (int unit : vocabularyUnits[word]) {
+            if (found.size() >= limit) {
+                return;
+            }
+            if (!found.contains(unit) && matchesAll(unit, others)) {
+                found.add(unit);
+            }
+        }
+    }
+
+    private boolean matchesAll(int unit, List<BitSet> others) {
+        for (BitSet words : others) {
+            boolean matched = false;
+            for (int w : unitWords[unit]) {
+                if (words.get(w)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lowerBound(int[] order, String prefix) {
+        int low = 0, high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (vocabulary[order[mid]].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String longest(List<String> tokens) {
+        String longest = tokens.get(0);
+        for (String token : tokens) {
+            if (token.length() > longest.length()) {
+                longest = token;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * @return how many typos a query word of this length may have
+     */
+    static int tolerance(String token) {
+        return token.length() < 4 ? 0 : token.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * The fewest typos that turn the query word into the start of the word,
+     * counting a swap of neighboring letters as one.
+     *
+     * @param max give up once the answer is known to be above this
+     * @return the distance, or max + 1 if it is more than max
+     */
+    static int prefixDistance(String query, String word, int max) {
+        if (word.startsWith(query)) {
+            return 0;
+        }
+        if (max == 0) {
+            return 1;
+        }
+        int n = query.length(), m = Math.min(word.length(), query.length() + max);
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = query.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == word.charAt(j - 2) && query.charAt(i - 2) == word.charAt(j - 1)) {
+                    d = Math.min(d, previous2[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        // The query may end anywhere in the word
+        int best = max + 1;
+        for (int j = 0; j <= m; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Splits text into lowercase words of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (char c : text.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    // The word's three-letter sequences, padded at the start so its first letters count too
+    private static List<String> trigramsOf(String word) {
+        String padded = "$$" + word;
+        List<String> grams = new ArrayList<>(word.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
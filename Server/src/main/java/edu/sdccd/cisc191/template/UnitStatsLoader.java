@@ -1,6 +1,10 @@
 package edu.sdccd.cisc191.template;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +20,18 @@ import java.util.List;
 
 //Class used to access the CSV file and create units with the data from the file.
 public class UnitStatsLoader {
+    // Classpath location of the unit stats CSV that ships with the server
+    public static final String DEFAULT_RESOURCE = "/Broken Arrow Unit Stats.csv";
+    // The header row, exactly as the bundled file has it
+    public static final String HEADER =
+            "UnitType,UnitName,specialization,price,armor,health,sightRange,unseenRange,speed,weight,abilities,ExtraStat,,,,";
+    // Rows parsed per UnitParseEvent; large enough that recording them costs nothing noticeable
+    static final int CHUNK_ROWS = 10_000;
+    // Columns UnitGenerator reads as numbers, falling back to 0 when one is blank or malformed
+    private static final int[] INT_COLUMNS = {3, 4, 5, 6, 8, 9, 11};
+    private static final int DOUBLE_COLUMN = 7;
+    private static final JsonFactory JSON = new JsonFactory();
+
     /**
      * Loads units from a CSV file at the given path.
      * <p>
@@ -33,6 +49,8 @@ public class UnitStatsLoader {
     public static List<Unit> loadUnits(String path)
     {
         List<Unit> units = new ArrayList<>();
+        UnitFileOpenEvent open = new UnitFileOpenEvent();
+        open.begin();
 
         File file = new File(path);
         // Try to locate the file in the given path or in src/main/resources/
@@ -45,6 +63,7 @@ public class UnitStatsLoader {
         if (!file.exists())
         {
             System.err.println("File not found: " + path);
+            commitOpen(open, path, -1, false);
             return units;
         }
 
@@ -53,51 +72,202 @@ public class UnitStatsLoader {
         */
         try (BufferedReader br = new BufferedReader(new FileReader(file)))
         {
-            String line;
-            // Read and discard the header row
-            if ((line = br.readLine()) == null)
+            commitOpen(open, path, file.length(), true);
+            readUnits(br, units, path);
+        }
+
+        //Handles any errors if the file is not found
+        catch (FileNotFoundException e)
+        {
+            throw new RuntimeException("File not found: " + path, e);
+        }
+
+        // Handles any errors and if an error occurs will return an empty string.
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error reading file: " + path, e);
+        }
+
+        return units;
+    }
+
+    /**
+     * Loads units from a CSV file on the classpath, such as {@link #DEFAULT_RESOURCE}.
+     * Unlike {@link #loadUnits(String)} this does not depend on the working directory
+     * or on where the project was checked out.
+     *
+     * @param resource The absolute classpath name of the CSV file.
+     * @return A list of Unit objects loaded from the CSV file, empty if the resource does not exist.
+     * @throws RuntimeException if the resource cannot be read.
+     */
+    public static List<Unit> loadResource(String resource)
+    {
+        List<Unit> units = new ArrayList<>();
+        UnitFileOpenEvent open = new UnitFileOpenEvent();
+        open.begin();
+        InputStream in = UnitStatsLoader.class.getResourceAsStream(resource);
+        commitOpen(open, resource, -1, in != null);
+        if (in == null)
+        {
+            System.err.println("Resource not found: " + resource);
+            return units;
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)))
+        {
+            readUnits(br, units, resource);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error reading resource: " + resource, e);
+        }
+        return units;
+    }
+
+    /**
+     * Loads units from a JSON Lines file, one unit object per line, such as one written by
+     * {@link UnitExporter}.
+     *
+     * @param path The path to the JSON Lines file.
+     * @return A list of Unit objects in the order of the file, empty if the file does not exist.
+     * @throws RuntimeException if the file cannot be read or a line is not a unit.
+     */
+    public static List<Unit> loadJsonLines(String path)
+    {
+        List<Unit> units = new ArrayList<>();
+        File file = new File(path);
+        if (!file.exists())
+        {
+            System.err.println("File not found: " + path);
+            return units;
+        }
+        try (JsonParser parser = JSON.createParser(file))
+        {
+            // Objects on consecutive lines read as a sequence of root values
+            while (parser.nextToken() != null)
             {
-                return units;
+                units.add(UnitCodec.read(parser));
             }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Error reading file: " + path, e);
+        }
+        return units;
+    }
 
-            // while loop reads the file one line at a time until no more lines occur.
-            while ((line = br.readLine()) != null)
+    // Records opening a file or resource as a Flight Recorder event, if one is being recorded
+    private static void commitOpen(UnitFileOpenEvent event, String source, long size, boolean found)
+    {
+        if (event.shouldCommit())
+        {
+            event.source = source;
+            event.size = size;
+            event.found = found;
+            event.commit();
+        }
+    }
+
+    // Reads the header row and then every data row of the CSV, adding a Unit for each row to the list.
+    private static void readUnits(BufferedReader br, List<Unit> units, String source) throws IOException
+    {
+        String line;
+        // Read and discard the header row
+        if ((line = br.readLine()) == null)
+        {
+            return;
+        }
+
+        // Each chunk of CHUNK_ROWS rows is recorded as one Flight Recorder event
+        UnitParseEvent chunk = null;
+        long row = 0;
+        int incompleteRows = 0;
+        long characters = 0;
+
+        // while loop reads the file one line at a time until no more lines occur.
+        while ((line = br.readLine()) != null)
+        {
+            if (chunk == null)
+            {
+                chunk = new UnitParseEvent();
+                chunk.begin();
+            }
+            characters += line.length() + 1;
+            // Split the CSV line using a regex that ignores commas within quotes
+            String[] stats = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+            // for loop to Trim whitespace from each data point from csv file
+            for (int i = 0; i < stats.length; i++)
             {
-                // Split the CSV line using a regex that ignores commas within quotes
-                String[] stats = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
-                // for loop to Trim whitespace from each data point from csv file
-                for (int i = 0; i < stats.length; i++)
+                stats[i] = stats[i].trim();
+            }
+
+                //Uses the methods from UnitGenerator that creates an Unit object
+                try
                 {
-                    stats[i] = stats[i].trim();
+                    Unit unit = UnitGenerator.createUnit(stats);
+                    units.add(unit);
+                    if (chunk.isEnabled() && isIncomplete(stats))
+                    {
+                        incompleteRows++;
+                    }
                 }
 
-                    //Uses the methods from UnitGenerator that creates an Unit object
-                    try
+                    catch (NumberFormatException e)
                     {
-                        Unit unit = UnitGenerator.createUnit(stats);
-                        units.add(unit);
+                        System.err.println("Error parsing stats: " + line);
+                        e.printStackTrace();
+                        incompleteRows++;
                     }
 
-                        catch (NumberFormatException e)
-                        {
-                            System.err.println("Error parsing stats: " + line);
-                            e.printStackTrace();
-                        }
+            row++;
+            if (row % CHUNK_ROWS == 0)
+            {
+                commitChunk(chunk, source, row, incompleteRows, characters);
+                chunk = null;
+                incompleteRows = 0;
+                characters = 0;
             }
         }
-
-        //Handles any errors if the file is not found
-        catch (FileNotFoundException e)
+        if (chunk != null)
         {
-            throw new RuntimeException("File not found: " + path, e);
+            commitChunk(chunk, source, row, incompleteRows, characters);
         }
+    }
 
-        // Handles any errors and if an error occurs will return an empty string.
-        catch (IOException e)
+    // Whether a row, already cleaned by UnitGenerator, has no type or name or a stat that fell back to 0
+    static boolean isIncomplete(String[] stats)
+    {
+        if (stats.length <= INT_COLUMNS[INT_COLUMNS.length - 1] || stats[0].isEmpty() || stats[1].isEmpty())
         {
-            throw new RuntimeException("Error reading file: " + path, e);
+            return true;
         }
+        // The same parses UnitGenerator falls back from; only a row that is incomplete pays for an exception
+        try
+        {
+            for (int column : INT_COLUMNS)
+            {
+                Integer.parseInt(stats[column]);
+            }
+            Double.parseDouble(stats[DOUBLE_COLUMN]);
+            return false;
+        }
+        catch (NumberFormatException e)
+        {
+            return true;
+        }
+    }
 
-        return units;
+    // Records a parsed chunk that ends just before the given row, if one is being recorded
+    private static void commitChunk(UnitParseEvent event, String source, long endRow, int incompleteRows, long characters)
+    {
+        if (event.shouldCommit())
+        {
+            int rows = (int) ((endRow - 1) % CHUNK_ROWS) + 1;
+            event.source = source;
+            event.firstRow = endRow - rows;
+            event.rows = rows;
+            event.incompleteRows = incompleteRows;
+            event.characters = characters;
+            event.commit();
+        }
     }
-}
\ No newline at end of file
+}
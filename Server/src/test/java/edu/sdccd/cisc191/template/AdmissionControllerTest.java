@@ -0,0 +1,99 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest
+{
+    @Test
+    void testClientOverRateLimitIsRejected() throws Exception
+    {
+        AdmissionController admission = new AdmissionController(2, 10, 1.0, 2);
+        InetAddress client = InetAddress.getLoopbackAddress();
+        admission.connect(client);
+
+        assertNull(admission.execute(client, () -> {}));
+        assertNull(admission.execute(client, () -> {}));
+        CustomerResponse rejected = admission.execute(client, () -> fail("A rejected request must not run"));
+
+        assertEquals("rate limited", rejected.getError());
+        assertTrue(rejected.getRetryAfterMillis() > 0);
+        assertEquals(1, admission.getRejectedRateLimited());
+        admission.shutdown();
+    }
+
+    @Test
+    void testFullQueueIsRejectedImmediately() throws Exception
+    {
+        AdmissionController admission = new AdmissionController(1, 1, 0, 0);
+        InetAddress client = InetAddress.getLoopbackAddress();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // One request occupies the only worker and a second one fills the queue
+        AdmissionController.RequestTask blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread running = new Thread(() -> assertDoesNotThrow(() -> admission.execute(client, blocking)));
+        Thread queued = new Thread(() -> assertDoesNotThrow(() -> admission.execute(client, () -> {})));
+        running.start();
+        while (admission.getAdmitted() < 1) Thread.onSpinWait();
+        queued.start();
+        while (admission.getQueueDepth() < 1) Thread.onSpinWait();
+
+        CustomerResponse rejected = admission.execute(client, () -> fail("A rejected request must not run"));
+        assertEquals("overloaded", rejected.getError());
+        assertNotNull(rejected.getRetryAfterMillis());
+        assertEquals(1, admission.getRejectedOverloaded());
+
+        release.countDown();
+        running.join();
+        queued.join();
+        assertEquals(2, admission.getAdmitted());
+        assertEquals(0, admission.getQueueDepth());
+        admission.shutdown();
+    }
+
+    @Test
+    void testZeroLiftsTheQueueLimit() throws Exception
+    {
+        AdmissionController admission = new AdmissionController(1, 0, 0, 0);
+        InetAddress client = InetAddress.getLoopbackAddress();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // With the only worker busy, every other request waits in the queue instead of being refused
+        Thread running = new Thread(() -> assertDoesNotThrow(() -> assertNull(admission.execute(client, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }))));
+        running.start();
+        while (admission.getAdmitted() < 1) Thread.onSpinWait();
+        Thread[] queued = new Thread[1000];
+        for (int i = 0; i < queued.length; i++)
+        {
+            queued[i] = Thread.ofVirtual().start(() -> assertDoesNotThrow(() -> assertNull(admission.execute(client, () -> {}))));
+        }
+        while (admission.getQueueDepth() < queued.length) Thread.onSpinWait();
+
+        release.countDown();
+        running.join();
+        for (Thread thread : queued)
+        {
+            thread.join();
+        }
+        assertEquals(queued.length + 1, admission.getAdmitted());
+        assertEquals(0, admission.getRejectedOverloaded());
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionController(-1, 0, 0, 0));
+        admission.shutdown();
+    }
+}
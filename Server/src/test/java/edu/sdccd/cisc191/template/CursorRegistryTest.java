@@ -0,0 +1,148 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CursorRegistryTest
+{
+    private UnitCatalog catalog;
+
+    @BeforeEach
+    void setUp()
+    {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < 25; i++)
+        {
+            units.add(new Tank(String.format("T-90M %02d", i), "Tank", "RU Guard Tank Brigade", 300 + i, 700, 16, 1600, 1, 70, 460000, "Smoke", 90));
+        }
+        catalog = new UnitCatalog(units);
+    }
+
+    private Tank tankNamed(String name)
+    {
+        return new Tank(name, "Tank", "RU Guard Tank Brigade", 300, 700, 16, 1600, 1, 70, 460000, "Smoke", 90);
+    }
+
+    // Reads every page and returns the unit names in the order they arrived
+    private List<String> readAll(CursorRegistry cursors, int limit, Runnable betweenPages) throws Exception
+    {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do
+        {
+            CustomerResponse page = cursors.page(CustomerRequest.page("Tank", cursor, limit));
+            assertTrue(page.getUnits().size() <= limit);
+            page.getUnits().forEach(unit -> names.add(unit.getUnitName()));
+            cursor = page.getCursor();
+            betweenPages.run();
+        } while (cursor != null);
+        return names;
+    }
+
+    @Test
+    void testPagesCoverTheListInOrder() throws Exception
+    {
+        CursorRegistry cursors = new CursorRegistry(catalog);
+        List<String> names = readAll(cursors, 10, () -> { });
+
+        assertEquals(25, names.size());
+        assertEquals("T-90M 00", names.get(0));
+        assertEquals("T-90M 24", names.get(24));
+        assertEquals(0, cursors.getOpenCursors(), "Finished cursors are closed");
+    }
+
+    @Test
+    void testPagesComeFromOneSnapshot() throws Exception
+    {
+        CursorRegistry cursors = new CursorRegistry(catalog);
+        List<String> names = readAll(cursors, 10, () -> catalog.put(tankNamed("T-90M 05a")));
+
+        assertEquals(25, names.size(), "Units added after the first page are not seen");
+        assertEquals(0, cursors.getResumed());
+    }
+
+    @Test
+    void testExpiredCursorResumesAfterLastName() throws Exception
+    {
+        CursorRegistry cursors = new CursorRegistry(catalog, 0, 16);
+        CustomerResponse first = cursors.page(CustomerRequest.page("Tank", null, 10));
+        Thread.sleep(2);
+        catalog.remove("T-90M 03");
+        catalog.put(tankNamed("T-90M 15a"));
+
+        CustomerResponse second = cursors.page(CustomerRequest.page("Tank", first.getCursor(), 10));
+        assertEquals("T-90M 10", second.getUnits().get(0).getUnitName());
+        assertEquals(catalog.getVersion(), second.getVersion());
+        assertTrue(second.getUnits().stream().anyMatch(unit -> unit.getUnitName().equals("T-90M 15a")));
+        assertEquals(1, cursors.getExpired());
+        assertEquals(1, cursors.getResumed());
+    }
+
+    @Test
+    void testRepeatedRequestReturnsSamePage() throws Exception
+    {
+        CursorRegistry cursors = new CursorRegistry(catalog);
+        String cursor = cursors.page(CustomerRequest.page(null, null, 5)).getCursor();
+
+        CustomerResponse again = cursors.page(CustomerRequest.page(null, cursor, 5));
+        CustomerResponse once = cursors.page(CustomerRequest.page(null, cursor, 5));
+        assertEquals(again.getUnits().toString(), once.getUnits().toString());
+        assertEquals(again.getCursor(), once.getCursor());
+    }
+
+    @Test
+    void testTooManyCursorsEvictsTheOldest() throws Exception
+    {
+        CursorRegistry cursors = new CursorRegistry(catalog, 60_000, 2);
+        for (int i = 0; i < 3; i++)
+        {
+            cursors.page(CustomerRequest.page(null, null, 5));
+        }
+        assertEquals(2, cursors.getOpenCursors());
+        assertEquals(1, cursors.getExpired());
+    }
+
+    @Test
+    void testCursorsShareAFewPinnedVersions() throws Exception
+    {
+        CursorRegistry cursors = new CursorRegistry(catalog, 60_000, 16, 2);
+        String first = cursors.page(CustomerRequest.page("Tank", null, 10)).getCursor();
+        cursors.page(CustomerRequest.page("Tank", null, 10));
+        assertEquals(1, cursors.getPinnedVersions(), "Cursors at one version share its snapshot");
+
+        catalog.put(tankNamed("T-90M 20a"));
+        cursors.page(CustomerRequest.page("Tank", null, 10));
+        catalog.put(tankNamed("T-90M 20b"));
+        CustomerResponse unpinned = cursors.page(CustomerRequest.page("Tank", null, 10));
+        assertEquals(2, cursors.getPinnedVersions());
+        assertEquals(1, cursors.getUnpinned());
+        assertEquals(4, cursors.getOpenCursors());
+
+        // A cursor without a snapshot reads on from the current catalog
+        catalog.put(tankNamed("T-90M 20c"));
+        CustomerResponse next = cursors.page(CustomerRequest.page("Tank", unpinned.getCursor(), 100));
+        assertTrue(next.getUnits().stream().anyMatch(unit -> unit.getUnitName().equals("T-90M 20c")));
+        assertEquals(catalog.getVersion(), next.getVersion());
+        assertEquals(0, cursors.getResumed());
+
+        // Pinned cursors still read the version they started from, and release it when finished
+        CustomerResponse rest = cursors.page(CustomerRequest.page("Tank", first, 100));
+        assertNull(rest.getCursor());
+        assertEquals(15, rest.getUnits().size(), "Units added since are not seen");
+        assertEquals(2, cursors.getPinnedVersions(), "Another cursor still pins the first version");
+    }
+
+    @Test
+    void testInvalidRequestsAreRejected()
+    {
+        CursorRegistry cursors = new CursorRegistry(catalog);
+        assertThrows(ProtocolException.class, () -> cursors.page(CustomerRequest.page(null, null, 0)));
+        assertThrows(ProtocolException.class, () -> cursors.page(CustomerRequest.page(null, "not a cursor", 5)));
+    }
+}
@@ -0,0 +1,101 @@
+package edu.sdccd.cisc191.template;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecorderEventsTest
+{
+    private static List<RecordedEvent> events(Path file, String name) throws IOException
+    {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("edu.sdccd.cisc191.template." + name))
+                .toList();
+    }
+
+    @Test
+    void testLoadingRecordsOpenAndChunkEvents(@TempDir Path dir) throws Exception
+    {
+        Path csv = dir.resolve("units.csv");
+        new UnitDatasetGenerator(2, 0).write(csv, 25_000);
+        Path jfr = dir.resolve("load.jfr");
+        try (Recording recording = new Recording(Server.recordingSettings()))
+        {
+            recording.start();
+            assertEquals(25_000, UnitStatsLoader.loadUnits(csv.toString()).size());
+            recording.stop();
+            recording.dump(jfr);
+        }
+
+        RecordedEvent open = events(jfr, "UnitFileOpen").get(0);
+        assertEquals(csv.toString(), open.getString("source"));
+        assertTrue(open.getBoolean("found"));
+
+        List<RecordedEvent> chunks = events(jfr, "UnitParse");
+        assertEquals(List.of(10_000, 10_000, 5_000), chunks.stream().map(event -> event.getInt("rows")).toList());
+        assertEquals(List.of(0L, 10_000L, 20_000L), chunks.stream().map(event -> event.getLong("firstRow")).toList());
+        assertEquals(List.of(0, 0, 0), chunks.stream().map(event -> event.getInt("incompleteRows")).toList());
+        // The bundled profile leaves the per-unit event off
+        assertTrue(events(jfr, "UnitFactory").isEmpty());
+    }
+
+    @Test
+    void testParseEventCountsIncompleteRows(@TempDir Path dir) throws Exception
+    {
+        Path jfr = dir.resolve("load.jfr");
+        try (Recording recording = new Recording(Server.recordingSettings()))
+        {
+            recording.start();
+            assertEquals(12, UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE).size());
+            recording.stop();
+            recording.dump(jfr);
+        }
+
+        // Six blank rows at the end of the bundled file, and a fighter with no health
+        RecordedEvent chunk = events(jfr, "UnitParse").get(0);
+        assertEquals(12, chunk.getInt("rows"));
+        assertEquals(7, chunk.getInt("incompleteRows"));
+    }
+
+    @Test
+    void testRequestRecordsEveryPhase(@TempDir Path dir) throws Exception
+    {
+        Server server = new Server(new UnitCatalog(UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE)));
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        new MessageWriter(request).write(CustomerRequest.unit("T-14 Armata"));
+
+        Path jfr = dir.resolve("request.jfr");
+        try (Recording recording = new Recording(Server.recordingSettings()))
+        {
+            recording.start();
+            MessageReader in = new MessageReader(new ByteArrayInputStream(request.toByteArray()));
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            server.handle(in.readRequest(), new MessageWriter(response));
+            server.handle(CustomerRequest.range(null, "A", "Z"), new MessageWriter(response));
+            recording.stop();
+            recording.dump(jfr);
+        }
+
+        List<RecordedEvent> phases = events(jfr, "RequestPhase");
+        Set<String> names = phases.stream().map(event -> event.getString("phase")).collect(Collectors.toSet());
+        assertEquals(Set.of("decode", "execute", "encode", "write"), names);
+        RecordedEvent decode = phases.stream().filter(event -> event.getString("phase").equals("decode")).findFirst().orElseThrow();
+        assertEquals("UNIT", decode.getString("requestType"));
+        assertEquals(request.size() - 1, decode.getLong("size"), "Everything but the newline after the request");
+
+        Set<String> queries = events(jfr, "CatalogQuery").stream().map(event -> event.getString("operation")).collect(Collectors.toSet());
+        assertTrue(queries.containsAll(Set.of("get", "range")), queries.toString());
+    }
+}
@@ -0,0 +1,89 @@
+package edu.sdccd.cisc191.template;
+
+import javafx.scene.image.Image;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageCacheTest
+{
+    @Test
+    void testDecodesOnceAtTheRequestedSize() throws Exception
+    {
+        ImageCache cache = new ImageCache("/images/", 32L << 20);
+        assertNull(cache.getIfPresent("su57.png", 300, 260));
+
+        Image panel = cache.get("su57.png", 300, 260);
+        assertTrue(panel.getWidth() <= ImageCache.bucket(300));
+        assertTrue(panel.getHeight() <= ImageCache.bucket(260));
+
+        // A nearly equal size falls in the same bucket; a card's size does not
+        assertSame(panel, cache.get("su57.png", 310, 270));
+        assertSame(panel, cache.getIfPresent("su57.png", 300, 260));
+        Image card = cache.get("su57.png", 120, 80);
+        assertNotSame(panel, card);
+        assertTrue(card.getWidth() <= ImageCache.bucket(120));
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testBudgetDemotesLeastRecentlyUsed() throws Exception
+    {
+        // Room for one card-sized image at a time
+        ImageCache cache = new ImageCache("/images/", ImageCache.bucket(120) * ImageCache.bucket(80) * 4L);
+        Image su57 = cache.get("su57.png", 120, 80);
+        cache.get("f35b.png", 120, 80);
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getDemotions());
+        assertTrue(cache.getBytes() <= ImageCache.bucket(120) * ImageCache.bucket(80) * 4L);
+
+        // Still strongly reachable from this test, so the soft reference cannot have been cleared
+        assertSame(su57, cache.getIfPresent("su57.png", 120, 80));
+        assertEquals(1, cache.getSoftHits());
+        assertEquals(2, cache.getDemotions());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneDecode() throws Exception
+    {
+        ImageCache cache = new ImageCache("/images/", 32L << 20);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Image>> images = new ArrayList<>();
+        try (ExecutorService threads = Executors.newFixedThreadPool(8))
+        {
+            for (int i = 0; i < 8; i++)
+            {
+                images.add(threads.submit(() -> {
+                    start.await();
+                    return cache.get("su57.png");
+                }));
+            }
+            start.countDown();
+            for (Future<Image> image : images)
+            {
+                assertSame(images.get(0).get(), image.get());
+            }
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testMissingImage()
+    {
+        ImageCache cache = new ImageCache("/images/", 32L << 20);
+        assertThrows(FileNotFoundException.class, () -> cache.get("missing.png", 120, 80));
+    }
+}
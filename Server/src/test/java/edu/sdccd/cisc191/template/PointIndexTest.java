@@ -0,0 +1,67 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointIndexTest
+{
+    @Test
+    void testFindsClosestPointWithinRadius()
+    {
+        PointIndex index = new PointIndex(6);
+        index.add(10, 10, 0);
+        index.add(14, 10, 1);
+        index.add(-3, -3, 2);
+
+        assertEquals(0, index.nearest(11, 10, 6));
+        assertEquals(1, index.nearest(13, 11, 6));
+        assertEquals(2, index.nearest(-1, -2, 6));
+        assertEquals(-1, index.nearest(40, 40, 6));
+        assertEquals(-1, index.nearest(10, 17, 6));
+    }
+
+    @Test
+    void testMatchesBruteForce()
+    {
+        Random random = new Random(42);
+        double[] xs = new double[2500];
+        double[] ys = new double[2500];
+        PointIndex index = new PointIndex(6);
+        for (int i = 0; i < xs.length; i++)
+        {
+            xs[i] = random.nextDouble() * 800;
+            ys[i] = random.nextDouble() * 600;
+            index.add(xs[i], ys[i], i);
+        }
+        assertEquals(2500, index.size());
+
+        for (int probe = 0; probe < 500; probe++)
+        {
+            double x = random.nextDouble() * 800, y = random.nextDouble() * 600;
+            int expected = -1;
+            double best = 36;
+            for (int i = 0; i < xs.length; i++)
+            {
+                double distance = (xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y);
+                if (distance <= best)
+                {
+                    best = distance;
+                    expected = i;
+                }
+            }
+            assertEquals(expected, index.nearest(x, y, 6));
+        }
+    }
+
+    @Test
+    void testNormalize()
+    {
+        assertEquals(0.0, UnitChart.normalize(100, 100, 300));
+        assertEquals(0.5, UnitChart.normalize(200, 100, 300));
+        assertEquals(1.0, UnitChart.normalize(300, 100, 300));
+        assertEquals(0.5, UnitChart.normalize(7, 7, 7));
+    }
+}
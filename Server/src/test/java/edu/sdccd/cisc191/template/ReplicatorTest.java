@@ -0,0 +1,113 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicatorTest
+{
+    private Server primary;
+    private UnitCatalog replicaCatalog;
+    private Replicator replicator;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        primary = new Server(new UnitCatalog(List.of(
+                new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 400, 850, 18, 1700, 1, 80, 550000, "Smoke", 100),
+                new Fighter("Su-57", "Fighter", "VDV", 345, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240))));
+        int port = primary.bind(0);
+        Thread.ofVirtual().start(primary::serve);
+
+        replicaCatalog = UnitCatalog.replica();
+        replicator = new Replicator(replicaCatalog, "127.0.0.1", port);
+        Thread.ofVirtual().start(replicator);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        replicator.stop();
+        primary.stop();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean())
+        {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for replication");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testReplicaBootstrapsThenFollowsChanges() throws Exception
+    {
+        UnitCatalog catalog = primary.getCatalog();
+        await(() -> replicator.isSynced());
+        assertEquals(catalog.getVersion(), replicaCatalog.getVersion());
+        assertEquals(2, replicaCatalog.snapshot().size());
+
+        catalog.put(new Fighter("Su-57", "Fighter", "VDV", 300, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240));
+        catalog.remove("T-14 Armata");
+        await(() -> replicaCatalog.getVersion() == catalog.getVersion());
+
+        assertEquals(1, replicaCatalog.snapshot().size());
+        assertEquals(300, replicaCatalog.snapshot().get("Su-57").getPrice());
+        assertEquals(0, replicator.getLagVersions());
+        assertEquals(1L, replicator.toMap().get("replication.snapshots"));
+    }
+
+    @Test
+    void testLagIsReportedWhileTheReplicaIsStalled() throws Exception
+    {
+        UnitCatalog catalog = primary.getCatalog();
+        await(() -> replicator.isSynced());
+        long synced = replicaCatalog.getVersion();
+
+        // Holding the replica catalog's lock stalls the replicator before it can apply what it receives
+        synchronized (replicaCatalog)
+        {
+            catalog.put(new Fighter("Su-57", "Fighter", "VDV", 300, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240));
+            await(() -> replicator.getLagVersions() > 0);
+            assertEquals(synced, replicaCatalog.getVersion());
+            assertEquals(catalog.getVersion(), replicator.getPrimaryVersion());
+            assertEquals(1L, replicator.toMap().get("replication.lagVersions"));
+        }
+        await(() -> replicaCatalog.getVersion() == catalog.getVersion());
+        assertEquals(0, replicator.getLagVersions());
+    }
+
+    @Test
+    void testStaleReadIsRefused() throws Exception
+    {
+        await(() -> replicator.isSynced());
+        Server replica = new Server(replicaCatalog);
+        long version = replicaCatalog.getVersion();
+
+        CustomerRequest fresh = CustomerRequest.unit("Su-57");
+        fresh.setVersion(version);
+        CustomerRequest tooNew = CustomerRequest.unit("Su-57");
+        tooNew.setVersion(version + 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter out = new MessageWriter(bytes);
+        replica.handle(fresh, out);
+        replica.handle(tooNew, out);
+        MessageReader in = new MessageReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals("Su-57", in.readResponse().getUnits().get(0).getUnitName());
+        CustomerResponse refused = in.readResponse();
+        assertNull(refused.getUnits());
+        assertNotNull(refused.getRetryAfterMillis());
+        replica.stop();
+    }
+}
@@ -0,0 +1,172 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest
+{
+    private UnitCatalog catalog;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp()
+    {
+        catalog = new UnitCatalog(List.of(
+                new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 400, 850, 18, 1700, 1, 80, 550000, "Smoke", 100),
+                new Fighter("Su-57", "Fighter", "VDV", 345, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240),
+                new Unit("", "", "", 0, 0, 0, 0, 0, 0, 0, "")));
+        cache = new ResponseCache(catalog);
+    }
+
+    // Decodes cached bytes the same way a client would read them off the socket
+    private CustomerResponse decode(byte[] bytes, MessageFormat format) throws Exception
+    {
+        return new MessageReader(new ByteArrayInputStream(bytes), format).readResponse();
+    }
+
+    @Test
+    void testCachedBytesDecodeInEveryFormat() throws Exception
+    {
+        for (MessageFormat format : MessageFormat.values())
+        {
+            CustomerResponse response = decode(cache.lookup(CustomerRequest.unit("T-14 Armata"), format), format);
+            Unit unit = response.getUnits().get(0);
+            assertInstanceOf(Tank.class, unit);
+            assertEquals(100, ((Tank) unit).getRearArmor());
+            assertEquals(1L, response.getVersion());
+
+            List<Unit> all = decode(cache.lookup(CustomerRequest.list(null), format), format).getUnits();
+            assertEquals(2, all.size(), "Blank CSV rows should not be served");
+            assertEquals("Su-57", all.get(0).getUnitName(), "Lists are sorted by name");
+        }
+    }
+
+    @Test
+    void testRepeatLookupsHitTheCache() throws Exception
+    {
+        byte[] first = cache.lookup(CustomerRequest.list("Tank"), MessageFormat.JSON);
+        byte[] second = cache.lookup(CustomerRequest.list("Tank"), MessageFormat.JSON);
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertNull(cache.lookup(CustomerRequest.unit("Missing"), MessageFormat.JSON));
+    }
+
+    @Test
+    void testVeryLongListsAreNotKept() throws Exception
+    {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i <= ResponseCache.MAX_CACHED_LIST_UNITS; i++)
+        {
+            units.add(new Tank("T-90M " + i, "Tank", "RU Guard Tank Brigade", 300, 700, 16, 1600, 1, 70, 460000, "Smoke", 90));
+        }
+        ResponseCache longCache = new ResponseCache(new UnitCatalog(units));
+        for (CustomerRequest request : List.of(CustomerRequest.list(null), CustomerRequest.list("Tank")))
+        {
+            byte[] first = longCache.lookup(request, MessageFormat.SMILE);
+            assertNotSame(first, longCache.lookup(request, MessageFormat.SMILE));
+            assertEquals(units.size(), decode(first, MessageFormat.SMILE).getUnits().size());
+        }
+        assertEquals(0, longCache.getHits());
+        assertEquals(4, longCache.getMisses());
+    }
+
+    @Test
+    void testCatalogChangeRebuildsCache() throws Exception
+    {
+        cache.lookup(CustomerRequest.unit("Su-57"), MessageFormat.SMILE);
+        catalog.put(new Fighter("Su-57", "Fighter", "VDV", 300, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240));
+
+        CustomerResponse response = decode(cache.lookup(CustomerRequest.unit("Su-57"), MessageFormat.SMILE), MessageFormat.SMILE);
+        assertEquals(300, response.getUnits().get(0).getPrice());
+        assertEquals(2L, response.getVersion());
+        assertEquals(1, cache.getRebuilds());
+    }
+
+    @Test
+    void testCompressedListsAreSmallerOverTheWire() throws Exception
+    {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            units.add(new Tank("T-90M " + i, "Tank", "RU Guard Tank Brigade", 300 + i, 700, 16, 1600, 1, 70, 460000, "Smoke", 90));
+            units.add(new Fighter("Su-30 " + i, "Fighter", "VDV", 250 + i, 0, 0, 10000, 1.25, 500, 38800, "Flares", 200));
+        }
+        Server server = new Server(new UnitCatalog(units));
+        int port = server.bind(0);
+        Thread.ofVirtual().start(server::serve);
+
+        try (Socket socket = new Socket("127.0.0.1", port))
+        {
+            CountingInputStream counted = new CountingInputStream(socket.getInputStream());
+            MessageWriter out = new MessageWriter(socket.getOutputStream(), MessageFormat.SMILE);
+            MessageReader in = new MessageReader(counted, MessageFormat.SMILE);
+
+            out.write(CustomerRequest.list(null));
+            List<Unit> plain = in.readResponse().getUnits();
+            long plainBytes = counted.count;
+
+            out.write(CustomerRequest.compress());
+            byte[] dictionary = in.readResponse().getDictionary();
+            assertTrue(dictionary.length > 0);
+            in.enableCompression(dictionary);
+            long before = counted.count;
+            out.write(CustomerRequest.list(null));
+            List<Unit> compressed = in.readResponse().getUnits();
+            long compressedBytes = counted.count - before;
+
+            assertEquals(plain.toString(), compressed.toString());
+            assertTrue(compressedBytes * 4 < plainBytes, compressedBytes + " compressed bytes vs " + plainBytes);
+
+            // A single unit is below the threshold and still arrives plain
+            out.write(CustomerRequest.unit("Su-30 7"));
+            assertEquals(257, in.readResponse().getUnits().get(0).getPrice());
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream
+    {
+        long count;
+
+        CountingInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b >= 0)
+            {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int n = super.read(b, off, len);
+            if (n > 0)
+            {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
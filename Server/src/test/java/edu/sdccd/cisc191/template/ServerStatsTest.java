@@ -0,0 +1,46 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerStatsTest
+{
+    @Test
+    void testStatsRequestReportsTraffic(@TempDir Path dir) throws Exception
+    {
+        Server server = new Server(new UnitCatalog(List.of(
+                new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 400, 850, 18, 1700, 1, 80, 550000, "Smoke", 100))));
+        server.setStatsFile(dir.resolve("stats.txt"));
+        int port = server.bind(0);
+        Thread.ofVirtual().start(server::serve);
+
+        try (Socket socket = new Socket("127.0.0.1", port))
+        {
+            MessageWriter out = new MessageWriter(socket.getOutputStream());
+            MessageReader in = new MessageReader(socket.getInputStream());
+            out.write(CustomerRequest.unit("T-14 Armata"));
+            assertEquals("T-14 Armata", in.readResponse().getUnits().get(0).getUnitName());
+            out.write(CustomerRequest.stats());
+            Map<String, Number> stats = in.readResponse().getStats();
+
+            assertEquals(1L, stats.get("unit.count").longValue());
+            assertTrue(stats.get("unit.p99Micros").doubleValue() > 0);
+            assertTrue(stats.get("bytesIn").longValue() > 0);
+            assertTrue(stats.get("bytesOut").longValue() > 0);
+            assertEquals(1L, stats.get("connections.active").longValue());
+        }
+        finally
+        {
+            server.stop();
+        }
+        assertTrue(Files.readString(dir.resolve("stats.txt")).contains("unit.count = 1"));
+    }
+}
@@ -10,6 +10,7 @@ package edu.sdccd.cisc191.template;
  */
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
@@ -21,6 +22,8 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 import static java.util.Locale.filter;
@@ -47,10 +50,12 @@ public class ServerTest
 
     // Test if the file is being read from the path and the contents of the file have data.
     @Test
-    public void TestIOStream()
+    public void TestIOStream(@TempDir Path dir) throws IOException
     {
-        List<Unit> units = UnitStatsLoader.loadUnits("C:\\Users\\Nicko\\IdeaProjects\\CISC191-FinalProjectTemplate\\Server\\src\\main\\resources\\Broken Arrow Unit Stats.csv");
-        assertFalse(units.isEmpty());
+        Path file = dir.resolve("units.csv");
+        new UnitDatasetGenerator(1, 0).write(file, 50);
+        List<Unit> units = UnitStatsLoader.loadUnits(file.toString());
+        assertEquals(50, units.size());
     }
 
     // Test if units are being created in the UnitGenerator class
@@ -68,7 +73,7 @@ public class ServerTest
     @Test
     void testUnitHashMap()
     {
-        List<Unit> units = UnitStatsLoader.loadUnits("C:\\Users\\Nicko\\IdeaProjects\\CISC191-FinalProjectTemplate\\Server\\src\\main\\resources\\Broken Arrow Unit Stats.csv");
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
        Map<String, Unit> map = new HashMap<>();
        for (Unit unit : units)
        {
@@ -85,7 +90,7 @@ public class ServerTest
     @Test
     void testSearchingbyType()
     {
-        List<Unit> units = UnitStatsLoader.loadUnits("C:\\Users\\Nicko\\IdeaProjects\\CISC191-FinalProjectTemplate\\Server\\src\\main\\resources\\Broken Arrow Unit Stats.csv");
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
         Map<String, List<Unit>> byType = units.stream().collect(Collectors.groupingBy(Unit::getUnitType));
 
         for (Unit unit : units)
@@ -98,7 +103,7 @@ public class ServerTest
     //Ensure Stream APL will filter by the unit's type
     @Test
     public void testFilterSorting() {
-        List<Unit> units = UnitStatsLoader.loadUnits("C:\\Users\\Nicko\\IdeaProjects\\CISC191-FinalProjectTemplate\\Server\\src\\main\\resources\\Broken Arrow Unit Stats.csv");
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
         String type = units.get(0).getUnitType();
         List<Unit> result = units.stream()
                 .filter(u -> type.equals(u.getUnitType()))
@@ -107,4 +112,25 @@ public class ServerTest
         assertFalse(result.isEmpty(), "Filtered & sorted list should not be empty");
     }
 
+    // Each node of a cluster serves its own partition, even when hosts share a port
+    @Test
+    public void testClusterPartitions()
+    {
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        String cluster = "hostA:4444, hostB:4444 ,hostC:4445";
+        List<Unit> a = Server.partition(units, cluster, "hostA:4444", 4444);
+        List<Unit> b = Server.partition(units, cluster, " hostB:4444", 4444);
+        List<Unit> c = Server.partition(units, cluster, null, 4445);
+        assertEquals(units.size(), a.size() + b.size() + c.size());
+        assertTrue(a.stream().noneMatch(b::contains), "Nodes sharing a port serve different units");
+
+        // Names are trimmed, as the client names the nodes
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("hostA:4444", "hostB:4444", "hostC:4445"));
+        assertEquals(ring.partition(units, Unit::getUnitName, "hostB:4444"), b);
+
+        assertThrows(IllegalArgumentException.class, () -> Server.partition(units, cluster, null, 4444));
+        assertThrows(IllegalArgumentException.class, () -> Server.partition(units, cluster, null, 9999));
+        assertThrows(IllegalArgumentException.class, () -> Server.partition(units, cluster, "hostD:4444", 4444));
+    }
+
 }
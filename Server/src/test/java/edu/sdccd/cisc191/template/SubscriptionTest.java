@@ -0,0 +1,140 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubscriptionTest
+{
+    private UnitCatalog catalog;
+
+    @BeforeEach
+    void setUp()
+    {
+        catalog = new UnitCatalog(List.of(
+                new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 400, 850, 18, 1700, 1, 80, 550000, "Smoke", 100)), 4);
+    }
+
+    private Tank tankCosting(int price)
+    {
+        return new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", price, 850, 18, 1700, 1, 80, 550000, "Smoke", 100);
+    }
+
+    @Test
+    void testRepeatedChangesAreCoalesced() throws Exception
+    {
+        Subscription subscription = new Subscription(catalog, 10, 60_000);
+        subscription.start(catalog.getVersion());
+        assertEquals(List.of(), subscription.take().getDeltas());
+
+        catalog.put(tankCosting(300));
+        catalog.put(tankCosting(200));
+        catalog.put(tankCosting(100));
+        CustomerResponse update = subscription.take();
+
+        assertEquals(4L, update.getVersion());
+        assertEquals(1, update.getDeltas().size());
+        assertEquals(100, update.getDeltas().get(0).getChanges().get("price"));
+        assertEquals(2, subscription.getCoalesced());
+        subscription.close();
+        assertNull(subscription.take());
+    }
+
+    @Test
+    void testResumeReplaysOnlyMissedChanges() throws Exception
+    {
+        long seen = catalog.getVersion();
+        catalog.put(tankCosting(300));
+        catalog.remove("T-14 Armata");
+
+        Subscription subscription = new Subscription(catalog, 10, 60_000);
+        subscription.start(seen);
+        CustomerResponse update = subscription.take();
+
+        assertNull(update.getUnits());
+        assertEquals(3L, update.getVersion());
+        assertTrue(update.getDeltas().get(0).isRemoved());
+        subscription.close();
+    }
+
+    @Test
+    void testForgottenVersionGetsSnapshot() throws Exception
+    {
+        for (int price = 1; price <= 6; price++)
+        {
+            catalog.put(tankCosting(price));
+        }
+        // Only the last 4 changes are kept, so version 1 cannot be resumed from
+        Subscription subscription = new Subscription(catalog, 10, 60_000);
+        subscription.start(1);
+        CustomerResponse update = subscription.take();
+
+        assertEquals(7L, update.getVersion());
+        assertEquals(6, update.getUnits().get(0).getPrice());
+        subscription.close();
+    }
+
+    @Test
+    void testOverflowingSubscriberIsResynchronized() throws Exception
+    {
+        Subscription subscription = new Subscription(catalog, 2, 60_000);
+        subscription.start(catalog.getVersion());
+        subscription.take();
+
+        catalog.put(new Fighter("Su-57", "Fighter", "VDV", 345, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240));
+        catalog.put(new Fighter("Su-35", "Fighter", "VDV", 300, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240));
+        catalog.put(new Fighter("MiG-29", "Fighter", "VDV", 200, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240));
+        CustomerResponse update = subscription.take();
+
+        assertNull(update.getDeltas());
+        assertEquals(4, update.getUnits().size());
+        subscription.close();
+    }
+
+    @Test
+    void testIdleSubscriberGetsHeartbeats() throws Exception
+    {
+        Subscription subscription = new Subscription(catalog, 10, 20);
+        subscription.start(catalog.getVersion());
+        subscription.take();
+
+        CustomerResponse heartbeat = subscription.take();
+        assertEquals(List.of(), heartbeat.getDeltas());
+        assertEquals(catalog.getVersion(), heartbeat.getVersion());
+        subscription.close();
+    }
+
+    @Test
+    void testServerPushesChangesToSubscriber() throws Exception
+    {
+        Server server = new Server(catalog);
+        int port = server.bind(0);
+        Thread.ofVirtual().start(server::serve);
+
+        try (Socket socket = new Socket("127.0.0.1", port))
+        {
+            MessageWriter out = new MessageWriter(socket.getOutputStream());
+            MessageReader in = new MessageReader(socket.getInputStream());
+            CatalogMirror mirror = new CatalogMirror();
+            out.write(CustomerRequest.subscribe(0));
+            mirror.apply(in.readResponse());
+            assertEquals(1, mirror.size());
+
+            catalog.put(tankCosting(123));
+            do
+            {
+                mirror.apply(in.readResponse());
+            } while (mirror.getVersion() < catalog.getVersion());
+            assertEquals(123, mirror.get("T-14 Armata").getPrice());
+            assertEquals(catalog.getVersion(), mirror.getVersion());
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+}
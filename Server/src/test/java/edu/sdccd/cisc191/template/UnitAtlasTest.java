@@ -0,0 +1,77 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitAtlasTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSlug()
+    {
+        assertEquals("m1a2_sep_v2_abrams", UnitAtlas.slug("M1A2 SEP v2 Abrams"));
+        assertEquals("t14_armata", UnitAtlas.slug("T-14 Armata"));
+        assertEquals("f35b", UnitAtlas.slug("F-35B"));
+    }
+
+    @Test
+    void testPacksEveryUnitWithArtwork() throws Exception
+    {
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        UnitAtlas atlas = UnitAtlas.open(directory, units);
+        assertTrue(atlas.wasPacked());
+        assertEquals(6, atlas.size());
+        assertNull(atlas.sprite("No Such Unit"));
+
+        List<UnitAtlas.Sprite> sprites = new ArrayList<>();
+        for (Unit unit : units)
+        {
+            UnitAtlas.Sprite sprite = atlas.sprite(unit.getUnitName());
+            if (sprite != null && !sprites.contains(sprite))
+            {
+                sprites.add(sprite);
+                assertTrue(sprite.width() <= UnitAtlas.MAX_SPRITE_WIDTH && sprite.height() <= UnitAtlas.MAX_SPRITE_HEIGHT);
+                assertTrue(sprite.x() + sprite.width() <= UnitAtlas.PAGE_SIZE && sprite.y() + sprite.height() <= UnitAtlas.PAGE_SIZE);
+                assertTrue(Files.exists(directory.resolve(atlas.pageFile(sprite.page()))));
+            }
+        }
+        assertEquals(6, sprites.size());
+        for (UnitAtlas.Sprite a : sprites)
+        {
+            for (UnitAtlas.Sprite b : sprites)
+            {
+                if (a != b && a.page() == b.page())
+                {
+                    assertFalse(a.viewport().intersects(b.viewport()), a + " overlaps " + b);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testReusesAtlasUntilTheUnitsChange() throws Exception
+    {
+        List<Unit> units = new ArrayList<>(List.of(
+                new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 400, 850, 18, 1700, 1, 80, 550000, "Smoke", 100)));
+        UnitAtlas.open(directory, units);
+
+        UnitAtlas reopened = UnitAtlas.open(directory, units);
+        assertFalse(reopened.wasPacked());
+        assertEquals(1, reopened.size());
+        assertEquals(1, reopened.getPageCount());
+
+        units.add(new Fighter("Su-57", "Fighter", "VDV", 345, 0, 0, 10000, 1.25, 500, 40790, "Flares", 240));
+        UnitAtlas repacked = UnitAtlas.open(directory, units);
+        assertTrue(repacked.wasPacked());
+        assertNotNull(repacked.sprite("Su-57"));
+    }
+}
@@ -0,0 +1,123 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitCatalogTest
+{
+    private static List<Unit> generated(Path dir, int rows) throws IOException
+    {
+        Path csv = dir.resolve("units.csv");
+        new UnitDatasetGenerator(11, 0).write(csv, rows);
+        return UnitStatsLoader.loadUnits(csv.toString());
+    }
+
+    private static Unit repriced(Unit unit, int price)
+    {
+        return UnitGenerator.createUnit(unit.getUnitType(), unit.getUnitName(), unit.getSpecialization(), price,
+                unit.getArmor(), unit.getHealth(), unit.getSightRange(), unit.getUnseenRange(), unit.getSpeed(),
+                unit.getWeight(), unit.getAbilities(), unit.getExtraStat());
+    }
+
+    private static void assertSameCatalog(UnitCatalog.Snapshot expected, UnitCatalog.Snapshot actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getUnits(), actual.getUnits());
+        for (String type : List.of("Tank", "Fighter", "Infantry", "Missing"))
+        {
+            assertEquals(expected.hasType(type), actual.hasType(type), type);
+            assertEquals(expected.list(type), actual.list(type), type);
+            assertEquals(expected.range(type, "C", "P"), actual.range(type, "C", "P"), type);
+        }
+    }
+
+    @Test
+    void testEditsMatchACatalogBuiltFromScratch(@TempDir Path dir) throws IOException
+    {
+        List<Unit> units = generated(dir, 3000);
+        UnitCatalog catalog = new UnitCatalog(units);
+        Map<String, Unit> expected = new HashMap<>();
+        units.forEach(unit -> expected.put(unit.getUnitName(), unit));
+
+        // Enough edits that the changes are merged into a new index several times over
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 1000; i++)
+        {
+            Unit unit = units.get(random.nextInt(units.size()));
+            int action = random.nextInt(4);
+            if (action == 0)
+            {
+                catalog.remove(unit.getUnitName());
+                expected.remove(unit.getUnitName());
+            }
+            else if (action == 1)
+            {
+                Unit added = repriced(unit, i);
+                added.setUnitName(unit.getUnitName() + " Mk" + i);
+                catalog.put(added);
+                expected.put(added.getUnitName(), added);
+            }
+            else
+            {
+                Unit changed = repriced(unit, i);
+                catalog.put(changed);
+                expected.put(changed.getUnitName(), changed);
+            }
+            UnitCatalog.Snapshot snapshot = catalog.snapshot();
+            assertSame(expected.get(unit.getUnitName()), snapshot.get(unit.getUnitName()));
+            if (i % 97 == 0)
+            {
+                assertSameCatalog(new UnitCatalog(new ArrayList<>(expected.values())).snapshot(), snapshot);
+            }
+        }
+        assertSameCatalog(new UnitCatalog(new ArrayList<>(expected.values())).snapshot(), catalog.snapshot());
+    }
+
+    @Test
+    void testOlderSnapshotsKeepTheirUnits(@TempDir Path dir) throws IOException
+    {
+        List<Unit> units = generated(dir, 500);
+        UnitCatalog catalog = new UnitCatalog(units);
+        UnitCatalog.Snapshot before = catalog.snapshot();
+        List<Unit> listed = before.getUnits();
+
+        Unit first = listed.get(0);
+        catalog.put(repriced(first, first.getPrice() + 1));
+        catalog.remove(listed.get(1).getUnitName());
+
+        assertSame(first, before.get(first.getUnitName()));
+        assertEquals(listed, before.getUnits());
+        assertEquals(units.size(), before.size());
+        assertEquals(units.size() - 1, catalog.snapshot().size());
+        assertNull(catalog.snapshot().get(listed.get(1).getUnitName()));
+    }
+
+    @Test
+    void testEditCostDoesNotGrowWithTheCatalog(@TempDir Path dir) throws IOException
+    {
+        List<Unit> units = generated(dir, 100_000);
+        UnitCatalog catalog = new UnitCatalog(units);
+        catalog.snapshot().getUnits();
+
+        // Copying and sorting 100,000 units on every edit took over 100 ms each
+        long start = System.nanoTime();
+        for (int i = 0; i < 2000; i++)
+        {
+            Unit unit = units.get(i * 37 % units.size());
+            catalog.put(repriced(unit, unit.getPrice() + 1));
+        }
+        long micros = (System.nanoTime() - start) / 2000 / 1000;
+        assertTrue(micros < 1000, "an edit took " + micros + " microseconds on average");
+        assertEquals(2001, catalog.getVersion());
+    }
+}
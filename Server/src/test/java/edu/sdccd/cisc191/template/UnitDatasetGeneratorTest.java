@@ -0,0 +1,75 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitDatasetGeneratorTest
+{
+    private static String generate(long seed, double malformedFraction, int rows) throws IOException
+    {
+        StringWriter out = new StringWriter();
+        new UnitDatasetGenerator(seed, malformedFraction).write(out, rows);
+        return out.toString();
+    }
+
+    @Test
+    void testSameSeedWritesSameFile() throws IOException
+    {
+        assertEquals(generate(3, 0.1, 500), generate(3, 0.1, 500));
+        assertNotEquals(generate(3, 0.1, 500), generate(4, 0.1, 500));
+    }
+
+    @Test
+    void testRowsLoadAsUnitsOfTheirType(@TempDir Path dir) throws IOException
+    {
+        Path file = dir.resolve("units.csv");
+        new UnitDatasetGenerator(11, 0).write(file, 5000);
+        assertEquals(UnitStatsLoader.HEADER, Files.readAllLines(file).get(0));
+
+        List<Unit> units = UnitStatsLoader.loadUnits(file.toString());
+        assertEquals(5000, units.size());
+        Set<String> names = new HashSet<>();
+        for (Unit unit : units)
+        {
+            assertTrue(names.add(unit.getUnitName()), unit.getUnitName());
+            assertTrue(unit.getPrice() > 0, unit.getUnitName());
+            assertFalse(unit.getAbilities().isBlank(), unit.getUnitName());
+            switch (unit.getUnitType())
+            {
+                case "Tank" -> assertInstanceOf(Tank.class, unit);
+                case "Fighter" -> assertInstanceOf(Fighter.class, unit);
+                case "Infantry" -> assertInstanceOf(InfantryUnit.class, unit);
+                default -> fail("Unexpected type " + unit.getUnitType());
+            }
+        }
+
+        // Stats follow the type, e.g. tanks are armored and fighters are not
+        Map<String, Double> armor = units.stream()
+                .collect(Collectors.groupingBy(Unit::getUnitType, Collectors.averagingInt(Unit::getArmor)));
+        assertTrue(armor.get("Tank") > 400);
+        assertEquals(0.0, armor.get("Fighter"));
+    }
+
+    @Test
+    void testMalformedFraction() throws IOException
+    {
+        UnitDatasetGenerator generator = new UnitDatasetGenerator(5, 0.2);
+        generator.write(new StringWriter(), 20_000);
+        assertEquals(20_000, generator.getRowsWritten());
+        assertEquals(0.2, generator.getMalformedRows() / 20_000.0, 0.02);
+
+        assertThrows(IllegalArgumentException.class, () -> new UnitDatasetGenerator(5, 1.5));
+    }
+}
@@ -0,0 +1,238 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitEditLogTest
+{
+    private static final List<Unit> UNITS = List.of(
+            new Tank("T-14 Armata", "Tank", "RU Guard Tank Brigade", 400, 850, 18, 1700, 1, 80, 550000, "Smoke", 100),
+            new Fighter("Su-57", "Fighter", "VDV", 345, 0, 20, 10000, 1.25, 500, 40790, "Flares", 240));
+
+    private static Tank tank(String name, int price)
+    {
+        return new Tank(name, "Tank", "RU Guard Tank Brigade", price, 850, 18, 1700, 1, 80, 550000, "Smoke", 100);
+    }
+
+    private static List<Path> segments(Path dir) throws IOException
+    {
+        try (Stream<Path> files = Files.list(dir))
+        {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    // Whether the log is down to one small segment; one deleted while looking means compaction is still running
+    private static boolean compacted(Path dir) throws IOException
+    {
+        try
+        {
+            List<Path> files = segments(dir);
+            return files.size() == 1 && Files.size(files.get(0)) <= 8192;
+        }
+        catch (NoSuchFileException e)
+        {
+            return false;
+        }
+    }
+
+    @Test
+    void testEditsSurviveReopening(@TempDir Path dir) throws IOException
+    {
+        try (UnitEditLog log = UnitEditLog.open(dir, UNITS))
+        {
+            assertEquals(2, log.put(tank("T-14 Armata", 420)));
+            assertEquals(3, log.put(tank("T-90M", 300)));
+            assertEquals(4, log.remove("Su-57"));
+            assertEquals(4, log.remove("Su-57"), "Removing a missing unit changes nothing");
+            assertEquals(4, log.put(tank("T-90M", 300)), "Storing an identical unit changes nothing");
+            assertEquals(420, log.getCatalog().snapshot().get("T-14 Armata").getPrice());
+        }
+
+        // The initial units are only used the first time
+        try (UnitEditLog log = UnitEditLog.open(dir, List.of()))
+        {
+            UnitCatalog.Snapshot snapshot = log.getCatalog().snapshot();
+            assertEquals(4, snapshot.getVersion());
+            assertEquals(List.of("T-14 Armata", "T-90M"), snapshot.getUnits().stream().map(Unit::getUnitName).toList());
+            assertEquals(420, snapshot.get("T-14 Armata").getPrice());
+            assertInstanceOf(Tank.class, snapshot.get("T-90M"));
+            assertEquals(5, log.put(tank("T-90M", 310)));
+        }
+    }
+
+    @Test
+    void testConcurrentEditsShareCommits(@TempDir Path dir) throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (UnitEditLog log = UnitEditLog.open(dir, UNITS))
+        {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++)
+            {
+                int thread = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++)
+                    {
+                        // Every thread also edits one shared unit, so edits build on ones not yet committed
+                        log.put(tank("Tank " + thread + "-" + i, i));
+                        log.put(tank("T-14 Armata", thread * 1000 + i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers)
+            {
+                writer.get();
+            }
+            assertEquals(3200, log.getRecords());
+            assertTrue(log.getCommits() < log.getRecords(), log.toString());
+            assertEquals(3201, log.getCatalog().getVersion());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        try (UnitEditLog log = UnitEditLog.open(dir, List.of()))
+        {
+            assertEquals(3201, log.getCatalog().getVersion());
+            assertEquals(1602, log.getCatalog().snapshot().size());
+        }
+    }
+
+    @Test
+    void testTornAndCorruptTailsAreDropped(@TempDir Path dir) throws IOException
+    {
+        try (UnitEditLog log = UnitEditLog.open(dir, UNITS))
+        {
+            log.put(tank("T-14 Armata", 401));
+            log.put(tank("T-14 Armata", 402));
+        }
+        Path segment = segments(dir).get(0);
+        long size = Files.size(segment);
+
+        // A crash while the last edit was being written leaves part of it behind
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE))
+        {
+            channel.truncate(size - 3);
+        }
+        try (UnitEditLog log = UnitEditLog.open(dir, List.of()))
+        {
+            assertEquals(2, log.getCatalog().getVersion());
+            assertEquals(401, log.getCatalog().snapshot().get("T-14 Armata").getPrice());
+            // New edits follow the last whole record
+            assertEquals(3, log.put(tank("T-14 Armata", 403)));
+        }
+
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 2] ^= 0x7F;
+        Files.write(segment, bytes);
+        try (UnitEditLog log = UnitEditLog.open(dir, List.of()))
+        {
+            assertEquals(2, log.getCatalog().getVersion(), "A record that fails its checksum is dropped");
+        }
+    }
+
+    @Test
+    void testCompactionFoldsTheLogIntoASnapshot(@TempDir Path dir) throws Exception
+    {
+        try (UnitEditLog log = UnitEditLog.open(dir, UNITS, 4096))
+        {
+            for (int i = 0; i < 500; i++)
+            {
+                log.put(tank("T-14 Armata", i));
+            }
+            // Compaction runs in the background after the log outgrows 4 KiB
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!compacted(dir))
+            {
+                assertTrue(System.currentTimeMillis() < deadline, "Compaction did not run");
+                Thread.sleep(10);
+            }
+
+            log.put(tank("T-90M", 300));
+            log.compact();
+            assertEquals(1, segments(dir).size());
+            assertEquals(0, Files.size(segments(dir).get(0)));
+        }
+
+        try (UnitEditLog log = UnitEditLog.open(dir, List.of()))
+        {
+            assertEquals(502, log.getCatalog().getVersion());
+            assertEquals(499, log.getCatalog().snapshot().get("T-14 Armata").getPrice());
+            assertEquals(3, log.getCatalog().snapshot().size());
+        }
+    }
+
+    @Test
+    void testReopeningAfterCompactionReplaysEveryEdit(@TempDir Path dir) throws Exception
+    {
+        List<String> expected;
+        try (UnitEditLog log = UnitEditLog.open(dir, UNITS))
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                log.put(tank("Tank " + i, i));
+            }
+            log.compact();
+            // Edits after the compaction go to the new segment, on top of the new snapshot
+            for (int i = 0; i < 100; i += 2)
+            {
+                log.put(tank("Tank " + i, 1000 + i));
+            }
+            log.remove("Su-57");
+            log.compact();
+            log.put(tank("T-90M", 300));
+            assertEquals(153, log.getCatalog().getVersion());
+            expected = log.getCatalog().snapshot().getUnits().stream().map(unit -> unit.getUnitName() + "=" + unit.getPrice()).toList();
+        }
+        assertEquals(1, segments(dir).size(), "Compaction deletes the segments its snapshot covers");
+
+        try (UnitEditLog log = UnitEditLog.open(dir, List.of()))
+        {
+            UnitCatalog.Snapshot snapshot = log.getCatalog().snapshot();
+            assertEquals(153, snapshot.getVersion());
+            assertEquals(expected, snapshot.getUnits().stream().map(unit -> unit.getUnitName() + "=" + unit.getPrice()).toList());
+            assertEquals(1098, snapshot.get("Tank 98").getPrice());
+            assertEquals(99, snapshot.get("Tank 99").getPrice());
+            assertNull(snapshot.get("Su-57"));
+        }
+    }
+
+    @Test
+    void testCommitCostDoesNotGrowWithTheCatalog(@TempDir Path dir) throws Exception
+    {
+        Path csv = dir.resolve("units.csv");
+        new UnitDatasetGenerator(5, 0).write(csv, 100_000);
+        List<Unit> units = UnitStatsLoader.loadUnits(csv.toString());
+        try (UnitEditLog log = UnitEditLog.open(dir.resolve("log"), units))
+        {
+            log.put(tank("T-14 Armata", 0));
+            long start = System.nanoTime();
+            for (int i = 1; i <= 200; i++)
+            {
+                log.put(tank("T-14 Armata", i));
+            }
+            long micros = (System.nanoTime() - start) / 200 / 1000;
+            // Applying a commit used to copy and sort the whole catalog, 180 ms a commit at this size
+            assertTrue(micros < 20_000, "a commit took " + micros + " microseconds on average");
+            assertEquals(200, log.getCatalog().snapshot().get("T-14 Armata").getPrice());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitExporterTest
+{
+    private static void assertSameUnits(List<Unit> expected, List<Unit> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i).getClass(), actual.get(i).getClass(), expected.get(i).getUnitName());
+            assertEquals(UnitCodec.fields(expected.get(i)), UnitCodec.fields(actual.get(i)));
+        }
+    }
+
+    private static List<Unit> reload(Path file, UnitExporter.Format format)
+    {
+        return format == UnitExporter.Format.CSV
+                ? UnitStatsLoader.loadUnits(file.toString())
+                : UnitStatsLoader.loadJsonLines(file.toString());
+    }
+
+    @Test
+    void testExportsRoundTripThroughTheLoader(@TempDir Path dir) throws IOException
+    {
+        Path generated = dir.resolve("generated.csv");
+        new UnitDatasetGenerator(7, 0).write(generated, 20_000);
+        List<Unit> units = new UnitCatalog(UnitStatsLoader.loadUnits(generated.toString())).snapshot().getUnits();
+
+        for (String name : List.of("units.csv", "units.jsonl"))
+        {
+            Path file = dir.resolve(name);
+            UnitExporter.Format format = UnitExporter.Format.of(file);
+            long bytes = UnitExporter.export(units, file, format);
+            assertEquals(Files.size(file), bytes);
+            assertSameUnits(units, reload(file, format));
+        }
+        assertEquals(UnitStatsLoader.HEADER, Files.readAllLines(dir.resolve("units.csv")).get(0));
+    }
+
+    @Test
+    void testBundledUnitsExportAsTheyLoad(@TempDir Path dir) throws IOException
+    {
+        List<Unit> units = UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE);
+        Path first = dir.resolve("first.csv");
+        Path second = dir.resolve("second.csv");
+        UnitExporter.export(units, first, UnitExporter.Format.CSV);
+        List<Unit> reloaded = UnitStatsLoader.loadUnits(first.toString());
+        assertSameUnits(units, reloaded);
+
+        // Exporting what was loaded from an export writes the same bytes again
+        UnitExporter.export(reloaded, second, UnitExporter.Format.CSV);
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+    }
+
+    @Test
+    void testTextThatNeedsQuotingOrEncoding(@TempDir Path dir) throws IOException
+    {
+        List<Unit> units = List.of(
+                new Tank("T-72B3, obr. 2016", "Tank", "RU Guard Tank Brigade", 260, 600, 16, 1600, 1.5, 70, 46000, "Smoke, ERA", 90),
+                new Fighter("Су-57 🚀", "Fighter", "VDV", 345, 0, 20, 10000, 0.1, 500, 40790, "Flares", 240),
+                new InfantryUnit("Marines", "Infantry", "USMC", -5, Integer.MIN_VALUE, 80, 1200, -0.0, 18, 0, "", Integer.MAX_VALUE));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UnitExporter.export(units, Channels.newChannel(out), UnitExporter.Format.CSV);
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.contains("Tank,\"T-72B3, obr. 2016\",RU Guard Tank Brigade,260,600,16,1600,1.5,70,46000,\"Smoke, ERA\",90,,,,\n"), csv);
+
+        Path file = dir.resolve("units.csv");
+        Files.writeString(file, csv);
+        assertSameUnits(units, UnitStatsLoader.loadUnits(file.toString()));
+    }
+}
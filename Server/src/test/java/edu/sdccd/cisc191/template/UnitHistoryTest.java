@@ -0,0 +1,172 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitHistoryTest
+{
+    private static Tank tank(String name, int price)
+    {
+        return new Tank(name, "Tank", "RU Guard Tank Brigade", price, 850, 18, 1700, 1, 80, 550000, "Smoke", 100);
+    }
+
+    private static Fighter fighter(String name, int price)
+    {
+        return new Fighter(name, "Fighter", "VDV", price, 0, 20, 10000, 1.25, 500, 40790, "Flares", 240);
+    }
+
+    private static List<String> names(List<Unit> units)
+    {
+        return units.stream().map(Unit::getUnitName).toList();
+    }
+
+    private static List<Map<String, Object>> fields(List<Unit> units)
+    {
+        return units.stream().map(UnitCodec::fields).toList();
+    }
+
+    @Test
+    void testQueriesAsOfEachPatch()
+    {
+        UnitHistory history = new UnitHistory();
+        assertEquals(3, history.addVersion(1, List.of(tank("T-14 Armata", 400), tank("T-90M", 300), fighter("Su-57", 345))));
+        assertEquals(1, history.addVersion(2, List.of(tank("T-14 Armata", 420), tank("T-90M", 300), fighter("Su-57", 345))));
+        assertEquals(1, history.addVersion(3, List.of(tank("T-14 Armata", 420), tank("T-90M", 300))));
+        assertEquals(2, history.addVersion(5, List.of(tank("T-14 Armata", 390), tank("T-90M", 300), fighter("Su-57", 330))));
+        assertEquals(0, history.addVersion(6, List.of(tank("T-14 Armata", 390), tank("T-90M", 300), fighter("Su-57", 330))));
+        assertThrows(IllegalArgumentException.class, () -> history.addVersion(6, List.of()));
+
+        assertEquals(7, history.getRevisions());
+        assertNull(history.get("T-14 Armata", 0));
+        assertEquals(400, history.get("T-14 Armata", 1).getPrice());
+        assertEquals(420, history.get("T-14 Armata", 4).getPrice(), "A version without changes keeps the one before");
+        assertEquals(390, history.get("T-14 Armata", 6).getPrice());
+        assertEquals(390, history.get("T-14 Armata", 100).getPrice());
+        assertNull(history.get("Su-57", 3));
+        assertNull(history.get("Missing", 6));
+
+        assertEquals(List.of("Su-57", "T-14 Armata", "T-90M"), names(history.list(null, 2)));
+        assertEquals(List.of("T-14 Armata", "T-90M"), names(history.list(null, 4)));
+        assertEquals(List.of(), history.list("Fighter", 3));
+        assertEquals(List.of("Su-57"), names(history.list("Fighter", 5)));
+        assertEquals(List.of(), history.list("Helicopter", 5));
+        assertEquals(List.of("T-14 Armata"), names(history.range("Tank", "T-1", "T-9", 1)));
+        assertEquals(List.of("T-90M"), names(history.range(null, "T-2", null, 1)));
+        assertEquals(List.of("Su-57"), names(history.range(null, null, "T", 6)));
+        assertEquals(List.of(), history.range(null, "T", "S", 6));
+    }
+
+    @Test
+    void testHistoryShowsTrendsAcrossPatches()
+    {
+        UnitHistory history = new UnitHistory();
+        history.addVersion(1, List.of(tank("T-14 Armata", 400), fighter("Su-57", 345)));
+        history.addVersion(2, List.of(tank("T-14 Armata", 420)));
+        history.addVersion(3, List.of(tank("T-14 Armata", 440), fighter("Su-57", 330)));
+        history.addVersion(4, List.of(tank("T-14 Armata", 410), fighter("Su-57", 330)));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), history.history("T-14 Armata").stream().map(UnitHistory.Revision::version).toList());
+        assertEquals(List.of(420, 440), history.history("T-14 Armata", 2, 3).stream().map(revision -> revision.unit().getPrice()).toList());
+
+        List<UnitHistory.Revision> su57 = history.history("Su-57");
+        assertEquals(3, su57.size());
+        assertNull(su57.get(1).unit(), "Removed in version 2");
+        assertEquals(330, su57.get(2).unit().getPrice());
+        // The span starts with the revision in effect at its first version
+        assertEquals(List.of(3L), history.history("Su-57", 4, 4).stream().map(UnitHistory.Revision::version).toList());
+        assertEquals(List.of(), history.history("Missing"));
+    }
+
+    @Test
+    void testEditingAUnitAfterAddingItKeepsEachVersion()
+    {
+        Tank armata = tank("T-14 Armata", 400);
+        UnitHistory history = new UnitHistory();
+        history.addVersion(1, List.of(armata));
+
+        armata.setPrice(420);
+        assertEquals(400, history.get("T-14 Armata", 1).getPrice(), "The history keeps its own copy");
+        assertEquals(1, history.addVersion(2, List.of(armata)), "The same instance, edited, is a change");
+        armata.setPrice(440);
+        assertEquals(1, history.addVersion(3, List.of(armata)));
+
+        assertEquals(List.of(400, 420, 440), history.history("T-14 Armata").stream().map(revision -> revision.unit().getPrice()).toList());
+        assertEquals(420, history.get("T-14 Armata", 2).getPrice());
+        assertNotSame(armata, history.get("T-14 Armata", 3));
+        assertInstanceOf(Tank.class, history.get("T-14 Armata", 3));
+    }
+
+    @Test
+    void testManyPatchesMatchFullSnapshots(@TempDir Path dir) throws IOException
+    {
+        Path csv = dir.resolve("units.csv");
+        new UnitDatasetGenerator(9, 0).write(csv, 2000);
+        List<Unit> units = UnitStatsLoader.loadUnits(csv.toString());
+
+        // Each patch rebalances a few units; a full copy of every patch is kept only to check the history against
+        SplittableRandom random = new SplittableRandom(9);
+        UnitHistory history = new UnitHistory();
+        Map<Long, UnitCatalog.Snapshot> patches = new HashMap<>();
+        Map<String, Unit> current = new HashMap<>();
+        units.forEach(unit -> current.put(unit.getUnitName(), unit));
+        for (long patch = 1; patch <= 200; patch++)
+        {
+            if (patch > 1)
+            {
+                for (int i = 0; i < 5; i++)
+                {
+                    Unit unit = units.get(random.nextInt(units.size()));
+                    Unit changed = UnitGenerator.createUnit(unit.getUnitType(), unit.getUnitName(), unit.getSpecialization(),
+                            unit.getPrice() + (int) patch, unit.getArmor(), unit.getHealth(), unit.getSightRange(), unit.getUnseenRange(),
+                            unit.getSpeed(), unit.getWeight(), unit.getAbilities(), unit.getExtraStat());
+                    current.put(unit.getUnitName(), changed);
+                }
+            }
+            history.addVersion(patch, current.values());
+            patches.put(patch, new UnitCatalog(new ArrayList<>(current.values())).snapshot());
+        }
+
+        assertTrue(history.getRevisions() <= units.size() + 199 * 5, history.toString());
+        for (long patch = 1; patch <= 200; patch += 17)
+        {
+            UnitCatalog.Snapshot snapshot = patches.get(patch);
+            assertEquals(fields(snapshot.getUnits()), fields(history.list(null, patch)));
+            assertEquals(fields(snapshot.list("Tank")), fields(history.list("Tank", patch)));
+            assertEquals(fields(snapshot.range("Fighter", "F", "M")), fields(history.range("Fighter", "F", "M", patch)));
+            for (Unit unit : snapshot.getUnits().subList(0, 50))
+            {
+                assertEquals(UnitCodec.fields(unit), UnitCodec.fields(history.get(unit.getUnitName(), patch)));
+            }
+        }
+    }
+
+    @Test
+    void testFollowingACatalogRecordsEachEdit()
+    {
+        UnitCatalog catalog = new UnitCatalog(List.of(tank("T-14 Armata", 400), fighter("Su-57", 345)));
+        catalog.put(tank("T-90M", 300));
+        UnitHistory history = UnitHistory.follow(catalog);
+        assertEquals(2, history.getLatestVersion());
+
+        catalog.put(tank("T-14 Armata", 420));
+        catalog.remove("Su-57");
+        catalog.put(tank("T-14 Armata", 430));
+        assertEquals(5, history.getLatestVersion());
+        assertEquals(400, history.get("T-14 Armata", 2).getPrice());
+        assertEquals(420, history.get("T-14 Armata", 3).getPrice());
+        assertEquals(345, history.get("Su-57", 3).getPrice());
+        assertNull(history.get("Su-57", 4));
+        assertEquals(names(catalog.snapshot().getUnits()), names(history.list(null, 5)));
+        assertEquals(430, history.get("T-14 Armata", 5).getPrice());
+    }
+}
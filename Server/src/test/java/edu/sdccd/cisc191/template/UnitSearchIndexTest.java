@@ -0,0 +1,104 @@
+package edu.sdccd.cisc191.template;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitSearchIndexTest
+{
+    private static final String[] WORDS = {"Armata", "Abrams", "Leopard", "Raider", "Beret", "Falcon", "Hornet", "Viper", "Tiger", "Sabre"};
+    private static final String[] SPECIALIZATIONS = {"RU Guard Tank Brigade", "USMC", "VDV", "U.S. Armored Brigade", "RU Coastal Troops"};
+
+    private static UnitSearchIndex catalogIndex;
+    private static UnitSearchIndex largeIndex;
+
+    @BeforeAll
+    static void setUp()
+    {
+        catalogIndex = new UnitSearchIndex(UnitStatsLoader.loadResource(UnitStatsLoader.DEFAULT_RESOURCE));
+
+        Random random = new Random(7);
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++)
+        {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " Mk" + i;
+            units.add(new Tank(name, "Tank", SPECIALIZATIONS[random.nextInt(SPECIALIZATIONS.length)], 300, 700, 16, 1600, 1, 70, 460000, "Smoke", 90));
+        }
+        largeIndex = new UnitSearchIndex(units);
+    }
+
+    private static List<String> names(List<Unit> units)
+    {
+        return units.stream().map(Unit::getUnitName).toList();
+    }
+
+    @Test
+    void testPrefixesOfNamesAndSpecializations()
+    {
+        // Name matches come before specialization matches, here "U.S. Armored Brigade"
+        assertEquals(List.of("T-14 Armata", "M1A2 SEP v2 Abrams"), names(catalogIndex.search("arm", 10)));
+        assertEquals(List.of("T-14 Armata"), names(catalogIndex.search("t14", 10)));
+        assertEquals(List.of("T-14 Armata"), names(catalogIndex.search("T-14", 10)));
+        assertEquals(List.of("F-35B", "Marine Raiders CQC"), names(catalogIndex.search("usmc", 10)));
+        // Every word has to match
+        assertEquals(List.of("Chernye Berety"), names(catalogIndex.search("ru coast", 10)));
+        assertTrue(catalogIndex.search("zzz", 10).isEmpty());
+        assertTrue(catalogIndex.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testTypos()
+    {
+        assertEquals(List.of("T-14 Armata"), names(catalogIndex.search("Armatta", 10)));
+        assertEquals(List.of("T-14 Armata"), names(catalogIndex.search("Amrata", 10)));
+        assertEquals(List.of("M1A2 SEP v2 Abrams"), names(catalogIndex.search("Abrms", 10)));
+        assertEquals(List.of("Su-57"), names(catalogIndex.search("su75", 10)));
+        // Short words have to be exact
+        assertTrue(catalogIndex.search("sv5", 10).isEmpty());
+    }
+
+    @Test
+    void testPrefixDistance()
+    {
+        assertEquals(0, UnitSearchIndex.prefixDistance("arm", "armata", 1));
+        assertEquals(1, UnitSearchIndex.prefixDistance("armatta", "armata", 1));
+        assertEquals(1, UnitSearchIndex.prefixDistance("amra", "armata", 1));
+        assertEquals(2, UnitSearchIndex.prefixDistance("xyzw", "armata", 1));
+    }
+
+    @Test
+    void testTypingNarrowsThePreviousMatches()
+    {
+        UnitSearchIndex.Session session = largeIndex.session();
+        String query = "Leopadr Rai";
+        for (int i = 1; i <= query.length(); i++)
+        {
+            String typed = query.substring(0, i);
+            assertEquals(names(largeIndex.search(typed, 20)), names(session.search(typed, 20)), typed);
+        }
+        assertTrue(session.getNarrowed() > 0);
+
+        List<Unit> found = session.search(query, 20);
+        assertEquals(20, found.size());
+        for (Unit unit : found)
+        {
+            assertTrue(unit.getUnitName().contains("Leopard") && unit.getUnitName().contains("Raider"), unit.getUnitName());
+        }
+    }
+
+    @Test
+    void testExactPrefixesRankFirst()
+    {
+        List<Unit> found = largeIndex.search("tiger", 50);
+        assertEquals(50, found.size());
+        for (Unit unit : found)
+        {
+            assertTrue(unit.getUnitName().contains("Tiger"), unit.getUnitName());
+        }
+    }
+}